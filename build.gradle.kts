@@ -18,6 +18,15 @@ node {
     nodeProjectDir.set(file("frontend"))
 }
 
+// 压测工具，独立于主程序打包，见 src/loadtest
+val loadtest: SourceSet by sourceSets.creating
+
+// JMH 微基准，依赖主程序的类，不打入 bootJar，见 src/jmh
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
 repositories {
     maven {
         url = uri("https://maven.aliyun.com/repository/public")
@@ -30,7 +39,14 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter")
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
     runtimeOnly("org.postgresql:postgresql")
+    // loadtest 配置下以内存数据库代替 PostgreSQL，只用于 bootRun，不打入 bootJar
+    developmentOnly("com.h2database:h2")
+    "loadtestImplementation"("tools.jackson.core:jackson-databind")
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
@@ -39,6 +55,28 @@ tasks.withType<Test> {
     useJUnitPlatform()
 }
 
+// 压测本地实例：先以 ./gradlew bootRun --args=--spring.profiles.active=loadtest 启动，
+// 参数以 -Ploadtest.<key>=<value> 传入，如 -Ploadtest.sandbox=loadtest -Ploadtest.clients=50 -Ploadtest.baseline=loadtest/baseline.json；
+// sandbox=loadtest 以 src/main/resources/sandbox/loadtest.json 的配置与兴趣点开始模拟
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Replays frontend polling against a running instance and reports per-endpoint latency"
+    classpath = loadtest.runtimeClasspath
+    mainClass.set("com.tsadmin.transport.loadtest.LoadTest")
+    args = project.properties
+        .filterKeys { it.startsWith("loadtest.") }
+        .map { (key, value) -> "--${key.removePrefix("loadtest.")}=$value" }
+}
+
+// 运行微基准，参数以 -Pjmh.args 原样传给 JMH，如 -Pjmh.args="CollectionsBenchmark -prof gc"
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH microbenchmarks in src/jmh"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args = (project.findProperty("jmh.args") as String? ?: "").split(" ").filter { it.isNotBlank() }
+}
+
 tasks.register<com.github.gradle.node.yarn.task.YarnTask>("yarnInstall") {
     args.set(listOf("install"))
     workingDir.set(file("frontend"))
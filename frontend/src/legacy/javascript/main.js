@@ -826,10 +826,9 @@ async function update()
 {
     await updateCars();//车辆位置更新
     
-    // 更新事件管理器
+    // 拉取后端路况事件
     if (eventManager) {
-        eventManager.update();
-        console.log('事件管理器更新完成');
+        await eventManager.update();
     }
 }
 
@@ -895,9 +894,11 @@ async function updateCars() {
                     avoidPolygons = eventManager.closurePaths.map(cp => cp.event.path);
                 }
 
-                // 路径规划（并发少量即可）
+                // 优先使用后端规划的路线，仅在后端未返回路线时调用高德规划（并发少量即可）
                 let route;
-                if (avoidPolygons.length > 0 && eventManager) {
+                if (recivdata.route && recivdata.route.steps) {
+                    route = recivdata.route;
+                } else if (avoidPolygons.length > 0 && eventManager) {
                     route = await eventManager.planRouteWithAvoidance(start, end, avoidPolygons);
                 } else {
                     route = await planRoute(start, end);
@@ -0,0 +1,143 @@
+/**
+ * 车辆位置二进制帧解码器，对应后端 PositionFrames（GET /api/data/positions?epoch=<epoch>&base=<tick>）
+ *
+ * 帧为列式布局：槽位下标、量化经纬度（度 * 1e5，ZigZag 变长编码的差值）、状态序号。
+ * 增量帧只包含变化的车辆，需要在上一帧的基础上解码；
+ * 后端重新初始化世界后纪元改变、周期从头计数，纪元或基准周期不符的增量帧不能应用，改为请求关键帧。
+ */
+
+export const POSITION_SCALE = 1e5
+
+/** 与后端 Vehicle.VehState 的声明顺序一致 */
+export const VEHICLE_STATES = [
+  'AVAILABLE',
+  'ORDER_TAKEN',
+  'LOADING',
+  'TRANSPORTING',
+  'UNLOADING',
+  'FREEZE',
+] as const
+
+export const POSITION_FRAME_VERSION = 2
+
+export interface FleetPositions {
+  /** 帧对应的世界纪元，作为下一次请求的 epoch 参数 */
+  epoch: number
+  /** 帧对应的快照周期，作为下一次请求的 base 参数 */
+  tick: number
+  /** 量化纬度，下标为车辆槽位 */
+  lat: Int32Array
+  /** 量化经度，下标为车辆槽位 */
+  lng: Int32Array
+  /** 状态序号，下标为车辆槽位 */
+  state: Uint8Array
+}
+
+/** 增量帧的纪元或基准周期与已持有的帧不符，需重新请求关键帧 */
+export class BaseMismatchError extends Error {
+  constructor(epoch: number, baseTick: number) {
+    super(`Delta frame based on epoch ${epoch} tick ${baseTick} cannot be applied`)
+    this.name = 'BaseMismatchError'
+  }
+}
+
+class Reader {
+  private pos = 0
+  private readonly bytes: Uint8Array
+
+  constructor(bytes: Uint8Array) {
+    this.bytes = bytes
+  }
+
+  byte(): number {
+    if (this.pos >= this.bytes.length) throw new RangeError('Truncated position frame')
+    return this.bytes[this.pos++]
+  }
+
+  varint(): number {
+    // 经纬度差值与周期均远小于 2^53，使用乘法累加避免 32 位位运算溢出
+    let result = 0
+    let scale = 1
+    for (;;) {
+      const b = this.byte()
+      result += (b & 0x7f) * scale
+      if ((b & 0x80) === 0) return result
+      scale *= 128
+    }
+  }
+
+  zigzag(): number {
+    const v = this.varint()
+    return v % 2 === 0 ? v / 2 : -(v + 1) / 2
+  }
+}
+
+/**
+ * 解码一帧
+ * @param buffer 响应体
+ * @param prev 上一次解码结果；增量帧必须提供且其纪元、tick 分别等于帧的纪元与基准周期
+ * @returns 新的车队位置，不修改 prev
+ * @throws BaseMismatchError 增量帧无法应用于 prev
+ */
+export function decodePositionFrame(buffer: ArrayBuffer, prev?: FleetPositions): FleetPositions {
+  const r = new Reader(new Uint8Array(buffer))
+  if (r.byte() !== 0x56 || r.byte() !== 0x50) throw new Error('Bad position frame magic')
+  const version = r.byte()
+  if (version !== POSITION_FRAME_VERSION) throw new Error(`Unsupported position frame version ${version}`)
+  const isDelta = (r.byte() & 1) === 1
+
+  const epoch = r.varint()
+  const tick = r.varint()
+  const baseTick = r.varint()
+  const size = r.varint()
+  const n = r.varint()
+
+  if (isDelta && (!prev || prev.epoch !== epoch || prev.tick !== baseTick)) {
+    throw new BaseMismatchError(epoch, baseTick)
+  }
+
+  const lat = new Int32Array(size)
+  const lng = new Int32Array(size)
+  const state = new Uint8Array(size)
+  if (isDelta && prev) {
+    lat.set(prev.lat.subarray(0, Math.min(size, prev.lat.length)))
+    lng.set(prev.lng.subarray(0, Math.min(size, prev.lng.length)))
+    state.set(prev.state.subarray(0, Math.min(size, prev.state.length)))
+  }
+
+  const slots = new Uint32Array(n)
+  let last = -1
+  for (let k = 0; k < n; k++) {
+    last += r.varint() + 1
+    slots[k] = last
+  }
+  for (let k = 0; k < n; k++) lat[slots[k]] += r.zigzag()
+  for (let k = 0; k < n; k++) lng[slots[k]] += r.zigzag()
+  for (let k = 0; k < n; k++) state[slots[k]] = r.byte()
+
+  return { epoch, tick, lat, lng, state }
+}
+
+async function requestFrame(prev?: FleetPositions): Promise<ArrayBuffer> {
+  const url = new URL('/api/data/positions', window.location.origin)
+  url.searchParams.set('epoch', String(prev?.epoch ?? 0))
+  url.searchParams.set('base', String(prev?.tick ?? 0))
+
+  const response = await fetch(url)
+  if (!response.ok) throw new Error(`Position frame request failed: ${response.status}`)
+  return response.arrayBuffer()
+}
+
+/**
+ * 拉取并解码最新帧，基准不匹配时服务端会返回关键帧；
+ * 若仍收到无法应用的增量帧（如请求期间世界被重新初始化），丢弃 prev 重新请求关键帧
+ * @param prev 上一次的结果，首次调用不传
+ */
+export async function fetchPositions(prev?: FleetPositions): Promise<FleetPositions> {
+  try {
+    return decodePositionFrame(await requestFrame(prev), prev)
+  } catch (error) {
+    if (!(error instanceof BaseMismatchError)) throw error
+    return decodePositionFrame(await requestFrame())
+  }
+}
@@ -0,0 +1,122 @@
+package com.tsadmin.transport.jmh;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tsadmin.transport.util.IntIntMap;
+import com.tsadmin.transport.util.IntList;
+import com.tsadmin.transport.util.LongDeque;
+
+/**
+ * 基本类型集合与装箱集合的对比，模拟调度与车辆更新中的用法：
+ * <ul>
+ * <li>{@link IntIntMap} 对 {@code HashMap<Integer, Integer>}：订单编号到请求下标的映射，先建表再逐个查找</li>
+ * <li>{@link IntList} 对 {@code ArrayList<Integer>}：追加后按下标扫描</li>
+ * <li>{@link LongDeque} 对 {@code ArrayDeque<Long>}：路径点队列，整体替换后逐个出队</li>
+ * </ul>
+ * 每次调用都新建集合，分配与装箱的开销计入结果；以 {@code -prof gc} 运行可对比每次操作的分配量
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionsBenchmark
+{
+    /** 元素数：单车路径点规模与单批调度的订单规模 */
+    @Param({ "16", "1024" })
+    public int size;
+
+    // 订单编号稀疏分布，模拟订单槽位回收后的编号
+    private int[] keys;
+    private long[] nodes;
+
+    @Setup
+    public void setup()
+    {
+        keys = new int[size];
+        nodes = new long[size];
+        for (int i = 0; i < size; i++)
+        {
+            keys[i] = i * 7 + 3;
+            nodes[i] = ((long)i << 32) | (i << 1);
+        }
+    }
+
+    @Benchmark
+    public long intIntMap()
+    {
+        IntIntMap map = new IntIntMap(size);
+        for (int i = 0; i < size; i++) map.put(keys[i], i);
+        long sum = 0;
+        for (int key : keys) sum += map.get(key, -1);
+        return sum;
+    }
+
+    @Benchmark
+    public long boxedHashMap()
+    {
+        Map<Integer, Integer> map = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) map.put(keys[i], i);
+        long sum = 0;
+        for (int key : keys) sum += map.getOrDefault(key, -1);
+        return sum;
+    }
+
+    @Benchmark
+    public long intList()
+    {
+        IntList list = new IntList();
+        for (int key : keys) list.add(key);
+        long sum = 0;
+        for (int i = 0; i < list.size(); i++) sum += list.get(i);
+        return sum;
+    }
+
+    @Benchmark
+    public long boxedArrayList()
+    {
+        List<Integer> list = new ArrayList<>();
+        for (int key : keys) list.add(key);
+        long sum = 0;
+        for (int i = 0; i < list.size(); i++) sum += list.get(i);
+        return sum;
+    }
+
+    @Benchmark
+    public long longDeque()
+    {
+        LongDeque deque = new LongDeque();
+        deque.addAll(nodes);
+        long sum = 0;
+        while (!deque.isEmpty()) sum += deque.pollFirst();
+        return sum;
+    }
+
+    @Benchmark
+    public long boxedArrayDeque()
+    {
+        ArrayDeque<Long> deque = new ArrayDeque<>();
+        for (long node : nodes) deque.addLast(node);
+        long sum = 0;
+        while (!deque.isEmpty()) sum += deque.pollFirst();
+        return sum;
+    }
+}
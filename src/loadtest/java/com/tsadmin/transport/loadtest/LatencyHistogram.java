@@ -0,0 +1,70 @@
+package com.tsadmin.transport.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图，对数分桶：每个 2 的幂区间再等分为 {@value #SUB_BUCKETS} 个子桶，相对误差不超过 1/{@value #SUB_BUCKETS}
+ * <p>以微秒记录，多线程并发写入无锁，适合长时间压测中统计 p999 等尾部延迟
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // 2^40 微秒约 12 天，足以覆盖任何超时
+    private static final int MAGNITUDES = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(MAGNITUDES * SUB_BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile long max = 0;
+
+    public void record(long micros)
+    {
+        long v = Math.max(micros, 0);
+        counts.incrementAndGet(index(v));
+        total.increment();
+        if (v > max) max = v;
+    }
+
+    public void recordError() { errors.increment(); }
+
+    public long count() { return total.sum(); }
+    public long errors() { return errors.sum(); }
+    public long max() { return max; }
+
+    /**
+     * @param quantile 分位数，如 0.99
+     * @return 分位延迟（微秒），取所在子桶的上界，无数据时为 0
+     */
+    public long percentile(double quantile)
+    {
+        long n = count();
+        if (n == 0) return 0;
+        long rank = (long)Math.ceil(quantile * n);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++)
+        {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    /** 小于 {@value #SUB_BUCKETS} 的值逐一分桶，其余按最高位所在区间与其后 {@value #SUB_BITS} 位分桶 */
+    private static int index(long v)
+    {
+        if (v < SUB_BUCKETS) return (int)v;
+        int magnitude = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS + 1;
+        if (magnitude >= MAGNITUDES) return MAGNITUDES * SUB_BUCKETS - 1;
+        int sub = (int)(v >>> (magnitude - 1)) & (SUB_BUCKETS - 1);
+        return magnitude * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index)
+    {
+        int magnitude = index >> SUB_BITS, sub = index & (SUB_BUCKETS - 1);
+        if (magnitude == 0) return sub;
+        return ((long)(sub | SUB_BUCKETS) + 1 << (magnitude - 1)) - 1;
+    }
+}
@@ -0,0 +1,293 @@
+package com.tsadmin.transport.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * 压测工具，按前端的轮询方式模拟多个浏览器客户端访问本地实例
+ * <p>每个客户端每个更新周期（前端为 7000ms）：
+ * <ul>
+ * <li>同 {@code main.js} 的 {@code updateCars}：以 3 个并发对空闲车辆逐一请求 {@code /api/data/destination}，
+ * 得到目的地的车辆在若干周期内视为行驶中，不再请求</li>
+ * <li>同 {@code map.html} 的 {@code fetchAllData}：逐一请求车辆的 {@code /api/data/dashboard}</li>
+ * </ul>
+ * 客户端启动时刻在一个周期内随机错开，随机数种子固定，同样的参数得到同样的请求序列
+ * <p>结束后按接口输出吞吐、p50/p99/p999 延迟与错误率并写入报告文件；指定基线报告时逐项比较，超出容差则以非零状态退出
+ * <p>参数均为 {@code --key=value}，见 {@link #main(String[])}
+ */
+public class LoadTest
+{
+    /** 被压测的接口 */
+    public enum Endpoint
+    {
+        DESTINATION("destination"),
+        DASHBOARD("dashboard");
+
+        private final String key;
+        Endpoint(String key) { this.key = key; }
+        public String getKey() { return key; }
+    }
+
+    private final HttpClient http;
+    private final String base;
+    private final int clients, concurrency, intervalMs, dashboardCars;
+    private final long warmupMs, durationMs;
+    private final Duration timeout;
+    private final long seed;
+    private final Map<Endpoint, LatencyHistogram> histograms = new EnumMap<>(Endpoint.class);
+    private volatile boolean measuring = false;
+    private volatile boolean running = true;
+
+    private LoadTest(Map<String, String> args)
+    {
+        base = args.getOrDefault("base", "http://localhost:8080").replaceAll("/+$", "");
+        clients = Integer.parseInt(args.getOrDefault("clients", "10"));
+        concurrency = Integer.parseInt(args.getOrDefault("concurrency", "3"));
+        intervalMs = Integer.parseInt(args.getOrDefault("interval", "7000"));
+        dashboardCars = Integer.parseInt(args.getOrDefault("dashboard-cars", "-1"));
+        warmupMs = Long.parseLong(args.getOrDefault("warmup", "30")) * 1000;
+        durationMs = Long.parseLong(args.getOrDefault("duration", "120")) * 1000;
+        timeout = Duration.ofMillis(Long.parseLong(args.getOrDefault("timeout", "5000")));
+        seed = Long.parseLong(args.getOrDefault("seed", "42"));
+        for (Endpoint endpoint : Endpoint.values()) histograms.put(endpoint, new LatencyHistogram());
+
+        http = HttpClient.newBuilder()
+            .connectTimeout(timeout)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    }
+
+    /**
+     * 参数：
+     * <ul>
+     * <li>{@code base}：实例地址，默认 {@code http://localhost:8080}</li>
+     * <li>{@code sandbox}：先以该沙箱 UUID 调用 {@code /api/sandbox/start} 开始模拟，不指定则假定模拟已在运行</li>
+     * <li>{@code clients}：客户端数，默认 10；{@code concurrency}：每个客户端请求目的地的并发数，默认 3</li>
+     * <li>{@code interval}：轮询周期（毫秒），默认 7000；{@code dashboard-cars}：每周期请求仪表盘的车辆数，默认全部</li>
+     * <li>{@code warmup} / {@code duration}：预热与计量时长（秒），默认 30 / 120；{@code timeout}：请求超时（毫秒），默认 5000</li>
+     * <li>{@code seed}：随机数种子，默认 42</li>
+     * <li>{@code report}：报告文件，默认 {@code build/loadtest/report.json}</li>
+     * <li>{@code baseline}：基线报告；{@code tolerance}：延迟与吞吐的相对容差，默认 0.1；{@code error-tolerance}：错误率的绝对容差，默认 0.001</li>
+     * </ul>
+     */
+    public static void main(String[] argv) throws Exception
+    {
+        Map<String, String> args = new HashMap<>();
+        for (String arg : argv)
+        {
+            if (!arg.startsWith("--") || !arg.contains("=")) throw new IllegalArgumentException("Expected --key=value, got " + arg);
+            args.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        LoadTest test = new LoadTest(args);
+        if (args.containsKey("sandbox")) test.startSimulation(args.get("sandbox"));
+        List<String> vehicles = test.discoverVehicles();
+        test.run(vehicles);
+
+        Report report = Report.of(test.histograms, test.clients, vehicles.size(), test.durationMs);
+        report.print(System.out);
+        Path out = Path.of(args.getOrDefault("report", "build/loadtest/report.json"));
+        report.write(out);
+        System.out.println("Report written to " + out.toAbsolutePath());
+
+        if (args.containsKey("baseline"))
+        {
+            Report baseline = Report.read(Path.of(args.get("baseline")));
+            boolean passed = report.compare(baseline,
+                Double.parseDouble(args.getOrDefault("tolerance", "0.1")),
+                Double.parseDouble(args.getOrDefault("error-tolerance", "0.001")),
+                System.out);
+            if (!passed) System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private void startSimulation(String sandbox) throws IOException, InterruptedException
+    {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/api/sandbox/start"))
+            .timeout(timeout)
+            .POST(HttpRequest.BodyPublishers.ofString(sandbox))
+            .build();
+        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) throw new IllegalStateException("Failed to start simulation: HTTP " + response.statusCode());
+    }
+
+    /** 从 {@code /api/data/fleet} 读取车辆 UUID，车队快照尚未发布时等待 */
+    private List<String> discoverVehicles() throws IOException, InterruptedException
+    {
+        ObjectMapper mapper = new ObjectMapper();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/api/data/fleet")).timeout(timeout).GET().build();
+        long giveUp = System.currentTimeMillis() + 60_000;
+        while (true)
+        {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            List<String> uuids = new ArrayList<>();
+            if (response.statusCode() == 200)
+            {
+                for (JsonNode car : mapper.readTree(response.body()))
+                {
+                    JsonNode uuid = car.get("UUID");
+                    if (uuid != null && !uuid.isNull()) uuids.add(uuid.asString());
+                }
+            }
+            if (!uuids.isEmpty())
+            {
+                System.out.println(uuids.size() + " vehicles discovered");
+                return uuids;
+            }
+            if (System.currentTimeMillis() > giveUp) throw new IllegalStateException("No vehicles published by " + base);
+            Thread.sleep(1000);
+        }
+    }
+
+    private void run(List<String> vehicles) throws InterruptedException
+    {
+        Random seeds = new Random(seed);
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (int c = 0; c < clients; c++)
+            {
+                Client client = new Client(vehicles, new Random(seeds.nextLong()));
+                pool.submit(client::run);
+            }
+
+            System.out.printf("%d clients polling every %d ms, warming up for %d s%n", clients, intervalMs, warmupMs / 1000);
+            Thread.sleep(warmupMs);
+            measuring = true;
+            System.out.printf("Measuring for %d s%n", durationMs / 1000);
+            Thread.sleep(durationMs);
+            measuring = false;
+            running = false;
+            pool.shutdownNow();
+            pool.awaitTermination(timeout.toMillis() * 2, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** 发送一次 GET 请求并计入对应接口的直方图，预热期间不计 */
+    private boolean get(Endpoint endpoint, String uuid)
+    {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/api/data/" + endpoint.getKey() + "?uuid=" + uuid))
+            .timeout(timeout)
+            .GET()
+            .build();
+        LatencyHistogram histogram = histograms.get(endpoint);
+        long start = System.nanoTime();
+        try
+        {
+            HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            long micros = (System.nanoTime() - start) / 1000;
+            if (!measuring) return response.statusCode() == 200 && !isNull(response.body());
+            if (response.statusCode() != 200)
+            {
+                histogram.recordError();
+                return false;
+            }
+            histogram.record(micros);
+            return !isNull(response.body());
+        }
+        catch (IOException e)
+        {
+            if (measuring && running) histogram.recordError();
+            return false;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean isNull(byte[] body) { return body.length == 4 && body[0] == 'n' && body[1] == 'u' && body[2] == 'l' && body[3] == 'l'; }
+
+    /** 一个浏览器客户端，持有各车辆在本客户端视角下的行驶状态 */
+    private final class Client
+    {
+        private final List<String> vehicles;
+        private final Random random;
+        // 车辆在第几个周期前视为行驶中，对应前端 car.status == 1
+        private final int[] busyUntil;
+        private int cycle = 0;
+
+        Client(List<String> vehicles, Random random)
+        {
+            this.vehicles = vehicles;
+            this.random = random;
+            this.busyUntil = new int[vehicles.size()];
+        }
+
+        void run()
+        {
+            try
+            {
+                Thread.sleep(random.nextInt(intervalMs));
+                long next = System.nanoTime();
+                while (running && !Thread.currentThread().isInterrupted())
+                {
+                    // 前端以 setInterval 固定频率触发，上一轮未完成时跳过本轮
+                    next += TimeUnit.MILLISECONDS.toNanos(intervalMs);
+                    updateCars();
+                    fetchDashboards();
+                    cycle++;
+                    long sleep = next - System.nanoTime();
+                    if (sleep > 0) TimeUnit.NANOSECONDS.sleep(sleep);
+                    else next = System.nanoTime();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void updateCars() throws InterruptedException
+        {
+            List<Integer> idle = new ArrayList<>();
+            for (int i = 0; i < vehicles.size(); i++)
+            {
+                if (busyUntil[i] <= cycle) idle.add(i);
+            }
+
+            AtomicInteger cursor = new AtomicInteger();
+            // 行驶时长取 1~4 个周期，种子固定，结果可复现
+            int[] trip = new int[idle.size()];
+            for (int k = 0; k < trip.length; k++) trip[k] = 1 + random.nextInt(4);
+            Thread[] workers = new Thread[concurrency];
+            for (int w = 0; w < concurrency; w++)
+            {
+                workers[w] = Thread.ofVirtual().start(() -> {
+                    int k;
+                    while (running && (k = cursor.getAndIncrement()) < idle.size())
+                    {
+                        int i = idle.get(k);
+                        if (get(Endpoint.DESTINATION, vehicles.get(i))) busyUntil[i] = cycle + trip[k];
+                    }
+                });
+            }
+            for (Thread worker : workers) worker.join();
+        }
+
+        private void fetchDashboards()
+        {
+            int n = dashboardCars < 0 ? vehicles.size() : Math.min(dashboardCars, vehicles.size());
+            for (int i = 0; i < n && running; i++) get(Endpoint.DASHBOARD, vehicles.get(i));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.tsadmin.transport.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.tsadmin.transport.loadtest.LoadTest.Endpoint;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * 压测报告，按接口汇总吞吐、延迟分位与错误率，以 JSON 保存，可作为后续压测的基线
+ * <p>与基线比较时：p50/p99/p999 延迟不得高于基线的 {@code 1 + tolerance} 倍，吞吐不得低于基线的 {@code 1 - tolerance} 倍，
+ * 错误率不得比基线高出 {@code errorTolerance}；基线中没有的接口不参与比较
+ */
+public final class Report
+{
+    /** 单个接口的结果，延迟以毫秒计 */
+    public record Result(long requests, long errors, double throughput, double p50, double p99, double p999, double max)
+    {
+        public double errorRate() { return requests + errors == 0 ? 0 : (double)errors / (requests + errors); }
+    }
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private final int clients, vehicles;
+    private final double seconds;
+    private final Map<String, Result> results;
+
+    private Report(int clients, int vehicles, double seconds, Map<String, Result> results)
+    {
+        this.clients = clients;
+        this.vehicles = vehicles;
+        this.seconds = seconds;
+        this.results = results;
+    }
+
+    public static Report of(Map<Endpoint, LatencyHistogram> histograms, int clients, int vehicles, long durationMs)
+    {
+        double seconds = durationMs / 1000.0;
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (Map.Entry<Endpoint, LatencyHistogram> entry : histograms.entrySet())
+        {
+            LatencyHistogram h = entry.getValue();
+            results.put(entry.getKey().getKey(), new Result(h.count(), h.errors(), h.count() / seconds,
+                h.percentile(0.5) / 1000.0, h.percentile(0.99) / 1000.0, h.percentile(0.999) / 1000.0, h.max() / 1000.0));
+        }
+        return new Report(clients, vehicles, seconds, results);
+    }
+
+    public static Report read(Path file) throws IOException
+    {
+        JsonNode root = JSON_MAPPER.readTree(Files.readString(file));
+        Map<String, Result> results = new LinkedHashMap<>();
+        JsonNode endpoints = root.get("endpoints");
+        for (Map.Entry<String, JsonNode> entry : endpoints.properties())
+        {
+            JsonNode r = entry.getValue();
+            results.put(entry.getKey(), new Result(r.get("requests").asLong(), r.get("errors").asLong(), r.get("throughput").asDouble(),
+                r.get("p50").asDouble(), r.get("p99").asDouble(), r.get("p999").asDouble(), r.get("max").asDouble()));
+        }
+        return new Report(root.get("clients").asInt(), root.get("vehicles").asInt(), root.get("seconds").asDouble(), results);
+    }
+
+    public void write(Path file) throws IOException
+    {
+        ObjectNode root = JSON_MAPPER.createObjectNode();
+        root.put("clients", clients);
+        root.put("vehicles", vehicles);
+        root.put("seconds", seconds);
+        ObjectNode endpoints = root.putObject("endpoints");
+        results.forEach((name, r) -> {
+            ObjectNode node = endpoints.putObject(name);
+            node.put("requests", r.requests());
+            node.put("errors", r.errors());
+            node.put("errorRate", r.errorRate());
+            node.put("throughput", r.throughput());
+            node.put("p50", r.p50());
+            node.put("p99", r.p99());
+            node.put("p999", r.p999());
+            node.put("max", r.max());
+        });
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Files.writeString(file, JSON_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(root));
+    }
+
+    public void print(PrintStream out)
+    {
+        out.printf("%n%d clients, %d vehicles, %.0f s measured%n", clients, vehicles, seconds);
+        out.printf("%-12s %10s %8s %10s %10s %10s %10s %10s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        results.forEach((name, r) -> out.printf("%-12s %10d %7.2f%% %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+            name, r.requests(), r.errorRate() * 100, r.throughput(), r.p50(), r.p99(), r.p999(), r.max()));
+    }
+
+    /**
+     * 与基线逐项比较并输出结果
+     * @return {@code true} 如果没有超出容差的项
+     */
+    public boolean compare(Report baseline, double tolerance, double errorTolerance, PrintStream out)
+    {
+        if (baseline.clients != clients || baseline.vehicles != vehicles)
+        {
+            out.printf("Warning: baseline ran %d clients on %d vehicles, this run %d clients on %d vehicles%n",
+                baseline.clients, baseline.vehicles, clients, vehicles);
+        }
+
+        boolean passed = true;
+        for (Map.Entry<String, Result> entry : results.entrySet())
+        {
+            Result base = baseline.results.get(entry.getKey());
+            if (base == null) continue;
+            Result r = entry.getValue();
+            String name = entry.getKey();
+            passed &= check(out, name, "p50", r.p50(), base.p50() * (1 + tolerance), true);
+            passed &= check(out, name, "p99", r.p99(), base.p99() * (1 + tolerance), true);
+            passed &= check(out, name, "p999", r.p999(), base.p999() * (1 + tolerance), true);
+            passed &= check(out, name, "throughput", r.throughput(), base.throughput() * (1 - tolerance), false);
+            passed &= check(out, name, "errorRate", r.errorRate(), base.errorRate() + errorTolerance, true);
+        }
+        out.println(passed ? "Baseline comparison passed" : "Baseline comparison FAILED");
+        return passed;
+    }
+
+    private static boolean check(PrintStream out, String endpoint, String metric, double value, double limit, boolean upper)
+    {
+        boolean ok = upper ? value <= limit : value >= limit;
+        if (!ok) out.printf("  %s %s: %.4f %s limit %.4f%n", endpoint, metric, value, upper ? ">" : "<", limit);
+        return ok;
+    }
+}
@@ -10,7 +10,15 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import com.tsadmin.transport.config.ConfigLoader;
 import com.tsadmin.transport.domain.CarManager;
 import com.tsadmin.transport.domain.DemandManager;
+import com.tsadmin.transport.domain.DispatchManager;
+import com.tsadmin.transport.domain.EventManager;
+import com.tsadmin.transport.domain.MetricsManager;
 import com.tsadmin.transport.domain.PoiManager;
+import com.tsadmin.transport.domain.RouteManager;
+import com.tsadmin.transport.domain.RoutePlanner;
+import com.tsadmin.transport.domain.TraceManager;
+import com.tsadmin.transport.domain.TravelMatrix;
+import com.tsadmin.transport.domain.WorldManager;
 import com.tsadmin.transport.service.DataUpdater;
 
 @SpringBootApplication
@@ -18,6 +26,8 @@ public class TransportApplication
 {
     private static Logger logger = LogManager.getLogger("App");
     private static boolean isRunning = false;
+    private static DataUpdater updater;
+    private static Thread updaterThread;
 
     public static void main(String[] args)
     {
@@ -43,18 +53,34 @@ public class TransportApplication
             }
         }
 
-        PoiManager.init();
-        CarManager.init();
-        DemandManager.init();
+        TraceManager.init();
+        WorldManager.lock();
+        try
+        {
+            RouteManager.init();
+            RoutePlanner.init();
+            PoiManager.init();
+            CarManager.init();
+            DemandManager.init();
+            EventManager.init();
+            TravelMatrix.init();
+            DispatchManager.init();
+        }
+        finally
+        {
+            WorldManager.unlock();
+        }
+        WorldManager.init();
+        MetricsManager.init();
 
-        // // 创建新的 DataUpdater 实例
-        // updater = new DataUpdater();
-        
-        // // 将 DataUpdater 作为独立线程运行，避免阻塞主线程
-        // updaterThread = new Thread(updater);
-        // // 设置为守护线程，主程序结束时自动结束
-        // updaterThread.setDaemon(true);
-        // updaterThread.start();
+        // 创建新的 DataUpdater 实例
+        updater = new DataUpdater();
+
+        // 将 DataUpdater 作为独立平台线程运行，避免阻塞主线程，也不占用 Web 层的虚拟线程调度
+        updaterThread = new Thread(updater, "DataUpdater");
+        // 设置为守护线程，主程序结束时自动结束
+        updaterThread.setDaemon(true);
+        updaterThread.start();
         
         // 更新运行状态
         isRunning = true;
@@ -66,25 +92,36 @@ public class TransportApplication
     {
         logger.info("Stopping simulation...");
 
-        // if (updater != null)
-        // {
-        //     updater.stop();
-        // }
+        if (updater != null)
+        {
+            updater.stop();
+        }
 
-        // if (updaterThread != null && updaterThread.isAlive())
-        // {
-        //     updaterThread.join(5000);
-        //     if (updaterThread.isAlive())
-        //     {
-        //         logger.warn("DataUpdater thread did not stop within timeout");
-        //         // 强制中断线程
-        //         updaterThread.interrupt();
-        //     }
-        // }
+        if (updaterThread != null && updaterThread.isAlive())
+        {
+            // 线程可能正在休眠，先中断使其尽快退出
+            updaterThread.interrupt();
+            updaterThread.join(5000);
+            if (updaterThread.isAlive())
+            {
+                logger.warn("DataUpdater thread did not stop within timeout");
+            }
+        }
 
-        PoiManager.onStop();
-        CarManager.onStop();
-        DemandManager.onStop();
+        WorldManager.lock();
+        try
+        {
+            PoiManager.onStop();
+            CarManager.onStop();
+            DemandManager.onStop();
+        }
+        finally
+        {
+            WorldManager.unlock();
+        }
+        RoutePlanner.shutdown();
+        DispatchManager.shutdown();
+        TravelMatrix.shutdown();
         isRunning = false;
 
         logger.info("Simulation stopped successfully");
@@ -3,25 +3,36 @@ package com.tsadmin.transport.config;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 // import com.tsadmin.transport.dao.DBManager;
+import com.tsadmin.transport.domain.share.ProductType;
 
+import tools.jackson.core.type.TypeReference;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 
 /**
  * 读取通用 JSON 配置，从 resources/config.json 加载对应配置
+ * <p>随程序打包的沙箱（如压测用的 {@code loadtest}）从 resources/sandbox/&lt;UUID&gt;.json 加载，
+ * 可在 {@code seed} 节点附带初始数据表，见 {@link #getSeed(String)}
  */
 public final class ConfigLoader
 {
     private static final ObjectMapper objectMapper = new ObjectMapper();
     private static final Logger logger = LogManager.getLogger(ConfigLoader.class);
+    private static final TypeReference<Map<String, Object>> ROW_TYPE = new TypeReference<>() {};
+    private static final Pattern BUNDLED_NAME = Pattern.compile("[A-Za-z0-9_-]+");
     private static String configUUID;
     private static JsonNode configData;
+    private static JsonNode seedData;
 
     static
     {
@@ -45,12 +56,15 @@ public final class ConfigLoader
 
             configUUID = uuid;
             JsonNode fullJson = getFullJson();
-            configData = fullJson.get("configs");
+            configData = fullJson == null ? null : fullJson.get("configs");
 
             if (configData == null || configData.isNull())
             {
                 throw new NoSuchFieldException("No \"configs\" node found in config(UUID:" + configUUID + ")!");
             }
+            seedData = fullJson.get("seed");
+            // 产品参数表随配置切换重新加载
+            ProductType.load();
 
             logger.trace("Configuration(UUID: {}) applied successfully", uuid);
             return true;
@@ -75,6 +89,14 @@ public final class ConfigLoader
                 jsonString = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
                 inputStream.close();
             }
+            else if (BUNDLED_NAME.matcher(configUUID).matches()
+                && ConfigLoader.class.getClassLoader().getResource("sandbox/" + configUUID + ".json") != null)
+            {
+                try (InputStream inputStream = ConfigLoader.class.getClassLoader().getResourceAsStream("sandbox/" + configUUID + ".json"))
+                {
+                    jsonString = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
             else
             {
                 // jsonString = DBManager.getSandbox(configUUID);
@@ -188,6 +210,34 @@ public final class ConfigLoader
             return defaultValue;
         }
     }
+    /** 获取对象或数组类型的配置项，如各事件的速度因子表；不存在时返回 {@code null} */
+    public static JsonNode getJson(String key)
+    {
+        try
+        {
+            return getNode(key);
+        }
+        catch (Exception e)
+        {
+            logger.error("Failed to get value for key [{}] in configuration(UUID: {}), null returned", key, configUUID);
+            return null;
+        }
+    }
+
+    /**
+     * 获取当前沙箱附带的初始数据表，字段与同名数据库表的行相同
+     * @param table 表名，如 {@code poi}、{@code car}、{@code demand}
+     * @return 各行，沙箱未附带该表时为空列表
+     */
+    public static List<Map<String, Object>> getSeed(String table)
+    {
+        JsonNode rows = seedData == null ? null : seedData.get(table);
+        if (rows == null || !rows.isArray()) return List.of();
+
+        List<Map<String, Object>> list = new ArrayList<>(rows.size());
+        for (JsonNode row : rows) list.add(objectMapper.convertValue(row, ROW_TYPE));
+        return list;
+    }
       
     public static boolean[] getEnabledMultiObjectives() {
     return new boolean[] {
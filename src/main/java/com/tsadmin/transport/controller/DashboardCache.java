@@ -0,0 +1,96 @@
+package com.tsadmin.transport.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.tsadmin.transport.config.ConfigLoader;
+import com.tsadmin.transport.domain.share.VehicleView;
+
+/**
+ * 单车仪表盘帧的读缓存，以车辆 UUID 与视图生成的纪元、周期为键
+ * <p>车辆未改变时后续快照沿用同一视图，周期不变，缓存命中；
+ * 车辆改变后视图周期变化，旧帧自然失效；世界重新初始化后周期从头计数，纪元不同的帧同样失效。
+ * 多个客户端观察同一辆车时每次改变只编码一次
+ * <p>按 UUID 分段，每段为有界的 LRU 表，分段各自加锁以降低并发读的竞争
+ */
+final class DashboardCache
+{
+    private static final int SEGMENTS = 16;
+    private static final Segment[] segments = new Segment[SEGMENTS];
+
+    static
+    {
+        int capacity = Math.max(ConfigLoader.getInt("DataController.dashboard_cache_size", 4096), SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment(capacity / SEGMENTS);
+    }
+
+    private DashboardCache() {}
+
+    /** 获取车辆视图对应的仪表盘帧，未命中或已过期时编码并缓存 */
+    static byte[] get(VehicleView car)
+    {
+        Segment segment = segments[(car.getUUID().hashCode() & 0x7FFFFFFF) % SEGMENTS];
+
+        Entry entry = segment.get(car.getUUID());
+        if (entry != null && entry.epoch() == car.getEpoch() && entry.tick() == car.getTick()) return entry.frame();
+
+        // 锁外编码，并发未命中可能重复编码同一视图，结果相同
+        byte[] frame = FleetFrames.dashboard(car);
+        segment.put(car.getUUID(), new Entry(car.getEpoch(), car.getTick(), frame));
+        return frame;
+    }
+
+    private record Entry(long epoch, long tick, byte[] frame)
+    {
+        /** 纪元严格递增，先比较纪元再比较周期 */
+        boolean isNewerThan(Entry other) { return epoch != other.epoch ? epoch > other.epoch : tick >= other.tick; }
+    }
+
+    /** 有界 LRU 分段 */
+    private static final class Segment
+    {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, Entry> map;
+
+        Segment(int capacity)
+        {
+            this.map = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+                {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        Entry get(String uuid)
+        {
+            lock.lock();
+            try
+            {
+                return map.get(uuid);
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        void put(String uuid, Entry entry)
+        {
+            lock.lock();
+            try
+            {
+                // 只用更新的视图覆盖，避免慢请求把旧帧写回
+                Entry old = map.get(uuid);
+                if (old == null || entry.isNewerThan(old)) map.put(uuid, entry);
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package com.tsadmin.transport.controller;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.CompletionException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -15,11 +18,16 @@ import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.exc.JsonNodeException;
 
 import com.tsadmin.transport.domain.CarManager;
-import com.tsadmin.transport.domain.share.PathNode;
+import com.tsadmin.transport.domain.EventManager;
+import com.tsadmin.transport.domain.MetricsManager;
+import com.tsadmin.transport.domain.MetricsManager.Endpoint;
+import com.tsadmin.transport.domain.RoutePlanner;
+import com.tsadmin.transport.domain.WorldManager;
+import com.tsadmin.transport.domain.share.Coordinate;
+import com.tsadmin.transport.domain.share.VehicleView;
+import com.tsadmin.transport.domain.share.WorldSnapshot;
 // import com.tsadmin.transport.dao.DBManager;
-import com.tsadmin.transport.entity.Vehicle;
-import com.tsadmin.transport.entity.Vehicle.VehState;
-import com.tsadmin.transport.entity.CarStatistics;
+import com.tsadmin.transport.routing.Route;
 
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -33,11 +41,15 @@ import org.springframework.web.bind.annotation.RequestParam;
 @RequestMapping("/api/data")
 public class DataController
 {
-    int StateChangeTimes = 0, FreezeTimes = 0;
-    double totalDelayTime = 0;
-    int totalDelaytTime = 0;
     private static final Logger logger = LogManager.getLogger(DataController.class);
     private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final byte[] NULL_FRAME = "null".getBytes(StandardCharsets.US_ASCII);
+
+    /** 以 JSON 类型直接写出字节，不经过消息转换器的二次编码 */
+    private static ResponseEntity<byte[]> json(byte[] body)
+    {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 
     private Map<String, String> reply(boolean success, String message)
     {
@@ -106,7 +118,7 @@ public class DataController
     //     }
 
     //     // 4. 同步新解到车辆，并更新 CarStatistics
-    //     mosa.syncAssignmentsToCars(bestSolution, CarManager.carMap.values());
+    //     mosa.syncAssignmentsToCars(bestSolution, CarManager.getCars());
     //     mosa.updateCarStats(bestSolution); // 你已实现的方法
 
     //     // 5. 返回成功
@@ -114,49 +126,25 @@ public class DataController
     // }
     /**
      * 获取每辆车的仪表盘数据
+     * <p>直接写出预编码的字节，不经过 Map 与反射序列化；读取无副作用，车辆未改变时命中缓存
      */
     @GetMapping("/dashboard")
-    public Map<String,Object> getDashboardData(@RequestParam String uuid)
+    public ResponseEntity<byte[]> getDashboardData(@RequestParam String uuid)
     {
-        //Double cycleCost = 0.0;
-        
-        Vehicle car = CarManager.carMap.get(uuid);
-        if (car == null) {
-            return null;
-        }
-
-        CarStatistics statistics = car.getStatistics();
-        if (statistics != null) {
-            statistics.calculateLoad_utilization_rate(car);
-            statistics.calculateCapacity_utilization_rate(car);
-            statistics.calculateAverageOrderCycle();
+        long t = MetricsManager.start();
+        try {
+            return dashboard(uuid);
+        } finally {
+            MetricsManager.endpoint(Endpoint.DASHBOARD, t);
         }
+    }
 
-        // 返回给前端的字段使用前端期望的命名（数值保持原生类型）
-        Map<String, Object> data = new HashMap<>();
-        data.put("UUID", car.getUUID());
-        // data.put("position_lat", car.getPosition() != null ? car.getPosition().lat : null);
-        // data.put("position_lon", car.getPosition() != null ? car.getPosition().lon : null);
-        data.put("state", car.getState() != null ? car.getState().toString() :"AVAILABLE");
-        data.put("load", car.getLoad());
-
-        if (statistics != null) {
-            data.put("waitingTime", statistics.getWaitingTime());
-            data.put("emptyDistance", statistics.getEmptyDistance());
-            data.put("wastedLoad", statistics.getWastedLoad());
-            data.put("totalWeight", statistics.getTotalWeight());
-            data.put("carbonEmission", statistics.getCarbonEmission());
-            data.put("totalDistance", statistics.getTotalDistance());
-            data.put("completedOrders", statistics.getCompletedOrders());
-            // completeOrderCycle 没有公开 getter，返回 averageOrderCycle 供前端展示
-            data.put("completeOrderCycle", statistics.getAverageOrderCycle());
-            data.put("averageOrderCycle", statistics.getAverageOrderCycle());
-
-            // 按前端约定的下划线命名返回计算指标
-            data.put("mileage_utilization_rate", statistics.getMileageUtilizationRate());
-            data.put("carbon_emission_per_unit", statistics.getCarbonEmissionPerUnit());
-            data.put("load_utilization_rate", statistics.getLoad_utilization_rate());
-            data.put("capacity_utilization_rate", statistics.getCapacity_utilization_rate());
+    private ResponseEntity<byte[]> dashboard(String uuid)
+    {
+        // 只读快照，不与周期更新竞争
+        VehicleView car = WorldManager.snapshot().getVehicle(uuid);
+        if (car == null) {
+            return json(NULL_FRAME);
         }
 
         // 保存统计数据到数据库（保持现有行为）
@@ -166,8 +154,42 @@ public class DataController
             logger.warn("saveStatisticsToCarDB failed for {}: {}", uuid, e.getMessage());
         }
 
-        // 直接返回对象 JSON（不再把 JSON 再包成字符串），减少前端解析复杂度
-        return data;
+        return json(DashboardCache.get(car));
+    }
+
+    /**
+     * 获取整个车队的仪表盘数据
+     * <p>返回数据格式：与 {@code /dashboard} 相同的对象组成的数组；每个周期只编码一次，所有客户端共享
+     */
+    @GetMapping("/fleet")
+    public ResponseEntity<byte[]> getFleetData()
+    {
+        return json(FleetFrames.fleet());
+    }
+
+    /**
+     * 获取当前活动的路况事件，指定车辆时只返回影响该车剩余路径的事件
+     * <p>返回格式：[{"id":{@code long}, "type":{@code String}, "subtype":{@code String}, "severity":{@code String}, "lat":{@code double}, "lon":{@code double}, "radius":{@code double}, "speedFactor":{@code double}, "vehicle":{@code String}}, ...]
+     */
+    @GetMapping("/events")
+    public ResponseEntity<byte[]> getEvents(@RequestParam(required = false) String uuid)
+    {
+        if (uuid != null) return json(FleetFrames.events(EventManager.getImpacts(WorldManager.snapshot().slotOf(uuid))));
+        return json(FleetFrames.events());
+    }
+
+    /**
+     * 获取车队位置与状态的二进制帧，格式见 {@link PositionFrames}
+     * @param epoch 客户端已持有的帧纪元，首次请求传 0
+     * @param base 客户端已持有的帧周期，首次请求传 0 获取关键帧
+     */
+    @GetMapping("/positions")
+    public ResponseEntity<byte[]> getPositionFrame(@RequestParam(defaultValue = "0") long epoch,
+                                                   @RequestParam(defaultValue = "0") long base)
+    {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(PositionFrames.frame(epoch, base));
     }
 
     /**
@@ -175,20 +197,13 @@ public class DataController
      */
     public Map<String,Object> getAllCarsStatistics()
     {
-        int availableCount = 0, malfunctionCount = 0;
+        WorldSnapshot snapshot = WorldManager.snapshot();
         List<Double> loadRates = new ArrayList<>();
         List<Double> capacityRates = new ArrayList<>();
 
-        for (Vehicle car : CarManager.carMap.values()) {
-            CarStatistics stats = car.getStatistics();
-            if (stats != null) {
-                stats.calculateLoad_utilization_rate(car);
-                stats.calculateCapacity_utilization_rate(car);
-                loadRates.add(stats.getLoad_utilization_rate());
-                capacityRates.add(stats.getCapacity_utilization_rate());
-            }
-            if (car.getState() == VehState.AVAILABLE) availableCount++;
-            else if (car.getState() == VehState.FREEZE) malfunctionCount++;
+        for (VehicleView car : snapshot.getVehicles()) {
+            loadRates.add(car.getLoadUtilizationRate());
+            capacityRates.add(car.getCapacityUtilizationRate());
         }
 
         double loadMean = loadRates.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
@@ -197,8 +212,8 @@ public class DataController
         double capacityVariance = capacityRates.stream().mapToDouble(x -> Math.pow(x - capacityMean, 2)).average().orElse(0.0);
 
         Map<String, Object> data = new HashMap<>();
-        data.put("availableCount", availableCount);
-        data.put("malfunctionCount", malfunctionCount);
+        data.put("availableCount", snapshot.getAvailableCount());
+        data.put("malfunctionCount", snapshot.getFreezeCount());
         data.put("loadUtilizationRateMean", loadMean);
         data.put("loadUtilizationRateVariance", loadVariance);
         data.put("capacityUtilizationRateMean", capacityMean);
@@ -217,20 +232,19 @@ public class DataController
     /** 获取服务质量指标 */
     public Map<String,Object> getServiceQualityMetrics()
     {
-        if (StateChangeTimes == 0) StateChangeTimes = 1; // 防止除以零
-        double ontimeDeliveryRate = FreezeTimes / ((double) StateChangeTimes / 5);
+        // 计数由周期更新中的车辆状态机累计，读请求不修改共享状态
+        int stateChangeTimes = Math.max(CarManager.getStateChanges(), 1); // 防止除以零
+        int freezeTimes = CarManager.getFreezes();
+        double ontimeDeliveryRate = freezeTimes / ((double) stateChangeTimes / 5);
 
-        double totalDelay = totalDelayTime;
-        if (FreezeTimes == 0) FreezeTimes = 1; // 防止除以零
-        double averageDelayTime = totalDelay / (double) FreezeTimes;
+        double totalDelay = CarManager.getFreezeSeconds();
+        double averageDelayTime = totalDelay / (double) Math.max(freezeTimes, 1); // 防止除以零
 
         double orderCycleSum = 0.0;
         int count = 0;
-        for (Vehicle car : CarManager.carMap.values()) {
-            if (car.getStatistics() != null) {
-                orderCycleSum += car.getStatistics().getAverageOrderCycle();
-                count++;
-            }
+        for (VehicleView car : WorldManager.snapshot().getVehicles()) {
+            orderCycleSum += car.getAverageOrderCycle();
+            count++;
         }
         double averageOrderCycle = count > 0 ? orderCycleSum / count : 0.0;
 
@@ -255,7 +269,7 @@ public class DataController
     public void getSystemMetrics()
     {
         Map<String, String> data = new HashMap<>();
-        int carCount = CarManager.carMap.size();
+        int carCount = WorldManager.snapshot().getVehicleCount();
         int demandCount = 0;//DBManager.getCount("demand");
         
         double systemCriticalLoad = carCount * demandCount / 70000.0;
@@ -277,84 +291,44 @@ public class DataController
     }
 
     /**
-     * 前端尝试获取特定车辆的下一个目的地时调用，是车辆更新的关键函数
-     * <p>在车辆滴答一次后，若进入需要规划路线的状态，则返回目的地坐标，否则返回{@code null}
-     * <p>返回坐标格式：{"lat":{@code double}, "lon":{@code double}}
+     * 前端获取特定车辆当前行程的目的地时调用，只读取快照，不获取世界写锁
+     * <p>车辆处于接单行驶或运货行驶状态时返回行程终点坐标及服务端规划的路线，否则返回{@code null}
+     * <p>返回格式：{"lat":{@code double}, "lon":{@code double}, "route":{"distance":{@code double}, "time":{@code double}, "steps":[{"path":[[lng, lat], ...]}]}}
+     * 其中 route 结构与高德驾车路线一致，前端可直接用于绘制与动画
      * @return 
      */
     @GetMapping("/destination")
-    public String getDestination(@RequestParam String uuid)
+    public ResponseEntity<byte[]> getDestination(@RequestParam String uuid)
     {
-        Vehicle car = CarManager.carMap.get(uuid);
-        Map<String, Double> dest = null;
-
-        if (car == null) {
-            logger.warn("getDestination: car not found for UUID: {}", uuid);
-            return null;
-        }
-
-        if (car.getStatistics() != null) {
-            try { car.getStatistics().incrementCompleteOrderCycle(); } catch (Exception e) { logger.warn("incrementCompleteOrderCycle failed: {}", e.getMessage()); }
-        }
-
-        // 车辆计时器滴答一次并在计时器归零时进行车辆状态转换
-        try { car.tick(car.getState()); } catch (Exception e) { logger.warn("car.tick failed for UUID {}: {}", uuid, e.getMessage()); }
+        long t = MetricsManager.start();
         try {
-            if (car.getStateTimer() != null && car.getStateTimer().timeUp()) {
-                car.changeState();
-                StateChangeTimes++;
-            }
-        } catch (Exception e) {
-            logger.warn("state timer check failed for UUID {}: {}", uuid, e.getMessage());
+            return destination(uuid);
+        } finally {
+            MetricsManager.endpoint(Endpoint.DESTINATION, t);
         }
-        if(car.getState() == VehState.FREEZE) {
-            FreezeTimes++;
-            Random rand = new Random();
-            int randomNum = rand.nextInt(70) + 3; // 生成3到72之间的随机数
-            totalDelayTime += randomNum;
-        }
-
-        // 仅在车辆进入了接单行驶/运货行驶状态时给dest赋值，其他状态返回的dest为null
-        switch (car.getState())
-        {
-            case ORDER_TAKEN: {
-                try {
-                    PathNode pathnode = car.fetchFirstNode();
-                    if (pathnode != null && pathnode.getDemand() != null && pathnode.getDemand().getOrigin() != null) {
-                        dest = Map.of(
-                            "lat", pathnode.getDemand().getOrigin().getLat(),
-                            "lon", pathnode.getDemand().getOrigin().getLng()
-                        );
-                    }
-                } catch (Exception e) {
-                    logger.warn("Failed to get ORDER_TAKEN destination for UUID {}: {}", uuid, e.getMessage());
-                }
-                break;
-            }
-
-            case TRANSPORTING: {
-                try {
-                    PathNode pathnode = car.fetchFirstNode();
-                    if (pathnode != null && pathnode.getDemand() != null && pathnode.getDemand().getDestination() != null) {
-                        dest = Map.of(
-                            "lat", pathnode.getDemand().getDestination().getLat(),
-                            "lon", pathnode.getDemand().getDestination().getLng()
-                        );
-                    }
-                } catch (Exception e) {
-                    logger.warn("Failed to get TRANSPORTING destination for UUID {}: {}", uuid, e.getMessage());
-                }
-                break;
-            }
+    }
 
-            default:
-                break;
+    private ResponseEntity<byte[]> destination(String uuid)
+    {
+        VehicleView view = WorldManager.snapshot().getVehicle(uuid);
+        if (view == null) {
+            logger.warn("getDestination: car not found for UUID: {}", uuid);
+            return json(NULL_FRAME);
         }
-        try {
-            return JSON_MAPPER.writeValueAsString(dest);
-        } catch (JsonNodeException e) {
-            logger.error("Failed to serialize destination to JSON", e);
-            return "{}";
+        Coordinate dest = view.getLegTarget();
+        if (dest == null) return json(NULL_FRAME);
+
+        // 快照中尚无路线时经规划线程池获取，与周期更新提交的相同行程共享结果；
+        // 路线只返回给前端，由周期更新在 CarManager 中安装到车辆
+        Route route = view.getRoute();
+        if (route == null) {
+            try {
+                route = RoutePlanner.plan(new Coordinate(view.getLat(), view.getLng()), dest).join();
+            } catch (CompletionException e) {
+                // 规划队列已满或规划失败，本次不返回路线
+                logger.debug("Route planning for {} deferred: {}", uuid, e.getCause().toString());
+            }
         }
+        return json(FleetFrames.destination(dest.getLat(), dest.getLng(), route));
     }
 }
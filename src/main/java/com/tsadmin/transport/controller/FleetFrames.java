@@ -0,0 +1,143 @@
+package com.tsadmin.transport.controller;
+
+import java.util.List;
+
+import com.tsadmin.transport.domain.EventManager;
+import com.tsadmin.transport.domain.WorldManager;
+import com.tsadmin.transport.domain.share.VehicleView;
+import com.tsadmin.transport.domain.share.WorldSnapshot;
+import com.tsadmin.transport.event.EventIndex;
+import com.tsadmin.transport.event.TrafficEvent;
+import com.tsadmin.transport.routing.Route;
+import com.tsadmin.transport.util.JsonWriter;
+
+/**
+ * 车队响应帧的编码与缓存
+ * <p>整车队帧每个快照只编码一次，所有客户端共享同一份字节
+ */
+final class FleetFrames
+{
+    /** 一次缓存：快照与其对应的帧，整体替换以保证二者一致 */
+    private record Cached(WorldSnapshot snapshot, byte[] frame) {}
+
+    private record CachedEvents(EventIndex index, byte[] frame) {}
+
+    private static volatile Cached fleetFrame = new Cached(null, null);
+    private static volatile CachedEvents eventsFrame = new CachedEvents(null, null);
+
+    private FleetFrames() {}
+
+    /** 获取最新快照的整车队仪表盘帧，格式为 {@link #writeDashboard} 对象组成的数组 */
+    static byte[] fleet()
+    {
+        WorldSnapshot snapshot = WorldManager.snapshot();
+        Cached cached = fleetFrame;
+        if (cached.snapshot() == snapshot) return cached.frame();
+
+        // 并发请求可能重复编码同一快照，结果相同，无需加锁
+        JsonWriter writer = JsonWriter.acquire().beginArray();
+        for (VehicleView car : snapshot.getVehicles())
+        {
+            writeDashboard(writer, car);
+        }
+        byte[] frame = writer.endArray().finish();
+
+        fleetFrame = new Cached(snapshot, frame);
+        return frame;
+    }
+
+    /** 获取活动路况事件帧，事件索引变化时才重新编码 */
+    static byte[] events()
+    {
+        EventIndex index = EventManager.getIndex();
+        CachedEvents cached = eventsFrame;
+        if (cached.index() == index) return cached.frame();
+
+        byte[] frame = events(index.getEvents());
+        eventsFrame = new CachedEvents(index, frame);
+        return frame;
+    }
+
+    /** 编码指定的路况事件 */
+    static byte[] events(List<TrafficEvent> events)
+    {
+        // 车辆编号只在此处换算为 UUID
+        WorldSnapshot snapshot = WorldManager.snapshot();
+        JsonWriter writer = JsonWriter.acquire().beginArray();
+        for (TrafficEvent event : events)
+        {
+            writer.beginObject()
+                .field("id", event.getId())
+                .field("type", event.getType().getKey())
+                .field("subtype", event.getSubtype())
+                .field("severity", event.getSeverity().getKey())
+                .field("lat", event.getLat())
+                .field("lon", event.getLng())
+                .field("radius", event.getRadius())
+                .field("speedFactor", event.getSpeedFactor())
+                .field("vehicle", snapshot.uuidOf(event.getVehicleId()))
+                .endObject();
+        }
+        return writer.endArray().finish();
+    }
+
+    /** 编码单辆车的仪表盘帧，请求路径应通过 {@link DashboardCache} 获取 */
+    static byte[] dashboard(VehicleView car)
+    {
+        return writeDashboard(JsonWriter.acquire(), car).finish();
+    }
+
+    /**
+     * 编码目的地帧
+     * <p>格式：{"lat":{@code double}, "lon":{@code double}, "route":{"distance":{@code double}, "time":{@code double}, "steps":[{"path":[[lng, lat], ...]}]}}
+     * @param route 服务端规划的路线，为 {@code null} 时不写出 route 字段
+     */
+    static byte[] destination(double lat, double lng, Route route)
+    {
+        JsonWriter writer = JsonWriter.acquire()
+            .beginObject()
+            .field("lat", lat)
+            .field("lon", lng);
+
+        if (route != null)
+        {
+            writer.name("route").beginObject()
+                .field("distance", route.getDistance())
+                .field("time", route.getTime())
+                .name("steps").beginArray()
+                .beginObject()
+                .name("path").beginArray();
+            for (int i = 0; i < route.size(); i++)
+            {
+                writer.beginArray().value(route.getLng(i)).value(route.getLat(i)).endArray();
+            }
+            writer.endArray().endObject().endArray().endObject();
+        }
+
+        return writer.endObject().finish();
+    }
+
+    /** 字段命名与前端约定保持一致 */
+    private static JsonWriter writeDashboard(JsonWriter writer, VehicleView car)
+    {
+        return writer.beginObject()
+            .field("UUID", car.getUUID())
+            .field("state", car.getState().name())
+            .field("load", car.getLoad())
+            .field("waitingTime", car.getWaitingTime())
+            .field("emptyDistance", car.getEmptyDistance())
+            .field("wastedLoad", car.getWastedLoad())
+            .field("totalWeight", car.getTotalWeight())
+            .field("carbonEmission", car.getCarbonEmission())
+            .field("totalDistance", car.getTotalDistance())
+            .field("completedOrders", car.getCompletedOrders())
+            // completeOrderCycle 没有公开 getter，返回 averageOrderCycle 供前端展示
+            .field("completeOrderCycle", car.getAverageOrderCycle())
+            .field("averageOrderCycle", car.getAverageOrderCycle())
+            .field("mileage_utilization_rate", car.getMileageUtilizationRate())
+            .field("carbon_emission_per_unit", car.getCarbonEmissionPerUnit())
+            .field("load_utilization_rate", car.getLoadUtilizationRate())
+            .field("capacity_utilization_rate", car.getCapacityUtilizationRate())
+            .endObject();
+    }
+}
@@ -0,0 +1,164 @@
+package com.tsadmin.transport.controller;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.tsadmin.transport.domain.WorldManager;
+import com.tsadmin.transport.domain.share.VehicleView;
+import com.tsadmin.transport.domain.share.WorldSnapshot;
+
+/**
+ * 车辆位置二进制帧的编码与缓存，解码器见 {@code frontend/src/protocol/positionFrame.ts}
+ * <p>帧格式（多字节整数均为 LEB128 变长编码，有符号数先做 ZigZag）：
+ * <pre>
+ * magic      2 字节 'V' 'P'
+ * version    1 字节，当前为 2
+ * flags      1 字节，bit0 = 1 表示增量帧
+ * epoch      世界纪元，重新初始化世界后改变，周期序号只在同一纪元内可比较
+ * tick       本帧对应的快照周期
+ * baseTick   增量帧的基准周期，关键帧为 0
+ * fleetSize  车队总槽位数
+ * count      本帧包含的车辆数 n
+ * index[n]   槽位下标，相对前一个下标的间隔减一（第一个相对 -1）
+ * lat[n]     量化纬度（度 * 1e5），增量帧为相对基准帧的差值，关键帧为相对 0 的差值
+ * lng[n]     量化经度，同上
+ * state[n]   每辆车 1 字节的状态序号 {@code VehState.ordinal()}
+ * </pre>
+ * 槽位下标与 {@code /api/data/fleet} 返回数组的下标一致。
+ * 增量帧只包含位置或状态相对基准帧变化的车辆，未出现的车辆保持基准帧的值；
+ * 只有客户端持有的纪元与基准周期都与增量帧一致时才返回增量帧，否则返回关键帧
+ */
+final class PositionFrames
+{
+    static final double SCALE = 1e5;
+    private static final byte VERSION = 2;
+    private static final byte FLAG_DELTA = 1;
+
+    /** 一次缓存：快照的关键帧，以及相对上一次编码快照的增量帧 */
+    private record Cached(WorldSnapshot snapshot, byte[] keyframe, long baseTick, byte[] delta) {}
+
+    private static volatile Cached cached = new Cached(WorldSnapshot.EMPTY, encode(WorldSnapshot.EMPTY, null), 0, null);
+
+    private PositionFrames() {}
+
+    /**
+     * 获取最新快照的位置帧
+     * @param epoch 客户端已持有的帧纪元
+     * @param baseTick 客户端已持有的帧周期，与纪元一起与服务端缓存的增量基准一致时返回增量帧，否则返回关键帧
+     */
+    static byte[] frame(long epoch, long baseTick)
+    {
+        WorldSnapshot snapshot = WorldManager.snapshot();
+        Cached c = cached;
+
+        if (c.snapshot() != snapshot)
+        {
+            // 新快照：以上一次编码的快照为基准生成增量帧，并发请求重复编码的结果相同
+            // 世界重新初始化后周期序号从头开始，旧纪元的快照不能作为基准
+            WorldSnapshot prev = c.snapshot();
+            WorldSnapshot base = prev.getEpoch() == snapshot.getEpoch() && prev.getTick() < snapshot.getTick() ? prev : null;
+            byte[] delta = base == null ? null : encode(snapshot, base);
+            c = new Cached(snapshot, encode(snapshot, null), base == null ? 0 : base.getTick(), delta);
+            cached = c;
+        }
+
+        if (c.delta() != null && baseTick != 0 && baseTick == c.baseTick() && epoch == c.snapshot().getEpoch()) return c.delta();
+        return c.keyframe();
+    }
+
+    /**
+     * 编码一帧
+     * @param base 增量帧的基准快照，为 {@code null} 时编码关键帧
+     */
+    static byte[] encode(WorldSnapshot snapshot, WorldSnapshot base)
+    {
+        List<VehicleView> views = snapshot.getVehicles();
+        List<VehicleView> baseViews = base == null ? List.of() : base.getVehicles();
+        int size = views.size();
+
+        // 先筛选出需要写入的槽位
+        int[] slots = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++)
+        {
+            VehicleView view = views.get(i);
+            if (i < baseViews.size())
+            {
+                VehicleView old = baseViews.get(i);
+                // 视图在快照间共享，引用相同即未改变
+                if (old == view) continue;
+                if (quantize(old.getLat()) == quantize(view.getLat())
+                    && quantize(old.getLng()) == quantize(view.getLng())
+                    && old.getState() == view.getState()) continue;
+            }
+            slots[n++] = i;
+        }
+
+        Sink out = new Sink(16 + n * 8);
+        out.put((byte)'V');
+        out.put((byte)'P');
+        out.put(VERSION);
+        out.put(base == null ? 0 : FLAG_DELTA);
+        out.varint(snapshot.getEpoch());
+        out.varint(snapshot.getTick());
+        out.varint(base == null ? 0 : base.getTick());
+        out.varint(size);
+        out.varint(n);
+
+        int prev = -1;
+        for (int k = 0; k < n; k++)
+        {
+            out.varint(slots[k] - prev - 1);
+            prev = slots[k];
+        }
+        for (int k = 0; k < n; k++)
+        {
+            int i = slots[k];
+            long from = i < baseViews.size() ? quantize(baseViews.get(i).getLat()) : 0;
+            out.zigzag(quantize(views.get(i).getLat()) - from);
+        }
+        for (int k = 0; k < n; k++)
+        {
+            int i = slots[k];
+            long from = i < baseViews.size() ? quantize(baseViews.get(i).getLng()) : 0;
+            out.zigzag(quantize(views.get(i).getLng()) - from);
+        }
+        for (int k = 0; k < n; k++)
+        {
+            out.put((byte)views.get(slots[k]).getState().ordinal());
+        }
+
+        return out.toByteArray();
+    }
+
+    private static long quantize(double degree) { return Math.round(degree * SCALE); }
+
+    /** 可增长的字节缓冲 */
+    private static final class Sink
+    {
+        private byte[] buf;
+        private int len = 0;
+
+        Sink(int capacity) { buf = new byte[capacity]; }
+
+        void put(byte b)
+        {
+            if (len == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            buf[len++] = b;
+        }
+
+        void varint(long value)
+        {
+            while ((value & ~0x7FL) != 0)
+            {
+                put((byte)((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((byte)value);
+        }
+
+        void zigzag(long value) { varint((value << 1) ^ (value >> 63)); }
+
+        byte[] toByteArray() { return Arrays.copyOf(buf, len); }
+    }
+}
@@ -0,0 +1,127 @@
+package com.tsadmin.transport.controller;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tsadmin.transport.domain.TraceManager;
+import com.tsadmin.transport.domain.TraceManager.Type;
+import com.tsadmin.transport.domain.WorldManager;
+import com.tsadmin.transport.domain.share.VehicleView;
+import com.tsadmin.transport.entity.Vehicle.VehState;
+import com.tsadmin.transport.util.PersistentArray;
+
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * 追踪控制器
+ * 导出模拟事件追踪缓冲区中最近一段时间的记录，用于线上问题排查
+ */
+@RestController
+@RequestMapping("/api/trace")
+public class TraceController
+{
+    private static final Logger logger = LogManager.getLogger(TraceController.class);
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final VehState[] STATES = VehState.values();
+
+    /**
+     * 导出最近 {@code seconds} 秒的追踪记录
+     * <p>{@code format=binary} 时返回 {@link TraceManager#dump(long)} 的原始字节；
+     * 否则返回解码后的数组：[{"time":{@code long}, "type":{@code String}, ...}]，车辆附带快照中的 UUID
+     */
+    @GetMapping
+    public ResponseEntity<byte[]> dump(@RequestParam(defaultValue = "60") long seconds,
+                                       @RequestParam(defaultValue = "json") String format)
+    {
+        byte[] raw = TraceManager.dump(seconds * 1000);
+        if ("binary".equalsIgnoreCase(format))
+        {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(raw);
+        }
+
+        try
+        {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(JSON_MAPPER.writeValueAsBytes(decode(raw)));
+        }
+        catch (Exception e)
+        {
+            logger.error("Failed to encode trace", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    private static List<Map<String, Object>> decode(byte[] raw)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        buffer.position(8);
+        int count = buffer.getInt();
+        PersistentArray<VehicleView> vehicles = WorldManager.snapshot().getVehicleArray();
+
+        List<Map<String, Object>> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            long time = buffer.getLong();
+            Type type = Type.byIndex(buffer.getInt());
+            int subject = buffer.getInt();
+            long arg = buffer.getLong();
+            int high = (int)(arg >>> 32), low = (int)arg;
+
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("time", time);
+            data.put("type", type == null ? "UNKNOWN" : type.name());
+            if (type == null)
+            {
+                list.add(data);
+                continue;
+            }
+            switch (type)
+            {
+                case DEMAND_CREATED, DEMAND_COMPLETED ->
+                {
+                    data.put("demand", subject);
+                    data.put("generation", high);
+                    data.put(type == Type.DEMAND_CREATED ? "origin" : "destination", low);
+                }
+                case DEMAND_ASSIGNED ->
+                {
+                    data.put("demand", subject);
+                    data.put("generation", high);
+                    putVehicle(data, vehicles, low);
+                }
+                case STATE_CHANGED, FREEZE ->
+                {
+                    putVehicle(data, vehicles, subject);
+                    data.put("from", state(high));
+                    data.put("to", state(low));
+                }
+                case OVERRUN ->
+                {
+                    data.put("skipped", subject);
+                    data.put("overrunMs", arg / 1e6);
+                }
+            }
+            list.add(data);
+        }
+        return list;
+    }
+
+    private static void putVehicle(Map<String, Object> data, PersistentArray<VehicleView> vehicles, int id)
+    {
+        data.put("vehicle", id);
+        if (id >= 0 && id < vehicles.size() && vehicles.get(id) != null) data.put("uuid", vehicles.get(id).getUUID());
+    }
+
+    private static String state(int ordinal) { return ordinal >= 0 && ordinal < STATES.length ? STATES[ordinal].name() : null; }
+}
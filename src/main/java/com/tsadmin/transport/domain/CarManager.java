@@ -1,9 +1,11 @@
 package com.tsadmin.transport.domain;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import com.tsadmin.transport.config.ConfigLoader;
 import com.tsadmin.transport.domain.share.Coordinate;
@@ -11,12 +13,24 @@ import com.tsadmin.transport.domain.share.Coordinate;
 import com.tsadmin.transport.entity.Vehicle;
 import com.tsadmin.transport.entity.Vehicle.VehState;
 import com.tsadmin.transport.entity.CarStatistics;
+import com.tsadmin.transport.routing.Route;
+import com.tsadmin.transport.util.IdRegistry;
 import com.tsadmin.transport.util.RandomUtil;
 
 public class CarManager
 {
-    // TODO: 封装为私有
-    public static Map<String, Vehicle> carMap = new HashMap<>();
+    // 车辆按编号排列，编号即通行矩阵车辆行与快照槽位；只在持有世界写锁时修改
+    private static final IdRegistry ids = new IdRegistry();
+    private static final List<Vehicle> cars = new ArrayList<>();
+
+    /** 等待规划的行程，终点用于判断结果是否仍适用 */
+    private record PendingRoute(Coordinate target, CompletableFuture<Route> future) {}
+    // 按车辆编号存放，只在持有世界写锁时访问
+    private static PendingRoute[] pendingRoutes = new PendingRoute[0];
+
+    // 状态转换统计，只在持有世界写锁时修改
+    private static volatile int stateChanges = 0, freezes = 0;
+    private static volatile double freezeSeconds = 0;
 
     // LOADS 元素数一定要等于 VOLUME 元素数
     private static final int[] LOADS = { 2, 5, 8, 12, 18, 24, 30, 35 };
@@ -25,7 +39,32 @@ public class CarManager
 
     public static void init()
     {
-        carMap.clear();
+        ids.clear();
+        cars.clear();
+        pendingRoutes = new PendingRoute[0];
+        stateChanges = freezes = 0;
+        freezeSeconds = 0;
+
+        // 沙箱附带车辆表时按表加载，否则按 CarManager.car_num 在默认位置附近随机生成
+        List<Map<String, Object>> dataList = ConfigLoader.getSeed("car");//DBManager.getCarList();
+        for (Map<String, Object> data : dataList)
+        {
+            Coordinate position = new Coordinate(getDoubleValue(data.get("location_lat")), getDoubleValue(data.get("location_lon")));
+            addCar(new Vehicle(UUID.fromString(data.get("UUID").toString()),
+                getIntValue(data.get("maxload")), getIntValue(data.get("maxvolume")), position));
+        }
+        if (dataList.isEmpty())
+        {
+            int carNum = ConfigLoader.getInt("CarManager.car_num", 0);
+            for (int i = 0; i < carNum; i++)
+            {
+                // 随机数由 Main.random_seed 播种，UUID 同样可复现
+                long high = RandomUtil.nextLong() & ~0xF000L | 0x4000L;
+                long low = RandomUtil.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+                int randIdx = RandomUtil.nextInt(LOADS.length);
+                addCar(new Vehicle(new UUID(high, low), LOADS[randIdx], VOLUMES[randIdx], getRandomLocation()));
+            }
+        }
 
         // if (DBManager.getCount("car") <= 0)
         // {
@@ -40,7 +79,7 @@ public class CarManager
         //         int maxVolume = VOLUMES[randIdx];
 
         //         Car car = new Car(uuid, maxLoad, maxVolume, new Coordinate(getRandomLocation()));
-        //         carMap.put(uuid, car);
+        //         addCar(car);
         //     }
         // }
         // else
@@ -104,13 +143,135 @@ public class CarManager
         //         statistics.setCompletedOrders(getIntValue(data.get("completedOrders")));
         //         statistics.setAverageOrderCycle(getDoubleValue(data.get("averageOrderCycle")));
 
-        //         carMap.put(uuid, car);
+        //         addCar(car);
         //     }
         // }
-        // DBManager.saveCarMap(carMap);
+        // DBManager.saveCarMap(cars);
+    }
+
+    /** 登记车辆并分配编号，<b>调用方需持有世界写锁</b> */
+    public static void addCar(Vehicle car)
+    {
+        int id = ids.intern(car.getUUID().toString());
+        while (cars.size() <= id) cars.add(null);
+        cars.set(id, car);
+        car.setId(id);
+        WorldManager.markDirty(car);
+    }
+
+    /** 按编号获取车辆 */
+    public static Vehicle getCar(int id) { return id >= 0 && id < cars.size() ? cars.get(id) : null; }
+    /** 按 UUID 获取车辆，仅供 REST 边界使用 */
+    public static Vehicle getCar(String uuid) { return getCar(ids.idOf(uuid)); }
+    /** 所有车辆，按编号排列，只读 */
+    public static List<Vehicle> getCars() { return cars; }
+    /** 编号上界，所有车辆编号都小于该值 */
+    public static int getIdCapacity() { return cars.size(); }
+
+    /**
+     * 车辆沿路线行驶一个周期并推进状态机，<b>调用方需持有世界写锁</b>
+     * <p>行驶状态在到达路线终点后转换，其余状态在计时器归零后转换
+     * <p>行驶中尚无路线的车辆汇总为一批交给 {@link RoutePlanner}，规划完成后的周期开始沿新路线行驶
+     * @param seconds 本周期对应的模拟时长（秒）
+     */
+    public static void update(double seconds)
+    {
+        List<Vehicle> waiting = new ArrayList<>();
+        List<RoutePlanner.Leg> legs = new ArrayList<>();
+        for (Vehicle car : cars)
+        {
+            if (car == null) continue;
+            car.advance(seconds);
+            step(car, seconds);
+
+            if (car.isMoving() && car.getRoute() == null && !applyPendingRoute(car)
+                && car.getPosition() != null && car.getLegTarget() != null)
+            {
+                waiting.add(car);
+                legs.add(new RoutePlanner.Leg(car.getPosition(), car.getLegTarget()));
+            }
+        }
+
+        if (legs.isEmpty()) return;
+        List<CompletableFuture<Route>> futures = RoutePlanner.planAll(legs);
+        if (pendingRoutes.length < cars.size()) pendingRoutes = Arrays.copyOf(pendingRoutes, cars.size());
+        for (int i = 0; i < waiting.size(); i++)
+        {
+            pendingRoutes[waiting.get(i).getId()] = new PendingRoute(legs.get(i).to(), futures.get(i));
+        }
+    }
+
+    /** 按到达或计时器推进车辆状态 */
+    private static void step(Vehicle car, double seconds)
+    {
+        VehState state = car.getState();
+        if (car.getCurrDemand() != null) car.getStatistics().incrementCompleteOrderCycle();
+        if (state == VehState.FREEZE) freezeSeconds += seconds;
+
+        if (car.isMoving())
+        {
+            if (!car.hasArrived()) return;
+        }
+        else
+        {
+            // 空闲且没有计划的车辆不做转换，避免每周期登记为脏
+            if (state == VehState.AVAILABLE && car.getNodeList().isEmpty()) return;
+            car.tick(state);
+            if (!car.getStateTimer().timeUp()) return;
+        }
+
+        car.changeState();
+        stateChanges++;
+        if (car.getState() == VehState.FREEZE) freezes++;
+    }
+
+    /** 自初始化以来的状态转换次数 */
+    public static int getStateChanges() { return stateChanges; }
+    /** 自初始化以来进入冻结的次数 */
+    public static int getFreezes() { return freezes; }
+    /** 自初始化以来车辆处于冻结的累计模拟时长（秒） */
+    public static double getFreezeSeconds() { return freezeSeconds; }
+
+    /**
+     * 应用已完成的规划结果，行程已改变的结果丢弃
+     * @return {@code true} 如果车辆已得到路线或仍在等待规划
+     */
+    private static boolean applyPendingRoute(Vehicle car)
+    {
+        int id = car.getId();
+        PendingRoute pending = id < pendingRoutes.length ? pendingRoutes[id] : null;
+        if (pending == null) return false;
+        if (pending.target() != car.getLegTarget())
+        {
+            pendingRoutes[id] = null;
+            return false;
+        }
+        if (!pending.future().isDone()) return true;
+
+        pendingRoutes[id] = null;
+        // 规划被拒绝或失败，车辆本周期重新提交
+        if (pending.future().isCompletedExceptionally()) return false;
+        Route route = pending.future().getNow(null);
+        if (route == null) return false;
+        car.setRoute(route);
+        return true;
+    }
+
+    /** 车型载重，按车型从小到大 */
+    public static double[] getClassLoads() { return Arrays.stream(LOADS).asDoubleStream().toArray(); }
+    /** 车型体积，顺序同 {@link #getClassLoads()} */
+    public static double[] getClassVolumes() { return Arrays.stream(VOLUMES).asDoubleStream().toArray(); }
+    /** 车辆所属车型下标，核载不属于任何车型时为 -1 */
+    public static int classOf(Vehicle car)
+    {
+        for (int c = 0; c < LOADS.length; c++)
+        {
+            if (LOADS[c] == car.getMaxLoad() && VOLUMES[c] == car.getMaxVolume()) return c;
+        }
+        return -1;
     }
 
-    public static void onStop() { };//DBManager.saveCarMap(carMap); }
+    public static void onStop() { };//DBManager.saveCarMap(cars); }
 
     /**
      * 安全地从 Map 中获取整数值
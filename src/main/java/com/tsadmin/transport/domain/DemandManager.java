@@ -1,50 +1,86 @@
 package com.tsadmin.transport.domain;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import com.tsadmin.transport.config.ConfigLoader;
+import com.tsadmin.transport.domain.share.PathNode;
 import com.tsadmin.transport.domain.share.ProductType;
 // import com.tsadmin.transport.dao.DBManager;
 import com.tsadmin.transport.entity.Demand;
-import com.tsadmin.transport.entity.Product;
 import com.tsadmin.transport.entity.poi.*;
+import com.tsadmin.transport.util.IntList;
+import com.tsadmin.transport.util.RecordStore;
+import com.tsadmin.transport.util.RandomUtil;
 
+/**
+ * 订单管理
+ * <p>订单存放在按编号排列的槽位中，完成后槽位回收、代数递增，实例由下一个订单复用；
+ * 稳定的订单流不再分配订单对象、产品对象与 UUID 字符串
+ * <p>订单字段存放在记录表中（布局见 {@link Demand#RECORD_SIZE}），{@link Demand} 只是视图；
+ * 映射文件方式下启动时直接沿用文件中未完成的订单
+ */
 public class DemandManager
 {
-    private static Map<String, Demand> demandMap = new HashMap<>();
+    private static final Logger logger = LogManager.getLogger(DemandManager.class);
+
+    // 视图一经创建即常驻，记录的 LIVE 位标记槽位是否承载有效订单
+    private static RecordStore records = RecordStore.open("heap", null, Demand.RECORD_SIZE, 16);
+    private static Demand[] slab = new Demand[0];
+    private static final IntList free = new IntList();
+    private static int used = 0;
+    private static int count = 0;
+    private static int assigned = 0;
+    private static long generated = 0;
     private static int MAX_DEMAND_PER_CYCLE = 0;
     private static int demandThisCycle = 0;
+    // 周期超出预算时由更新线程置位，暂停生成新订单
+    private static boolean throttled = false;
 
     public static void init()
     {
-        demandMap.clear();
+        slab = new Demand[0];
+        free.clear();
+        used = count = assigned = 0;
+        throttled = false;
 
         MAX_DEMAND_PER_CYCLE = ConfigLoader.getInt("DemandManager.max_demand_per_cycle");
 
+        records = WorldManager.openRecords("demands.dat", Demand.RECORD_SIZE);
+        if (records.count() > 0)
+        {
+            restore();
+            return;
+        }
+
         // if (DBManager.getCount("demand") <= 0) return;
 
-        List<Map<String, String>> dataList = null;//DBManager.getDemandList();
-        for (Map<String, String> data : dataList)
+        List<Map<String, Object>> dataList = ConfigLoader.getSeed("demand");//DBManager.getDemandList();
+        for (Map<String, Object> data : dataList)
         {
-            String uuid = data.get("UUID");
-            Poi origin = PoiManager.poiList.get(data.get("origin_UUID"));
-            Poi destination = PoiManager.poiList.get(data.get("destination_UUID"));
+            String uuid = data.get("UUID").toString().replace("-", "");
+            Poi origin = PoiManager.getPoi(data.get("origin_UUID").toString());
+            Poi destination = PoiManager.getPoi(data.get("destination_UUID").toString());
 
-            ProductType type = ProductType.valueOf(data.get("type"));
-            int quantity = Integer.parseInt(data.get("quantity"));
-            int volume = Integer.parseInt(data.get("volume"));
-            Product product = new Product(type, quantity, volume);
+            ProductType type = ProductType.valueOf(data.get("type").toString());
+            int quantity = Integer.parseInt(data.get("quantity").toString());
+            int volume = Integer.parseInt(data.get("volume").toString());
 
-            Demand demand = new Demand(uuid, origin, destination, product);
-            demandMap.put(uuid, demand);
+            allocate().assign(Long.parseUnsignedLong(uuid.substring(0, 16), 16), Long.parseUnsignedLong(uuid.substring(16, 32), 16),
+                origin, destination, type, quantity, volume);
         }
     }
 
-    public static void onStop() { }//DBManager.saveDemandMap(demandMap); }
+    public static void onStop()
+    {
+        records.force();
+        //DBManager.saveDemandMap(getList());
+    }
 
     /**
      * 生成新的订单并自动将其加入订单表
@@ -55,21 +91,122 @@ public class DemandManager
      */
     public static Demand generateDemand(Poi origin, Poi destination, int quantity)
     {
-        Product product = ((Dumper)origin).packProduct(quantity);
-        String uuid = UUID.randomUUID().toString().replace("-", "");
+        long t = MetricsManager.start();
+        double volume = ((Dumper)origin).packProduct(quantity);
+        // 随机 UUID，按版本 4 设置版本位与变体位
+        long high = RandomUtil.nextLong() & ~0xF000L | 0x4000L;
+        long low = RandomUtil.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
 
-        Demand demand = new Demand(uuid, origin, destination, product);
+        Demand demand = allocate();
+        demand.assign(high, low, origin, destination, origin.getProductType(), quantity, volume);
 
         demandThisCycle++;
-        demandMap.put(uuid, demand);
+        generated++;
+        TraceManager.record(TraceManager.Type.DEMAND_CREATED, demand.getId(), demand.getGeneration(), origin.getId());
+        MetricsManager.demandGenerated(t);
         return demand;
     }
 
-    public static boolean allowNewDemand() { return MAX_DEMAND_PER_CYCLE > demandThisCycle; }
+    /** 从记录表重建视图与空闲槽位，起终点编号无效的订单丢弃；兴趣点须已加载 */
+    private static void restore()
+    {
+        used = records.count();
+        slab = new Demand[Math.max(16, used)];
+        int dropped = 0;
+        for (int id = used - 1; id >= 0; id--)
+        {
+            slab[id] = new Demand(id);
+            boolean live = (records.getInt(id, Demand.FLAGS) & Demand.LIVE) != 0;
+            if (live && !(PoiManager.getPoi(records.getInt(id, Demand.ORIGIN)) instanceof Dumper
+                && PoiManager.getPoi(records.getInt(id, Demand.DESTINATION)) instanceof Purchaser))
+            {
+                slab[id].recycle();
+                live = false;
+                dropped++;
+            }
+            if (!live)
+            {
+                free.add(id);
+                continue;
+            }
+            // 车辆路径点不随文件保存，恢复的订单重新参与调度
+            records.putInt(id, Demand.FLAGS, Demand.LIVE);
+            count++;
+        }
+        logger.info("{} demands restored from record file, {} dropped", count, dropped);
+    }
+
+    /** 取一个空闲槽位，优先复用已回收的槽位 */
+    private static Demand allocate()
+    {
+        int id;
+        if (!free.isEmpty())
+        {
+            id = free.removeLast();
+        }
+        else
+        {
+            id = used++;
+            if (id == slab.length) slab = Arrays.copyOf(slab, Math.max(16, id + (id >> 1)));
+            slab[id] = new Demand(id);
+            records.ensureCapacity(used);
+            records.setCount(used);
+        }
+        count++;
+        return slab[id];
+    }
+
+    public static boolean allowNewDemand() { return !throttled && MAX_DEMAND_PER_CYCLE > demandThisCycle; }
+
+    /** 周期耗时超出预算时暂停生成新订单，回到预算内后恢复 */
+    public static void setThrottled(boolean throttled) { DemandManager.throttled = throttled; }
+    public static boolean isThrottled() { return throttled; }
     public static void resetDemandThisCycle() { demandThisCycle = 0; }
 
     /** 获取所有订单组成的列表<p><b>对其的修改不会同步到本类内的列表</b> */
-    public static List<Demand> getList() { return new ArrayList<>(demandMap.values()); }
-    public static void removeDemand(String uuid) { demandMap.remove(uuid); }
-    public static boolean isEmpty() { return demandMap.isEmpty(); }
+    public static List<Demand> getList()
+    {
+        List<Demand> list = new ArrayList<>(count);
+        for (int id = 0; id < used; id++)
+        {
+            if (isLive(id)) list.add(slab[id]);
+        }
+        return list;
+    }
+
+    /** @return 编号对应的有效订单，槽位空闲时为 {@code null} */
+    public static Demand getDemand(int id) { return id >= 0 && id < used && isLive(id) ? slab[id] : null; }
+
+    /** 订单字段的记录表 */
+    public static RecordStore getRecords() { return records; }
+
+    /** @return 路径点对应的订单，订单已完成（槽位代数不符）时为 {@code null} */
+    public static Demand resolve(long node)
+    {
+        Demand demand = getDemand(PathNode.demandId(node));
+        return demand != null && demand.getGeneration() == PathNode.generation(node) ? demand : null;
+    }
+
+    /** 移除订单并回收其槽位 */
+    public static void removeDemand(int id)
+    {
+        if (getDemand(id) == null) return;
+        if (slab[id].isAssigned()) assigned--;
+        slab[id].recycle();
+        free.add(id);
+        count--;
+    }
+    public static boolean isEmpty() { return count == 0; }
+    public static int getCount() { return count; }
+
+    /** @return 尚未分配给车辆的订单数 */
+    public static int getBacklog() { return count - assigned; }
+
+    /** @return 启动以来生成的订单总数 */
+    public static long getGenerated() { return generated; }
+
+    /** 由 {@link Demand#setAssigned(int)} 在订单首次分配时调用 */
+    public static void onAssigned() { assigned++; }
+
+    private static boolean isLive(int id) { return (records.getInt(id, Demand.FLAGS) & Demand.LIVE) != 0; }
 }
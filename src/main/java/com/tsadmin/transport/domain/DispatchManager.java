@@ -0,0 +1,683 @@
+package com.tsadmin.transport.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tsadmin.transport.config.ConfigLoader;
+import com.tsadmin.transport.domain.share.Coordinate;
+import com.tsadmin.transport.domain.share.PathNode;
+import com.tsadmin.transport.entity.Demand;
+import com.tsadmin.transport.entity.Vehicle;
+import com.tsadmin.transport.entity.Vehicle.VehState;
+import com.tsadmin.transport.solver.BinPacker;
+import com.tsadmin.transport.solver.PdpProblem;
+import com.tsadmin.transport.solver.PdpSolver;
+import com.tsadmin.transport.util.IntIntMap;
+import com.tsadmin.transport.util.IntList;
+import com.tsadmin.transport.util.LongDeque;
+import com.tsadmin.transport.util.PointGrid;
+
+/**
+ * 订单调度，为车辆生成满足载重、体积约束的多点取送货路线
+ * <p>每周期先把新订单按取货点分组，二维（载重×体积）装箱后交给能装下整箱的最小空闲车辆（{@link BinPacker}）；
+ * 其余新订单增量插入现有路径点列表（{@link PdpSolver#insert()}），并只修复被插入的车辆。
+ * 每个订单只在起点最近的 {@code Solver.candidates} 辆车中插入，求解只包含这些候选车辆；
+ * 订单在候选车辆上的插入代价跨周期缓存，车辆计划或通行矩阵行改变后只有该车的缓存失效，
+ * 候选车辆每 {@code Solver.candidate_refresh} 个周期重新选取；
+ * 每 {@code Solver.full_interval} 个周期另在后台线程对全部已分配订单做一次完整优化，
+ * 结果在之后的周期中按车辆连通分量原子换入，分量内任一车辆的计划在此期间发生变化则整个分量丢弃
+ * <p>尚未取货的订单可以换车、重排，已装车或正在前往取货的订单只有送货点，固定在原车内重排。
+ * 代价为 {@link TravelMatrix} 中的路网距离，车辆起点为当前行程的终点（装卸货时为所在兴趣点）。
+ * 订单没有时间窗，只考虑容量与取货先于送货
+ * <p>除 {@link #init()}、{@link #shutdown()} 外的方法<b>调用方需持有世界写锁</b>
+ */
+public class DispatchManager
+{
+    private static final Logger logger = LogManager.getLogger(DispatchManager.class);
+
+    private static long timeLimit = 200;
+    private static long fullTimeLimit = 1000;
+    private static int fullInterval = 12;
+    private static double packingRadius = 5000;
+    private static BinPacker packer = null;
+    private static int candidateCount = 16;
+    private static int candidateRefresh = 6;
+
+    private static int cycle = 0;
+    private static volatile ExecutorService optimizer = null;
+    // 以下字段只在持有世界写锁时访问
+    private static CompletableFuture<Batch> background = null;
+    // 未分配订单的候选车辆与插入代价缓存，订单编号到 cache 下标，每周期只保留仍未分配的订单
+    private static IntIntMap cacheIndex = new IntIntMap();
+    private static List<Candidates> cache = new ArrayList<>();
+    private static final PointGrid grid = new PointGrid(0.02);
+
+    public static void init()
+    {
+        shutdown();
+
+        timeLimit = ConfigLoader.getInt("Solver.time_limit_ms", 200);
+        fullTimeLimit = ConfigLoader.getInt("Solver.full_time_limit_ms", 1000);
+        fullInterval = ConfigLoader.getInt("Solver.full_interval", 12);
+        packingRadius = ConfigLoader.getDouble("Solver.packing_radius", 5000.0);
+        packer = new BinPacker(CarManager.getClassLoads(), CarManager.getClassVolumes(), ConfigLoader.getInt("Solver.packing_moves", 1000));
+        candidateCount = Math.max(1, ConfigLoader.getInt("Solver.candidates", 16));
+        candidateRefresh = Math.max(1, ConfigLoader.getInt("Solver.candidate_refresh", 6));
+        cycle = 0;
+        background = null;
+        cacheIndex = new IntIntMap();
+        cache = new ArrayList<>();
+        optimizer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "DispatchOptimizer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static void shutdown()
+    {
+        ExecutorService prev = optimizer;
+        optimizer = null;
+        if (prev != null) prev.shutdownNow();
+    }
+
+    /**
+     * 换入已完成的后台优化结果，装箱分配并增量插入新订单，并按周期发起后台优化
+     * @param shed 周期超时时为 {@code true}，不发起后台优化，省去复制代价行与构建问题的开销
+     * @return 新分配的订单数
+     */
+    public static int dispatch(boolean shed)
+    {
+        cycle++;
+        if (TravelMatrix.getPoiCount() == 0) return 0;
+
+        applyBackground();
+        int assigned = insertPending();
+        if (!shed && fullInterval > 0 && cycle % fullInterval == 0 && background == null) startBackground();
+        return assigned;
+    }
+
+    /** 把新订单插入候选车辆的现有路线，只修复被插入的车辆 */
+    private static int insertPending()
+    {
+        List<Demand> pending = new ArrayList<>();
+        for (Demand demand : DemandManager.getList())
+        {
+            if (demand.isAssigned()) continue;
+            if (!TravelMatrix.containsPoi(demand.getOriginId()) || !TravelMatrix.containsPoi(demand.getDestinationId())) continue;
+            pending.add(demand);
+        }
+        if (pending.isEmpty())
+        {
+            cacheIndex.clear();
+            cache.clear();
+            return 0;
+        }
+
+        int packed = packIdle(pending);
+        if (pending.isEmpty()) return packed;
+
+        long start = System.nanoTime();
+        List<Candidates> selected = selectCandidates(pending);
+
+        // 只以候选车辆构建问题
+        boolean[] chosen = new boolean[CarManager.getIdCapacity()];
+        List<Vehicle> cars = new ArrayList<>();
+        for (Candidates candidates : selected)
+        {
+            for (int id : candidates.vehicles)
+            {
+                if (chosen[id]) continue;
+                chosen[id] = true;
+                cars.add(CarManager.getCar(id));
+            }
+        }
+        Batch batch = build(cars, false);
+        if (batch.vehicles.isEmpty()) return packed;
+
+        int[][] candidateOf = new int[pending.size()][];
+        for (int i = 0; i < pending.size(); i++)
+        {
+            Demand demand = pending.get(i);
+            // 订单已在某车的路径点列表中，只是尚未标记
+            if (batch.requestOf.containsKey(demand.getId())) continue;
+            int r = batch.addRequest(demand, -1);
+            batch.pending.add(demand);
+            candidateOf[i] = setCandidates(batch, r, selected.get(i));
+        }
+
+        PdpSolver solver = new PdpSolver(batch.problem, timeLimit);
+        if (solver.insert())
+        {
+            for (int v = 0; v < batch.vehicles.size(); v++) writeBack(batch, solver, v);
+        }
+
+        int assigned = packed;
+        for (int i = 0; i < pending.size(); i++)
+        {
+            Demand demand = pending.get(i);
+            int r = batch.requestOf.get(demand.getId(), -1);
+            int v = solver.getAssignment(r);
+            if (v >= 0)
+            {
+                demand.setAssigned(batch.vehicles.get(v).getId());
+                assigned++;
+            }
+            else if (candidateOf[i] != null)
+            {
+                remember(batch, solver, r, candidateOf[i], selected.get(i));
+            }
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        logger.debug("Inserted {} of {} new demands into {} candidate vehicles in {} us ({} us per demand)",
+            assigned - packed, batch.pending.size(), batch.vehicles.size(), micros, micros / Math.max(1, batch.pending.size()));
+        return assigned;
+    }
+
+    /**
+     * 取出或重新选取各订单的候选车辆，缓存只保留本周期仍未分配的订单
+     * <p>候选车辆为通行矩阵行起点距取货点最近的车辆，起点为当前行程的终点或停留位置
+     * @return 与 {@code pending} 一一对应
+     */
+    private static List<Candidates> selectCandidates(List<Demand> pending)
+    {
+        boolean gridBuilt = false;
+        int[] nearest = new int[candidateCount];
+        IntIntMap nextIndex = new IntIntMap(pending.size());
+        List<Candidates> next = new ArrayList<>(pending.size());
+        for (Demand demand : pending)
+        {
+            int c = cacheIndex.get(demand.getId(), -1);
+            Candidates candidates = c < 0 ? null : cache.get(c);
+            if (candidates == null || cycle - candidates.cycle >= candidateRefresh || candidates.hasRemoved())
+            {
+                if (!gridBuilt)
+                {
+                    buildGrid();
+                    gridBuilt = true;
+                }
+                Coordinate origin = demand.getOrigin();
+                int count = grid.nearest(origin.getLat(), origin.getLng(), candidateCount, nearest);
+                candidates = new Candidates(Arrays.copyOf(nearest, count), cycle);
+            }
+            nextIndex.put(demand.getId(), next.size());
+            next.add(candidates);
+        }
+        cacheIndex = nextIndex;
+        cache = next;
+        return next;
+    }
+
+    /** 以可参与调度的车辆的通行矩阵行起点建立网格索引 */
+    private static void buildGrid()
+    {
+        grid.clear();
+        for (Vehicle car : CarManager.getCars())
+        {
+            if (car == null || !isKnown(car.getNodeList())) continue;
+            int slot = TravelMatrix.slotOfVehicle(car.getId());
+            // 行尚在后台计算时起点未知
+            if (slot < 0 || Double.isNaN(TravelMatrix.originLat(slot))) continue;
+            grid.add(car.getId(), TravelMatrix.originLat(slot), TravelMatrix.originLng(slot));
+        }
+    }
+
+    /**
+     * 把订单的候选车辆换算为问题中的车辆下标，并带上仍有效的缓存代价
+     * @return 各候选在问题中的车辆下标，不在问题中的候选为 -1
+     */
+    private static int[] setCandidates(Batch batch, int r, Candidates candidates)
+    {
+        int[] index = new int[candidates.vehicles.length];
+        IntList vehicles = new IntList(index.length);
+        float[] known = new float[index.length];
+        for (int k = 0; k < index.length; k++)
+        {
+            Vehicle car = CarManager.getCar(candidates.vehicles[k]);
+            int v = batch.indexOf.get(candidates.vehicles[k], -1);
+            index[k] = v;
+            if (v < 0) continue;
+            known[vehicles.size()] = candidates.stamps[k] == stamp(car) ? candidates.delta[k] : Float.NaN;
+            vehicles.add(v);
+        }
+        batch.problem.setCandidates(r, vehicles.toArray(), Arrays.copyOf(known, vehicles.size()));
+        return index;
+    }
+
+    /** 记下未能分配的订单在未被修改的候选车辆上的代价，被修改的车辆缓存失效 */
+    private static void remember(Batch batch, PdpSolver solver, int r, int[] index, Candidates candidates)
+    {
+        int c = 0;
+        for (int k = 0; k < index.length; k++)
+        {
+            int v = index[k];
+            if (v < 0)
+            {
+                candidates.stamps[k] = -1;
+                continue;
+            }
+            float delta = solver.getCandidateDelta(r, c++);
+            if (solver.isModified(v) || Float.isNaN(delta))
+            {
+                candidates.stamps[k] = -1;
+                continue;
+            }
+            candidates.delta[k] = delta;
+            candidates.stamps[k] = stamp(batch.vehicles.get(v));
+        }
+    }
+
+    /** 车辆计划版本与通行矩阵行版本，二者都未变化时缓存的插入代价仍有效 */
+    private static long stamp(Vehicle car)
+    {
+        int slot = TravelMatrix.slotOfVehicle(car.getId());
+        int row = slot < 0 ? -1 : TravelMatrix.rowVersion(slot);
+        return ((long)car.getPlanVersion() << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 按取货点分组装箱，每箱交给 {@code Solver.packing_radius} 米内能装下整箱的最小空闲车辆，同型取最近者
+     * <p>空闲车辆为可用状态、没有执行中订单且路径点列表为空的车辆；分不到车辆的订单留给插入阶段
+     * <p>每辆派出车辆未用的载重与体积记入其统计参数与按车型的指标
+     * @return 装箱分配的订单数，这些订单已从 {@code pending} 中移除
+     */
+    private static int packIdle(List<Demand> pending)
+    {
+        List<Vehicle> idle = new ArrayList<>();
+        for (Vehicle car : CarManager.getCars())
+        {
+            if (car.getState() == VehState.AVAILABLE && car.getCurrDemand() == null && car.getNodeList().isEmpty()
+                && TravelMatrix.slotOfVehicle(car.getId()) >= 0)
+            {
+                idle.add(car);
+            }
+        }
+        if (idle.isEmpty()) return 0;
+
+        // 取货点编号到分组下标
+        IntIntMap groupOf = new IntIntMap(pending.size());
+        List<List<Demand>> groups = new ArrayList<>();
+        for (Demand demand : pending)
+        {
+            int g = groupOf.get(demand.getOriginId(), -1);
+            if (g < 0)
+            {
+                g = groups.size();
+                groupOf.put(demand.getOriginId(), g);
+                groups.add(new ArrayList<>());
+            }
+            groups.get(g).add(demand);
+        }
+
+        int assigned = 0, vehicles = 0;
+        double wastedLoad = 0, wastedVolume = 0;
+        for (List<Demand> group : groups)
+        {
+            int origin = group.get(0).getOriginId();
+            double[] weight = new double[group.size()], volume = new double[group.size()];
+            for (int i = 0; i < weight.length; i++)
+            {
+                weight[i] = group.get(i).getQuantity();
+                volume[i] = group.get(i).getVolume();
+            }
+
+            BinPacker.Result result = packer.pack(weight, volume);
+            // 重箱优先挑车
+            Integer[] bins = new Integer[result.getBinCount()];
+            for (int b = 0; b < bins.length; b++) bins[b] = b;
+            Arrays.sort(bins, (a, b) -> Double.compare(result.getLoad(b), result.getLoad(a)));
+            for (int b : bins)
+            {
+                if (idle.isEmpty()) break;
+                Vehicle car = pickVehicle(idle, result.getLoad(b), result.getVolume(b), origin);
+                if (car == null) continue;
+
+                idle.remove(car);
+                int[] items = result.getItems(b);
+                car.setNodeList(packedTour(group, items, origin));
+                for (int i : items) group.get(i).setAssigned(car.getId());
+                assigned += items.length;
+                vehicles++;
+                double carLoad = car.getMaxLoad() - result.getLoad(b), carVolume = car.getMaxVolume() - result.getVolume(b);
+                car.getStatistics().addPackedWaste(carLoad, carVolume);
+                MetricsManager.packed(CarManager.classOf(car), carLoad, carVolume);
+                wastedLoad += carLoad;
+                wastedVolume += carVolume;
+            }
+        }
+        if (assigned == 0) return 0;
+
+        pending.removeIf(Demand::isAssigned);
+        logger.debug("Packed {} demands onto {} idle vehicles, wasted capacity {} t / {} m3",
+            assigned, vehicles, wastedLoad, wastedVolume);
+        return assigned;
+    }
+
+    /** 半径内能装下整箱的空闲车辆中核载最小者，同核载取距取货点最近者 */
+    private static Vehicle pickVehicle(List<Vehicle> idle, double load, double volume, int origin)
+    {
+        Vehicle best = null;
+        float bestDistance = 0;
+        for (Vehicle car : idle)
+        {
+            if (car.getMaxLoad() < load || car.getMaxVolume() < volume) continue;
+            float distance = TravelMatrix.vehicleDistance(TravelMatrix.slotOfVehicle(car.getId()), origin);
+            if (distance > packingRadius) continue;
+
+            if (best == null || car.getMaxLoad() < best.getMaxLoad()
+                || (car.getMaxLoad() == best.getMaxLoad() && distance < bestDistance))
+            {
+                best = car;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /** 同一取货点先依次装货，再按最近邻顺序送货 */
+    private static long[] packedTour(List<Demand> group, int[] items, int origin)
+    {
+        long[] nodes = new long[items.length * 2];
+        for (int k = 0; k < items.length; k++) nodes[k] = PathNode.of(group.get(items[k]), true);
+
+        boolean[] done = new boolean[items.length];
+        int at = origin;
+        for (int step = 0; step < items.length; step++)
+        {
+            int next = -1;
+            float nextDistance = 0;
+            for (int k = 0; k < items.length; k++)
+            {
+                if (done[k]) continue;
+                float distance = TravelMatrix.poiDistance(at, group.get(items[k]).getDestinationId());
+                if (next < 0 || distance < nextDistance)
+                {
+                    next = k;
+                    nextDistance = distance;
+                }
+            }
+            done[next] = true;
+            Demand demand = group.get(items[next]);
+            nodes[items.length + step] = PathNode.of(demand, false);
+            at = demand.getDestinationId();
+        }
+        return nodes;
+    }
+
+    /** 以当前计划为输入在后台线程完整优化，起点代价行复制一份，后台求解期间矩阵刷新不影响结果 */
+    private static void startBackground()
+    {
+        ExecutorService pool = optimizer;
+        if (pool == null) return;
+
+        Batch batch = build(CarManager.getCars(), true);
+        if (batch.vehicles.size() < 2 || batch.requests.isEmpty()) return;
+        batch.solver = new PdpSolver(batch.problem, fullTimeLimit);
+        background = CompletableFuture.supplyAsync(() -> {
+            batch.solver.solve();
+            return batch;
+        }, pool);
+    }
+
+    /** 换入后台优化结果：请求在车辆间的迁移把车辆连成分量，分量内车辆的计划均未变化时才整体换入 */
+    private static void applyBackground()
+    {
+        if (background == null || !background.isDone()) return;
+        CompletableFuture<Batch> done = background;
+        background = null;
+        if (done.isCompletedExceptionally())
+        {
+            done.exceptionally(e -> {
+                logger.error("Background dispatch optimisation failed", e);
+                return null;
+            });
+            return;
+        }
+
+        Batch batch = done.join();
+        PdpSolver solver = batch.solver;
+        int n = batch.vehicles.size();
+        int[] parent = new int[n];
+        for (int v = 0; v < n; v++) parent[v] = v;
+        for (int r = 0; r < batch.requests.size(); r++)
+        {
+            int from = batch.owner.get(r), to = solver.getAssignment(r);
+            if (from >= 0 && to >= 0) parent[find(parent, from)] = find(parent, to);
+        }
+
+        boolean[] stale = new boolean[n];
+        for (int v = 0; v < n; v++)
+        {
+            if (!batch.isCurrent(v)) stale[find(parent, v)] = true;
+        }
+
+        int swapped = 0, dropped = 0;
+        for (int v = 0; v < n; v++)
+        {
+            if (stale[find(parent, v)])
+            {
+                dropped++;
+                continue;
+            }
+            if (writeBack(batch, solver, v)) swapped++;
+        }
+        logger.debug("Background optimisation: {} vehicle plans swapped in, {} dropped as stale, total distance {}",
+            swapped, dropped, (long)solver.getTotalCost());
+    }
+
+    private static int find(int[] parent, int v)
+    {
+        while (parent[v] != v)
+        {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * 以给定车辆的当前计划构建问题，已分配的订单按路径点列表加入
+     * @param copyRows 是否复制车辆起点代价行，供后台求解使用
+     */
+    private static Batch build(List<Vehicle> cars, boolean copyRows)
+    {
+        int n = TravelMatrix.getPoiCount();
+        Batch batch = new Batch(new PdpProblem(n, TravelMatrix.getPoiDistances()));
+
+        for (Vehicle car : cars)
+        {
+            if (car == null || !isKnown(car.getNodeList())) continue;
+            long[] nodes = car.getNodeList().toArray();
+
+            int anchor = anchorPoi(car);
+            int v;
+            if (anchor >= 0)
+            {
+                // 兴趣点块初始化后不再修改，可直接引用
+                v = batch.problem.addVehicle(TravelMatrix.getPoiDistances(), anchor * n, car.getMaxLoad(), car.getMaxVolume());
+            }
+            else
+            {
+                int slot = TravelMatrix.slotOfVehicle(car.getId());
+                if (slot < 0) continue;
+                float[] table = TravelMatrix.getVehicleDistances();
+                v = copyRows
+                    ? batch.problem.addVehicle(Arrays.copyOfRange(table, slot * n, slot * n + n), car.getMaxLoad(), car.getMaxVolume())
+                    : batch.problem.addVehicle(table, slot * n, car.getMaxLoad(), car.getMaxVolume());
+            }
+            batch.indexOf.put(car.getId(), v);
+            batch.vehicles.add(car);
+            batch.plans.add(nodes);
+            batch.anchors.add(anchor);
+
+            int[] stops = new int[nodes.length];
+            for (int k = 0; k < stops.length; k++)
+            {
+                long node = nodes[k];
+                Demand demand = PathNode.demand(node);
+                int r = batch.requestOf.get(demand.getId(), -1);
+                if (PathNode.isOrigin(node))
+                {
+                    r = batch.addRequest(demand, -1);
+                    batch.owner.set(r, v);
+                    stops[k] = PdpProblem.pickupStop(r);
+                }
+                else
+                {
+                    // 取货点已不在列表中：订单已装车或正在前往取货
+                    if (r < 0)
+                    {
+                        r = batch.addRequest(demand, v);
+                        batch.owner.set(r, v);
+                    }
+                    stops[k] = PdpProblem.deliveryStop(r);
+                }
+            }
+            batch.problem.setInitialStops(v, stops);
+        }
+        return batch;
+    }
+
+    /**
+     * 把求解结果写回车辆的路径点列表，路线未变化时不修改
+     * @return 是否修改了路径点列表
+     */
+    private static boolean writeBack(Batch batch, PdpSolver solver, int v)
+    {
+        Vehicle car = batch.vehicles.get(v);
+        int[] stops = solver.getStops(v);
+        if (sameStops(car.getNodeList(), stops, batch)) return false;
+
+        long[] nodes = new long[stops.length];
+        for (int k = 0; k < stops.length; k++) nodes[k] = batch.nodeOf(stops[k]);
+        car.setNodeList(nodes);
+        return true;
+    }
+
+    /** @return 当前订单所在的兴趣点下标，没有执行中的订单时为 -1 */
+    private static int anchorPoi(Vehicle car)
+    {
+        Demand demand = car.getCurrDemand();
+        if (demand == null) return -1;
+
+        VehState state = car.getState() == VehState.FREEZE ? car.getPrevState() : car.getState();
+        int poi = switch (state)
+        {
+            case ORDER_TAKEN, LOADING -> demand.getOriginId();
+            case TRANSPORTING, UNLOADING -> demand.getDestinationId();
+            default -> -1;
+        };
+        return TravelMatrix.containsPoi(poi) ? poi : -1;
+    }
+
+    /** 路径点是否都在通行矩阵中，否则该车不参与本次调度 */
+    private static boolean isKnown(LongDeque nodes)
+    {
+        for (int k = 0; k < nodes.size(); k++)
+        {
+            long node = nodes.get(k);
+            Demand demand = PathNode.demand(node);
+            if (demand == null) return false;
+            if (!TravelMatrix.containsPoi(PathNode.isOrigin(node) ? demand.getOriginId() : demand.getDestinationId())) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameStops(LongDeque nodes, int[] stops, Batch batch)
+    {
+        if (nodes.size() != stops.length) return false;
+        for (int k = 0; k < stops.length; k++)
+        {
+            if (nodes.get(k) != batch.nodeOf(stops[k])) return false;
+        }
+        return true;
+    }
+
+    /** 订单的候选车辆与缓存的插入代价，{@code stamps} 与车辆当前的 {@link #stamp(Vehicle)} 不同时代价已失效 */
+    private static final class Candidates
+    {
+        final int[] vehicles;
+        final float[] delta;
+        final long[] stamps;
+        /** 选取候选车辆时的周期 */
+        final int cycle;
+
+        Candidates(int[] vehicles, int cycle)
+        {
+            this.vehicles = vehicles;
+            this.delta = new float[vehicles.length];
+            this.stamps = new long[vehicles.length];
+            Arrays.fill(stamps, -1);
+            this.cycle = cycle;
+        }
+
+        /** 是否有候选车辆已被删除 */
+        boolean hasRemoved()
+        {
+            for (int id : vehicles)
+            {
+                if (CarManager.getCar(id) == null) return true;
+            }
+            return false;
+        }
+    }
+
+    /** 一次求解的输入及构建时各车的计划 */
+    private static final class Batch
+    {
+        final PdpProblem problem;
+        final List<Vehicle> vehicles = new ArrayList<>();
+        final List<long[]> plans = new ArrayList<>();
+        final IntList anchors = new IntList();
+        final List<Demand> requests = new ArrayList<>();
+        /** 请求的取货路径点，带构建时的订单代数；后台求解期间订单可能完成，写回时只用它而不用订单实例 */
+        long[] refs = new long[16];
+        /** 请求构建时所在车辆，新订单为 -1 */
+        final IntList owner = new IntList();
+        /** 车辆编号到问题中的车辆下标 */
+        final IntIntMap indexOf = new IntIntMap();
+        /** 订单编号到请求下标，只在构建与插入时使用，不跨越编号复用 */
+        final IntIntMap requestOf = new IntIntMap();
+        final List<Demand> pending = new ArrayList<>();
+        PdpSolver solver;
+
+        Batch(PdpProblem problem) { this.problem = problem; }
+
+        int addRequest(Demand demand, int fixedVehicle)
+        {
+            int r = problem.addRequest(demand.getOriginId(), demand.getDestinationId(),
+                demand.getQuantity(), demand.getVolume(), fixedVehicle);
+            requests.add(demand);
+            if (r == refs.length) refs = Arrays.copyOf(refs, r * 2);
+            refs[r] = PathNode.of(demand, true);
+            owner.add(-1);
+            requestOf.put(demand.getId(), r);
+            return r;
+        }
+
+        long nodeOf(int stop) { return PathNode.as(refs[PdpProblem.requestOf(stop)], PdpProblem.isPickup(stop)); }
+
+        /** 车辆的计划自构建以来是否未变化 */
+        boolean isCurrent(int v)
+        {
+            Vehicle car = vehicles.get(v);
+            if (CarManager.getCar(car.getId()) != car || anchorPoi(car) != anchors.get(v)) return false;
+
+            LongDeque nodes = car.getNodeList();
+            long[] plan = plans.get(v);
+            if (nodes.size() != plan.length) return false;
+            for (int k = 0; k < plan.length; k++)
+            {
+                if (nodes.get(k) != plan[k]) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.tsadmin.transport.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import tools.jackson.databind.JsonNode;
+
+import com.tsadmin.transport.config.ConfigLoader;
+import com.tsadmin.transport.domain.share.Coordinate;
+import com.tsadmin.transport.entity.Vehicle;
+import com.tsadmin.transport.entity.poi.Poi;
+import com.tsadmin.transport.event.EventIndex;
+import com.tsadmin.transport.event.PathImpacts;
+import com.tsadmin.transport.event.TrafficEvent;
+import com.tsadmin.transport.event.TrafficEvent.Severity;
+import com.tsadmin.transport.event.TrafficEvent.Type;
+import com.tsadmin.transport.routing.Polygon;
+import com.tsadmin.transport.routing.Route;
+import com.tsadmin.transport.util.GeoUtil;
+import com.tsadmin.transport.util.IntList;
+
+/**
+ * 路况事件模拟：按沙盒配置生成天气、拥堵、事故与封路事件，并在到期后解除
+ * <p>随机数由 {@code Main.random_seed} 播种，相同配置下事件序列可复现
+ * <p>活动事件发布为不可变的 {@link EventIndex}，速度因子与影响判断无锁读取；
+ * 封路区域同步给 {@link RouteManager} 用于路线避让
+ * <p>每周期批量计算事件对行驶中车辆剩余路径的影响，新封路截断的路线被清除，
+ * 随后由 {@link CarManager#update(double)} 经 {@link RoutePlanner} 重新规划
+ * <p>{@link #init()} 与 {@link #update()} 须持有世界写锁
+ */
+public class EventManager
+{
+    private static final Logger logger = LogManager.getLogger(EventManager.class);
+
+    private static final String[] WEATHER_TYPES = { "rain", "snow", "storm", "sandstorm", "fog" };
+    private static final double[][] WEATHER_SPEED_FACTORS = {
+        { 0.8, 0.6, 0.4, 0.2 },
+        { 0.7, 0.5, 0.3, 0.1 },
+        { 0.6, 0.4, 0.2, 0.1 },
+        { 0.5, 0.3, 0.15, 0.05 },
+        { 0.9, 0.7, 0.5, 0.3 }
+    };
+    /** 封路半径（米），对应前端按严重程度封闭 5~20 个路径点 */
+    private static final double[] CLOSURE_RADIUS = { 250, 500, 750, 1000 };
+    /** 拥堵半径（米） */
+    private static final double[] JAM_RADIUS = { 300, 500, 650, 800 };
+    private static final double ACCIDENT_RADIUS = 200;
+    /** 冻结概率放大倍数的上限，对应速度因子下限 0.1 */
+    private static final double MAX_FREEZE_FACTOR = 10.0;
+
+    private static volatile EventIndex index = EventIndex.EMPTY;
+    private static volatile PathImpacts impacts = PathImpacts.EMPTY;
+
+    // 以下字段只在持有世界写锁时访问
+    private static Random random = new Random();
+    private static final List<TrafficEvent> active = new ArrayList<>();
+    // 按车辆编号，车辆是否已关联一个活动事件
+    private static boolean[] involved = new boolean[0];
+    private static long cycle = 0, nextId = 1;
+    private static double cyclesPerMinute = 12;
+    private static double minLat, minLng, maxLat, maxLng;
+
+    private static double globalProbability;
+    private static int maxActiveEvents;
+    private static boolean[] enabled = new boolean[Type.values().length];
+    private static int[] maxCount = new int[Type.values().length];
+    private static double[] probability = new double[Type.values().length];
+    private static double[][] durationRange = new double[Type.values().length][];
+    private static double[][] severityDistribution = new double[Type.values().length][];
+    private static double[][] speedFactors = new double[Type.values().length][];
+    private static double[] weatherTypeProbability;
+    private static double[][] weatherSpeedFactors;
+    private static double weatherMinDistance;
+
+    public static void init()
+    {
+        long seed = ConfigLoader.getLong("Main.random_seed", System.nanoTime());
+        random = new Random(seed);
+        active.clear();
+        involved = new boolean[0];
+        cycle = 0;
+        nextId = 1;
+        index = EventIndex.EMPTY;
+        impacts = PathImpacts.EMPTY;
+
+        // 事件持续时间以分钟配置，按更新周期换算
+        cyclesPerMinute = 60.0 / Math.max(ConfigLoader.getInt("Main.update_interval", 5), 1);
+
+        globalProbability = ConfigLoader.getDouble("Event.global_probability", 0.3);
+        maxActiveEvents = ConfigLoader.getInt("Event.max_active_events", 20);
+
+        loadTypeConfig(Type.WEATHER, 1, 0.0, new double[] { 0.5, 0.3, 0.15, 0.05 }, null);
+        loadTypeConfig(Type.ACCIDENT, 3, 0.02, new double[] { 0.6, 0.3, 0.08, 0.02 }, new double[] { 1.0, 1.0, 1.0, 1.0 });
+        loadTypeConfig(Type.TRAFFIC_JAM, 3, 0.05, new double[] { 0.4, 0.4, 0.15, 0.05 }, new double[] { 0.5, 0.5, 0.5, 0.5 });
+        loadTypeConfig(Type.ROAD_CLOSURE, 2, 0.03, new double[] { 0.3, 0.4, 0.25, 0.05 }, new double[] { 0, 0, 0, 0 });
+
+        weatherTypeProbability = new double[WEATHER_TYPES.length];
+        weatherSpeedFactors = new double[WEATHER_TYPES.length][];
+        JsonNode typeProbs = ConfigLoader.getJson("Event.weather.type_probabilities");
+        JsonNode allowed = ConfigLoader.getJson("Event.weather.types_allowed");
+        JsonNode factors = ConfigLoader.getJson("Event.weather.speed_factors");
+        double[] defaultProbs = { 0.4, 0.2, 0.1, 0.1, 0.2 };
+        for (int i = 0; i < WEATHER_TYPES.length; i++)
+        {
+            String type = WEATHER_TYPES[i];
+            boolean isAllowed = allowed == null || contains(allowed, type);
+            weatherTypeProbability[i] = isAllowed ? number(typeProbs, type, defaultProbs[i]) : 0;
+            weatherSpeedFactors[i] = severityTable(factors == null ? null : factors.get(type), WEATHER_SPEED_FACTORS[i]);
+        }
+        weatherMinDistance = ConfigLoader.getDouble("Event.weather.min_distance", 5000.0);
+
+        computeBounds();
+        RouteManager.setClosures(List.of());
+        logger.info("Event simulation initialized with seed {}", seed);
+    }
+
+    /** 获取当前活动事件的索引，无锁 */
+    public static EventIndex getIndex() { return index; }
+
+    /** 获取影响该车剩余路径的事件，无锁 */
+    public static List<TrafficEvent> getImpacts(int vehicleId) { return impacts.get(vehicleId); }
+
+    /** 坐标处的综合速度因子，无事件时为 1 */
+    public static double speedFactor(Coordinate position)
+    {
+        return position == null ? 1.0 : index.speedFactorAt(position.getLat(), position.getLng());
+    }
+
+    /**
+     * 事件对车辆冻结概率的放大倍数
+     * <p>速度因子越低，车辆越容易停车等待，倍数为速度因子的倒数
+     */
+    public static double freezeFactor(Coordinate position)
+    {
+        double factor = speedFactor(position);
+        return factor >= 1.0 ? 1.0 : Math.min(1.0 / factor, MAX_FREEZE_FACTOR);
+    }
+
+    /**
+     * 推进一个周期：解除到期事件并按概率生成新事件，<b>调用方需持有世界写锁</b>
+     * @param shed 周期超时时为 {@code true}，只解除到期事件，不生成新事件
+     */
+    public static void update(boolean shed)
+    {
+        cycle++;
+        boolean changed = false, closuresChanged = false;
+
+        Iterator<TrafficEvent> it = active.iterator();
+        while (it.hasNext())
+        {
+            TrafficEvent event = it.next();
+            if (!event.isExpired(cycle)) continue;
+
+            it.remove();
+            if (event.getVehicleId() >= 0 && event.getVehicleId() < involved.length) involved[event.getVehicleId()] = false;
+            if (event.getType() == Type.ROAD_CLOSURE) closuresChanged = true;
+            changed = true;
+            logger.debug("Event {}({}) expired", event.getId(), event.getType().getKey());
+        }
+
+        if (!shed && active.size() < maxActiveEvents && random.nextDouble() <= globalProbability)
+        {
+            if (enabled[Type.WEATHER.ordinal()]) changed |= generateWeather();
+
+            int capacity = CarManager.getIdCapacity();
+            if (involved.length < capacity) involved = Arrays.copyOf(involved, capacity);
+            for (Vehicle car : CarManager.getCars())
+            {
+                if (active.size() >= maxActiveEvents) break;
+                TrafficEvent event = generateVehicleEvent(car);
+                if (event == null) continue;
+                changed = true;
+                closuresChanged |= event.getType() == Type.ROAD_CLOSURE;
+            }
+        }
+
+        if (changed)
+        {
+            index = new EventIndex(active);
+            if (closuresChanged)
+            {
+                List<Polygon> closures = new ArrayList<>();
+                for (TrafficEvent event : active)
+                {
+                    if (event.getType() == Type.ROAD_CLOSURE) closures.add(event.getArea());
+                }
+                RouteManager.setClosures(closures);
+            }
+        }
+        updateImpacts();
+    }
+
+    /** 批量计算事件对行驶中车辆剩余路径的影响 */
+    private static void updateImpacts()
+    {
+        EventIndex current = index;
+        if (current.isEmpty())
+        {
+            impacts = PathImpacts.EMPTY;
+            return;
+        }
+
+        IntList ids = new IntList();
+        List<Route> paths = new ArrayList<>();
+        List<Vehicle> cars = new ArrayList<>();
+        for (Vehicle car : CarManager.getCars())
+        {
+            if (!car.isMoving() || car.getRoute() == null) continue;
+            ids.add(car.getId());
+            paths.add(car.getRoute());
+            cars.add(car);
+        }
+        // 只检查车辆尚未驶过的线段
+        int[] firstSegment = new int[cars.size()];
+        for (int i = 0; i < cars.size(); i++)
+        {
+            firstSegment[i] = paths.get(i).segmentAt(cars.get(i).getProgress());
+        }
+        PathImpacts next = PathImpacts.compute(ids.toArray(), paths, firstSegment, current);
+
+        // 本周期新增的封路截断了路线时，对应车辆放弃原路线绕行
+        for (int i = 0; i < cars.size(); i++)
+        {
+            for (TrafficEvent event : next.get(cars.get(i).getId()))
+            {
+                if (event.getType() == Type.ROAD_CLOSURE && event.getStartCycle() == cycle)
+                {
+                    reroute(cars.get(i));
+                    break;
+                }
+            }
+        }
+        impacts = next;
+    }
+
+    /**
+     * 清除车辆的路线，车辆停在当前位置等待新路线
+     * <p>同一周期内 {@link CarManager#update(double)} 在后执行，会把本段行程连同其他无路线车辆一起提交给规划线程池，
+     * 规划完成后按待安装路线的方式安装；封路已同步给 {@link RouteManager}，缓存中被截断的路线已失效
+     */
+    private static void reroute(Vehicle car)
+    {
+        if (car.getLegTarget() == null) return;
+        car.setRoute(null);
+        logger.debug("Vehicle #{} dropped its route around a road closure", car.getId());
+    }
+
+    private static boolean generateWeather()
+    {
+        if (count(Type.WEATHER) >= maxCount[Type.WEATHER.ordinal()] || minLat > maxLat) return false;
+
+        int type = select(weatherTypeProbability);
+        if (type < 0) return false;
+
+        // 尝试生成远离已有天气事件的位置
+        double lat = 0, lng = 0;
+        boolean valid = false;
+        for (int attempt = 0; attempt < 10 && !valid; attempt++)
+        {
+            lat = minLat + random.nextDouble() * (maxLat - minLat);
+            lng = minLng + random.nextDouble() * (maxLng - minLng);
+            valid = true;
+            for (TrafficEvent event : active)
+            {
+                if (event.getType() == Type.WEATHER
+                    && GeoUtil.haversine(lat, lng, event.getLat(), event.getLng()) < weatherMinDistance)
+                {
+                    valid = false;
+                    break;
+                }
+            }
+        }
+        if (!valid) return false;
+
+        Severity severity = selectSeverity(Type.WEATHER);
+        double radius = 2000 + random.nextDouble() * 3000;
+        add(Type.WEATHER, WEATHER_TYPES[type], severity, lat, lng, radius,
+            weatherSpeedFactors[type][severity.ordinal()], -1);
+        return true;
+    }
+
+    /** 为行驶中的车辆在其当前行程上生成事故、拥堵或封路事件，每辆车同时至多关联一个事件 */
+    private static TrafficEvent generateVehicleEvent(Vehicle car)
+    {
+        Coordinate from = car.getPosition();
+        Coordinate to = car.getLegTarget();
+        if (from == null || to == null) return null;
+
+        int id = car.getId();
+        if (involved[id]) return null;
+
+        if (roll(Type.ACCIDENT))
+        {
+            // 行程中段偏前
+            double t = 0.3 + random.nextDouble() * 0.4;
+            Severity severity = selectSeverity(Type.ACCIDENT);
+            return add(Type.ACCIDENT, null, severity, lerp(from.getLat(), to.getLat(), t), lerp(from.getLng(), to.getLng(), t),
+                ACCIDENT_RADIUS, speedFactors[Type.ACCIDENT.ordinal()][severity.ordinal()], id);
+        }
+        if (roll(Type.TRAFFIC_JAM))
+        {
+            double t = random.nextDouble();
+            Severity severity = selectSeverity(Type.TRAFFIC_JAM);
+            return add(Type.TRAFFIC_JAM, null, severity, lerp(from.getLat(), to.getLat(), t), lerp(from.getLng(), to.getLng(), t),
+                JAM_RADIUS[severity.ordinal()], speedFactors[Type.TRAFFIC_JAM.ordinal()][severity.ordinal()], id);
+        }
+        if (roll(Type.ROAD_CLOSURE))
+        {
+            // 行程前半段
+            double t = 0.2 + random.nextDouble() * 0.3;
+            Severity severity = selectSeverity(Type.ROAD_CLOSURE);
+            return add(Type.ROAD_CLOSURE, null, severity, lerp(from.getLat(), to.getLat(), t), lerp(from.getLng(), to.getLng(), t),
+                CLOSURE_RADIUS[severity.ordinal()], 0, id);
+        }
+        return null;
+    }
+
+    private static boolean roll(Type type)
+    {
+        int i = type.ordinal();
+        return enabled[i] && count(type) < maxCount[i] && random.nextDouble() < probability[i];
+    }
+
+    private static TrafficEvent add(Type type, String subtype, Severity severity, double lat, double lng,
+                                    double radius, double speedFactor, int vehicleId)
+    {
+        double[] range = durationRange[type.ordinal()];
+        double minutes = range[0] + random.nextDouble() * (range[1] - range[0]);
+        long end = cycle + Math.max(1, Math.round(minutes * cyclesPerMinute));
+
+        TrafficEvent event = new TrafficEvent(nextId++, type, subtype, severity, lat, lng, radius, speedFactor, cycle, end, vehicleId);
+        active.add(event);
+        if (vehicleId >= 0) involved[vehicleId] = true;
+        logger.debug("Event {}({}{}, {}) generated at ({}, {}), lasts {} cycles", event.getId(), type.getKey(),
+            subtype == null ? "" : ":" + subtype, severity.getKey(), lat, lng, end - cycle);
+        return event;
+    }
+
+    private static int count(Type type)
+    {
+        int n = 0;
+        for (TrafficEvent event : active)
+        {
+            if (event.getType() == type) n++;
+        }
+        return n;
+    }
+
+    private static Severity selectSeverity(Type type)
+    {
+        int i = select(severityDistribution[type.ordinal()]);
+        return Severity.values()[Math.max(i, 0)];
+    }
+
+    /** 按累积概率选取下标，概率之和不足 1 时可能落空，返回 -1 */
+    private static int select(double[] distribution)
+    {
+        double r = random.nextDouble(), cumulative = 0;
+        for (int i = 0; i < distribution.length; i++)
+        {
+            cumulative += distribution[i];
+            if (r <= cumulative) return i;
+        }
+        return -1;
+    }
+
+    private static double lerp(double a, double b, double t) { return a + (b - a) * t; }
+
+    /** 天气事件在兴趣点分布范围内生成，对应前端的地图视野 */
+    private static void computeBounds()
+    {
+        minLat = minLng = Double.MAX_VALUE;
+        maxLat = maxLng = -Double.MAX_VALUE;
+        for (Poi poi : PoiManager.getPois())
+        {
+            if (poi == null) continue;
+            Coordinate p = poi.getPosition();
+            minLat = Math.min(minLat, p.getLat());
+            maxLat = Math.max(maxLat, p.getLat());
+            minLng = Math.min(minLng, p.getLng());
+            maxLng = Math.max(maxLng, p.getLng());
+        }
+    }
+
+    private static void loadTypeConfig(Type type, int defaultMaxCount, double defaultProbability,
+                                       double[] defaultSeverity, double[] defaultSpeedFactors)
+    {
+        int i = type.ordinal();
+        String prefix = "Event." + type.getKey() + ".";
+        enabled[i] = ConfigLoader.getBoolean(prefix + "enabled", true);
+        maxCount[i] = ConfigLoader.getInt(prefix + "max_count", defaultMaxCount);
+        probability[i] = ConfigLoader.getDouble(prefix + "probability", defaultProbability);
+
+        JsonNode range = ConfigLoader.getJson(prefix + "duration_range");
+        durationRange[i] = range != null && range.size() == 2
+            ? new double[] { range.get(0).asDouble(), range.get(1).asDouble() }
+            : new double[] { 15, 15 };
+
+        JsonNode distribution = ConfigLoader.getJson(prefix + "severity_distribution");
+        severityDistribution[i] = severityTable(distribution, defaultSeverity);
+        if (defaultSpeedFactors != null)
+        {
+            speedFactors[i] = severityTable(ConfigLoader.getJson(prefix + "speed_factors"), defaultSpeedFactors);
+        }
+    }
+
+    /** 读取以严重程度为键的表，缺失项取默认值 */
+    private static double[] severityTable(JsonNode node, double[] defaults)
+    {
+        double[] table = defaults.clone();
+        for (Severity severity : Severity.values())
+        {
+            table[severity.ordinal()] = number(node, severity.getKey(), defaults[severity.ordinal()]);
+        }
+        return table;
+    }
+
+    private static double number(JsonNode node, String key, double defaultValue)
+    {
+        if (node == null) return defaultValue;
+        JsonNode value = node.get(key);
+        return value == null || !value.isNumber() ? defaultValue : value.asDouble();
+    }
+
+    private static boolean contains(JsonNode array, String value)
+    {
+        for (JsonNode item : array)
+        {
+            if (value.equals(item.asString())) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,246 @@
+package com.tsadmin.transport.domain;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tsadmin.transport.config.ConfigLoader;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 运行指标，注册到 Micrometer 全局注册表，由 Spring Boot Actuator 的 {@code /actuator/prometheus} 导出
+ * <p>周期各阶段的耗时用 {@link #start()} 与 {@link #phase(Phase, long)} 串接计时；
+ * 接口延迟按百分位直方图统计；整车装箱派车未用的载重与体积按车型分布统计；
+ * 队列长度、车辆状态计数等以仪表读取周期末的值
+ * <p>{@code Metrics.enabled} 为 {@code false} 时所有记录方法只判断一次开关即返回，不读取时钟
+ */
+public class MetricsManager
+{
+    private static final Logger logger = LogManager.getLogger(MetricsManager.class);
+
+    /** 周期阶段 */
+    public enum Phase
+    {
+        POI_UPDATE("poi_update"),
+        /** 订单生成，发生在兴趣点更新中，按周期累计，已包含在 {@link #POI_UPDATE} 内 */
+        DEMAND_GENERATION("demand_generation"),
+        EVENTS("events"),
+        VEHICLE_TICK("vehicle_tick"),
+        MATRIX_REFRESH("matrix_refresh"),
+        DISPATCH("dispatch"),
+        PUBLISH("publish");
+
+        private final String key;
+        Phase(String key) { this.key = key; }
+        public String getKey() { return key; }
+    }
+
+    /** 计时的接口 */
+    public enum Endpoint
+    {
+        DESTINATION("destination"),
+        DASHBOARD("dashboard");
+
+        private final String key;
+        Endpoint(String key) { this.key = key; }
+        public String getKey() { return key; }
+    }
+
+    private static volatile boolean enabled = false;
+    private static Timer tickTimer;
+    private static final Timer[] phaseTimers = new Timer[Phase.values().length];
+    private static final Timer[] endpointTimers = new Timer[Endpoint.values().length];
+    private static DistributionSummary tickAllocation;
+    // 按车型下标
+    private static DistributionSummary[] packedLoadWaste = new DistributionSummary[0], packedVolumeWaste = new DistributionSummary[0];
+    private static Counter overruns, skipped, shed;
+    private static boolean registered = false;
+    // 本周期订单生成累计耗时，仅更新线程访问
+    private static long demandNanos = 0;
+
+    // 周期末写入、仪表读取
+    private static volatile int demandCount = 0, demandBacklog = 0;
+    private static volatile long demandsGenerated = 0;
+    private static volatile double allocationRate = 0, lagSeconds = 0;
+    private static volatile boolean throttled = false;
+
+    // 只有 HotSpot 等实现提供按线程的分配统计
+    private static final com.sun.management.ThreadMXBean threads =
+        ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t && t.isThreadAllocatedMemorySupported() ? t : null;
+
+    public static synchronized void init()
+    {
+        enabled = ConfigLoader.getBoolean("Metrics.enabled", true);
+        if (!enabled || registered) return;
+
+        MeterRegistry registry = Metrics.globalRegistry;
+        tickTimer = Timer.builder("transport.tick")
+            .description("Duration of a whole simulation cycle")
+            .publishPercentileHistogram()
+            .register(registry);
+        for (Phase phase : Phase.values())
+        {
+            phaseTimers[phase.ordinal()] = Timer.builder("transport.tick.phase")
+                .description("Duration of a simulation cycle phase")
+                .tag("phase", phase.getKey())
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        }
+        for (Endpoint endpoint : Endpoint.values())
+        {
+            endpointTimers[endpoint.ordinal()] = Timer.builder("transport.http.latency")
+                .description("Latency of a polled endpoint")
+                .tag("endpoint", endpoint.getKey())
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(registry);
+        }
+        tickAllocation = DistributionSummary.builder("transport.tick.allocated")
+            .description("Bytes allocated by the update thread in one cycle")
+            .baseUnit("bytes")
+            .register(registry);
+
+        double[] classLoads = CarManager.getClassLoads();
+        packedLoadWaste = new DistributionSummary[classLoads.length];
+        packedVolumeWaste = new DistributionSummary[classLoads.length];
+        for (int c = 0; c < classLoads.length; c++)
+        {
+            String vehicleClass = String.valueOf((int)classLoads[c]);
+            packedLoadWaste[c] = DistributionSummary.builder("transport.dispatch.packed.wasted.load")
+                .description("Unused load of a vehicle dispatched with a packed bin")
+                .tag("class", vehicleClass)
+                .baseUnit("tonnes")
+                .publishPercentiles(0.5, 0.9)
+                .register(registry);
+            packedVolumeWaste[c] = DistributionSummary.builder("transport.dispatch.packed.wasted.volume")
+                .description("Unused volume of a vehicle dispatched with a packed bin")
+                .tag("class", vehicleClass)
+                .baseUnit("cubic_metres")
+                .publishPercentiles(0.5, 0.9)
+                .register(registry);
+        }
+
+        Gauge.builder("transport.demands", () -> demandCount).description("Live demands").register(registry);
+        Gauge.builder("transport.demands.backlog", () -> demandBacklog).description("Demands not yet assigned to a vehicle").register(registry);
+        FunctionCounter.builder("transport.demands.generated", MetricsManager.class, c -> demandsGenerated)
+            .description("Demands generated since start").register(registry);
+        Gauge.builder("transport.vehicles", () -> WorldManager.snapshot().getVehicleCount()).register(registry);
+        Gauge.builder("transport.vehicles.available", () -> WorldManager.snapshot().getAvailableCount()).register(registry);
+        Gauge.builder("transport.vehicles.freeze", () -> WorldManager.snapshot().getFreezeCount()).register(registry);
+        Gauge.builder("transport.tick.allocation.rate", () -> allocationRate)
+            .description("Bytes per second allocated by the update thread")
+            .baseUnit("bytes")
+            .register(registry);
+        overruns = Counter.builder("transport.tick.overruns")
+            .description("Cycles that finished after their scheduled deadline").register(registry);
+        skipped = Counter.builder("transport.tick.skipped")
+            .description("Scheduled cycles dropped to catch up").register(registry);
+        shed = Counter.builder("transport.tick.shed")
+            .description("Cycles run with non-essential phases shed").register(registry);
+        Gauge.builder("transport.tick.lag", () -> lagSeconds)
+            .description("How far the last cycle finished behind its deadline")
+            .baseUnit("seconds")
+            .register(registry);
+        Gauge.builder("transport.demands.throttled", () -> throttled ? 1 : 0)
+            .description("1 while demand generation is paused by backpressure").register(registry);
+        registered = true;
+        logger.info("Metrics registered");
+    }
+
+    public static boolean isEnabled() { return enabled; }
+
+    /** @return 计时起点，关闭时为 0 */
+    public static long start() { return enabled ? System.nanoTime() : 0; }
+
+    /**
+     * 记录阶段耗时
+     * @param from 阶段起点
+     * @return 下一阶段的起点
+     */
+    public static long phase(Phase phase, long from)
+    {
+        if (!enabled) return 0;
+        long now = System.nanoTime();
+        phaseTimers[phase.ordinal()].record(now - from, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    /** 累计一次订单生成的耗时，周期末记入 {@link Phase#DEMAND_GENERATION} */
+    public static void demandGenerated(long from)
+    {
+        if (!enabled) return;
+        demandNanos += System.nanoTime() - from;
+    }
+
+    /**
+     * 记录周期调度结果
+     * @param lagNanos 周期结束时落后于截止时间的时长，未超时为 0
+     * @param skippedTicks 为追赶而放弃的计划周期数
+     * @param shedTick 本周期是否省略了非必要阶段
+     */
+    public static void schedule(long lagNanos, long skippedTicks, boolean shedTick)
+    {
+        if (!enabled) return;
+        lagSeconds = lagNanos / 1e9;
+        if (lagNanos > 0) overruns.increment();
+        if (skippedTicks > 0) skipped.increment(skippedTicks);
+        if (shedTick) shed.increment();
+    }
+
+    /**
+     * 记录一辆整车装箱派出的车辆未用的容量
+     * @param vehicleClass 车辆所属车型下标，见 {@link CarManager#classOf}
+     */
+    public static void packed(int vehicleClass, double wastedLoad, double wastedVolume)
+    {
+        if (!enabled || vehicleClass < 0 || vehicleClass >= packedLoadWaste.length) return;
+        packedLoadWaste[vehicleClass].record(wastedLoad);
+        packedVolumeWaste[vehicleClass].record(wastedVolume);
+    }
+
+    /** 记录接口耗时 */
+    public static void endpoint(Endpoint endpoint, long from)
+    {
+        if (!enabled) return;
+        endpointTimers[endpoint.ordinal()].record(System.nanoTime() - from, TimeUnit.NANOSECONDS);
+    }
+
+    /** @return 当前线程累计分配的字节数，不支持或关闭时为 0 */
+    public static long allocatedBytes() { return enabled && threads != null ? threads.getCurrentThreadAllocatedBytes() : 0; }
+
+    /**
+     * 记录整个周期并更新仪表，<b>调用方需持有世界写锁</b>
+     * @param from 周期起点
+     * @param allocatedFrom 周期开始时的 {@link #allocatedBytes()}
+     */
+    public static void tick(long from, long allocatedFrom)
+    {
+        if (!enabled) return;
+        long elapsed = System.nanoTime() - from;
+        tickTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        phaseTimers[Phase.DEMAND_GENERATION.ordinal()].record(demandNanos, TimeUnit.NANOSECONDS);
+        demandNanos = 0;
+        if (threads != null)
+        {
+            long bytes = allocatedBytes() - allocatedFrom;
+            tickAllocation.record(bytes);
+            allocationRate = elapsed > 0 ? bytes * 1e9 / elapsed : 0;
+        }
+        demandCount = DemandManager.getCount();
+        demandBacklog = DemandManager.getBacklog();
+        demandsGenerated = DemandManager.getGenerated();
+        throttled = DemandManager.isThrottled();
+    }
+}
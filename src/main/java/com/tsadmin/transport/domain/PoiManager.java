@@ -1,6 +1,5 @@
 package com.tsadmin.transport.domain;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -12,18 +11,47 @@ import com.tsadmin.transport.domain.share.Coordinate;
 import com.tsadmin.transport.domain.share.ProductType;
 // import com.tsadmin.transport.dao.DBManager;
 import com.tsadmin.transport.entity.poi.*;
+import com.tsadmin.transport.util.IdRegistry;
+import com.tsadmin.transport.util.RecordStore;
 
 public class PoiManager
 {
     private static final Logger logger = LogManager.getLogger(PoiManager.class);
 
-    public static Map<String, Poi> poiList = new HashMap<>();
-
-    public static Poi getPoi(String uuid) { return poiList.get(uuid); }
+    // 兴趣点按编号排列，编号即通行矩阵中的下标
+    private static final IdRegistry ids = new IdRegistry();
+    private static final List<Poi> pois = new ArrayList<>();
+    // 库存等可变数值，记录号即兴趣点编号
+    private static RecordStore records = RecordStore.open("heap", null, Poi.RECORD_SIZE, 16);
+
+    /** 按编号获取兴趣点 */
+    public static Poi getPoi(int id) { return id >= 0 && id < pois.size() ? pois.get(id) : null; }
+    /** 按 UUID 获取兴趣点，仅供加载与 REST 边界使用 */
+    public static Poi getPoi(String uuid) { return getPoi(ids.idOf(uuid)); }
+    /** 所有兴趣点，按编号排列，只读；上游引用但尚未加载的编号为 {@code null} */
+    public static List<Poi> getPois() { return pois; }
+    /** 兴趣点可变数值的记录表，布局见 {@link Poi#RECORD_SIZE} */
+    public static RecordStore getRecords() { return records; }
+
+    /**
+     * 为 UUID 分配编号，兴趣点可先被引用后加载，加载时得到同一编号
+     * @return 兴趣点编号
+     */
+    public static int internPoi(String uuid)
+    {
+        int id = ids.intern(uuid);
+        while (pois.size() <= id) pois.add(null);
+        records.ensureCapacity(id + 1);
+        return id;
+    }
 
     public static void init()
     {
-        poiList.clear();
+        ids.clear();
+        pois.clear();
+        // 映射文件方式下沿用上次运行的库存，兴趣点编号由加载顺序决定，须与上次一致
+        records = WorldManager.openRecords("pois.dat", Poi.RECORD_SIZE);
+        boolean restored = records.count() > 0;
 
         ResourcePlant.setStockGrowthRate(ConfigLoader.getInt("ResourcePlant.stock_growth_rate"));
         ProcessPlant.setProcessingLoss(ConfigLoader.getInt("ProcessPlant.processing_loss"));
@@ -31,7 +59,7 @@ public class PoiManager
         Purchaser.setPurchaseThreshold(ConfigLoader.getInt("Purchaser.purchase_threshold"));
         Market.setSalesRate(ConfigLoader.getInt("Market.sales_rate"));
 
-        List<Map<String, Object>> dataList = null;//DBManager.getPoiList();
+        List<Map<String, Object>> dataList = ConfigLoader.getSeed("poi");//DBManager.getPoiList();
 
         for (Map<String, Object> data : dataList)
         {
@@ -39,10 +67,10 @@ public class PoiManager
             String name = (String)data.get("name");
             ProductType productType = ProductType.valueOf((String)data.get("type"));
             Coordinate position = new Coordinate(
-                (double)data.get("lat"),
-                (double)data.get("lon")
+                ((Number)data.get("lat")).doubleValue(),
+                ((Number)data.get("lon")).doubleValue()
             );
-            int maxStock = (int)data.get("maxstock");
+            int maxStock = ((Number)data.get("maxstock")).intValue();
 
             Poi toAdd = switch ((String)data.get("class"))
             {
@@ -54,7 +82,7 @@ public class PoiManager
             if (toAdd == null) throw new IllegalArgumentException();
 
             // 为 Purchaser 增加上游兴趣点
-            if (toAdd instanceof Purchaser)
+            if (toAdd instanceof Purchaser && data.get("upstream") != null)
             {
                 for (String upstreamUuid : data.get("upstream").toString().split(","))
                 {
@@ -62,13 +90,31 @@ public class PoiManager
                 }
             }
 
-            poiList.put(uuid, toAdd);
+            int id = internPoi(uuid);
+            toAdd.setId(id);
+            pois.set(id, toAdd);
+        }
+        if (restored && records.count() != pois.size())
+        {
+            logger.warn("POI record file holds {} records but {} POIs were loaded, stocks reset", records.count(), pois.size());
+            records.clear();
+            restored = false;
+        }
+        records.setCount(pois.size());
+        if (restored) logger.info("Stocks of {} POIs restored from record file", pois.size());
+        else
+        {
+            // 没有沿用的库存时按产品类型给出初始库存
+            for (Poi poi : pois)
+            {
+                if (poi != null) poi.setStock(poi.getProductType().getMaxQuantity() * 5);
+            }
         }
 
         // 初始化兴趣点初始库存
         // if (DBManager.getCount("poi_stock") > 0)
         // {
-        //     for (Poi poi : poiList.values())
+        //     for (Poi poi : pois)
         //     {
         //         double stock = DBManager.getStock(poi.getUUID());
         //         poi.setStock(stock);
@@ -76,7 +122,7 @@ public class PoiManager
         // }
         // else
         // {
-        //     for (Poi poi : poiList.values())
+        //     for (Poi poi : pois)
         //     {
         //         double stock = poi.getProductType().getMaxQuantity() * 5;
         //         poi.setStock(stock);
@@ -84,7 +130,11 @@ public class PoiManager
         // }
     }
 
-    public static void onStop() { }//DBManager.savePoiStock(poiList); }
+    public static void onStop()
+    {
+        records.force();
+        //DBManager.savePoiStock(pois);
+    }
 
     /** 更新所有兴趣点，每周期调用 */
     public static void update()
@@ -93,15 +143,13 @@ public class PoiManager
         {
             DemandManager.resetDemandThisCycle();
 
-            List<String> uuidList = new ArrayList<>(poiList.keySet());
-
-            // 操作量不大，使用同步操作更简单
-            for (String uuid : uuidList)
+            // 操作量不大，使用同步操作更简单；更新中不会增删兴趣点
+            for (Poi poi : pois)
             {
-                logger.debug("uuid:{}, lat: {}", uuid, poiList.get(uuid).getPosition().getLat());
-                poiList.get(uuid).update();
+                if (poi != null) poi.update();
             }
 
+            WorldManager.markPoisDirty();
             logger.trace("POI updating completed");
         }
         catch (Exception e)
@@ -0,0 +1,180 @@
+package com.tsadmin.transport.domain;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tsadmin.transport.config.ConfigLoader;
+import com.tsadmin.transport.domain.share.Coordinate;
+import com.tsadmin.transport.routing.Polygon;
+import com.tsadmin.transport.routing.RoadGraph;
+import com.tsadmin.transport.routing.Route;
+import com.tsadmin.transport.routing.RouteCache;
+import com.tsadmin.transport.routing.Router;
+
+/**
+ * 服务端路线规划入口
+ * <p>配置 {@code Routing.graph_file} 指定路网文件时在路网上规划，
+ * 否则（或路网不可达时）退化为按 {@code Routing.fallback_speed} 行驶的直线路线
+ * <p>路网路线按起终点缓存，容量由 {@code Routing.cache_size} 指定；封路变化时只淘汰受影响的路线，
+ * 规划期间封路发生变化的路线不写入缓存
+ */
+public class RouteManager
+{
+    private static final Logger logger = LogManager.getLogger(RouteManager.class);
+
+    private static volatile Router router = null;
+    private static volatile List<Polygon> closures = List.of();
+    private static volatile RouteCache cache = new RouteCache(1);
+    private static double FALLBACK_SPEED = 40 / 3.6;
+
+    public static void init()
+    {
+        FALLBACK_SPEED = ConfigLoader.getDouble("Routing.fallback_speed", 40.0) / 3.6;
+        closures = List.of();
+        cache = new RouteCache(ConfigLoader.getInt("Routing.cache_size", 65536));
+
+        String graphFile = ConfigLoader.getString("Routing.graph_file", "");
+        if (graphFile.isEmpty())
+        {
+            router = null;
+            logger.info("No road graph configured, straight-line routing will be used");
+            return;
+        }
+
+        try
+        {
+            long start = System.currentTimeMillis();
+            RoadGraph graph = RoadGraph.load(Path.of(graphFile));
+            router = new Router(graph, ConfigLoader.getInt("Routing.landmark_count", 8));
+            logger.info("Road graph(nodes: {}, edges: {}) loaded from {} in {} ms",
+                graph.getNodeCount(), graph.getEdgeCount(), graphFile, System.currentTimeMillis() - start);
+        }
+        catch (Exception e)
+        {
+            router = null;
+            logger.error("Failed to load road graph from {}, straight-line routing will be used", graphFile, e);
+        }
+    }
+
+    public static boolean hasGraph() { return router != null; }
+    public static Router getRouter() { return router; }
+
+    public static RouteCache getCache() { return cache; }
+    /** 无路网时直线路线使用的速度（米/秒） */
+    public static double getFallbackSpeed() { return FALLBACK_SPEED; }
+
+    /**
+     * 设置当前需要避让的封路区域
+     * <p>新增区域只淘汰与之相交的缓存路线；有区域解除时淘汰所有绕行路线
+     * <p>先替换区域再淘汰：读到淘汰后代数的规划一定也读到新区域
+     */
+    public static void setClosures(List<Polygon> polygons)
+    {
+        List<Polygon> prev = closures;
+        List<Polygon> next = List.copyOf(polygons);
+        closures = next;
+
+        int removed = 0;
+        for (Polygon polygon : next)
+        {
+            if (!prev.contains(polygon)) removed += cache.invalidate(polygon);
+        }
+        if (!next.containsAll(prev)) removed += cache.invalidateDetours();
+        if (removed > 0) logger.debug("{} cached routes invalidated by closure change", removed);
+    }
+    public static List<Polygon> getClosures() { return closures; }
+
+    /** 规划两点间路线，避让当前封路区域；总会返回一条路线 */
+    public static Route route(Coordinate from, Coordinate to)
+    {
+        return route(from.getLat(), from.getLng(), to.getLat(), to.getLng());
+    }
+
+    public static Route route(double fromLat, double fromLng, double toLat, double toLng)
+    {
+        Router r = router;
+        if (r != null)
+        {
+            RouteCache c = cache;
+            RouteCache.Key key = RouteCache.Key.of(fromLat, fromLng, toLat, toLng);
+            Route route = c.get(key);
+            if (route != null) return route;
+
+            // 代数须先于封路区域读取
+            long generation = c.generation();
+            List<Polygon> avoid = closures;
+            route = r.route(fromLat, fromLng, toLat, toLng, avoid);
+            if (route != null)
+            {
+                c.put(key, route, !avoid.isEmpty(), generation);
+                return route;
+            }
+            logger.debug("No road route from ({}, {}) to ({}, {}), falling back to straight line", fromLat, fromLng, toLat, toLng);
+        }
+        return Route.straight(fromLat, fromLng, toLat, toLng, FALLBACK_SPEED);
+    }
+
+    /**
+     * 规划同一起点到多个终点的路线，未命中缓存的终点在路网上一次搜索完成
+     * @return 与终点一一对应的路线，总会返回
+     */
+    public static Route[] routeMany(Coordinate from, List<Coordinate> to)
+    {
+        Route[] routes = new Route[to.size()];
+        Router r = router;
+        if (r != null)
+        {
+            RouteCache c = cache;
+            // 先查缓存，只为未命中的终点搜索
+            RouteCache.Key[] keys = new RouteCache.Key[routes.length];
+            int misses = 0;
+            for (int i = 0; i < routes.length; i++)
+            {
+                Coordinate dest = to.get(i);
+                keys[i] = RouteCache.Key.of(from.getLat(), from.getLng(), dest.getLat(), dest.getLng());
+                routes[i] = c.get(keys[i]);
+                if (routes[i] == null) misses++;
+            }
+
+            if (misses > 0)
+            {
+                int[] index = new int[misses];
+                double[] toLat = new double[misses], toLng = new double[misses];
+                for (int i = 0, k = 0; i < routes.length; i++)
+                {
+                    if (routes[i] != null) continue;
+                    index[k] = i;
+                    toLat[k] = to.get(i).getLat();
+                    toLng[k] = to.get(i).getLng();
+                    k++;
+                }
+
+                // 代数须先于封路区域读取
+                long generation = c.generation();
+                List<Polygon> avoid = closures;
+                Route[] found = misses == 1
+                    ? new Route[] { r.route(from.getLat(), from.getLng(), toLat[0], toLng[0], avoid) }
+                    : r.routeMany(from.getLat(), from.getLng(), toLat, toLng, avoid);
+                for (int k = 0; k < misses; k++)
+                {
+                    if (found[k] == null) continue;
+                    routes[index[k]] = found[k];
+                    c.put(keys[index[k]], found[k], !avoid.isEmpty(), generation);
+                }
+            }
+        }
+
+        for (int i = 0; i < routes.length; i++)
+        {
+            if (routes[i] == null)
+            {
+                Coordinate dest = to.get(i);
+                routes[i] = Route.straight(from.getLat(), from.getLng(), dest.getLat(), dest.getLng(), FALLBACK_SPEED);
+            }
+        }
+        return routes;
+    }
+}
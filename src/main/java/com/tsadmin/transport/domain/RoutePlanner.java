@@ -0,0 +1,159 @@
+package com.tsadmin.transport.domain;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tsadmin.transport.config.ConfigLoader;
+import com.tsadmin.transport.domain.share.Coordinate;
+import com.tsadmin.transport.routing.Route;
+import com.tsadmin.transport.routing.RouteCache;
+
+/**
+ * 批量路线规划
+ * <p>一个周期内需要的行程先汇总，相同起终点只规划一次，同一起点的多条行程合并为一次一对多搜索
+ * <p>规划只在有界线程池上执行，提交线程从不自行规划。队列满时拒绝提交，对应结果以
+ * {@link RejectedExecutionException} 失败，车辆保持无路线，下一周期重新提交；线程池未启动或已关闭时直接抛出异常
+ * <p>等待同一行程的调用方共享同一个 {@link CompletableFuture}，不会重复规划
+ */
+public class RoutePlanner
+{
+    private static final Logger logger = LogManager.getLogger(RoutePlanner.class);
+
+    /** 一段行程 */
+    public record Leg(Coordinate from, Coordinate to)
+    {
+        RouteCache.Key key() { return RouteCache.Key.of(from.getLat(), from.getLng(), to.getLat(), to.getLng()); }
+    }
+
+    private static final ConcurrentHashMap<RouteCache.Key, CompletableFuture<Route>> inflight = new ConcurrentHashMap<>();
+    private static volatile ThreadPoolExecutor executor = null;
+
+    public static void init()
+    {
+        shutdown();
+
+        int threads = ConfigLoader.getInt("Routing.planner_threads", Runtime.getRuntime().availableProcessors());
+        int queue = ConfigLoader.getInt("Routing.planner_queue", 256);
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queue), r -> {
+            Thread t = new Thread(r, "RoutePlanner-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        logger.info("Route planner started with {} threads, queue capacity {}", threads, queue);
+    }
+
+    public static void shutdown()
+    {
+        ThreadPoolExecutor prev = executor;
+        executor = null;
+        if (prev != null) prev.shutdown();
+    }
+
+    /**
+     * 规划单段行程，与进行中的相同行程共享结果
+     * @throws IllegalStateException 如果规划线程池未启动或已关闭
+     */
+    public static CompletableFuture<Route> plan(Coordinate from, Coordinate to)
+    {
+        return planAll(List.of(new Leg(from, to))).get(0);
+    }
+
+    /**
+     * 批量规划行程
+     * @return 与行程一一对应的结果，相同起终点的行程得到同一个对象；队列已满的行程以 {@link RejectedExecutionException} 失败
+     * @throws IllegalStateException 如果规划线程池未启动或已关闭
+     */
+    public static List<CompletableFuture<Route>> planAll(List<Leg> legs)
+    {
+        ThreadPoolExecutor pool = executor;
+        if (pool == null || pool.isShutdown()) throw new IllegalStateException("Route planner is not running");
+
+        List<CompletableFuture<Route>> result = new ArrayList<>(legs.size());
+        // 本批次新建的行程按起点分组
+        Map<RouteCache.Key, List<Leg>> byOrigin = new LinkedHashMap<>();
+        Map<RouteCache.Key, List<CompletableFuture<Route>>> futuresByOrigin = new LinkedHashMap<>();
+
+        for (Leg leg : legs)
+        {
+            RouteCache.Key key = leg.key();
+            CompletableFuture<Route> created = new CompletableFuture<>();
+            CompletableFuture<Route> existing = inflight.putIfAbsent(key, created);
+            if (existing != null)
+            {
+                result.add(existing);
+                continue;
+            }
+
+            // 起点键只取起点坐标
+            RouteCache.Key origin = RouteCache.Key.of(leg.from().getLat(), leg.from().getLng(), 0, 0);
+            byOrigin.computeIfAbsent(origin, k -> new ArrayList<>()).add(leg);
+            futuresByOrigin.computeIfAbsent(origin, k -> new ArrayList<>()).add(created);
+            result.add(created);
+        }
+
+        int rejected = 0;
+        for (Map.Entry<RouteCache.Key, List<Leg>> entry : byOrigin.entrySet())
+        {
+            List<Leg> group = entry.getValue();
+            List<CompletableFuture<Route>> futures = futuresByOrigin.get(entry.getKey());
+            try
+            {
+                pool.execute(() -> solve(group, futures));
+            }
+            catch (RejectedExecutionException e)
+            {
+                fail(group, futures, e);
+                rejected += group.size();
+            }
+        }
+        if (rejected > 0) logger.warn("Route planner queue full, {} legs deferred to the next cycle", rejected);
+        return result;
+    }
+
+    /** 进行中的行程数 */
+    public static int getInflightCount() { return inflight.size(); }
+
+    private static void solve(List<Leg> group, List<CompletableFuture<Route>> futures)
+    {
+        try
+        {
+            List<Coordinate> to = new ArrayList<>(group.size());
+            for (Leg leg : group) to.add(leg.to());
+            Route[] routes = RouteManager.routeMany(group.get(0).from(), to);
+            for (int i = 0; i < group.size(); i++)
+            {
+                inflight.remove(group.get(i).key(), futures.get(i));
+                futures.get(i).complete(routes[i]);
+            }
+        }
+        catch (Throwable e)
+        {
+            logger.error("Failed to plan {} routes from ({}, {})", group.size(),
+                group.get(0).from().getLat(), group.get(0).from().getLng(), e);
+            fail(group, futures, e);
+        }
+    }
+
+    private static void fail(List<Leg> group, List<CompletableFuture<Route>> futures, Throwable e)
+    {
+        for (int i = 0; i < group.size(); i++)
+        {
+            inflight.remove(group.get(i).key(), futures.get(i));
+            futures.get(i).completeExceptionally(e);
+        }
+    }
+}
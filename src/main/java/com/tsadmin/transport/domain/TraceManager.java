@@ -0,0 +1,122 @@
+package com.tsadmin.transport.domain;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.tsadmin.transport.config.ConfigLoader;
+
+/**
+ * 模拟事件追踪，定长环形缓冲区，新记录覆盖最旧的记录
+ * <p>每条记录 4 个 {@code long}：序号标记、时间（毫秒）、{@code 类型 << 32 | 主体}、参数；
+ * 记录不分配对象、不格式化字符串，常开也不影响吞吐，需要排查时由 {@link #dump(long)} 导出最近一段时间的记录
+ * <p>写入无锁：原子递增取得序号后写入对应槽位，最后以序号标记发布；读取时标记前后一致且等于期望序号才采用，
+ * 写入中或已被覆盖的记录直接跳过
+ */
+public final class TraceManager
+{
+    /** 事件类型，主体与参数的含义见各项说明 */
+    public enum Type
+    {
+        /** 主体：订单编号；参数：{@code 槽位代数 << 32 | 起点兴趣点编号} */
+        DEMAND_CREATED,
+        /** 主体：订单编号；参数：{@code 槽位代数 << 32 | 车辆编号} */
+        DEMAND_ASSIGNED,
+        /** 主体：订单编号；参数：{@code 槽位代数 << 32 | 终点兴趣点编号} */
+        DEMAND_COMPLETED,
+        /** 主体：车辆编号；参数：{@code 原状态序号 << 32 | 新状态序号} */
+        STATE_CHANGED,
+        /** 主体：车辆编号；参数：{@code 冻结前状态序号 << 32 | 冻结状态序号} */
+        FREEZE,
+        /** 主体：放弃的计划周期数；参数：超时时长（纳秒） */
+        OVERRUN;
+
+        private static final Type[] VALUES = values();
+        public static Type byIndex(int index) { return index >= 0 && index < VALUES.length ? VALUES[index] : null; }
+    }
+
+    /** 导出记录的字节数：时间、类型、主体、参数 */
+    public static final int RECORD_BYTES = 24;
+    /** 二进制导出的文件头：魔数 "TSTR"、版本、记录数 */
+    public static final int MAGIC = 0x54535452, VERSION = 1, HEADER_BYTES = 12;
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static volatile boolean enabled = false;
+    private static volatile long[] ring = new long[4];
+    private static final AtomicLong cursor = new AtomicLong();
+
+    private TraceManager() {}
+
+    /** 读取 {@code Trace.enabled} 与 {@code Trace.capacity}（记录数，取整为 2 的幂）并清空缓冲区 */
+    public static void init()
+    {
+        int capacity = Integer.highestOneBit(Math.max(ConfigLoader.getInt("Trace.capacity", 65536), 64));
+        ring = new long[capacity * 4];
+        cursor.set(0);
+        enabled = ConfigLoader.getBoolean("Trace.enabled", true);
+    }
+
+    public static boolean isEnabled() { return enabled; }
+
+    public static void record(Type type, int subject, long arg)
+    {
+        if (!enabled) return;
+        long[] r = ring;
+        long seq = cursor.getAndIncrement();
+        int at = (int)(seq & ((r.length >> 2) - 1)) << 2;
+
+        // 先把标记改为写入中，读取方据此丢弃半写的记录
+        SLOT.setOpaque(r, at, ~seq);
+        VarHandle.storeStoreFence();
+        r[at + 1] = System.currentTimeMillis();
+        r[at + 2] = (long)type.ordinal() << 32 | subject & 0xFFFFFFFFL;
+        r[at + 3] = arg;
+        SLOT.setRelease(r, at, seq + 1);
+    }
+
+    public static void record(Type type, int subject, int high, int low)
+    {
+        record(type, subject, (long)high << 32 | low & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 导出最近一段时间的记录，按时间先后排列
+     * @param millis 时长（毫秒），不大于 0 时导出缓冲区内全部记录
+     * @return 二进制格式：{@value #HEADER_BYTES} 字节文件头，随后每条记录 {@value #RECORD_BYTES} 字节
+     *         （{@code long} 时间、{@code int} 类型序号、{@code int} 主体、{@code long} 参数），大端序
+     */
+    public static byte[] dump(long millis)
+    {
+        long[] r = ring;
+        int capacity = r.length >> 2;
+        long since = millis > 0 ? System.currentTimeMillis() - millis : Long.MIN_VALUE;
+        long end = cursor.get();
+        long begin = Math.max(0, end - capacity);
+
+        // 从最新的记录向前读，遇到早于起点的记录即停止
+        long[] out = new long[(int)(end - begin) * 3];
+        int n = 0;
+        for (long seq = end - 1; seq >= begin; seq--)
+        {
+            int at = (int)(seq & (capacity - 1)) << 2;
+            long stamp = (long)SLOT.getAcquire(r, at);
+            long time = r[at + 1], key = r[at + 2], arg = r[at + 3];
+            VarHandle.loadLoadFence();
+            if (stamp != seq + 1 || (long)SLOT.getOpaque(r, at) != stamp) continue;
+            if (time < since) break;
+            out[n++] = time;
+            out[n++] = key;
+            out[n++] = arg;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + n / 3 * RECORD_BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(n / 3);
+        for (int i = n - 3; i >= 0; i -= 3)
+        {
+            buffer.putLong(out[i]).putLong(out[i + 1]).putLong(out[i + 2]);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,344 @@
+package com.tsadmin.transport.domain;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tsadmin.transport.config.ConfigLoader;
+import com.tsadmin.transport.domain.share.Coordinate;
+import com.tsadmin.transport.entity.Demand;
+import com.tsadmin.transport.entity.Vehicle;
+import com.tsadmin.transport.entity.Vehicle.VehState;
+import com.tsadmin.transport.entity.poi.Poi;
+import com.tsadmin.transport.routing.Router;
+import com.tsadmin.transport.util.GeoUtil;
+import com.tsadmin.transport.util.IntList;
+
+/**
+ * 兴趣点与车辆的通行时间、距离矩阵，供调度使用
+ * <p>兴趣点下标即兴趣点编号，车辆行号即车辆编号，均由各管理器分配，查表时不经过 UUID
+ * <p>矩阵以行主序存放在 {@code float[]} 中：兴趣点×兴趣点块在初始化时计算一次并常驻。
+ * 车辆行的起点与调度一致：有执行中订单的车辆为当前行程终点的兴趣点（装卸货时为所在兴趣点），
+ * 该行直接拷贝兴趣点块中的对应行，只在行程改变时拷贝；其余车辆停在原地，起点为当前位置，
+ * 起点移动超过 {@value #REFRESH_DISTANCE} 米时才重算
+ * <p>需要重算的行在专用线程池上计算，不持有世界写锁；结果在之后的周期中换入，
+ * 换入前该行视为未计算（{@link #slotOfVehicle(int)} 为 -1），起点在计算期间再次改变的结果丢弃
+ * <p>有路网时每行为一次一对多 Dijkstra，否则按直线距离与 {@code Routing.fallback_speed} 估算。
+ * 矩阵按自由流计算，不考虑封路与路况事件
+ * <p>除 {@link #shutdown()} 外的方法<b>调用方需持有世界写锁</b>，返回的数组只读
+ */
+public class TravelMatrix
+{
+    private static final Logger logger = LogManager.getLogger(TravelMatrix.class);
+
+    /** 停留车辆起点的重算阈值（米） */
+    private static final double REFRESH_DISTANCE = 50;
+    /** 单个 float[] 矩阵块的元素数上限 */
+    private static final int MAX_CELLS = Integer.MAX_VALUE - 8;
+
+    private static boolean[] poiPresent = new boolean[0];
+    private static double[] poiLat = new double[0], poiLng = new double[0];
+    private static int[] poiNode = new int[0];
+    private static float[] poiTime = new float[0], poiDistance = new float[0];
+
+    // 行当前内容对应的起点，尚未计算或等待换入时为 NaN
+    private static double[] rowLat = new double[0], rowLng = new double[0];
+    // 行最近一次请求的起点，尚未请求时为 NaN
+    private static double[] wantLat = new double[0], wantLng = new double[0];
+    private static float[] vehicleTime = new float[0], vehicleDistance = new float[0];
+    // 行内容的版本，每次换入或拷贝新内容时递增
+    private static int[] rowVersion = new int[0];
+
+    private static volatile ForkJoinPool pool = null;
+    // 计算中的一批车辆行，只在持有世界写锁时访问
+    private static CompletableFuture<Rows> pending = null;
+
+    /** 一批在锁外计算的车辆行，第 k 行的起点为 {@code (lat[k], lng[k])} */
+    private record Rows(int[] slots, double[] lat, double[] lng, float[] time, float[] distance) {}
+
+    public static void init()
+    {
+        shutdown();
+        int threads = ConfigLoader.getInt("Routing.matrix_threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("TravelMatrix-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+
+        long start = System.currentTimeMillis();
+        List<Poi> pois = PoiManager.getPois();
+        int n = pois.size();
+
+        poiPresent = new boolean[n];
+        poiLat = new double[n];
+        poiLng = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            // 被引用但未加载的编号留空
+            Poi poi = pois.get(i);
+            if (poi == null) continue;
+            poiPresent[i] = true;
+            poiLat[i] = poi.getPosition().getLat();
+            poiLng[i] = poi.getPosition().getLng();
+        }
+
+        Router router = RouteManager.getRouter();
+        poiNode = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            poiNode[i] = router == null || !poiPresent[i] ? -1 : router.getGraph().nearestNode(poiLat[i], poiLng[i]);
+        }
+
+        int cells = cells(n, n);
+        poiTime = new float[cells];
+        poiDistance = new float[cells];
+        int[] rows = IntStream.range(0, n).filter(i -> poiPresent[i]).toArray();
+        pool.submit(() -> computeRows(poiLat, poiLng, rows, poiTime, poiDistance)).join();
+
+        rowLat = new double[0];
+        rowLng = new double[0];
+        wantLat = new double[0];
+        wantLng = new double[0];
+        rowVersion = new int[0];
+        vehicleTime = new float[0];
+        vehicleDistance = new float[0];
+        pending = null;
+        logger.info("Travel matrix for {} POIs computed in {} ms", n, System.currentTimeMillis() - start);
+    }
+
+    public static void shutdown()
+    {
+        ForkJoinPool prev = pool;
+        pool = null;
+        if (prev != null) prev.shutdownNow();
+    }
+
+    /**
+     * 换入已算完的车辆行，按各车当前起点拷贝或提交需要重算的行
+     * <p>上一批仍在计算时不提交新批次，起点已改变的行等到下一周期再提交
+     */
+    public static void refreshVehicles()
+    {
+        int n = poiLat.length;
+        if (n == 0) return;
+        ensureRows(CarManager.getIdCapacity(), n);
+        applyPending(n);
+
+        for (Vehicle car : CarManager.getCars())
+        {
+            if (car == null) continue;
+            int slot = car.getId();
+            int anchor = anchorPoi(car);
+            if (anchor >= 0)
+            {
+                // 起点为兴趣点，直接拷贝兴趣点块中的行
+                if (rowLat[slot] == poiLat[anchor] && rowLng[slot] == poiLng[anchor]) continue;
+                System.arraycopy(poiTime, anchor * n, vehicleTime, slot * n, n);
+                System.arraycopy(poiDistance, anchor * n, vehicleDistance, slot * n, n);
+                rowLat[slot] = wantLat[slot] = poiLat[anchor];
+                rowLng[slot] = wantLng[slot] = poiLng[anchor];
+                rowVersion[slot]++;
+                continue;
+            }
+
+            Coordinate position = car.getPosition();
+            if (position == null) continue;
+            if (!Double.isNaN(wantLat[slot])
+                && GeoUtil.haversine(wantLat[slot], wantLng[slot], position.getLat(), position.getLng()) < REFRESH_DISTANCE)
+            {
+                continue;
+            }
+            wantLat[slot] = position.getLat();
+            wantLng[slot] = position.getLng();
+            rowLat[slot] = rowLng[slot] = Double.NaN;
+        }
+
+        if (pending == null) submitStale(n);
+    }
+
+    /** 把请求起点与行内容不一致的行作为一批提交给线程池 */
+    private static void submitStale(int n)
+    {
+        ForkJoinPool p = pool;
+        if (p == null) return;
+
+        IntList stale = new IntList();
+        for (int slot = 0; slot < wantLat.length; slot++)
+        {
+            if (!Double.isNaN(wantLat[slot]) && Double.isNaN(rowLat[slot])) stale.add(slot);
+        }
+        if (stale.isEmpty()) return;
+
+        int[] slots = stale.toArray();
+        double[] lat = new double[slots.length], lng = new double[slots.length];
+        for (int k = 0; k < slots.length; k++)
+        {
+            lat[k] = wantLat[slots[k]];
+            lng[k] = wantLng[slots[k]];
+        }
+        int cells = cells(slots.length, n);
+        int[] rows = IntStream.range(0, slots.length).toArray();
+        pending = CompletableFuture.supplyAsync(() -> {
+            Rows result = new Rows(slots, lat, lng, new float[cells], new float[cells]);
+            computeRows(lat, lng, rows, result.time(), result.distance());
+            return result;
+        }, p);
+        logger.trace("{} vehicle rows of travel matrix submitted", slots.length);
+    }
+
+    /** 换入已算完的一批行，起点在计算期间已改变的行丢弃 */
+    private static void applyPending(int n)
+    {
+        if (pending == null || !pending.isDone()) return;
+        CompletableFuture<Rows> done = pending;
+        pending = null;
+        if (done.isCompletedExceptionally())
+        {
+            // 未换入的行仍为未计算，下次提交时重算
+            done.exceptionally(e -> {
+                logger.error("Failed to compute vehicle rows of travel matrix", e);
+                return null;
+            });
+            return;
+        }
+
+        Rows rows = done.join();
+        int applied = 0;
+        for (int k = 0; k < rows.slots().length; k++)
+        {
+            int slot = rows.slots()[k];
+            if (slot >= wantLat.length || wantLat[slot] != rows.lat()[k] || wantLng[slot] != rows.lng()[k]) continue;
+            System.arraycopy(rows.time(), k * n, vehicleTime, slot * n, n);
+            System.arraycopy(rows.distance(), k * n, vehicleDistance, slot * n, n);
+            rowLat[slot] = rows.lat()[k];
+            rowLng[slot] = rows.lng()[k];
+            rowVersion[slot]++;
+            applied++;
+        }
+        logger.trace("{} of {} vehicle rows of travel matrix swapped in", applied, rows.slots().length);
+    }
+
+    /** @return 当前订单所在的兴趣点编号，没有执行中的订单或兴趣点不在矩阵中时为 -1 */
+    private static int anchorPoi(Vehicle car)
+    {
+        Demand demand = car.getCurrDemand();
+        if (demand == null) return -1;
+
+        VehState state = car.getState() == VehState.FREEZE ? car.getPrevState() : car.getState();
+        int poi = switch (state)
+        {
+            case ORDER_TAKEN, LOADING -> demand.getOriginId();
+            case TRANSPORTING, UNLOADING -> demand.getDestinationId();
+            default -> -1;
+        };
+        return containsPoi(poi) ? poi : -1;
+    }
+
+    public static int getPoiCount() { return poiLat.length; }
+
+    /** @return {@code true} 如果编号对应的兴趣点在矩阵中 */
+    public static boolean containsPoi(int id) { return id >= 0 && id < poiPresent.length && poiPresent[id]; }
+
+    /** @return 车辆行号，尚未计算或等待换入时为 -1 */
+    public static int slotOfVehicle(int id)
+    {
+        return id >= 0 && id < rowLat.length && !Double.isNaN(rowLat[id]) ? id : -1;
+    }
+
+    /** 车辆行起点的纬度，行须已计算 */
+    public static double originLat(int slot) { return rowLat[slot]; }
+    /** 车辆行起点的经度，行须已计算 */
+    public static double originLng(int slot) { return rowLng[slot]; }
+    /** 车辆行内容的版本，行内容改变后不同 */
+    public static int rowVersion(int slot) { return rowVersion[slot]; }
+
+    /** 兴趣点间通行时间（秒），下标为 {@code from * getPoiCount() + to} */
+    public static float[] getPoiTimes() { return poiTime; }
+    /** 兴趣点间距离（米），布局同 {@link #getPoiTimes()} */
+    public static float[] getPoiDistances() { return poiDistance; }
+    /** 车辆到兴趣点的通行时间（秒），下标为 {@code slot * getPoiCount() + poi} */
+    public static float[] getVehicleTimes() { return vehicleTime; }
+    /** 车辆到兴趣点的距离（米），布局同 {@link #getVehicleTimes()} */
+    public static float[] getVehicleDistances() { return vehicleDistance; }
+
+    public static float poiTime(int from, int to) { return poiTime[from * poiLat.length + to]; }
+    public static float poiDistance(int from, int to) { return poiDistance[from * poiLat.length + to]; }
+    public static float vehicleTime(int slot, int poi) { return vehicleTime[slot * poiLat.length + poi]; }
+    public static float vehicleDistance(int slot, int poi) { return vehicleDistance[slot * poiLat.length + poi]; }
+
+    /** 在调用方所在的线程池中并行计算指定行，行 {@code r} 的起点为 {@code (lat[r], lng[r])}，写入 {@code r * n} 起的一行 */
+    private static void computeRows(double[] lat, double[] lng, int[] rows, float[] time, float[] distance)
+    {
+        // 锁外计算期间可能重新初始化，只使用开始时的兴趣点数组，结果在换入时丢弃
+        int[] nodes = poiNode;
+        double[] toLat = poiLat, toLng = poiLng;
+        int n = toLat.length;
+        if (n == 0 || rows.length == 0) return;
+
+        Router router = RouteManager.getRouter();
+        double speed = RouteManager.getFallbackSpeed();
+        IntStream.range(0, rows.length).parallel().forEach(k -> {
+            int r = rows[k];
+            int offset = r * n;
+            if (router != null)
+            {
+                router.costsFrom(lat[r], lng[r], nodes, toLat, toLng, time, distance, offset);
+            }
+            for (int j = 0; j < n; j++)
+            {
+                // 无路网或路网不可达时按直线估算
+                if (router != null && time[offset + j] != Float.POSITIVE_INFINITY) continue;
+                double d = GeoUtil.haversine(lat[r], lng[r], toLat[j], toLng[j]);
+                distance[offset + j] = (float)d;
+                time[offset + j] = (float)(d / speed);
+            }
+        });
+    }
+
+    /** 扩容车辆行，按 1.5 倍增长，增长后超出上限时取恰好所需的行数 */
+    private static void ensureRows(int rows, int n)
+    {
+        if (rows <= rowLat.length) return;
+        int capacity = Math.max(rows, rowLat.length + (rowLat.length >> 1) + 16);
+        if (n > 0 && (long)capacity * n > MAX_CELLS) capacity = rows;
+        int cells = cells(capacity, n);
+        int old = rowLat.length;
+        rowLat = grow(rowLat, old, capacity);
+        rowLng = grow(rowLng, old, capacity);
+        wantLat = grow(wantLat, old, capacity);
+        wantLng = grow(wantLng, old, capacity);
+        rowVersion = Arrays.copyOf(rowVersion, capacity);
+        vehicleTime = Arrays.copyOf(vehicleTime, cells);
+        vehicleDistance = Arrays.copyOf(vehicleDistance, cells);
+    }
+
+    private static double[] grow(double[] array, int old, int capacity)
+    {
+        double[] result = Arrays.copyOf(array, capacity);
+        Arrays.fill(result, old, capacity, Double.NaN);
+        return result;
+    }
+
+    /**
+     * 矩阵块的元素数
+     * @throws IllegalStateException 如果超出单个数组的容量
+     */
+    private static int cells(int rows, int n)
+    {
+        long cells = (long)rows * n;
+        if (cells > MAX_CELLS)
+        {
+            throw new IllegalStateException("Travel matrix of " + rows + " rows by " + n + " POIs needs " + cells
+                + " cells, over the array limit of " + MAX_CELLS);
+        }
+        return (int)cells;
+    }
+}
@@ -0,0 +1,176 @@
+package com.tsadmin.transport.domain;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tsadmin.transport.config.ConfigLoader;
+import com.tsadmin.transport.domain.share.PoiView;
+import com.tsadmin.transport.domain.share.VehicleView;
+import com.tsadmin.transport.domain.share.WorldSnapshot;
+import com.tsadmin.transport.entity.Vehicle;
+import com.tsadmin.transport.entity.Vehicle.VehState;
+import com.tsadmin.transport.entity.poi.Poi;
+import com.tsadmin.transport.util.PersistentArray;
+import com.tsadmin.transport.util.RecordStore;
+
+/**
+ * 世界状态协调者
+ * <p>所有修改车辆、兴趣点、订单的操作（周期更新、车辆滴答）都必须持有写锁；
+ * 只读请求一律读取 {@link #snapshot()} 返回的快照，不与周期更新竞争
+ * <p>快照采用写时复制：车辆被修改时登记为脏，发布时只为脏车辆生成新视图，
+ * 其余视图与上一快照共享；快照槽位即车辆编号
+ */
+public class WorldManager
+{
+    private static final Logger logger = LogManager.getLogger(WorldManager.class);
+
+    // Web 层运行在虚拟线程上，synchronized 会钉住载体线程，因此使用 ReentrantLock
+    private static final ReentrantLock writeLock = new ReentrantLock();
+    private static volatile WorldSnapshot current = WorldSnapshot.EMPTY;
+    private static long tick = 0;
+    // 纪元取初始化时的毫秒时间并严格递增，进程重启后也不会与重启前的纪元相同
+    private static long epoch = 0;
+
+    // 以下字段只在持有写锁时访问
+    private static boolean[] dirty = new boolean[0];
+    private static int[] dirtyIds = new int[16];
+    private static int dirtyCount = 0;
+    private static boolean slotsChanged = false;
+    private static boolean poisDirty = false;
+    private static int availableCount = 0, freezeCount = 0;
+
+    public static void init()
+    {
+        lock();
+        try
+        {
+            tick = 0;
+            epoch = Math.max(epoch + 1, System.currentTimeMillis());
+            current = WorldSnapshot.EMPTY;
+            slotsChanged = true;
+            poisDirty = true;
+            availableCount = freezeCount = 0;
+
+            Arrays.fill(dirty, false);
+            dirtyCount = 0;
+            for (Vehicle car : CarManager.getCars()) markDirty(car);
+            publish();
+        }
+        finally
+        {
+            unlock();
+        }
+    }
+
+    /** 获取世界写锁，须在 finally 中调用 {@link #unlock()} */
+    public static void lock() { writeLock.lock(); }
+    public static void unlock() { writeLock.unlock(); }
+
+    /** 获取最近一次发布的快照，无锁 */
+    public static WorldSnapshot snapshot() { return current; }
+
+    /** 登记被修改的车辆，下次发布时为其生成新视图，<b>调用方需持有写锁</b> */
+    public static void markDirty(Vehicle car)
+    {
+        // 尚未登记的车辆（如拷贝）不进入快照
+        int id = car.getId();
+        if (id < 0) return;
+        if (id >= dirty.length) dirty = Arrays.copyOf(dirty, Math.max(id + 1, dirty.length * 2));
+        if (dirty[id]) return;
+        dirty[id] = true;
+        if (dirtyCount == dirtyIds.length) dirtyIds = Arrays.copyOf(dirtyIds, dirtyCount * 2);
+        dirtyIds[dirtyCount++] = id;
+    }
+
+    /** 登记兴趣点库存已变化，<b>调用方需持有写锁</b> */
+    public static void markPoisDirty() { poisDirty = true; }
+
+    /** 根据本周期的修改生成新快照并发布，<b>调用方需持有写锁</b> */
+    public static void publish()
+    {
+        if (!writeLock.isHeldByCurrentThread())
+        {
+            throw new IllegalStateException("World write lock must be held to publish a snapshot");
+        }
+
+        WorldSnapshot prev = current;
+
+        // 只为脏车辆生成视图，其余块与上一快照共享
+        long nextTick = tick + 1;
+        PersistentArray<VehicleView> vehicles = prev.getVehicleArray();
+        if (dirtyCount > 0)
+        {
+            // 新车辆编号连续分配且登记时已为脏，按编号顺序写入即可在末尾追加
+            Arrays.sort(dirtyIds, 0, dirtyCount);
+            PersistentArray.Builder<VehicleView> builder = vehicles.toBuilder();
+            for (int k = 0; k < dirtyCount; k++)
+            {
+                int slot = dirtyIds[k];
+                dirty[slot] = false;
+                Vehicle car = CarManager.getCar(slot);
+                if (car == null) continue;
+
+                VehicleView view = new VehicleView(epoch, nextTick, car);
+                if (slot < builder.size()) countState(builder.get(slot).getState(), -1);
+                else slotsChanged = true;
+                countState(view.getState(), 1);
+                builder.set(slot, view);
+            }
+            vehicles = builder.build();
+            dirtyCount = 0;
+        }
+
+        // UUID 到槽位的表只供 REST 查找，只在车队成员变化时重建
+        Map<String, Integer> slotView = prev.getSlots();
+        if (slotsChanged)
+        {
+            Map<String, Integer> slots = new HashMap<>();
+            for (Vehicle car : CarManager.getCars()) slots.put(car.getUUID().toString(), car.getId());
+            slotView = Map.copyOf(slots);
+            slotsChanged = false;
+        }
+
+        List<PoiView> pois = prev.getPois();
+        if (poisDirty)
+        {
+            List<PoiView> list = new ArrayList<>(PoiManager.getPois().size());
+            for (Poi poi : PoiManager.getPois())
+            {
+                if (poi != null) list.add(new PoiView(poi));
+            }
+            pois = Collections.unmodifiableList(list);
+            poisDirty = false;
+        }
+
+        tick = nextTick;
+        current = new WorldSnapshot(epoch, tick, vehicles, slotView, pois, availableCount, freezeCount);
+        logger.trace("Snapshot(tick: {}) published", tick);
+    }
+
+    /**
+     * 按配置打开记录表：{@code Storage.mode} 为 heap（默认）、direct（堆外）或 mapped（映射 {@code Storage.directory} 下的文件）
+     */
+    static RecordStore openRecords(String fileName, int recordSize)
+    {
+        String mode = ConfigLoader.getString("Storage.mode", "heap");
+        Path file = Path.of(ConfigLoader.getString("Storage.directory", "data"), fileName);
+        RecordStore store = RecordStore.open(mode, file, recordSize, 1024);
+        logger.info("Record store {} opened in {} mode", fileName, store.getMode());
+        return store;
+    }
+
+    private static void countState(VehState state, int delta)
+    {
+        if (state == VehState.AVAILABLE) availableCount += delta;
+        else if (state == VehState.FREEZE) freezeCount += delta;
+    }
+}
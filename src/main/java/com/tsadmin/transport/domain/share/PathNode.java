@@ -1,33 +1,44 @@
 package com.tsadmin.transport.domain.share;
 
+import com.tsadmin.transport.domain.DemandManager;
 import com.tsadmin.transport.entity.Demand;
 
-/** 车辆路径点 */
-public class PathNode
+/**
+ * 车辆路径点，以 {@code long} 表示，不分配对象
+ * <p>布局：高 32 位为订单槽位的代数，低 32 位为 {@code 订单编号 << 1 | 是否为起点}；
+ * 订单完成后槽位代数递增，旧路径点经 {@link #demand(long)} 解析为 {@code null}
+ */
+public final class PathNode
 {
-    private Demand demand;
-    private boolean isOrigin;
+    /** 空路径点，如空队列的队首 */
+    public static final long NONE = -1L;
 
-    public PathNode(Demand demand, boolean isOrigin)
+    private PathNode() {}
+
+    public static long of(Demand demand, boolean isOrigin)
     {
-        this.demand = demand;
-        this.isOrigin = isOrigin;
+        long generation = demand.getGeneration() & 0x7FFFFFFFL;
+        return generation << 32 | ((long)demand.getId() << 1 | (isOrigin ? 1 : 0)) & 0xFFFFFFFFL;
     }
 
-    public Demand getDemand() { return demand; }
-    public boolean isOrigin() { return isOrigin; }
+    /** @return 同一订单的起点或终点 */
+    public static long as(long node, boolean isOrigin) { return isOrigin ? node | 1L : node & ~1L; }
+
+    public static int demandId(long node) { return (int)(node & 0xFFFFFFFFL) >>> 1; }
+    public static int generation(long node) { return (int)(node >>> 32); }
+    public static boolean isOrigin(long node) { return (node & 1L) != 0; }
+
+    /** @return 路径点对应的订单，空路径点或订单已完成时为 {@code null} */
+    public static Demand demand(long node) { return node == NONE ? null : DemandManager.resolve(node); }
 
     /**
      * 根据订单生成路径点对
      * @param demand 路径点对生成的订单目标
      * @return 一个由两个元素（路径点）组成的数组，0号元素为起点，1号元素为终点
      */
-    public static PathNode[] createNodePair(Demand demand)
+    public static long[] createNodePair(Demand demand)
     {
-        PathNode[] ret = {
-            new PathNode(demand, true),
-            new PathNode(demand, false)
-        };
+        long[] ret = { of(demand, true), of(demand, false) };
         return ret;
     }
 }
@@ -0,0 +1,35 @@
+package com.tsadmin.transport.domain.share;
+
+import com.tsadmin.transport.entity.poi.Poi;
+
+/**
+ * 兴趣点只读视图，在发布快照时由兴趣点拷贝得到
+ * <p><b>创建后不可修改，可被任意线程无锁读取</b>
+ */
+public final class PoiView
+{
+    private final String uuid;
+    private final String className;
+    private final ProductType productType;
+    private final double lat;
+    private final double lng;
+    private final double stock;
+
+    /** 拷贝兴趣点当前状态，<b>调用方需持有世界写锁</b> */
+    public PoiView(Poi poi)
+    {
+        this.uuid = poi.getUUID();
+        this.className = poi.getClass().getSimpleName();
+        this.productType = poi.getProductType();
+        this.lat = poi.getPosition().getLat();
+        this.lng = poi.getPosition().getLng();
+        this.stock = poi.getStock();
+    }
+
+    public String getUUID() { return uuid; }
+    public String getClassName() { return className; }
+    public ProductType getProductType() { return productType; }
+    public double getLat() { return lat; }
+    public double getLng() { return lng; }
+    public double getStock() { return stock; }
+}
@@ -1,47 +1,201 @@
 package com.tsadmin.transport.domain.share;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tsadmin.transport.config.ConfigLoader;
 import com.tsadmin.transport.util.RandomUtil;
 
-public enum ProductType
+import tools.jackson.databind.JsonNode;
+
+/**
+ * 产品类型
+ * <p>参数按类型下标存放在基本类型数组中，取用时不查表、不拆箱；
+ * 参数表在 {@link ConfigLoader#use} 时从配置项 {@code ProductType.types} 重新加载并整体替换，
+ * 配置中新出现的键即为新的产品类型，缺少配置时使用内置的木材、钢材、药材
+ * <p>同一键只对应一个实例，可直接用 {@code ==} 比较
+ */
+public final class ProductType
 {
-    /** 木材 */ WOOD(0),
-    /** 钢材 */ STEEL(1),
-    /** 药材 */ PHARMA(2);
+    private static final Logger logger = LogManager.getLogger(ProductType.class);
+
+    /** 木材 */ public static final ProductType WOOD = new ProductType("WOOD", 0);
+    /** 钢材 */ public static final ProductType STEEL = new ProductType("STEEL", 1);
+    /** 药材 */ public static final ProductType PHARMA = new ProductType("PHARMA", 2);
+
+    /** 按下标排列的参数表，只整体替换 */
+    private static final class Table
+    {
+        final String[] name;
+        final int[] minQuantity, maxQuantity;   // t
+        final int[] minDensity, maxDensity;     // kg/m^3
 
-    private static final Map<String, Object[]> params;
-    static {
-        params = new HashMap<>();
-        params.put("name", new String[] {"木材", "钢材", "药材"});
-        params.put("minQuantity", new Integer[] {10, 20, 5});        // t
-        params.put("maxQuantity", new Integer[] {40, 50, 20});       // t
-        params.put("minDensity", new Integer[] {300, 7000, 700});    // kg/m^3
-        params.put("maxDensity", new Integer[] {1200, 8000, 1000});  // kg/m^3
+        Table(int size)
+        {
+            name = new String[size];
+            minQuantity = new int[size];
+            maxQuantity = new int[size];
+            minDensity = new int[size];
+            maxDensity = new int[size];
+        }
+
+        Table grow(int size)
+        {
+            Table t = new Table(size);
+            int n = Math.min(size, name.length);
+            System.arraycopy(name, 0, t.name, 0, n);
+            System.arraycopy(minQuantity, 0, t.minQuantity, 0, n);
+            System.arraycopy(maxQuantity, 0, t.maxQuantity, 0, n);
+            System.arraycopy(minDensity, 0, t.minDensity, 0, n);
+            System.arraycopy(maxDensity, 0, t.maxDensity, 0, n);
+            return t;
+        }
+
+        void set(int i, String name, int minQuantity, int maxQuantity, int minDensity, int maxDensity)
+        {
+            this.name[i] = name;
+            this.minQuantity[i] = minQuantity;
+            this.maxQuantity[i] = maxQuantity;
+            this.minDensity[i] = minDensity;
+            this.maxDensity[i] = maxDensity;
+        }
+    }
+
+    private static volatile Table table = defaults(3);
+    private static volatile ProductType[] types = { WOOD, STEEL, PHARMA };
+    // 只在加载与解析键时访问
+    private static final Map<String, ProductType> byKey = new HashMap<>();
+    static
+    {
+        for (ProductType type : types) byKey.put(type.key, type);
     }
 
+    private final String key;
     private final int index;
-    ProductType(int index) { this.index = index; }
 
-    public String getName() { return (String)params.get("name")[index]; }
+    private ProductType(String key, int index)
+    {
+        this.key = key;
+        this.index = index;
+    }
+
+    public String getKey() { return key; }
+    public int getIndex() { return index; }
 
-    public int getMaxQuantity() { return (int)params.get("maxQuantity")[index]; }
+    public String getName() { return table.name[index]; }
+
+    public int getMaxQuantity() { return table.maxQuantity[index]; }
 
     public int getRandQuantity()
     {
-        int minQuantity = (int)params.get("minQuantity")[index];
-        int maxQuantity = (int)params.get("maxQuantity")[index];
-
-        return RandomUtil.nextInt(minQuantity, maxQuantity + 1);
+        Table t = table;
+        return RandomUtil.nextInt(t.minQuantity[index], t.maxQuantity[index] + 1);
     }
 
     public double getRandVolume(int quantity)
     {
-        int minDensity = (int)params.get("minDensity")[index];
-        int maxDensity = (int)params.get("maxDensity")[index];
-
-        int density = RandomUtil.nextInt(minDensity, maxDensity + 1);
+        Table t = table;
+        int density = RandomUtil.nextInt(t.minDensity[index], t.maxDensity[index] + 1);
         return quantity * 1000.0 / density;
     }
+
+    @Override
+    public String toString() { return key; }
+
+    /** @return 所有已知的产品类型，按下标排列 */
+    public static ProductType[] values() { return types.clone(); }
+
+    /** @return 下标对应的产品类型 */
+    public static ProductType byIndex(int index) { return types[index]; }
+
+    /**
+     * 按键查找产品类型
+     * @throws IllegalArgumentException 键不存在时
+     */
+    public static synchronized ProductType valueOf(String key)
+    {
+        ProductType type = byKey.get(key);
+        if (type == null) throw new IllegalArgumentException("No product type " + key);
+        return type;
+    }
+
+    /**
+     * 从当前配置重新加载参数表，由 {@link ConfigLoader#use} 调用
+     * <p>配置格式：{@code "ProductType.types": [{"key": "WOOD", "name": "木材", "min_quantity": 10, "max_quantity": 40,
+     * "min_density": 300, "max_density": 1200}, ...]}；已有键保持原下标，新键追加在末尾，缺失的字段取内置值或原值
+     */
+    public static synchronized void load()
+    {
+        JsonNode list = ConfigLoader.getJson("ProductType.types");
+        Table current = table;
+        Table next = defaults(types.length);
+        // 内置类型之外的已有类型保留原参数
+        for (int i = 3; i < types.length; i++)
+        {
+            next.set(i, current.name[i], current.minQuantity[i], current.maxQuantity[i], current.minDensity[i], current.maxDensity[i]);
+        }
+
+        ProductType[] known = types;
+        if (list != null && list.isArray())
+        {
+            for (JsonNode node : list)
+            {
+                String key = text(node, "key", "");
+                if (key.isEmpty()) continue;
+
+                ProductType type = byKey.get(key);
+                int i = type == null ? -1 : type.index;
+                String name = text(node, "name", i < 0 ? key : next.name[i]);
+                int minQuantity = number(node, "min_quantity", i < 0 ? 0 : next.minQuantity[i]);
+                int maxQuantity = number(node, "max_quantity", i < 0 ? 0 : next.maxQuantity[i]);
+                int minDensity = number(node, "min_density", i < 0 ? 0 : next.minDensity[i]);
+                int maxDensity = number(node, "max_density", i < 0 ? 0 : next.maxDensity[i]);
+                if (minQuantity <= 0 || minQuantity > maxQuantity || minDensity <= 0 || minDensity > maxDensity)
+                {
+                    logger.warn("Invalid parameters for product type {}, ignored", key);
+                    continue;
+                }
+
+                if (type == null)
+                {
+                    type = new ProductType(key, known.length);
+                    known = Arrays.copyOf(known, known.length + 1);
+                    known[type.index] = type;
+                    byKey.put(key, type);
+                    next = next.grow(known.length);
+                }
+                next.set(type.index, name, minQuantity, maxQuantity, minDensity, maxDensity);
+            }
+        }
+
+        // 先发布参数表再发布新类型，取到新类型时参数必然已就绪
+        table = next;
+        types = known;
+        logger.trace("{} product types loaded", known.length);
+    }
+
+    private static String text(JsonNode node, String key, String defaultValue)
+    {
+        JsonNode value = node.get(key);
+        return value == null || !value.isString() ? defaultValue : value.asString();
+    }
+
+    private static int number(JsonNode node, String key, int defaultValue)
+    {
+        JsonNode value = node.get(key);
+        return value == null || !value.isNumber() ? defaultValue : value.asInt();
+    }
+
+    private static Table defaults(int size)
+    {
+        Table t = new Table(Math.max(size, 3));
+        t.set(0, "木材", 10, 40, 300, 1200);
+        t.set(1, "钢材", 20, 50, 7000, 8000);
+        t.set(2, "药材", 5, 20, 700, 1000);
+        return t;
+    }
 }
@@ -0,0 +1,98 @@
+package com.tsadmin.transport.domain.share;
+
+import com.tsadmin.transport.entity.CarStatistics;
+import com.tsadmin.transport.entity.Vehicle;
+import com.tsadmin.transport.entity.Vehicle.VehState;
+import com.tsadmin.transport.routing.Route;
+
+/**
+ * 车辆只读视图，在发布快照时由车辆拷贝得到
+ * <p><b>创建后不可修改，可被任意线程无锁读取</b>
+ */
+public final class VehicleView
+{
+    private final long epoch;
+    private final long tick;
+    private final String uuid;
+    private final VehState state;
+    private final double load;
+    private final int maxLoad;
+    private final double lat;
+    private final double lng;
+    // 当前行程终点与路线，非行驶状态或尚未规划时为 null
+    private final Coordinate legTarget;
+    private final Route route;
+
+    private final double waitingTime;
+    private final double emptyDistance;
+    private final double wastedLoad;
+    private final double totalWeight;
+    private final double carbonEmission;
+    private final double totalDistance;
+    private final int completedOrders;
+    private final double averageOrderCycle;
+
+    /**
+     * 拷贝车辆当前状态，<b>调用方需持有世界写锁</b>
+     * <p>只拷贝基础指标，派生指标在读取时计算，不修改车辆的统计数据
+     * @param epoch 生成本视图的世界纪元，见 {@link WorldSnapshot#getEpoch()}
+     * @param tick 生成本视图的快照周期，车辆未再改变时视图会被后续快照沿用
+     * @param car 被拷贝的车辆
+     */
+    public VehicleView(long epoch, long tick, Vehicle car)
+    {
+        this.epoch = epoch;
+        this.tick = tick;
+        this.uuid = car.getUUID().toString();
+        this.state = car.getState() != null ? car.getState() : VehState.AVAILABLE;
+        this.load = car.getLoad();
+        this.maxLoad = car.getMaxLoad();
+
+        Coordinate position = car.getPosition();
+        this.lat = position != null ? position.getLat() : 0.0;
+        this.lng = position != null ? position.getLng() : 0.0;
+        Coordinate leg = car.getLegTarget();
+        this.legTarget = leg != null ? new Coordinate(leg) : null;
+        this.route = car.getRoute();
+
+        CarStatistics statistics = car.getStatistics();
+        this.waitingTime = statistics.getWaitingTime();
+        this.emptyDistance = statistics.getEmptyDistance();
+        this.wastedLoad = statistics.getWastedLoad();
+        this.totalWeight = statistics.getTotalWeight();
+        this.carbonEmission = statistics.getCarbonEmission();
+        this.totalDistance = statistics.getTotalDistance();
+        this.completedOrders = statistics.getCompletedOrders();
+        this.averageOrderCycle = statistics.getAverageOrderCycle();
+    }
+
+    /** 生成本视图的世界纪元，重新初始化世界后周期序号从头开始，需与周期一起比较 */
+    public long getEpoch() { return epoch; }
+    /** 生成本视图的快照周期，与纪元、UUID 一起唯一确定视图内容 */
+    public long getTick() { return tick; }
+    public String getUUID() { return uuid; }
+    public VehState getState() { return state; }
+    public double getLoad() { return load; }
+    public int getMaxLoad() { return maxLoad; }
+    public double getLat() { return lat; }
+    public double getLng() { return lng; }
+    /** 当前行程终点的拷贝，非行驶状态为 {@code null}，<b>不得修改</b> */
+    public Coordinate getLegTarget() { return legTarget; }
+    /** 当前行程路线，尚未规划时为 {@code null} */
+    public Route getRoute() { return route; }
+
+    public double getWaitingTime() { return waitingTime; }
+    public double getEmptyDistance() { return emptyDistance; }
+    public double getWastedLoad() { return wastedLoad; }
+    public double getTotalWeight() { return totalWeight; }
+    public double getCarbonEmission() { return carbonEmission; }
+    public double getTotalDistance() { return totalDistance; }
+    public int getCompletedOrders() { return completedOrders; }
+    public double getAverageOrderCycle() { return averageOrderCycle; }
+
+    // 派生指标，无副作用
+    public double getMileageUtilizationRate() { return CarStatistics.mileageUtilizationRate(totalDistance, emptyDistance); }
+    public double getCarbonEmissionPerUnit() { return CarStatistics.carbonEmissionPerUnit(totalWeight); }
+    public double getLoadUtilizationRate() { return CarStatistics.loadUtilizationRate(load, maxLoad); }
+    public double getCapacityUtilizationRate() { return CarStatistics.capacityUtilizationRate(carbonEmission, totalDistance, maxLoad); }
+}
@@ -0,0 +1,79 @@
+package com.tsadmin.transport.domain.share;
+
+import java.util.List;
+import java.util.Map;
+
+import com.tsadmin.transport.util.PersistentArray;
+
+/**
+ * 某一周期结束时的世界快照
+ * <p>相邻快照之间共享未改变的车辆视图与索引表，发布代价只与本周期改变的车辆数相关
+ * <p><b>创建后不可修改，可被任意线程无锁读取</b>
+ */
+public final class WorldSnapshot
+{
+    /** 仿真尚未开始时使用的空快照 */
+    public static final WorldSnapshot EMPTY = new WorldSnapshot(0, 0, PersistentArray.empty(), Map.of(), List.of(), 0, 0);
+
+    private final long epoch;
+    private final long tick;
+    private final PersistentArray<VehicleView> vehicles;
+    private final Map<String, Integer> slots;
+    private final List<PoiView> pois;
+    private final int availableCount;
+    private final int freezeCount;
+
+    /**
+     * @param epoch 世界纪元，每次重新初始化世界时改变，周期序号只在同一纪元内可比较
+     * @param tick 快照对应的周期序号
+     * @param vehicles 按槽位存放的车辆视图
+     * @param slots 车辆 UUID 到槽位的映射，<b>传入后不得再修改</b>
+     * @param pois 兴趣点视图，<b>传入后不得再修改</b>
+     * @param availableCount 空闲车辆数
+     * @param freezeCount 冻结车辆数
+     */
+    public WorldSnapshot(long epoch, long tick, PersistentArray<VehicleView> vehicles, Map<String, Integer> slots,
+                         List<PoiView> pois, int availableCount, int freezeCount)
+    {
+        this.epoch = epoch;
+        this.tick = tick;
+        this.vehicles = vehicles;
+        this.slots = slots;
+        this.pois = pois;
+        this.availableCount = availableCount;
+        this.freezeCount = freezeCount;
+    }
+
+    public long getEpoch() { return epoch; }
+    public long getTick() { return tick; }
+
+    public VehicleView getVehicle(String uuid)
+    {
+        Integer slot = slots.get(uuid);
+        return slot == null || slot >= vehicles.size() ? null : vehicles.get(slot);
+    }
+
+    /** @return 车辆槽位，即车辆编号，未知车辆为 -1 */
+    public int slotOf(String uuid)
+    {
+        Integer slot = slots.get(uuid);
+        return slot == null ? -1 : slot;
+    }
+
+    /** @return 槽位上车辆的 UUID，无此槽位时为 {@code null} */
+    public String uuidOf(int slot)
+    {
+        if (slot < 0 || slot >= vehicles.size()) return null;
+        VehicleView view = vehicles.get(slot);
+        return view == null ? null : view.getUUID();
+    }
+
+    /** 车辆视图的只读列表，下标即槽位 */
+    public List<VehicleView> getVehicles() { return vehicles.asList(); }
+    public PersistentArray<VehicleView> getVehicleArray() { return vehicles; }
+    public Map<String, Integer> getSlots() { return slots; }
+    public List<PoiView> getPois() { return pois; }
+    public int getVehicleCount() { return vehicles.size(); }
+    public int getAvailableCount() { return availableCount; }
+    public int getFreezeCount() { return freezeCount; }
+}
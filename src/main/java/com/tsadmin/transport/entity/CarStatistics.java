@@ -11,6 +11,9 @@ public class CarStatistics
     private double waitingTime;// 车辆总体等待时间
     private double emptyDistance;// 车辆总空载里程
     private double wastedLoad;// 车辆总载重浪费
+    private double packedWastedLoad;// 整车装箱派车时累计未用的载重
+    private double packedWastedVolume;// 整车装箱派车时累计未用的体积
+    private int packedTrips = 0;// 整车装箱派车次数
     private double totalWeight;// 车辆总运量
     private double carbonEmission;// 车辆总碳排放量
     private double totalDistance;// 车辆总行驶里程
@@ -60,22 +63,64 @@ public class CarStatistics
     }
 
     public void calculateLoad_utilization_rate(Vehicle car) {
-        double load = car.getLoad();
-        int maxload = car.getMaxLoad();
-        if (maxload == 0) {
-            this.load_utilization_rate = 0.0;
-        } else {
-            this.load_utilization_rate = (double)load / maxload;
-        }
+        this.load_utilization_rate = loadUtilizationRate(car.getLoad(), car.getMaxLoad());
     }
     public void calculateCapacity_utilization_rate(Vehicle car) {
-        double usedCapacity = this.carbonEmission / carbonEmissionFactor;
-        double totalCapacity = car.getMaxLoad()*totalDistance;
-        if (totalCapacity == 0) {
-            this.capacity_utilization_rate = 0.0;
-        } else {
-            this.capacity_utilization_rate = usedCapacity / totalCapacity;
-        }
+        this.capacity_utilization_rate = capacityUtilizationRate(carbonEmission, totalDistance, car.getMaxLoad());
+    }
+
+    // ===== 无副作用的指标计算，供只读视图使用 =====
+    /** 实时装载率 = 载重 / 核载 */
+    public static double loadUtilizationRate(double load, int maxLoad) {
+        return maxLoad == 0 ? 0.0 : load / maxLoad;
+    }
+    /** 运力利用率 = 使用运力(碳排放/碳排放因子) / 总共运力 */
+    public static double capacityUtilizationRate(double carbonEmission, double totalDistance, int maxLoad) {
+        double totalCapacity = maxLoad * totalDistance;
+        return totalCapacity == 0 ? 0.0 : carbonEmission / carbonEmissionFactor / totalCapacity;
+    }
+    /** 里程利用率 = （总里程 - 总空载里程）/ 总里程 */
+    public static double mileageUtilizationRate(double totalDistance, double emptyDistance) {
+        return totalDistance == 0 ? 0.0 : (totalDistance - emptyDistance) / totalDistance;
+    }
+    /** 单位运量碳排放，由于碳排放按运量乘系数得到，有运量时即为碳排放因子 */
+    public static double carbonEmissionPerUnit(double totalWeight) {
+        return totalWeight == 0 ? 0.0 : carbonEmissionFactor;
+    }
+    /**
+     * 累加行驶里程
+     * @param distance 行驶距离（米）
+     * @param isEmpty 是否为空载行驶
+     */
+    public void addDistance(double distance, boolean isEmpty) {
+        this.totalDistance += distance;
+        if (isEmpty) this.emptyDistance += distance;
+    }
+    /**
+     * 累加一段行驶：里程、空载里程、碳排放与载重浪费
+     * <p>载重浪费只在载货行驶时累加，为未使用的核载乘以行驶距离（吨·米）
+     * @param distance 行驶距离（米）
+     * @param load 行驶时的载重，为 0 即空载
+     * @param maxLoad 核载
+     */
+    public void addTravel(double distance, double load, int maxLoad) {
+        addDistance(distance, load == 0);
+        this.carbonEmission += load * distance * carbonEmissionFactor;
+        if (load > 0) this.wastedLoad += Math.max(0, maxLoad - load) * distance;
+    }
+    /**
+     * 记录一次整车装箱派车未用的容量
+     * @param load 未用的载重（吨）
+     * @param volume 未用的体积（立方米）
+     */
+    public void addPackedWaste(double load, double volume) {
+        this.packedWastedLoad += load;
+        this.packedWastedVolume += volume;
+        this.packedTrips++;
+    }
+    /** 累加等待时间（秒） */
+    public void addWaitingTime(double seconds) {
+        this.waitingTime += seconds;
     }
     public void incrementCompletedOrders() {
         this.completedOrders++;
@@ -98,17 +143,18 @@ public class CarStatistics
     public double getWaitingTime() { return waitingTime; }
     public double getEmptyDistance() { return emptyDistance; }
     public double getWastedLoad() { return wastedLoad; }
+    public double getPackedWastedLoad() { return packedWastedLoad; }
+    public double getPackedWastedVolume() { return packedWastedVolume; }
+    public int getPackedTrips() { return packedTrips; }
     public double getTotalWeight() { return totalWeight; }
     public double getCarbonEmission() { return carbonEmission; }
     public double getTotalDistance() { return totalDistance; }
     public double getMileageUtilizationRate() {
-        if (totalDistance == 0) return 0.0;
-        mileage_utilization_rate = (totalDistance - emptyDistance) / totalDistance;
+        mileage_utilization_rate = mileageUtilizationRate(totalDistance, emptyDistance);
         return mileage_utilization_rate;
     }
     public double getCarbonEmissionPerUnit() {
-        if (totalWeight == 0) return 0.0;
-        carbon_emission_per_unit = carbonEmissionFactor;
+        carbon_emission_per_unit = carbonEmissionPerUnit(totalWeight);
         return carbon_emission_per_unit;
     }
     public double getLoad_utilization_rate() { return load_utilization_rate; }
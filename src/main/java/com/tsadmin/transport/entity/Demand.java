@@ -1,60 +1,105 @@
 package com.tsadmin.transport.entity;
 
 import com.tsadmin.transport.domain.DemandManager;
+import com.tsadmin.transport.domain.PoiManager;
+import com.tsadmin.transport.domain.TraceManager;
 import com.tsadmin.transport.domain.share.Coordinate;
 import com.tsadmin.transport.domain.share.ProductType;
 import com.tsadmin.transport.entity.poi.Poi;
 import com.tsadmin.transport.entity.poi.Purchaser;
 import com.tsadmin.transport.util.GeoUtil;
+import com.tsadmin.transport.util.RecordStore;
 
-import jakarta.persistence.Entity;
-import jakarta.persistence.Table;
-
-/** 需求 */
-@Entity
-@Table(name = "demands")
+/**
+ * 需求
+ * <p>本类只是 {@link DemandManager} 记录表中一条记录的视图，字段均按编号读写记录表；
+ * 订单完成后槽位代数递增，视图留待下一个订单复用，
+ * 因此<b>不应跨周期持有实例引用</b>，需要长期引用时使用 {@link com.tsadmin.transport.domain.share.PathNode}
+ * <p>UUID 以两个 {@code long} 存放，只在 REST 与持久化边界格式化为字符串
+ * <p>视图没有主键字段，不作为 JPA 实体映射，持久化按记录表进行
+ */
 public class Demand
 {
-    private String uuid;
-    private Poi origin;
-    private Poi destination;
-    private Product product;
+    /** 记录布局（字节偏移） */
+    public static final int UUID_HIGH = 0, UUID_LOW = 8, GENERATION = 16, FLAGS = 20, ORIGIN = 24, DESTINATION = 28,
+        TYPE = 32, QUANTITY = 36, VOLUME = 40, RECORD_SIZE = 48;
+    /** {@link #FLAGS} 中的位 */
+    public static final int LIVE = 1, ASSIGNED = 2;
+
+    private final int id;           // 记录号，由 DemandManager 分配
+
+    /** 记录的视图，由 {@link DemandManager} 分配槽位时创建 */
+    public Demand(int id) { this.id = id; }
 
-    private boolean isAssigned;
+    /** 为槽位赋予新订单的内容 */
+    public void assign(long uuidHigh, long uuidLow, Poi origin, Poi destination, ProductType type, int quantity, double volume)
+    {
+        RecordStore r = records();
+        r.putLong(id, UUID_HIGH, uuidHigh);
+        r.putLong(id, UUID_LOW, uuidLow);
+        r.putInt(id, ORIGIN, origin.getId());
+        r.putInt(id, DESTINATION, destination.getId());
+        r.putInt(id, TYPE, type.getIndex());
+        r.putInt(id, QUANTITY, quantity);
+        r.putDouble(id, VOLUME, volume);
+        r.putInt(id, FLAGS, LIVE);
+    }
 
-    public Demand(String uuid, Poi origin, Poi destination, Product product)
+    /** 回收槽位，旧路径点随代数递增而失效 */
+    public void recycle()
     {
-        this.uuid = uuid;
-        this.origin = origin;
-        this.destination = destination;
-        this.product = product;
-        this.isAssigned = false;
+        RecordStore r = records();
+        // 路径点只保存 31 位代数
+        r.putInt(id, GENERATION, (r.getInt(id, GENERATION) + 1) & 0x7FFFFFFF);
+        r.putInt(id, FLAGS, 0);
     }
 
     public void onCompleted()
     {
-        ((Purchaser)this.destination).onDemandCompleted();
-        DemandManager.removeDemand(uuid);
+        TraceManager.record(TraceManager.Type.DEMAND_COMPLETED, id, getGeneration(), getDestinationId());
+        ((Purchaser)PoiManager.getPoi(getDestinationId())).onDemandCompleted();
+        DemandManager.removeDemand(id);
     }
 
     // Setter
-    public void setQuantity(int quantity) { this.product.setQuantity(quantity); }
-    public void setVolume(double volume) { this.product.setVolume(volume); }
-    public void setAssigned() { this.isAssigned = true; }
+    public void setQuantity(int quantity) { records().putInt(id, QUANTITY, quantity); }
+    public void setVolume(double volume) { records().putDouble(id, VOLUME, volume); }
+    /** @param vehicle 承运车辆的编号，首次分配时记入追踪 */
+    public void setAssigned(int vehicle)
+    {
+        int flags = records().getInt(id, FLAGS);
+        if ((flags & ASSIGNED) != 0) return;
+        records().putInt(id, FLAGS, flags | ASSIGNED);
+        DemandManager.onAssigned();
+        TraceManager.record(TraceManager.Type.DEMAND_ASSIGNED, id, getGeneration(), vehicle);
+    }
 
     // Getter
-    public String getUUID() { return uuid; }
-    public Coordinate getOrigin() { return origin.getPosition(); }
-    public String getOriginUuid() { return origin.getUUID(); }
-    public Coordinate getDestination() { return destination.getPosition(); }
-    public String getDestinationUuid() { return destination.getUUID(); }
-    public ProductType getType() { return product.getType(); }
-    public int getQuantity() { return product.getQuantity(); }
-    public double getVolume() { return product.getVolume(); }
-    public boolean isAssigned() { return isAssigned; }
+    /** @return 32 位十六进制 UUID，每次调用都会格式化，只在边界处使用 */
+    public String getUUID() { return hex(records().getLong(id, UUID_HIGH)) + hex(records().getLong(id, UUID_LOW)); }
+    public int getId() { return id; }
+    public int getGeneration() { return records().getInt(id, GENERATION); }
+    public Coordinate getOrigin() { return PoiManager.getPoi(getOriginId()).getPosition(); }
+    public String getOriginUuid() { return PoiManager.getPoi(getOriginId()).getUUID(); }
+    public int getOriginId() { return records().getInt(id, ORIGIN); }
+    public Coordinate getDestination() { return PoiManager.getPoi(getDestinationId()).getPosition(); }
+    public String getDestinationUuid() { return PoiManager.getPoi(getDestinationId()).getUUID(); }
+    public int getDestinationId() { return records().getInt(id, DESTINATION); }
+    public ProductType getType() { return ProductType.byIndex(records().getInt(id, TYPE)); }
+    public int getQuantity() { return records().getInt(id, QUANTITY); }
+    public double getVolume() { return records().getDouble(id, VOLUME); }
+    public boolean isAssigned() { return (records().getInt(id, FLAGS) & ASSIGNED) != 0; }
 
     public int routeLength()
     {
         return (int)GeoUtil.distance(getOrigin(), getDestination());
     }
-}
\ No newline at end of file
+
+    private static RecordStore records() { return DemandManager.getRecords(); }
+
+    private static String hex(long value)
+    {
+        String s = Long.toHexString(value);
+        return s.length() == 16 ? s : "0".repeat(16 - s.length()) + s;
+    }
+}
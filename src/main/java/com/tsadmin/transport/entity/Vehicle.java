@@ -1,15 +1,17 @@
 package com.tsadmin.transport.entity;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 import org.hibernate.annotations.UuidGenerator;
 
+import com.tsadmin.transport.domain.EventManager;
+import com.tsadmin.transport.domain.TraceManager;
+import com.tsadmin.transport.domain.WorldManager;
 import com.tsadmin.transport.domain.share.Coordinate;
 import com.tsadmin.transport.domain.share.PathNode;
 import com.tsadmin.transport.domain.share.Timer;
+import com.tsadmin.transport.routing.Route;
+import com.tsadmin.transport.util.LongDeque;
 import com.tsadmin.transport.util.RandomUtil;
 
 import jakarta.persistence.Column;
@@ -19,6 +21,7 @@ import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 
 /** 车辆 */
 @Entity
@@ -42,13 +45,14 @@ public class Vehicle
         FREEZE
     }
 
-    private static Map<VehState, Double> freezeChance = Map.of(
-        VehState.AVAILABLE, 0.00,
-        VehState.ORDER_TAKEN, 0.04,
-        VehState.LOADING, 0.02,
-        VehState.TRANSPORTING, 0.04,
-        VehState.UNLOADING, 0.02
-    );
+    // 以下状态表均按 VehState.ordinal() 索引
+    /** 各状态结束时转入冻结的几率 */
+    private static final double[] FREEZE_CHANCE = { 0.00, 0.04, 0.02, 0.04, 0.02, 0.00 };
+    /** 状态计时：固定部分 + 每吨货物的部分 */
+    private static final int[] TIMER_FIXED = { 0, 0, 0, 0, 0, 30 };
+    private static final double[] TIMER_PER_TON = { 0, 0, 0.01, 0, 0.01, 0 };
+    /** 行驶状态结束后的固定下一状态，其余状态的下一状态由路径点队首决定 */
+    private static final VehState[] ARRIVAL = { null, VehState.LOADING, null, VehState.UNLOADING, null, null };
 
     @Id
     @UuidGenerator(style = UuidGenerator.Style.TIME)
@@ -71,10 +75,23 @@ public class Vehicle
     @Column(name = "previous_state")
     private VehState prevState;
 
-    private List<PathNode> nodeList = new ArrayList<>();
+    // 以下为运行时状态，不映射到数据库
+    @Transient
+    private int id = -1;                                // 内部编号，由 CarManager 登记时分配
+    @Transient
+    private final LongDeque nodeList = new LongDeque(); // 尚未开始的路径点，见 PathNode
+    @Transient
     private Timer stateTimer;                           // 状态计时器
+    @Transient
     private Demand currDemand;                          // 车辆当前执行订单
+    @Transient
+    private Route route;                                // 当前行程路线
+    @Transient
+    private double progress;                            // 沿当前路线已行驶的长度（米）
+    @Transient
     private CarStatistics statistics;                   // 车辆统计参数
+    @Transient
+    private int planVersion;                            // 计划版本，路径点、当前订单、载货或状态改变时递增
 
     /** 车辆构造函数 */
     protected Vehicle() {}
@@ -84,6 +101,7 @@ public class Vehicle
         this.maxLoad = maxLoad;
         this.maxVolume = maxVolume;
         this.position = position;
+        this.currState = this.prevState = VehState.AVAILABLE;
         this.stateTimer = new Timer();
         this.statistics = new CarStatistics();
     }
@@ -99,41 +117,67 @@ public class Vehicle
         this.volume = others.volume;
     }
 
-    // Setter
-    public void setLoad(int load) { this.load = load; }
-    public void setVolume(int volume) { this.volume = volume; }
-    public void setPosition(Coordinate position) { this.position = position; }
-    public void setNodeList(List<PathNode> nodeList) { this.nodeList = nodeList; }
-    public void setCurrDemand(Demand demand) { currDemand = demand; }
+    // Setter，修改后均登记为脏以便下次发布快照
+    public void setLoad(int load) { this.load = load; planVersion++; markDirty(); }
+    public void setVolume(int volume) { this.volume = volume; planVersion++; markDirty(); }
+    public void setPosition(Coordinate position) { this.position = position; markDirty(); }
+    /** 以给定路径点替换路径点队列的内容 */
+    public void setNodeList(long[] nodes)
+    {
+        nodeList.clear();
+        nodeList.addAll(nodes);
+        planVersion++;
+        markDirty();
+    }
+    public void setId(int id) { this.id = id; }
+    public void setCurrDemand(Demand demand) { currDemand = demand; planVersion++; markDirty(); }
+    public void setRoute(Route route)
+    {
+        this.route = route;
+        this.progress = 0;
+        markDirty();
+    }
     public void setState(VehState newState)
     {
         prevState = currState;
         currState = newState;
+        markDirty();
+        traceState();
     }
 
     // Getter
     public UUID getUUID() { return uuid; }
+    public int getId() { return id; }
     public int getMaxLoad() { return maxLoad; }
     public int getMaxVolume() { return maxVolume; }
     public double getLoad() { return load; }
     public double getVolume() { return volume; }
     public Coordinate getPosition() { return position; }
-    public List<PathNode> getNodeList() { return nodeList; }
+    /** @return 尚未开始的路径点队列，只读 */
+    public LongDeque getNodeList() { return nodeList; }
     public VehState getState() { return currState; }
     public VehState getPrevState() { return prevState; }
     public Timer getStateTimer() { return stateTimer; }
     public Demand getCurrDemand() { return currDemand; }
+    public Route getRoute() { return route; }
+    public double getProgress() { return progress; }
     public CarStatistics getStatistics() { return statistics; }
+    /** 计划版本，版本相同时路径点、当前订单与载货均未改变，用于判断依据计划计算的缓存是否仍有效 */
+    public int getPlanVersion() { return planVersion; }
     public double getRemainingLoad() { return maxLoad - load; }
     public double getRemainingVolume() { return maxVolume - volume; }
 
-    public void addPathNode(PathNode node) { nodeList.add(node); }
+    public void addPathNode(long node) { nodeList.addLast(node); planVersion++; markDirty(); }
 
-    /** 获取并移除路径点列表中的第一个点 */
-    public PathNode fetchFirstNode()
+    /**
+     * 获取并移除路径点队列中的第一个点
+     * @return 队首路径点，队列为空时为 {@link PathNode#NONE}
+     */
+    public long fetchFirstNode()
     {
-        PathNode ret = nodeList.getFirst();
-        nodeList.removeFirst();
+        long ret = nodeList.isEmpty() ? PathNode.NONE : nodeList.pollFirst();
+        planVersion++;
+        markDirty();
         return ret;
     }
 
@@ -141,94 +185,141 @@ public class Vehicle
     public void tick(VehState currState)
     { 
         stateTimer.tick();
+        markDirty();
+    }
+
+    /** 是否处于接单行驶或运货行驶状态 */
+    public boolean isMoving() { return currState == VehState.ORDER_TAKEN || currState == VehState.TRANSPORTING; }
+
+    /** 是否已沿当前路线行驶到终点，尚无路线时为 {@code false} */
+    public boolean hasArrived() { return route != null && progress >= route.getLength(); }
+
+    /** 当前行程的终点，非行驶状态返回 {@code null} */
+    public Coordinate getLegTarget()
+    {
+        if (currDemand == null) return null;
+        return switch (currState)
+        {
+            case ORDER_TAKEN -> currDemand.getOrigin();
+            case TRANSPORTING -> currDemand.getDestination();
+            default -> null;
+        };
     }
 
+    /**
+     * 沿当前路线行驶一段模拟时间，更新位置并累加里程、空载里程、碳排放与载重浪费；冻结期间累加等待时间
+     * <p>速度为路线平均速度乘以所在位置的路况速度因子，到达终点后停在终点等待状态转换
+     * @param seconds 模拟时长（秒）
+     */
+    public void advance(double seconds)
+    {
+        if (currState == VehState.FREEZE)
+        {
+            statistics.addWaitingTime(seconds);
+            markDirty();
+            return;
+        }
+        if (!isMoving() || route == null) return;
+
+        double length = route.getLength();
+        if (progress >= length) return;
+
+        double speed = route.getTime() > 0 ? length / route.getTime() : 0;
+        double step = Math.min(speed * EventManager.speedFactor(position) * seconds, length - progress);
+        progress += step;
+        position = route.pointAt(progress);
+        statistics.addTravel(step, load, maxLoad);
+        markDirty();
+    }
+
+    /** 登记本车已被修改，<b>调用方需持有世界写锁</b> */
+    private void markDirty() { WorldManager.markDirty(this); }
+
     /**
      * 状态转换函数，根据当前状态和随机数决定车辆的下一个状态，并处理装卸货、冻结等逻辑
+     * <p>冻结几率、计时时长与固定转移均查状态表；冻结结束时直接按冻结前的状态转换，不再递归
+     * <p>行驶状态应在 {@link #hasArrived()} 后转换，车辆停在路线终点；开始新行程时从路径点队列取出队首
      */
     public void changeState()
     {
-        double randNum = RandomUtil.nextDouble();
-        VehState nextState = currState;
+        // 冻结结束后按冻结前的状态继续转换，并可能再次冻结
+        VehState from = currState == VehState.FREEZE ? prevState : currState;
+        VehState nextState;
 
-        // 非冻结状态有一定几率变为冻结状态，模拟小概率事故的发生，此时当前状态的一切操作被冻结（延后）
-        if (currState != VehState.FREEZE && randNum < freezeChance.get(currState))
+        // 状态结束时有一定几率变为冻结状态，模拟小概率事故的发生，此时当前状态的一切操作被冻结（延后）
+        // 车辆处于天气、拥堵、事故影响范围内时几率按速度因子放大
+        double chance = FREEZE_CHANCE[from.ordinal()];
+        if (chance > 0 && RandomUtil.nextDouble() < chance * EventManager.freezeFactor(position))
         {
             nextState = VehState.FREEZE;
         }
         else
         {
-            // 当前状态结束，对车辆属性参数进行对应修改并根据当前状态获取下一状态
-            switch (currState)
+            // 当前状态结束，对车辆属性参数进行对应修改
+            switch (from)
             {
-                case ORDER_TAKEN:
-                    position = currDemand.getOrigin();
-                    nextState = VehState.LOADING;
-                    break;
-
-                case LOADING:
+                case ORDER_TAKEN, TRANSPORTING -> route = null;
+                case LOADING ->
+                {
                     load += currDemand.getQuantity();
                     volume += currDemand.getVolume();
-
-                    nextState = nodeList.getFirst().isOrigin() ? VehState.ORDER_TAKEN : VehState.TRANSPORTING;
-                    currDemand = nodeList.getFirst().getDemand();
-                    break;
-
-                case TRANSPORTING:
-                    position = currDemand.getDestination();
-                    nextState = VehState.UNLOADING;
-                    break;
-
-                case UNLOADING:
+                }
+                case UNLOADING ->
+                {
                     load -= currDemand.getQuantity();
                     volume -= currDemand.getVolume();
                     statistics.incrementCompletedOrders();
                     statistics.calculateAverageOrderCycle();
                     currDemand.onCompleted();
+                }
+                default -> { }
+            }
 
-                    if (!nodeList.isEmpty())
-                    {
-                        nextState = nodeList.getFirst().isOrigin() ? VehState.ORDER_TAKEN : VehState.TRANSPORTING;
-                        currDemand = nodeList.getFirst().getDemand();
-                    }
-                    else
+            nextState = ARRIVAL[from.ordinal()];
+            if (nextState == null)
+            {
+                // 由路径点队首决定下一行程并出队，跳过订单已失效的路径点
+                while (!nodeList.isEmpty() && PathNode.demand(nodeList.peekFirst()) == null) nodeList.pollFirst();
+                if (!nodeList.isEmpty())
+                {
+                    long head = nodeList.pollFirst();
+                    nextState = PathNode.isOrigin(head) ? VehState.ORDER_TAKEN : VehState.TRANSPORTING;
+                    currDemand = PathNode.demand(head);
+                }
+                else
+                {
+                    nextState = VehState.AVAILABLE;
+                    if (from == VehState.UNLOADING)
                     {
-                        nextState = VehState.AVAILABLE;
                         currDemand = null;
                         statistics.resetCompleteOrderCycle();
                     }
-                    break;
-
-                case FREEZE:
-                    // 当前状态为冻结状态，在转换状态前需要回退状态，根据上一状态进行状态转换
-                    setState(prevState);
-                    changeState();
-                    return;
-
-                case AVAILABLE:
-                    nextState = nodeList.isEmpty() ? VehState.AVAILABLE : VehState.ORDER_TAKEN;
-                    if(nextState==VehState.ORDER_TAKEN)
-                    { 
-                        currDemand= nodeList.getFirst().getDemand();
-                    }
-                default:
-                    break;
+                }
             }
         }
 
-        setState(nextState);
+        prevState = from;
+        currState = nextState;
+        planVersion++;
+        markDirty();
+        traceState();
         resetTimer();
     }
 
+    /** 状态转换记入追踪，进入冻结单独记为 {@code FREEZE} */
+    private void traceState()
+    {
+        if (id < 0) return;
+        TraceManager.record(currState == VehState.FREEZE ? TraceManager.Type.FREEZE : TraceManager.Type.STATE_CHANGED,
+            id, prevState == null ? -1 : prevState.ordinal(), currState.ordinal());
+    }
+
     /** 重置当前状态计时器*/
     private void resetTimer()
     {
-        int time = switch (currState)
-        {
-            case LOADING, UNLOADING -> (int)(0.01 * currDemand.getQuantity());
-            case FREEZE -> 30;
-            default -> 0;
-        };
+        int i = currState.ordinal();
+        int time = TIMER_FIXED[i];
+        if (TIMER_PER_TON[i] > 0) time += (int)(TIMER_PER_TON[i] * currDemand.getQuantity());
         stateTimer.setTime(time);
     }
 }
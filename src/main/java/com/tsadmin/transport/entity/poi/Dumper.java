@@ -1,7 +1,6 @@
 package com.tsadmin.transport.entity.poi;
 
 import com.tsadmin.transport.domain.share.ProductType;
-import com.tsadmin.transport.entity.Product;
 
 public interface Dumper
 {
@@ -9,11 +8,14 @@ public interface Dumper
     double getStock();
     ProductType getProductType();
 
-    default Product packProduct(int quantity)
+    /**
+     * 从库存中取出产品打包
+     * @return 包装后的体积
+     */
+    default double packProduct(int quantity)
     {
-        double volume = getProductType().getRandVolume(quantity);
         setStock(getStock() - quantity);
-        return new Product(getProductType(), quantity, volume);
+        return getProductType().getRandVolume(quantity);
     }
 
     default boolean isAvailable(int need)
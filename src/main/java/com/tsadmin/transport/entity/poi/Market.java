@@ -17,7 +17,8 @@ public final class Market extends Purchaser
     @Override
     public void update()
     {
-        stock -= stock * SALES_RATE;
+        double stock = getStock() * (1 - SALES_RATE);
+        setStock(stock);
         tryGenerateDemand(stock);
     }
 }
@@ -1,18 +1,27 @@
 package com.tsadmin.transport.entity.poi;
 
+import com.tsadmin.transport.domain.PoiManager;
 import com.tsadmin.transport.domain.share.Coordinate;
 import com.tsadmin.transport.domain.share.ProductType;
 
+/**
+ * 兴趣点
+ * <p>每周期变化的数值（库存、加工中原料）存放在 {@link PoiManager} 的记录表中，以编号为记录号，
+ * 本类只保存加载后不变的属性
+ */
 public abstract class Poi
 {
+    /** 记录布局（字节偏移） */
+    public static final int STOCK = 0, RAW_MATERIAL = 8, RECORD_SIZE = 16;
+
     protected final String uuid;
+    /** 内部编号，由 {@code PoiManager} 加载时分配 */
+    protected int id = -1;
     protected final String name;
     protected final ProductType productType;
     protected final Coordinate position;
     protected final int maxStock;
 
-    protected double stock;
-
     public Poi(String uuid, String name, ProductType productType, Coordinate position, int maxStock)
     {
         this.uuid = uuid;
@@ -26,9 +35,11 @@ public abstract class Poi
     public abstract void update();
 
     public String getUUID() { return uuid; }
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
     public ProductType getProductType() { return productType; }
     public Coordinate getPosition() { return position; }
 
-    public void setStock(double stock) { this.stock = stock; }
-    public double getStock() { return stock; }
+    public void setStock(double stock) { PoiManager.getRecords().putDouble(id, STOCK, stock); }
+    public double getStock() { return PoiManager.getRecords().getDouble(id, STOCK); }
 }
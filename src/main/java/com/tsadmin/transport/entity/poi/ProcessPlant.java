@@ -3,6 +3,7 @@ package com.tsadmin.transport.entity.poi;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.tsadmin.transport.domain.PoiManager;
 import com.tsadmin.transport.domain.share.Coordinate;
 import com.tsadmin.transport.domain.share.ProductType;
 
@@ -11,7 +12,6 @@ public class ProcessPlant extends Purchaser implements Dumper
     private static final Logger logger = LogManager.getLogger(ProcessPlant.class);
 
     private static double PROCESSING_LOSS, PROCESSING_SPEED;
-    private double rawMaterial;
 
     public static void setProcessingLoss(int loss) { PROCESSING_LOSS = loss / 100.0; }
     public static void setProcessingSpeed(int speed) { PROCESSING_SPEED = speed / 100.0; }
@@ -21,17 +21,21 @@ public class ProcessPlant extends Purchaser implements Dumper
         super(uuid, name, productType, position, maxStock);
     }
 
-    public void setRawMaterial(double processing) { this.rawMaterial = processing; }
-    public void addProcessing(double toProcess) { rawMaterial += toProcess; }
+    public void setRawMaterial(double processing) { PoiManager.getRecords().putDouble(id, RAW_MATERIAL, processing); }
+    public double getRawMaterial() { return PoiManager.getRecords().getDouble(id, RAW_MATERIAL); }
+    public void addProcessing(double toProcess) { setRawMaterial(getRawMaterial() + toProcess); }
 
     @Override
     public void update()
     {
         // 模拟处理待处理货物
+        double rawMaterial = getRawMaterial();
         double completed = Math.min(rawMaterial, PROCESSING_SPEED * maxStock);
 
         rawMaterial -= completed;
-        stock += completed * (1 - PROCESSING_LOSS);
+        setRawMaterial(rawMaterial);
+        double stock = getStock() + completed * (1 - PROCESSING_LOSS);
+        setStock(stock);
         if (stock > maxStock)
         {
             logger.warn("Stock(value:{}) of POI(UUID:{}) overflowed maximum stock(value:{})", stock, uuid, maxStock);
@@ -44,10 +48,7 @@ public class ProcessPlant extends Purchaser implements Dumper
     @Override
     public void onDemandCompleted()
     {
-        rawMaterial += demand.getQuantity();
+        addProcessing(demand.getQuantity());
         demand = null;
     }
-
-    @Override
-    public double getStock() { return stock; }
 }
@@ -1,8 +1,5 @@
 package com.tsadmin.transport.entity.poi;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -11,6 +8,7 @@ import com.tsadmin.transport.domain.DemandManager;
 import com.tsadmin.transport.domain.PoiManager;
 import com.tsadmin.transport.domain.share.Coordinate;
 import com.tsadmin.transport.domain.share.ProductType;
+import com.tsadmin.transport.util.IntList;
 
 public abstract class Purchaser extends Poi
 {
@@ -18,7 +16,8 @@ public abstract class Purchaser extends Poi
 
     protected static double PURCHASE_THRESHOLD;
 
-    protected List<String> upstreamPoiUuid = new ArrayList<>();
+    /** 上游兴趣点编号 */
+    protected final IntList upstreamPoiIds = new IntList(4);
     /** 运往本 POI 的订单，若无则为 {@code null} */
     protected Demand demand = null;
 
@@ -31,13 +30,14 @@ public abstract class Purchaser extends Poi
 
     public void addUpstream(String uuid)
     {
-        if (upstreamPoiUuid.contains(uuid))
+        int id = PoiManager.internPoi(uuid);
+        if (upstreamPoiIds.contains(id))
         {
             logger.warn("Duplicated UUID({}) was added for POI(UUID:{}), operation skipped", uuid, this.uuid);
             return;
         }
 
-        upstreamPoiUuid.add(uuid);
+        upstreamPoiIds.add(id);
     }
 
     /**
@@ -55,9 +55,9 @@ public abstract class Purchaser extends Poi
         if (stock + quantity > maxStock) return;
 
         Poi targetUpstream = null;
-        for (String uuid : upstreamPoiUuid)
+        for (int i = 0; i < upstreamPoiIds.size(); i++)
         {
-            Poi requestedUpstream = PoiManager.getPoi(uuid);
+            Poi requestedUpstream = PoiManager.getPoi(upstreamPoiIds.get(i));
             if (requestedUpstream instanceof Dumper)
             {
                 Dumper dumper = (Dumper) requestedUpstream;
@@ -76,7 +76,7 @@ public abstract class Purchaser extends Poi
 
     public void onDemandCompleted()
     {
-        stock += demand.getQuantity();
+        setStock(getStock() + demand.getQuantity());
         demand = null;
     }
 }
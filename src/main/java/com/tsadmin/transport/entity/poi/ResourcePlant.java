@@ -17,9 +17,7 @@ public final class ResourcePlant extends Poi implements Dumper
     @Override
     public void update()
     {
-        stock += (maxStock - stock) * STOCK_GROWTH_RATE;
+        double stock = getStock();
+        setStock(stock + (maxStock - stock) * STOCK_GROWTH_RATE);
     }
-
-    @Override
-    public double getStock() { return stock; }
 }
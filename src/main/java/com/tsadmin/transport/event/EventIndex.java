@@ -0,0 +1,140 @@
+package com.tsadmin.transport.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.tsadmin.transport.util.GeoUtil;
+
+/**
+ * 活动事件影响区域的网格索引
+ * <p>每个事件按包围盒登记到覆盖的网格单元，(单元, 事件) 对按单元编号排序存放在两个基本类型数组中，
+ * 查询时二分定位坐标所在单元，只检查登记在该单元的少数事件
+ * <p><b>创建后不可修改</b>，可被多个线程无锁读取
+ */
+public final class EventIndex
+{
+    public static final EventIndex EMPTY = new EventIndex(List.of());
+
+    /** 单元边长（度），约 5 公里，大于天气事件的典型半径 */
+    private static final double CELL = 0.05;
+
+    private final List<TrafficEvent> events;
+    private final long[] cells;
+    private final int[] entries;
+
+    public EventIndex(List<TrafficEvent> events)
+    {
+        this.events = List.copyOf(events);
+
+        long[] keys = new long[16];
+        int[] ids = new int[16];
+        int n = 0;
+        for (int i = 0; i < this.events.size(); i++)
+        {
+            TrafficEvent event = this.events.get(i);
+            double dLat = Math.toDegrees(event.getRadius() / GeoUtil.EARTH_RADIUS);
+            double dLng = dLat / Math.max(Math.cos(Math.toRadians(event.getLat())), 1e-6);
+            int r0 = cell(event.getLat() - dLat), r1 = cell(event.getLat() + dLat);
+            int c0 = cell(event.getLng() - dLng), c1 = cell(event.getLng() + dLng);
+            for (int r = r0; r <= r1; r++)
+            {
+                for (int c = c0; c <= c1; c++)
+                {
+                    if (n == keys.length)
+                    {
+                        keys = Arrays.copyOf(keys, n * 2);
+                        ids = Arrays.copyOf(ids, n * 2);
+                    }
+                    keys[n] = key(r, c);
+                    ids[n] = i;
+                    n++;
+                }
+            }
+        }
+
+        // 按单元编号排序，两数组同步重排；事件数远小于车辆数，只在事件增减时重建一次
+        Integer[] order = new Integer[n];
+        for (int k = 0; k < n; k++) order[k] = k;
+        long[] unsorted = keys;
+        Arrays.sort(order, (a, b) -> Long.compare(unsorted[a], unsorted[b]));
+
+        this.cells = new long[n];
+        this.entries = new int[n];
+        for (int k = 0; k < n; k++)
+        {
+            cells[k] = unsorted[order[k]];
+            entries[k] = ids[order[k]];
+        }
+    }
+
+    public List<TrafficEvent> getEvents() { return events; }
+    public int size() { return events.size(); }
+    public boolean isEmpty() { return events.isEmpty(); }
+
+    /** 对影响该坐标的每个事件调用一次回调 */
+    public void forEachAt(double lat, double lng, Consumer<TrafficEvent> action)
+    {
+        long key = key(cell(lat), cell(lng));
+        for (int k = lowerBound(key); k < cells.length && cells[k] == key; k++)
+        {
+            TrafficEvent event = events.get(entries[k]);
+            if (event.affects(lat, lng)) action.accept(event);
+        }
+    }
+
+    /** @return 影响该坐标的所有事件 */
+    public List<TrafficEvent> query(double lat, double lng)
+    {
+        List<TrafficEvent> result = new ArrayList<>(2);
+        forEachAt(lat, lng, result::add);
+        return result;
+    }
+
+    /**
+     * 计算该坐标处的综合速度因子，为各天气、拥堵、事故事件速度因子之积
+     * <p>封路不计入，车辆通过路线规划避让封路区域
+     */
+    public double speedFactorAt(double lat, double lng)
+    {
+        double factor = 1.0;
+        long key = key(cell(lat), cell(lng));
+        for (int k = lowerBound(key); k < cells.length && cells[k] == key; k++)
+        {
+            TrafficEvent event = events.get(entries[k]);
+            if (event.getType() != TrafficEvent.Type.ROAD_CLOSURE && event.affects(lat, lng))
+            {
+                factor *= event.getSpeedFactor();
+            }
+        }
+        return factor;
+    }
+
+    /** 判断坐标是否处于封路区域内 */
+    public boolean isClosed(double lat, double lng)
+    {
+        long key = key(cell(lat), cell(lng));
+        for (int k = lowerBound(key); k < cells.length && cells[k] == key; k++)
+        {
+            TrafficEvent event = events.get(entries[k]);
+            if (event.getType() == TrafficEvent.Type.ROAD_CLOSURE && event.getArea().contains(lat, lng)) return true;
+        }
+        return false;
+    }
+
+    private int lowerBound(long key)
+    {
+        int lo = 0, hi = cells.length;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (cells[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int cell(double degrees) { return (int)Math.floor(degrees / CELL); }
+    private static long key(int row, int col) { return ((long)row << 32) | (col & 0xFFFFFFFFL); }
+}
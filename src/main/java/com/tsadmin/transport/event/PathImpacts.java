@@ -0,0 +1,116 @@
+package com.tsadmin.transport.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.tsadmin.transport.routing.Route;
+import com.tsadmin.transport.util.GeoUtil;
+import com.tsadmin.transport.util.IntIntMap;
+
+/**
+ * 活动事件对车辆剩余路径的影响
+ * <p>每周期对整个车队批量计算一次：全部路径线段装入一棵 {@link SegmentRTree}，
+ * 再以每个事件的包围盒查询候选线段并精确判断，复杂度约为 O((线段数 + 事件数 × 命中数) log 线段数)
+ * <p>按车辆编号索引，UUID 只在接口边界换算
+ * <p><b>创建后不可修改</b>
+ */
+public final class PathImpacts
+{
+    public static final PathImpacts EMPTY = new PathImpacts(new IntIntMap(), List.of());
+
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * GeoUtil.EARTH_RADIUS;
+
+    // 车辆编号到 events 下标
+    private final IntIntMap indexOf;
+    private final List<List<TrafficEvent>> events;
+
+    private PathImpacts(IntIntMap indexOf, List<List<TrafficEvent>> events)
+    {
+        this.indexOf = indexOf;
+        this.events = events;
+    }
+
+    /**
+     * 批量计算事件影响
+     * @param vehicles 车辆编号，与 {@code paths} 一一对应
+     * @param paths 各车辆的当前路线
+     * @param firstSegment 各车辆剩余路径在路线中的起始线段
+     */
+    public static PathImpacts compute(int[] vehicles, List<Route> paths, int[] firstSegment, EventIndex events)
+    {
+        if (vehicles.length == 0 || events.isEmpty()) return EMPTY;
+
+        SegmentRTree.Builder builder = new SegmentRTree.Builder();
+        for (int v = 0; v < paths.size(); v++)
+        {
+            Route path = paths.get(v);
+            for (int i = firstSegment[v] + 1; i < path.size(); i++)
+            {
+                builder.add(v, path.getLat(i - 1), path.getLng(i - 1), path.getLat(i), path.getLng(i));
+            }
+        }
+        SegmentRTree tree = builder.build();
+
+        IntIntMap indexOf = new IntIntMap();
+        List<List<TrafficEvent>> result = new ArrayList<>();
+        // 同一事件可能命中一辆车的多条线段，记录最后命中的事件以去重
+        int[] lastEvent = new int[vehicles.length];
+        Arrays.fill(lastEvent, -1);
+        List<TrafficEvent> list = events.getEvents();
+        for (int e = 0; e < list.size(); e++)
+        {
+            TrafficEvent event = list.get(e);
+            double dLat = event.getRadius() / METERS_PER_DEGREE;
+            double dLng = dLat / Math.max(Math.cos(Math.toRadians(event.getLat())), 1e-6);
+            int eventIndex = e;
+            tree.search(event.getLat() - dLat, event.getLng() - dLng, event.getLat() + dLat, event.getLng() + dLng, s -> {
+                int v = tree.getOwner(s);
+                if (lastEvent[v] == eventIndex || !hits(event, tree, s)) return;
+                lastEvent[v] = eventIndex;
+                int i = indexOf.get(vehicles[v], -1);
+                if (i < 0)
+                {
+                    i = result.size();
+                    indexOf.put(vehicles[v], i);
+                    result.add(new ArrayList<>(2));
+                }
+                result.get(i).add(event);
+            });
+        }
+        return new PathImpacts(indexOf, result);
+    }
+
+    /** @return 影响该车剩余路径的事件，无影响时为空列表 */
+    public List<TrafficEvent> get(int vehicleId)
+    {
+        int i = indexOf.get(vehicleId, -1);
+        return i < 0 ? List.of() : events.get(i);
+    }
+
+    /** 路径被影响的车辆数 */
+    public int size() { return events.size(); }
+
+    private static boolean hits(TrafficEvent event, SegmentRTree tree, int s)
+    {
+        double aLat = tree.getALat(s), aLng = tree.getALng(s), bLat = tree.getBLat(s), bLng = tree.getBLng(s);
+        if (event.getArea() != null)
+        {
+            return event.getArea().contains(aLat, aLng) || event.getArea().intersectsSegment(aLat, aLng, bLat, bLng);
+        }
+        return distanceToSegment(event.getLat(), event.getLng(), aLat, aLng, bLat, bLng) <= event.getRadius();
+    }
+
+    /** 点到线段的距离（米），以点为原点做等距投影，适用于城市尺度 */
+    static double distanceToSegment(double pLat, double pLng, double aLat, double aLng, double bLat, double bLng)
+    {
+        double kx = Math.cos(Math.toRadians(pLat)) * METERS_PER_DEGREE;
+        double ax = (aLng - pLng) * kx, ay = (aLat - pLat) * METERS_PER_DEGREE;
+        double bx = (bLng - pLng) * kx, by = (bLat - pLat) * METERS_PER_DEGREE;
+        double dx = bx - ax, dy = by - ay;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / len2));
+        double x = ax + t * dx, y = ay + t * dy;
+        return Math.sqrt(x * x + y * y);
+    }
+}
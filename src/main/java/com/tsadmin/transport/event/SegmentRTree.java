@@ -0,0 +1,212 @@
+package com.tsadmin.transport.event;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 线段的静态 R 树（Hilbert 排序后自底向上打包）
+ * <p>线段与节点包围盒全部存放在基本类型数组中，构建一次 O(n log n)，
+ * 矩形查询只访问与之相交的节点
+ * <p><b>创建后不可修改</b>
+ */
+public final class SegmentRTree
+{
+    private static final int NODE_SIZE = 16;
+    private static final int HILBERT_MAX = (1 << 16) - 1;
+
+    private final int count;
+    private final double[] aLat, aLng, bLat, bLng;
+    private final int[] owner;
+    // 各层节点包围盒依次存放，第 0 层为线段自身，levelStart[l] 为第 l 层首个下标
+    private final double[] minLat, minLng, maxLat, maxLng;
+    private final int[] levelStart;
+
+    private SegmentRTree(Builder b)
+    {
+        int n = b.count;
+        this.count = n;
+
+        // 按线段中点的 Hilbert 值排序，空间上相邻的线段落入同一叶节点
+        double loLat = Double.MAX_VALUE, loLng = Double.MAX_VALUE, hiLat = -Double.MAX_VALUE, hiLng = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++)
+        {
+            double cLat = (b.aLat[i] + b.bLat[i]) / 2, cLng = (b.aLng[i] + b.bLng[i]) / 2;
+            loLat = Math.min(loLat, cLat);
+            hiLat = Math.max(hiLat, cLat);
+            loLng = Math.min(loLng, cLng);
+            hiLng = Math.max(hiLng, cLng);
+        }
+        double spanLat = Math.max(hiLat - loLat, 1e-12), spanLng = Math.max(hiLng - loLng, 1e-12);
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++)
+        {
+            int x = (int)(HILBERT_MAX * (((b.aLng[i] + b.bLng[i]) / 2 - loLng) / spanLng));
+            int y = (int)(HILBERT_MAX * (((b.aLat[i] + b.bLat[i]) / 2 - loLat) / spanLat));
+            keys[i] = (hilbert(x, y) << 31) | i;
+        }
+        Arrays.sort(keys);
+
+        this.aLat = new double[n];
+        this.aLng = new double[n];
+        this.bLat = new double[n];
+        this.bLng = new double[n];
+        this.owner = new int[n];
+        for (int k = 0; k < n; k++)
+        {
+            int i = (int)(keys[k] & Integer.MAX_VALUE);
+            aLat[k] = b.aLat[i];
+            aLng[k] = b.aLng[i];
+            bLat[k] = b.bLat[i];
+            bLng[k] = b.bLng[i];
+            owner[k] = b.owner[i];
+        }
+
+        // 计算各层节点数
+        int levels = 1, total = n;
+        for (int size = n; size > 1; levels++)
+        {
+            size = (size + NODE_SIZE - 1) / NODE_SIZE;
+            total += size;
+        }
+        this.levelStart = new int[levels + 1];
+        this.minLat = new double[total];
+        this.minLng = new double[total];
+        this.maxLat = new double[total];
+        this.maxLng = new double[total];
+
+        for (int k = 0; k < n; k++)
+        {
+            minLat[k] = Math.min(aLat[k], bLat[k]);
+            maxLat[k] = Math.max(aLat[k], bLat[k]);
+            minLng[k] = Math.min(aLng[k], bLng[k]);
+            maxLng[k] = Math.max(aLng[k], bLng[k]);
+        }
+        levelStart[1] = n;
+        for (int l = 1; l < levels; l++)
+        {
+            int childStart = levelStart[l - 1], childEnd = levelStart[l];
+            int node = childEnd;
+            for (int c = childStart; c < childEnd; c += NODE_SIZE, node++)
+            {
+                double nLoLat = Double.MAX_VALUE, nLoLng = Double.MAX_VALUE, nHiLat = -Double.MAX_VALUE, nHiLng = -Double.MAX_VALUE;
+                for (int j = c; j < Math.min(c + NODE_SIZE, childEnd); j++)
+                {
+                    nLoLat = Math.min(nLoLat, minLat[j]);
+                    nLoLng = Math.min(nLoLng, minLng[j]);
+                    nHiLat = Math.max(nHiLat, maxLat[j]);
+                    nHiLng = Math.max(nHiLng, maxLng[j]);
+                }
+                minLat[node] = nLoLat;
+                minLng[node] = nLoLng;
+                maxLat[node] = nHiLat;
+                maxLng[node] = nHiLng;
+            }
+            levelStart[l + 1] = node;
+        }
+    }
+
+    public int size() { return count; }
+    public int getOwner(int segment) { return owner[segment]; }
+    public double getALat(int segment) { return aLat[segment]; }
+    public double getALng(int segment) { return aLng[segment]; }
+    public double getBLat(int segment) { return bLat[segment]; }
+    public double getBLng(int segment) { return bLng[segment]; }
+
+    /** 对包围盒与查询矩形相交的每条线段调用一次回调，参数为线段下标 */
+    public void search(double qMinLat, double qMinLng, double qMaxLat, double qMaxLng, IntConsumer action)
+    {
+        if (count == 0) return;
+
+        int top = levelStart.length - 2;
+        // 深度优先，栈中存放 (层, 节点下标)
+        int[] stack = new int[2 * NODE_SIZE * (top + 1)];
+        int sp = 0;
+        for (int node = levelStart[top]; node < levelStart[top + 1]; node++)
+        {
+            stack[sp++] = top;
+            stack[sp++] = node;
+        }
+        while (sp > 0)
+        {
+            int node = stack[--sp];
+            int level = stack[--sp];
+            if (maxLat[node] < qMinLat || minLat[node] > qMaxLat || maxLng[node] < qMinLng || minLng[node] > qMaxLng) continue;
+
+            if (level == 0)
+            {
+                action.accept(node);
+                continue;
+            }
+            int first = levelStart[level - 1] + (node - levelStart[level]) * NODE_SIZE;
+            int last = Math.min(first + NODE_SIZE, levelStart[level]);
+            for (int child = first; child < last; child++)
+            {
+                stack[sp++] = level - 1;
+                stack[sp++] = child;
+            }
+        }
+    }
+
+    /** 16 位坐标的 Hilbert 曲线序号 */
+    private static long hilbert(int x, int y)
+    {
+        long d = 0;
+        for (int s = 1 << 15; s > 0; s >>= 1)
+        {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long)s * s * ((3 * rx) ^ ry);
+            if (ry == 0)
+            {
+                if (rx == 1)
+                {
+                    x = HILBERT_MAX - x;
+                    y = HILBERT_MAX - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /** 逐条收集线段，{@link #build()} 后可复用 */
+    public static final class Builder
+    {
+        private double[] aLat = new double[64], aLng = new double[64], bLat = new double[64], bLng = new double[64];
+        private int[] owner = new int[64];
+        private int count = 0;
+
+        /** @param ownerId 线段所属对象的编号，如车辆在批次中的下标 */
+        public Builder add(int ownerId, double fromLat, double fromLng, double toLat, double toLng)
+        {
+            if (count == owner.length)
+            {
+                int capacity = count * 2;
+                aLat = Arrays.copyOf(aLat, capacity);
+                aLng = Arrays.copyOf(aLng, capacity);
+                bLat = Arrays.copyOf(bLat, capacity);
+                bLng = Arrays.copyOf(bLng, capacity);
+                owner = Arrays.copyOf(owner, capacity);
+            }
+            aLat[count] = fromLat;
+            aLng[count] = fromLng;
+            bLat[count] = toLat;
+            bLng[count] = toLng;
+            owner[count] = ownerId;
+            count++;
+            return this;
+        }
+
+        public int size() { return count; }
+
+        public SegmentRTree build() { return new SegmentRTree(this); }
+
+        public Builder clear()
+        {
+            count = 0;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.tsadmin.transport.event;
+
+import com.tsadmin.transport.routing.Polygon;
+import com.tsadmin.transport.util.GeoUtil;
+
+/**
+ * 路况事件：天气、拥堵、事故与封路
+ * <p>影响范围为圆形区域，封路事件另带一个用于路线避让的多边形
+ * <p><b>创建后不可修改</b>
+ */
+public final class TrafficEvent
+{
+    /** 事件类型，名称与前端约定保持一致 */
+    public enum Type
+    {
+        /** 天气 */
+        WEATHER("weather"),
+        /** 交通拥堵 */
+        TRAFFIC_JAM("traffic_jam"),
+        /** 事故 */
+        ACCIDENT("accident"),
+        /** 道路封闭 */
+        ROAD_CLOSURE("road_closure");
+
+        private final String key;
+
+        Type(String key) { this.key = key; }
+
+        /** 配置项前缀与前端使用的类型名 */
+        public String getKey() { return key; }
+    }
+
+    /** 严重程度，名称与配置中的分布表键一致 */
+    public enum Severity
+    {
+        LOW("low"), MEDIUM("medium"), HIGH("high"), CRITICAL("critical");
+
+        private final String key;
+
+        Severity(String key) { this.key = key; }
+
+        public String getKey() { return key; }
+    }
+
+    private final long id;
+    private final Type type;
+    private final String subtype;
+    private final Severity severity;
+    private final double lat, lng, radius;
+    private final double speedFactor;
+    private final long startCycle, endCycle;
+    private final int vehicleId;
+    private final Polygon area;
+
+    /**
+     * @param subtype 天气事件的天气类型，其他事件为 {@code null}
+     * @param radius 影响半径（米）
+     * @param speedFactor 区域内车辆的速度因子，封路为 0
+     * @param endCycle 事件在该周期开始时解除
+     * @param vehicleId 触发事件的车辆编号，天气事件为 -1
+     */
+    public TrafficEvent(long id, Type type, String subtype, Severity severity, double lat, double lng, double radius,
+                        double speedFactor, long startCycle, long endCycle, int vehicleId)
+    {
+        this.id = id;
+        this.type = type;
+        this.subtype = subtype;
+        this.severity = severity;
+        this.lat = lat;
+        this.lng = lng;
+        this.radius = radius;
+        this.speedFactor = speedFactor;
+        this.startCycle = startCycle;
+        this.endCycle = endCycle;
+        this.vehicleId = vehicleId;
+        this.area = type == Type.ROAD_CLOSURE ? Polygon.circle(lat, lng, radius, 12) : null;
+    }
+
+    public long getId() { return id; }
+    public Type getType() { return type; }
+    public String getSubtype() { return subtype; }
+    public Severity getSeverity() { return severity; }
+    public double getLat() { return lat; }
+    public double getLng() { return lng; }
+    public double getRadius() { return radius; }
+    public double getSpeedFactor() { return speedFactor; }
+    public long getStartCycle() { return startCycle; }
+    public long getEndCycle() { return endCycle; }
+    /** 触发事件的车辆编号，天气事件为 -1 */
+    public int getVehicleId() { return vehicleId; }
+    /** 封路区域，非封路事件为 {@code null} */
+    public Polygon getArea() { return area; }
+
+    public boolean isExpired(long cycle) { return cycle >= endCycle; }
+
+    /** 判断坐标是否处于事件影响范围内 */
+    public boolean affects(double pLat, double pLng)
+    {
+        return GeoUtil.haversine(lat, lng, pLat, pLng) <= radius;
+    }
+}
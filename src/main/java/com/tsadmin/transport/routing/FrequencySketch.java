@@ -0,0 +1,80 @@
+package com.tsadmin.transport.routing;
+
+/**
+ * 近似访问频率统计（Count-Min Sketch，4 位计数器）
+ * <p>记录次数达到采样上限时所有计数减半，使频率随时间衰减；<b>非线程安全</b>
+ */
+final class FrequencySketch
+{
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions = 0;
+
+    /** @param capacity 期望统计的不同元素数 */
+    FrequencySketch(int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        this.table = new long[size];
+        this.mask = size - 1;
+        this.sampleSize = 10 * Math.max(capacity, 16);
+    }
+
+    /** 估计元素的访问次数，最大为 15 */
+    int frequency(long hash)
+    {
+        int min = 15;
+        for (int i = 0; i < 4; i++)
+        {
+            min = Math.min(min, counter(hash, i));
+        }
+        return min;
+    }
+
+    /** 记录一次访问 */
+    void increment(long hash)
+    {
+        boolean added = false;
+        for (int i = 0; i < 4; i++)
+        {
+            int index = index(hash, i);
+            int offset = offset(hash, i);
+            if (((table[index] >>> offset) & 0xF) != 0xF)
+            {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) reset();
+    }
+
+    private void reset()
+    {
+        for (int i = 0; i < table.length; i++)
+        {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int counter(long hash, int i) { return (int)((table[index(hash, i)] >>> offset(hash, i)) & 0xF); }
+
+    private int index(long hash, int i)
+    {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h ^= h >>> 32;
+        return (int)h & mask;
+    }
+
+    /** 每个 long 含 16 个 4 位计数器，第 i 行使用其中一个 */
+    private int offset(long hash, int i)
+    {
+        int h = (int)(hash >>> (i * 8)) & 0x3;
+        return ((h << 2) + i) << 2;
+    }
+}
@@ -0,0 +1,100 @@
+package com.tsadmin.transport.routing;
+
+import java.util.Arrays;
+
+/**
+ * 以节点下标为元素、支持降键的二叉最小堆
+ * <p>数组按节点数一次性分配，可通过 {@link #clear()} 复用，<b>非线程安全</b>
+ */
+final class NodeHeap
+{
+    private final int[] heap;
+    private final double[] key;
+    // 节点在堆中的位置，不在堆中为 -1
+    private final int[] pos;
+    private int size = 0;
+
+    NodeHeap(int capacity)
+    {
+        heap = new int[capacity];
+        key = new double[capacity];
+        pos = new int[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    boolean isEmpty() { return size == 0; }
+    double peekKey() { return key[heap[0]]; }
+
+    /** 清空堆，代价与当前元素数成正比 */
+    void clear()
+    {
+        for (int i = 0; i < size; i++) pos[heap[i]] = -1;
+        size = 0;
+    }
+
+    /** 插入节点，已在堆中且新键更小时降键 */
+    void push(int node, double k)
+    {
+        int i = pos[node];
+        if (i < 0)
+        {
+            i = size++;
+            heap[i] = node;
+            pos[node] = i;
+            key[node] = k;
+        }
+        else if (k < key[node])
+        {
+            key[node] = k;
+        }
+        else return;
+        siftUp(i);
+    }
+
+    int pop()
+    {
+        int top = heap[0];
+        pos[top] = -1;
+        if (--size > 0)
+        {
+            heap[0] = heap[size];
+            pos[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i)
+    {
+        int node = heap[i];
+        double k = key[node];
+        while (i > 0)
+        {
+            int parent = (i - 1) >>> 1;
+            if (key[heap[parent]] <= k) break;
+            heap[i] = heap[parent];
+            pos[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = node;
+        pos[node] = i;
+    }
+
+    private void siftDown(int i)
+    {
+        int node = heap[i];
+        double k = key[node];
+        while (true)
+        {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && key[heap[child + 1]] < key[heap[child]]) child++;
+            if (key[heap[child]] >= k) break;
+            heap[i] = heap[child];
+            pos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = node;
+        pos[node] = i;
+    }
+}
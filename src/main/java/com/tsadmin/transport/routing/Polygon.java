@@ -0,0 +1,124 @@
+package com.tsadmin.transport.routing;
+
+import com.tsadmin.transport.util.GeoUtil;
+
+/**
+ * 经纬度多边形，用于描述封路等需要避让的区域
+ * <p><b>创建后不可修改</b>
+ */
+public final class Polygon
+{
+    private final double[] lat, lng;
+    private final double minLat, minLng, maxLat, maxLng;
+
+    /**
+     * @param lat 顶点纬度，首尾无需重复
+     * @param lng 顶点经度，长度必须与纬度相同
+     */
+    public Polygon(double[] lat, double[] lng)
+    {
+        if (lat.length != lng.length || lat.length < 3)
+        {
+            throw new IllegalArgumentException("Polygon needs at least 3 vertices with matching lat/lng arrays");
+        }
+        this.lat = lat.clone();
+        this.lng = lng.clone();
+
+        double loLat = Double.MAX_VALUE, loLng = Double.MAX_VALUE, hiLat = -Double.MAX_VALUE, hiLng = -Double.MAX_VALUE;
+        for (int i = 0; i < lat.length; i++)
+        {
+            loLat = Math.min(loLat, lat[i]);
+            hiLat = Math.max(hiLat, lat[i]);
+            loLng = Math.min(loLng, lng[i]);
+            hiLng = Math.max(hiLng, lng[i]);
+        }
+        this.minLat = loLat;
+        this.minLng = loLng;
+        this.maxLat = hiLat;
+        this.maxLng = hiLng;
+    }
+
+    /** 以圆心和半径近似生成正多边形 */
+    public static Polygon circle(double centerLat, double centerLng, double radiusMeters, int sides)
+    {
+        double dLat = Math.toDegrees(radiusMeters / GeoUtil.EARTH_RADIUS);
+        double dLng = dLat / Math.max(Math.cos(Math.toRadians(centerLat)), 1e-6);
+        double[] lat = new double[sides], lng = new double[sides];
+        for (int i = 0; i < sides; i++)
+        {
+            double angle = 2 * Math.PI * i / sides;
+            lat[i] = centerLat + dLat * Math.sin(angle);
+            lng[i] = centerLng + dLng * Math.cos(angle);
+        }
+        return new Polygon(lat, lng);
+    }
+
+    public int size() { return lat.length; }
+    public double getLat(int i) { return lat[i]; }
+    public double getLng(int i) { return lng[i]; }
+    public double getMinLat() { return minLat; }
+    public double getMinLng() { return minLng; }
+    public double getMaxLat() { return maxLat; }
+    public double getMaxLng() { return maxLng; }
+
+    /** 射线法判断点是否在多边形内 */
+    public boolean contains(double pLat, double pLng)
+    {
+        if (pLat < minLat || pLat > maxLat || pLng < minLng || pLng > maxLng) return false;
+
+        boolean inside = false;
+        for (int i = 0, j = lat.length - 1; i < lat.length; j = i++)
+        {
+            if ((lat[i] > pLat) != (lat[j] > pLat)
+                && pLng < (lng[j] - lng[i]) * (pLat - lat[i]) / (lat[j] - lat[i]) + lng[i])
+            {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /** 判断折线是否与多边形相交：任一顶点在多边形内，或任一线段与多边形的边相交 */
+    public boolean intersectsPolyline(double[] pLat, double[] pLng)
+    {
+        for (int k = 0; k < pLat.length; k++)
+        {
+            if (contains(pLat[k], pLng[k])) return true;
+        }
+        for (int k = 1; k < pLat.length; k++)
+        {
+            if (intersectsSegment(pLat[k - 1], pLng[k - 1], pLat[k], pLng[k])) return true;
+        }
+        return false;
+    }
+
+    /** 判断线段是否与多边形的任一边相交 */
+    public boolean intersectsSegment(double aLat, double aLng, double bLat, double bLng)
+    {
+        if (Math.max(aLat, bLat) < minLat || Math.min(aLat, bLat) > maxLat
+            || Math.max(aLng, bLng) < minLng || Math.min(aLng, bLng) > maxLng) return false;
+
+        for (int i = 0, j = lat.length - 1; i < lat.length; j = i++)
+        {
+            if (segmentsIntersect(aLat, aLng, bLat, bLng, lat[j], lng[j], lat[i], lng[i])) return true;
+        }
+        return false;
+    }
+
+    private static boolean segmentsIntersect(double ax, double ay, double bx, double by,
+                                             double cx, double cy, double dx, double dy)
+    {
+        double d1 = cross(cx, cy, dx, dy, ax, ay);
+        double d2 = cross(cx, cy, dx, dy, bx, by);
+        double d3 = cross(ax, ay, bx, by, cx, cy);
+        double d4 = cross(ax, ay, bx, by, dx, dy);
+        return ((d1 > 0) != (d2 > 0) || d1 == 0 || d2 == 0) && ((d3 > 0) != (d4 > 0) || d3 == 0 || d4 == 0)
+            && Math.max(ax, bx) >= Math.min(cx, dx) && Math.max(cx, dx) >= Math.min(ax, bx)
+            && Math.max(ay, by) >= Math.min(cy, dy) && Math.max(cy, dy) >= Math.min(ay, by);
+    }
+
+    private static double cross(double ox, double oy, double ax, double ay, double bx, double by)
+    {
+        return (ax - ox) * (by - oy) - (ay - oy) * (bx - ox);
+    }
+}
@@ -0,0 +1,76 @@
+package com.tsadmin.transport.routing;
+
+import java.util.Arrays;
+
+/**
+ * 折线紧凑编码：坐标量化到 1e-6 度，相邻顶点的差值以 ZigZag 变长整数写入字节数组
+ * <p>城市道路折线一般每个顶点只需 2~4 字节，远小于两个 double 的 16 字节
+ */
+final class PolylineCodec
+{
+    private static final double SCALE = 1e6;
+
+    private PolylineCodec() {}
+
+    static byte[] encode(Route route)
+    {
+        byte[] buf = new byte[5 + route.size() * 6];
+        int len = putVarint(buf, 0, route.size());
+        long prevLat = 0, prevLng = 0;
+        for (int i = 0; i < route.size(); i++)
+        {
+            long lat = Math.round(route.getLat(i) * SCALE);
+            long lng = Math.round(route.getLng(i) * SCALE);
+            if (buf.length - len < 20) buf = Arrays.copyOf(buf, buf.length * 2);
+            len = putVarint(buf, len, zigzag(lat - prevLat));
+            len = putVarint(buf, len, zigzag(lng - prevLng));
+            prevLat = lat;
+            prevLng = lng;
+        }
+        return Arrays.copyOf(buf, len);
+    }
+
+    /** 解码为纬度、经度两个数组，返回值下标 0 为纬度，1 为经度 */
+    static double[][] decode(byte[] data)
+    {
+        int[] pos = { 0 };
+        int n = (int)getVarint(data, pos);
+        double[] lat = new double[n], lng = new double[n];
+        long curLat = 0, curLng = 0;
+        for (int i = 0; i < n; i++)
+        {
+            curLat += unzigzag(getVarint(data, pos));
+            curLng += unzigzag(getVarint(data, pos));
+            lat[i] = curLat / SCALE;
+            lng[i] = curLng / SCALE;
+        }
+        return new double[][] { lat, lng };
+    }
+
+    private static long zigzag(long v) { return (v << 1) ^ (v >> 63); }
+    private static long unzigzag(long v) { return (v >>> 1) ^ -(v & 1); }
+
+    private static int putVarint(byte[] buf, int pos, long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            buf[pos++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte)value;
+        return pos;
+    }
+
+    private static long getVarint(byte[] buf, int[] pos)
+    {
+        long result = 0;
+        int shift = 0;
+        while (true)
+        {
+            byte b = buf[pos[0]++];
+            result |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.tsadmin.transport.routing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import com.tsadmin.transport.util.GeoUtil;
+
+/**
+ * 只读路网，以压缩邻接表（CSR）存储
+ * <p>路网文件由 OSM 路网抽取转换得到，格式（小端序）：
+ * <pre>
+ * int     magic = 0x46524752 ("RGRF")
+ * int     version = 1
+ * int     n 节点数
+ * int     m 有向边数
+ * int[n]  纬度（度 * 1e6）
+ * int[n]  经度（度 * 1e6）
+ * int[n+1] 每个节点出边在边数组中的起始下标
+ * int[m]  边的终点
+ * float[m] 边长度（米）
+ * float[m] 通行时间（秒）
+ * </pre>
+ * 加载时额外构建反向邻接表与节点网格索引
+ */
+public final class RoadGraph
+{
+    private static final int MAGIC = 0x46524752;
+    private static final int VERSION = 1;
+    // 网格索引平均每格节点数
+    private static final int NODES_PER_CELL = 4;
+
+    final int nodeCount;
+    final double[] lat, lng;
+    final int[] firstEdge, edgeTarget;
+    final float[] edgeLength, edgeTime;
+
+    // 反向邻接表，用于计算到地标的距离
+    final int[] revFirstEdge, revEdgeSource;
+    final float[] revEdgeTime;
+
+    // 节点网格索引，用于坐标吸附到最近节点
+    private final double minLat, minLng, cellLat, cellLng;
+    private final int rows, cols;
+    private final int[] cellStart, cellNodes;
+
+    RoadGraph(double[] lat, double[] lng, int[] firstEdge, int[] edgeTarget, float[] edgeLength, float[] edgeTime)
+    {
+        this.nodeCount = lat.length;
+        this.lat = lat;
+        this.lng = lng;
+        this.firstEdge = firstEdge;
+        this.edgeTarget = edgeTarget;
+        this.edgeLength = edgeLength;
+        this.edgeTime = edgeTime;
+
+        // 构建反向邻接表：先统计入度再填充
+        int m = edgeTarget.length;
+        revFirstEdge = new int[nodeCount + 1];
+        for (int e = 0; e < m; e++) revFirstEdge[edgeTarget[e] + 1]++;
+        for (int v = 0; v < nodeCount; v++) revFirstEdge[v + 1] += revFirstEdge[v];
+        revEdgeSource = new int[m];
+        revEdgeTime = new float[m];
+        int[] fill = Arrays.copyOf(revFirstEdge, nodeCount);
+        for (int u = 0; u < nodeCount; u++)
+        {
+            for (int e = firstEdge[u]; e < firstEdge[u + 1]; e++)
+            {
+                int slot = fill[edgeTarget[e]]++;
+                revEdgeSource[slot] = u;
+                revEdgeTime[slot] = edgeTime[e];
+            }
+        }
+
+        // 构建网格索引
+        double loLat = Double.MAX_VALUE, loLng = Double.MAX_VALUE, hiLat = -Double.MAX_VALUE, hiLng = -Double.MAX_VALUE;
+        for (int v = 0; v < nodeCount; v++)
+        {
+            loLat = Math.min(loLat, lat[v]);
+            hiLat = Math.max(hiLat, lat[v]);
+            loLng = Math.min(loLng, lng[v]);
+            hiLng = Math.max(hiLng, lng[v]);
+        }
+        if (nodeCount == 0) loLat = loLng = hiLat = hiLng = 0;
+        int side = Math.max(1, (int)Math.sqrt((double)nodeCount / NODES_PER_CELL));
+        this.minLat = loLat;
+        this.minLng = loLng;
+        this.rows = side;
+        this.cols = side;
+        this.cellLat = Math.max((hiLat - loLat) / rows, 1e-9);
+        this.cellLng = Math.max((hiLng - loLng) / cols, 1e-9);
+
+        cellStart = new int[rows * cols + 1];
+        for (int v = 0; v < nodeCount; v++) cellStart[cellOf(lat[v], lng[v]) + 1]++;
+        for (int c = 0; c < rows * cols; c++) cellStart[c + 1] += cellStart[c];
+        cellNodes = new int[nodeCount];
+        int[] cellFill = Arrays.copyOf(cellStart, rows * cols);
+        for (int v = 0; v < nodeCount; v++) cellNodes[cellFill[cellOf(lat[v], lng[v])]++] = v;
+    }
+
+    /** 从路网文件加载，文件以内存映射方式读取 */
+    public static RoadGraph load(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buf.getInt() != MAGIC) throw new IOException("Not a road graph file: " + file);
+            int version = buf.getInt();
+            if (version != VERSION) throw new IOException("Unsupported road graph version " + version + ": " + file);
+
+            int n = buf.getInt(), m = buf.getInt();
+            double[] lat = new double[n], lng = new double[n];
+            for (int v = 0; v < n; v++) lat[v] = buf.getInt() / 1e6;
+            for (int v = 0; v < n; v++) lng[v] = buf.getInt() / 1e6;
+
+            int[] firstEdge = new int[n + 1];
+            buf.asIntBuffer().get(firstEdge);
+            buf.position(buf.position() + (n + 1) * Integer.BYTES);
+            int[] target = new int[m];
+            buf.asIntBuffer().get(target);
+            buf.position(buf.position() + m * Integer.BYTES);
+            float[] length = new float[m], time = new float[m];
+            buf.asFloatBuffer().get(length);
+            buf.position(buf.position() + m * Float.BYTES);
+            buf.asFloatBuffer().get(time);
+
+            if (firstEdge[n] != m) throw new IOException("Corrupted road graph edge index: " + file);
+            return new RoadGraph(lat, lng, firstEdge, target, length, time);
+        }
+    }
+
+    public int getNodeCount() { return nodeCount; }
+    public int getEdgeCount() { return edgeTarget.length; }
+    public double getLat(int node) { return lat[node]; }
+    public double getLng(int node) { return lng[node]; }
+
+    /**
+     * 查找距给定坐标最近的节点
+     * @return 节点下标，路网为空时返回 -1
+     */
+    public int nearestNode(double qLat, double qLng)
+    {
+        if (nodeCount == 0) return -1;
+
+        int row = clamp((int)((qLat - minLat) / cellLat), rows);
+        int col = clamp((int)((qLng - minLng) / cellLng), cols);
+        int best = -1;
+        double bestDist = Double.MAX_VALUE;
+
+        // 由内向外逐圈搜索，圈外最近可能距离超过当前最优时停止
+        for (int ring = 0; ring <= Math.max(rows, cols); ring++)
+        {
+            for (int r = row - ring; r <= row + ring; r++)
+            {
+                if (r < 0 || r >= rows) continue;
+                for (int c = col - ring; c <= col + ring; c++)
+                {
+                    if (c < 0 || c >= cols) continue;
+                    if (Math.abs(r - row) != ring && Math.abs(c - col) != ring) continue;
+
+                    int cell = r * cols + c;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++)
+                    {
+                        int v = cellNodes[i];
+                        double d = GeoUtil.haversine(qLat, qLng, lat[v], lng[v]);
+                        if (d < bestDist)
+                        {
+                            bestDist = d;
+                            best = v;
+                        }
+                    }
+                }
+            }
+            if (best >= 0)
+            {
+                double ringReach = GeoUtil.haversine(qLat, qLng, qLat + ring * cellLat, qLng);
+                ringReach = Math.min(ringReach, GeoUtil.haversine(qLat, qLng, qLat, qLng + ring * cellLng));
+                if (ringReach >= bestDist) break;
+            }
+        }
+        return best;
+    }
+
+    /** 遍历位于给定经纬度范围内的节点 */
+    void forEachNodeIn(double loLat, double loLng, double hiLat, double hiLng, IntConsumer action)
+    {
+        int r0 = clamp((int)Math.floor((loLat - minLat) / cellLat), rows), r1 = clamp((int)((hiLat - minLat) / cellLat), rows);
+        int c0 = clamp((int)Math.floor((loLng - minLng) / cellLng), cols), c1 = clamp((int)((hiLng - minLng) / cellLng), cols);
+        for (int r = r0; r <= r1; r++)
+        {
+            for (int c = c0; c <= c1; c++)
+            {
+                int cell = r * cols + c;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++)
+                {
+                    int v = cellNodes[i];
+                    if (lat[v] >= loLat && lat[v] <= hiLat && lng[v] >= loLng && lng[v] <= hiLng) action.accept(v);
+                }
+            }
+        }
+    }
+
+    private int cellOf(double pLat, double pLng)
+    {
+        return clamp((int)((pLat - minLat) / cellLat), rows) * cols + clamp((int)((pLng - minLng) / cellLng), cols);
+    }
+
+    private static int clamp(int value, int size) { return Math.max(0, Math.min(size - 1, value)); }
+}
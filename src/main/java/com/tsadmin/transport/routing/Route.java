@@ -0,0 +1,95 @@
+package com.tsadmin.transport.routing;
+
+import com.tsadmin.transport.domain.share.Coordinate;
+import com.tsadmin.transport.util.GeoUtil;
+
+/**
+ * 路线规划结果
+ * <p><b>创建后不可修改</b>
+ */
+public final class Route
+{
+    private final double[] lat, lng;
+    private final double distance;
+    private final double time;
+    // 各顶点距起点的折线长度（米），首次插值时计算；并发时可能重复计算，结果相同
+    private volatile double[] cumulative;
+
+    /**
+     * @param lat 折线顶点纬度
+     * @param lng 折线顶点经度
+     * @param distance 路线长度（米）
+     * @param time 预计通行时间（秒）
+     */
+    public Route(double[] lat, double[] lng, double distance, double time)
+    {
+        this.lat = lat;
+        this.lng = lng;
+        this.distance = distance;
+        this.time = time;
+    }
+
+    /** 无路网时使用的直线路线 */
+    public static Route straight(double fromLat, double fromLng, double toLat, double toLng, double speed)
+    {
+        double distance = GeoUtil.haversine(fromLat, fromLng, toLat, toLng);
+        return new Route(new double[] { fromLat, toLat }, new double[] { fromLng, toLng }, distance, distance / speed);
+    }
+
+    public int size() { return lat.length; }
+    public double getLat(int i) { return lat[i]; }
+    public double getLng(int i) { return lng[i]; }
+    public double getDistance() { return distance; }
+    public double getTime() { return time; }
+
+    /** 折线几何长度（米），插值以此为准 */
+    public double getLength()
+    {
+        double[] cum = cumulative();
+        return cum[cum.length - 1];
+    }
+
+    /**
+     * 二分查找沿折线行驶指定长度后所在的线段
+     * @return 线段起点下标，超出终点时为最后一条线段
+     */
+    public int segmentAt(double meters)
+    {
+        double[] cum = cumulative();
+        int lo = 0, hi = cum.length - 2;
+        while (lo < hi)
+        {
+            int mid = (lo + hi + 1) >>> 1;
+            if (cum[mid] <= meters) lo = mid;
+            else hi = mid - 1;
+        }
+        return Math.max(lo, 0);
+    }
+
+    /** 沿折线行驶指定长度后的坐标，超出范围时取端点 */
+    public Coordinate pointAt(double meters)
+    {
+        if (lat.length == 1 || meters <= 0) return new Coordinate(lat[0], lng[0]);
+
+        double[] cum = cumulative();
+        int i = segmentAt(meters);
+        double segment = cum[i + 1] - cum[i];
+        double t = segment <= 0 ? 1 : Math.min((meters - cum[i]) / segment, 1);
+        return new Coordinate(lat[i] + (lat[i + 1] - lat[i]) * t, lng[i] + (lng[i + 1] - lng[i]) * t);
+    }
+
+    private double[] cumulative()
+    {
+        double[] cum = cumulative;
+        if (cum == null)
+        {
+            cum = new double[lat.length];
+            for (int i = 1; i < lat.length; i++)
+            {
+                cum[i] = cum[i - 1] + GeoUtil.haversine(lat[i - 1], lng[i - 1], lat[i], lng[i]);
+            }
+            cumulative = cum;
+        }
+        return cum;
+    }
+}
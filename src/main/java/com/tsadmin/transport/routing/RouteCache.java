@@ -0,0 +1,290 @@
+package com.tsadmin.transport.routing;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 以起终点为键的路线缓存，淘汰策略为 W-TinyLFU
+ * <p>新路线先进入占容量 1% 的窗口 LRU；被挤出窗口时与主区（分段 LRU）的淘汰候选比较访问频率，
+ * 频率更高者留下。这样重复出现的兴趣点间路线长期驻留，一次性路线不会冲掉它们
+ * <p>路线以 {@link PolylineCodec} 编码存放；封路区域出现时只淘汰与之相交的路线
+ * <p>每次淘汰都会递增代数。锁外规划的路线以规划前读到的代数写入，期间发生过淘汰则丢弃，
+ * 避免按旧封路规划的路线在淘汰之后写回
+ * <p>线程安全
+ */
+public final class RouteCache
+{
+    /** 键的量化精度（度），约 1 米 */
+    private static final double KEY_SCALE = 1e5;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final int windowCapacity, probationCapacity, protectedCapacity;
+    private final LinkedHashMap<Key, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, Entry> protectedRegion = new LinkedHashMap<>(16, 0.75f, true);
+
+    private volatile long hits = 0, misses = 0;
+    // 只在持锁时写入
+    private volatile long generation = 0;
+
+    /** 起终点量化后的键，兴趣点坐标固定，因此同一对兴趣点总是得到同一个键 */
+    public record Key(long from, long to)
+    {
+        public static Key of(double fromLat, double fromLng, double toLat, double toLng)
+        {
+            return new Key(pack(fromLat, fromLng), pack(toLat, toLng));
+        }
+
+        private static long pack(double lat, double lng)
+        {
+            return ((long)(int)Math.round(lat * KEY_SCALE) << 32) | ((int)Math.round(lng * KEY_SCALE) & 0xFFFFFFFFL);
+        }
+
+        long hash()
+        {
+            long h = from * 0x9E3779B97F4A7C15L + to;
+            return h ^ (h >>> 29);
+        }
+    }
+
+    /** 缓存项：编码后的折线、长度、时间与包围盒 */
+    private record Entry(byte[] polyline, double distance, double time, boolean detoured,
+                         double minLat, double minLng, double maxLat, double maxLng)
+    {
+        static Entry of(Route route, boolean detoured)
+        {
+            double loLat = Double.MAX_VALUE, loLng = Double.MAX_VALUE, hiLat = -Double.MAX_VALUE, hiLng = -Double.MAX_VALUE;
+            for (int i = 0; i < route.size(); i++)
+            {
+                loLat = Math.min(loLat, route.getLat(i));
+                hiLat = Math.max(hiLat, route.getLat(i));
+                loLng = Math.min(loLng, route.getLng(i));
+                hiLng = Math.max(hiLng, route.getLng(i));
+            }
+            return new Entry(PolylineCodec.encode(route), route.getDistance(), route.getTime(), detoured, loLat, loLng, hiLat, hiLng);
+        }
+
+        Route toRoute()
+        {
+            double[][] coords = PolylineCodec.decode(polyline);
+            return new Route(coords[0], coords[1], distance, time);
+        }
+
+        boolean intersects(Polygon polygon)
+        {
+            if (maxLat < polygon.getMinLat() || minLat > polygon.getMaxLat()
+                || maxLng < polygon.getMinLng() || minLng > polygon.getMaxLng()) return false;
+
+            double[][] coords = PolylineCodec.decode(polyline);
+            return polygon.intersectsPolyline(coords[0], coords[1]);
+        }
+    }
+
+    /** @param capacity 最多缓存的路线数 */
+    public RouteCache(int capacity)
+    {
+        capacity = Math.max(capacity, 3);
+        this.windowCapacity = Math.max(1, capacity / 100);
+        int main = capacity - windowCapacity;
+        this.protectedCapacity = (int)(main * 0.8);
+        this.probationCapacity = main - protectedCapacity;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    /** @return 缓存的路线，未命中返回 {@code null} */
+    public Route get(Key key)
+    {
+        Entry entry;
+        lock.lock();
+        try
+        {
+            sketch.increment(key.hash());
+
+            entry = window.get(key);
+            if (entry == null)
+            {
+                entry = protectedRegion.get(key);
+            }
+            if (entry == null)
+            {
+                // 试用区再次命中，晋升到保护区
+                entry = probation.remove(key);
+                if (entry != null) promote(key, entry);
+            }
+
+            if (entry == null) misses++;
+            else hits++;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        // 锁外解码
+        return entry == null ? null : entry.toRoute();
+    }
+
+    /** @return 当前代数，规划路线前读取，写入时传给 {@link #put(Key, Route, boolean, long)} */
+    public long generation() { return generation; }
+
+    /**
+     * 缓存路线
+     * @param detoured 规划时是否存在需要避让的区域，此类路线在封路解除后失效
+     */
+    public void put(Key key, Route route, boolean detoured)
+    {
+        put(key, route, detoured, -1);
+    }
+
+    /**
+     * 缓存锁外规划的路线
+     * @param detoured 规划时是否存在需要避让的区域，此类路线在封路解除后失效
+     * @param generation 规划前读到的 {@link #generation()}，其后发生过淘汰则不写入；{@code -1} 表示不检查
+     * @return {@code true} 如果已写入
+     */
+    public boolean put(Key key, Route route, boolean detoured, long generation)
+    {
+        Entry entry = Entry.of(route, detoured);
+        lock.lock();
+        try
+        {
+            if (generation >= 0 && generation != this.generation) return false;
+            if (window.containsKey(key) || probation.containsKey(key) || protectedRegion.containsKey(key))
+            {
+                replace(key, entry);
+                return true;
+            }
+
+            window.put(key, entry);
+            if (window.size() <= windowCapacity) return true;
+
+            // 窗口溢出，候选者与主区淘汰者比较频率
+            Map.Entry<Key, Entry> candidate = pollEldest(window);
+            if (probation.size() + protectedRegion.size() < probationCapacity + protectedCapacity)
+            {
+                probation.put(candidate.getKey(), candidate.getValue());
+                return true;
+            }
+
+            LinkedHashMap<Key, Entry> victimRegion = probation.isEmpty() ? protectedRegion : probation;
+            Key victim = victimRegion.keySet().iterator().next();
+            if (sketch.frequency(candidate.getKey().hash()) > sketch.frequency(victim.hash()))
+            {
+                victimRegion.remove(victim);
+                probation.put(candidate.getKey(), candidate.getValue());
+            }
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /** 淘汰所有与封路区域相交的路线 */
+    public int invalidate(Polygon closure)
+    {
+        lock.lock();
+        try
+        {
+            generation++;
+            return removeIf(window, closure, false) + removeIf(probation, closure, false) + removeIf(protectedRegion, closure, false);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /** 封路解除后淘汰所有绕行路线，使其重新按最短路线规划 */
+    public int invalidateDetours()
+    {
+        lock.lock();
+        try
+        {
+            generation++;
+            return removeIf(window, null, true) + removeIf(probation, null, true) + removeIf(protectedRegion, null, true);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public void clear()
+    {
+        lock.lock();
+        try
+        {
+            generation++;
+            window.clear();
+            probation.clear();
+            protectedRegion.clear();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public int size()
+    {
+        lock.lock();
+        try
+        {
+            return window.size() + probation.size() + protectedRegion.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    // 统计值只用于监控，允许读到稍旧的值
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+
+    private void promote(Key key, Entry entry)
+    {
+        protectedRegion.put(key, entry);
+        if (protectedRegion.size() > protectedCapacity)
+        {
+            Map.Entry<Key, Entry> demoted = pollEldest(protectedRegion);
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+    }
+
+    private void replace(Key key, Entry entry)
+    {
+        if (window.containsKey(key)) window.put(key, entry);
+        else if (probation.containsKey(key)) probation.put(key, entry);
+        else protectedRegion.put(key, entry);
+    }
+
+    private static Map.Entry<Key, Entry> pollEldest(LinkedHashMap<Key, Entry> map)
+    {
+        Iterator<Map.Entry<Key, Entry>> it = map.entrySet().iterator();
+        Map.Entry<Key, Entry> eldest = it.next();
+        Map.Entry<Key, Entry> copy = Map.entry(eldest.getKey(), eldest.getValue());
+        it.remove();
+        return copy;
+    }
+
+    private static int removeIf(LinkedHashMap<Key, Entry> map, Polygon closure, boolean detours)
+    {
+        int removed = 0;
+        Iterator<Entry> it = map.values().iterator();
+        while (it.hasNext())
+        {
+            Entry entry = it.next();
+            if (detours ? entry.detoured() : entry.intersects(closure))
+            {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,424 @@
+package com.tsadmin.transport.routing;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import com.tsadmin.transport.util.GeoUtil;
+
+/**
+ * 基于路网的最短时间路径规划，使用带地标下界的 A*（ALT）
+ * <p>预处理阶段选取若干地标并计算各节点到地标、地标到各节点的通行时间，
+ * 查询时以三角不等式给出的下界引导搜索
+ * <p>查询线程安全；搜索状态按查询借出、用完归还，数量与线程数无关，虚拟线程上查询不会逐线程分配
+ */
+public final class Router
+{
+    /** 坐标与吸附节点之间的连接段按该速度估算时间（米/秒） */
+    private static final double ACCESS_SPEED = 8.0;
+    private static final float INF = Float.POSITIVE_INFINITY;
+
+    private final RoadGraph graph;
+    private final int landmarkCount;
+    // [k * n + v]：地标 k 到 v、v 到地标 k 的通行时间
+    private final float[] fromLandmark, toLandmark;
+    // 空闲的搜索状态，超出容量的归还直接丢弃
+    private final ArrayBlockingQueue<Search> idle;
+
+    public Router(RoadGraph graph, int landmarkCount)
+    {
+        this.graph = graph;
+        int n = graph.nodeCount;
+        this.landmarkCount = n == 0 ? 0 : Math.min(landmarkCount, n);
+        this.fromLandmark = new float[this.landmarkCount * n];
+        this.toLandmark = new float[this.landmarkCount * n];
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, Runtime.getRuntime().availableProcessors() * 2));
+        selectLandmarks();
+    }
+
+    public RoadGraph getGraph() { return graph; }
+
+    /**
+     * 规划两坐标间的路线
+     * @param avoid 需要避让的区域，起终点所在区域不避让以保证车辆能驶出
+     * @return 路线，不可达时返回 {@code null}
+     */
+    public Route route(double fromLat, double fromLng, double toLat, double toLng, List<Polygon> avoid)
+    {
+        int s = graph.nearestNode(fromLat, fromLng);
+        int t = graph.nearestNode(toLat, toLng);
+        if (s < 0 || t < 0) return null;
+
+        BitSet blocked = blockedNodes(avoid);
+        blocked.clear(s);
+        blocked.clear(t);
+
+        int[] path = shortestPath(s, t, blocked);
+        return path == null ? null : toRoute(path, fromLat, fromLng, toLat, toLng);
+    }
+
+    /**
+     * 一对多规划：从起点做一次 Dijkstra，直到所有终点吸附的节点都已确定
+     * <p>批量规划同一起点的多条路线时，比逐条 A* 少扫描大量重复节点
+     * @return 与终点一一对应的路线，不可达的终点为 {@code null}
+     */
+    public Route[] routeMany(double fromLat, double fromLng, double[] toLat, double[] toLng, List<Polygon> avoid)
+    {
+        Route[] routes = new Route[toLat.length];
+        int s = graph.nearestNode(fromLat, fromLng);
+        if (s < 0) return routes;
+
+        int[] targets = new int[toLat.length];
+        BitSet blocked = blockedNodes(avoid);
+        blocked.clear(s);
+        for (int i = 0; i < targets.length; i++)
+        {
+            targets[i] = graph.nearestNode(toLat[i], toLng[i]);
+            if (targets[i] >= 0) blocked.clear(targets[i]);
+        }
+
+        Search search = acquire();
+        try
+        {
+            BitSet pending = new BitSet(graph.nodeCount);
+            for (int t : targets)
+            {
+                if (t >= 0) pending.set(t);
+            }
+
+            search.visit(s, 0, -1);
+            search.heap.push(s, 0);
+            while (!search.heap.isEmpty() && !pending.isEmpty())
+            {
+                int u = search.heap.pop();
+                search.closed.set(u);
+                pending.clear(u);
+
+                double gu = search.g[u];
+                for (int e = graph.firstEdge[u]; e < graph.firstEdge[u + 1]; e++)
+                {
+                    int v = graph.edgeTarget[e];
+                    if (blocked.get(v) || search.closed.get(v)) continue;
+
+                    double gv = gu + graph.edgeTime[e];
+                    if (!search.seen(v) || gv < search.g[v])
+                    {
+                        search.visit(v, gv, u);
+                        search.heap.push(v, gv);
+                    }
+                }
+            }
+
+            for (int i = 0; i < targets.length; i++)
+            {
+                int t = targets[i];
+                if (t >= 0 && search.closed.get(t))
+                {
+                    routes[i] = toRoute(search.path(t), fromLat, fromLng, toLat[i], toLng[i]);
+                }
+            }
+            return routes;
+        }
+        finally
+        {
+            release(search);
+        }
+    }
+
+    /**
+     * 计算通行时间矩阵的一行：从坐标出发到各终点的通行时间（秒）与距离（米）
+     * <p>终点须事先以 {@link RoadGraph#nearestNode} 吸附，一次 Dijkstra 直到所有终点节点都已确定；
+     * 结果写入 {@code time}/{@code distance} 的 [offset, offset + targets.length)，不可达为正无穷
+     */
+    public void costsFrom(double fromLat, double fromLng, int[] targets, double[] toLat, double[] toLng,
+                          float[] time, float[] distance, int offset)
+    {
+        int s = graph.nearestNode(fromLat, fromLng);
+        if (s < 0)
+        {
+            Arrays.fill(time, offset, offset + targets.length, INF);
+            Arrays.fill(distance, offset, offset + targets.length, INF);
+            return;
+        }
+
+        Search search = acquire();
+        try
+        {
+            BitSet pending = new BitSet(graph.nodeCount);
+            for (int t : targets)
+            {
+                if (t >= 0) pending.set(t);
+            }
+
+            search.visit(s, 0, -1);
+            search.length[s] = 0;
+            search.heap.push(s, 0);
+            while (!search.heap.isEmpty() && !pending.isEmpty())
+            {
+                int u = search.heap.pop();
+                search.closed.set(u);
+                pending.clear(u);
+
+                double gu = search.g[u];
+                for (int e = graph.firstEdge[u]; e < graph.firstEdge[u + 1]; e++)
+                {
+                    int v = graph.edgeTarget[e];
+                    if (search.closed.get(v)) continue;
+
+                    double gv = gu + graph.edgeTime[e];
+                    if (!search.seen(v) || gv < search.g[v])
+                    {
+                        search.visit(v, gv, u);
+                        search.length[v] = search.length[u] + graph.edgeLength[e];
+                        search.heap.push(v, gv);
+                    }
+                }
+            }
+
+            double access = GeoUtil.haversine(fromLat, fromLng, graph.lat[s], graph.lng[s]);
+            for (int i = 0; i < targets.length; i++)
+            {
+                int t = targets[i];
+                if (t < 0 || !search.closed.get(t))
+                {
+                    time[offset + i] = INF;
+                    distance[offset + i] = INF;
+                    continue;
+                }
+                double egress = GeoUtil.haversine(toLat[i], toLng[i], graph.lat[t], graph.lng[t]);
+                time[offset + i] = (float)(search.g[t] + (access + egress) / ACCESS_SPEED);
+                distance[offset + i] = (float)(search.length[t] + access + egress);
+            }
+        }
+        finally
+        {
+            release(search);
+        }
+    }
+
+    /** 由节点路径生成路线，首尾补上坐标与吸附节点之间的连接段 */
+    private Route toRoute(int[] path, double fromLat, double fromLng, double toLat, double toLng)
+    {
+        double[] lat = new double[path.length + 2], lng = new double[path.length + 2];
+        lat[0] = fromLat;
+        lng[0] = fromLng;
+        double distance = 0, time = 0;
+        for (int i = 0; i < path.length; i++)
+        {
+            lat[i + 1] = graph.lat[path[i]];
+            lng[i + 1] = graph.lng[path[i]];
+            if (i > 0)
+            {
+                int e = edgeBetween(path[i - 1], path[i]);
+                distance += graph.edgeLength[e];
+                time += graph.edgeTime[e];
+            }
+        }
+        lat[lat.length - 1] = toLat;
+        lng[lng.length - 1] = toLng;
+
+        double access = GeoUtil.haversine(fromLat, fromLng, lat[1], lng[1])
+            + GeoUtil.haversine(toLat, toLng, lat[lat.length - 2], lng[lng.length - 2]);
+        return new Route(lat, lng, distance + access, time + access / ACCESS_SPEED);
+    }
+
+    /** 将避让区域转换为被封锁的节点集合 */
+    BitSet blockedNodes(List<Polygon> avoid)
+    {
+        BitSet blocked = new BitSet(graph.nodeCount);
+        if (avoid == null) return blocked;
+        for (Polygon polygon : avoid)
+        {
+            graph.forEachNodeIn(polygon.getMinLat(), polygon.getMinLng(), polygon.getMaxLat(), polygon.getMaxLng(), v -> {
+                if (polygon.contains(graph.lat[v], graph.lng[v])) blocked.set(v);
+            });
+        }
+        return blocked;
+    }
+
+    /**
+     * A* 搜索最短时间路径
+     * @return 由节点下标组成的路径，不可达时返回 {@code null}
+     */
+    int[] shortestPath(int s, int t, BitSet blocked)
+    {
+        Search search = acquire();
+        try
+        {
+            search.visit(s, 0, -1);
+            search.heap.push(s, lowerBound(s, t));
+            while (!search.heap.isEmpty())
+            {
+                int u = search.heap.pop();
+                if (u == t) return search.path(t);
+                search.closed.set(u);
+
+                double gu = search.g[u];
+                for (int e = graph.firstEdge[u]; e < graph.firstEdge[u + 1]; e++)
+                {
+                    int v = graph.edgeTarget[e];
+                    if (blocked.get(v) || search.closed.get(v)) continue;
+
+                    double gv = gu + graph.edgeTime[e];
+                    if (!search.seen(v) || gv < search.g[v])
+                    {
+                        search.visit(v, gv, u);
+                        search.heap.push(v, gv + lowerBound(v, t));
+                    }
+                }
+            }
+            return null;
+        }
+        finally
+        {
+            release(search);
+        }
+    }
+
+    /** 借出一份已重置的搜索状态，用完须以 {@link #release(Search)} 归还 */
+    private Search acquire()
+    {
+        Search search = idle.poll();
+        if (search == null) search = new Search(graph.nodeCount);
+        search.reset();
+        return search;
+    }
+
+    private void release(Search search) { idle.offer(search); }
+
+    /** 地标三角不等式给出的 v 到 t 通行时间下界 */
+    double lowerBound(int v, int t)
+    {
+        int n = graph.nodeCount;
+        double best = 0;
+        for (int k = 0, base = 0; k < landmarkCount; k++, base += n)
+        {
+            float lt = fromLandmark[base + t], lv = fromLandmark[base + v];
+            if (lt != INF && lv != INF) best = Math.max(best, lt - lv);
+            float vl = toLandmark[base + v], tl = toLandmark[base + t];
+            if (vl != INF && tl != INF) best = Math.max(best, vl - tl);
+        }
+        return best;
+    }
+
+    private int edgeBetween(int u, int v)
+    {
+        int best = -1;
+        for (int e = graph.firstEdge[u]; e < graph.firstEdge[u + 1]; e++)
+        {
+            if (graph.edgeTarget[e] == v && (best < 0 || graph.edgeTime[e] < graph.edgeTime[best])) best = e;
+        }
+        return best;
+    }
+
+    /** 最远点策略选取地标，并计算双向通行时间表 */
+    private void selectLandmarks()
+    {
+        int n = graph.nodeCount;
+        if (landmarkCount == 0) return;
+
+        float[] minToChosen = new float[n];
+        Arrays.fill(minToChosen, INF);
+        int next = 0;
+        for (int k = 0; k < landmarkCount; k++)
+        {
+            float[] from = dijkstra(graph.firstEdge, graph.edgeTarget, graph.edgeTime, next);
+            float[] to = dijkstra(graph.revFirstEdge, graph.revEdgeSource, graph.revEdgeTime, next);
+            System.arraycopy(from, 0, fromLandmark, k * n, n);
+            System.arraycopy(to, 0, toLandmark, k * n, n);
+
+            // 下一个地标取距已选地标最远的可达节点
+            int farthest = next;
+            float farthestDist = -1;
+            for (int v = 0; v < n; v++)
+            {
+                if (from[v] != INF) minToChosen[v] = Math.min(minToChosen[v], from[v]);
+                if (minToChosen[v] != INF && minToChosen[v] > farthestDist)
+                {
+                    farthestDist = minToChosen[v];
+                    farthest = v;
+                }
+            }
+            next = farthest;
+        }
+    }
+
+    /** 单源最短时间，不可达节点为正无穷 */
+    static float[] dijkstra(int[] first, int[] adj, float[] weight, int source)
+    {
+        int n = first.length - 1;
+        float[] dist = new float[n];
+        Arrays.fill(dist, INF);
+        dist[source] = 0;
+
+        NodeHeap heap = new NodeHeap(n);
+        heap.push(source, 0);
+        while (!heap.isEmpty())
+        {
+            int u = heap.pop();
+            for (int e = first[u]; e < first[u + 1]; e++)
+            {
+                int v = adj[e];
+                float d = dist[u] + weight[e];
+                if (d < dist[v])
+                {
+                    dist[v] = d;
+                    heap.push(v, d);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /** 一次查询独占的搜索状态，通过时间戳避免每次查询清空数组 */
+    private static final class Search
+    {
+        final double[] g;
+        final double[] length;
+        final int[] parent;
+        final int[] stamp;
+        final BitSet closed;
+        final NodeHeap heap;
+        int current = 0;
+
+        Search(int n)
+        {
+            g = new double[n];
+            length = new double[n];
+            parent = new int[n];
+            stamp = new int[n];
+            closed = new BitSet(n);
+            heap = new NodeHeap(n);
+        }
+
+        void reset()
+        {
+            heap.clear();
+            closed.clear();
+            if (++current == Integer.MAX_VALUE)
+            {
+                Arrays.fill(stamp, 0);
+                current = 1;
+            }
+        }
+
+        boolean seen(int v) { return stamp[v] == current; }
+
+        void visit(int v, double gv, int from)
+        {
+            stamp[v] = current;
+            g[v] = gv;
+            parent[v] = from;
+        }
+
+        int[] path(int t)
+        {
+            int len = 0;
+            for (int v = t; v >= 0; v = parent[v]) len++;
+            int[] path = new int[len];
+            for (int v = t, i = len - 1; v >= 0; v = parent[v], i--) path[i] = v;
+            return path;
+        }
+    }
+}
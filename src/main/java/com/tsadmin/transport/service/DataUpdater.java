@@ -1,13 +1,45 @@
 package com.tsadmin.transport.service;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import com.tsadmin.transport.config.ConfigLoader;
+import com.tsadmin.transport.domain.CarManager;
 import com.tsadmin.transport.domain.DemandManager;
+import com.tsadmin.transport.domain.DispatchManager;
+import com.tsadmin.transport.domain.EventManager;
+import com.tsadmin.transport.domain.MetricsManager;
+import com.tsadmin.transport.domain.MetricsManager.Phase;
 import com.tsadmin.transport.domain.PoiManager;
+import com.tsadmin.transport.domain.TraceManager;
+import com.tsadmin.transport.domain.TravelMatrix;
+import com.tsadmin.transport.domain.WorldManager;
 
+/**
+ * 周期更新，按固定频率调度：第 n 个周期的截止时间为 {@code 起点 + n * 周期}，不随单个周期的耗时漂移
+ * <p>周期超时后按 {@code Main.catch_up} 追赶：
+ * <ul>
+ * <li>{@link CatchUp#SKIP}：放弃截止时间已过的计划周期，等到下一个截止时间，模拟时间落后于墙钟</li>
+ * <li>{@link CatchUp#COMPRESS}：把已错过的计划周期并入下一周期，一次推进多个周期的模拟时长</li>
+ * <li>{@link CatchUp#SHED}：保留已错过的计划周期并连续执行，超时后的周期不生成交通事件、不发起后台优化</li>
+ * </ul>
+ * 后两者最多追赶 {@code Main.max_catch_up_cycles} 个计划周期，其余放弃，避免无限追赶
+ * <p>周期耗时超出 {@code Main.tick_budget}（周期的比例）时暂停生成新订单，回到预算内后恢复
+ */
 public class DataUpdater implements Runnable
 {
+    private static final Logger logger = LogManager.getLogger(DataUpdater.class);
+
+    /** 超时后的追赶方式 */
+    public enum CatchUp { SKIP, COMPRESS, SHED }
+
     private volatile boolean running = true;
     private static int UPDATE_INTERVAL;
+    // 每周期推进的模拟时长（秒）
+    private static double CYCLE_SECONDS;
 
     // private static MOSAScheduler scheduler = new MOSAScheduler();
 
@@ -20,36 +52,102 @@ public class DataUpdater implements Runnable
     {
         // s => ms
         UPDATE_INTERVAL = ConfigLoader.getInt("Main.update_interval", 5) * 1000;
+        CYCLE_SECONDS = UPDATE_INTERVAL / 1000.0 * ConfigLoader.getDouble("Main.time_scale", 1.0);
 
+        CatchUp policy = catchUp(ConfigLoader.getString("Main.catch_up", "skip"));
+        long interval = TimeUnit.MILLISECONDS.toNanos(UPDATE_INTERVAL);
+        long budget = (long)(interval * ConfigLoader.getDouble("Main.tick_budget", 0.8));
+        long maxCatchUp = Math.max(1, ConfigLoader.getInt("Main.max_catch_up_cycles", 4));
+
+        long deadline = System.nanoTime() + interval;
+        boolean shed = false;
+        long compressed = 0;
         while (running)
         {
-            long start = System.currentTimeMillis();
+            long start = System.nanoTime();
+            // 压缩方式下本周期补上被并入的计划周期的模拟时长
+            double seconds = CYCLE_SECONDS * (1 + compressed);
 
             // 这里开始数据更新逻辑
+            WorldManager.lock();
+            try
+            {
+                // 周期耗时含等锁时间
+                long allocated = MetricsManager.allocatedBytes();
+                long tickStart = MetricsManager.start();
+                long t = tickStart;
+
+                PoiManager.update();
+                t = MetricsManager.phase(Phase.POI_UPDATE, t);
+                EventManager.update(shed);
+                t = MetricsManager.phase(Phase.EVENTS, t);
+                CarManager.update(seconds);
+                t = MetricsManager.phase(Phase.VEHICLE_TICK, t);
+                TravelMatrix.refreshVehicles();
+                t = MetricsManager.phase(Phase.MATRIX_REFRESH, t);
 
-            PoiManager.update();
+                if (!DemandManager.isEmpty())
+                {
+                    DispatchManager.dispatch(shed);
+                }
+                t = MetricsManager.phase(Phase.DISPATCH, t);
 
-            // if (!DemandManager.isEmpty())
-            // {
-            //     scheduler.schedule();
-            // }
+                // 周期结束，发布快照供只读请求使用
+                WorldManager.publish();
+                MetricsManager.phase(Phase.PUBLISH, t);
 
+                // 下一周期的订单生成按本周期耗时施加背压
+                DemandManager.setThrottled(System.nanoTime() - start > budget);
+                MetricsManager.tick(tickStart, allocated);
+            }
+            finally
+            {
+                WorldManager.unlock();
+            }
             // 这里结束数据更新逻辑
 
-            long cost = System.currentTimeMillis() - start;
-            long sleep = UPDATE_INTERVAL - cost;
-            if (sleep > 0)
+            // 截止时间即下一周期的计划开始时间
+            long now = System.nanoTime();
+            long overrun = Math.max(0, now - deadline);
+            // 截止时间之后又已过去的计划周期数
+            long missed = overrun / interval;
+            long skipped = 0;
+            compressed = 0;
+            if (missed > 0 && !(policy == CatchUp.SHED && missed <= maxCatchUp))
             {
-                try
-                {
-                    Thread.sleep(sleep);
-                }
-                catch (InterruptedException e)
-                {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
+                if (policy == CatchUp.COMPRESS) compressed = Math.min(missed, maxCatchUp);
+                skipped = missed - compressed;
+                deadline += missed * interval;
+            }
+            shed = policy == CatchUp.SHED && overrun > 0;
+            if (skipped > 0)
+            {
+                logger.warn("Cycle overran by {} ms: {} scheduled cycles skipped, {} compressed", overrun / 1_000_000, skipped, compressed);
+            }
+            if (overrun > 0) TraceManager.record(TraceManager.Type.OVERRUN, (int)skipped, overrun);
+            MetricsManager.schedule(overrun, skipped, shed);
+
+            // 落后时截止时间已过，不休眠直接开始下一周期
+            long sleep;
+            while (running && (sleep = deadline - System.nanoTime()) > 0)
+            {
+                LockSupport.parkNanos(this, sleep);
+                if (Thread.currentThread().isInterrupted()) return;
             }
+            deadline += interval;
+        }
+    }
+
+    private static CatchUp catchUp(String name)
+    {
+        try
+        {
+            return CatchUp.valueOf(name.toUpperCase());
+        }
+        catch (IllegalArgumentException e)
+        {
+            logger.warn("Unknown catch-up policy {}, using skip", name);
+            return CatchUp.SKIP;
         }
     }
 }
@@ -0,0 +1,246 @@
+package com.tsadmin.transport.solver;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * 二维（载重×体积）装箱，箱子为若干容量递增的车型
+ * <p>首次适应递减（FFD）：物品按相对最大车型的较大占比从大到小排序，依次放入第一个放得下的箱子，
+ * 箱子在装箱阶段按最大车型计算容量，装完后各箱降级为放得下其内容的最小车型
+ * <p>随后在 {@code maxMoves} 次移动尝试内改进：先尝试清空装得最少的箱子，再尝试移出单个物品使箱子降级，
+ * 只接受总车型容量下降的移动
+ * <p>超出最大车型的物品不装箱，{@link Result#binOf(int)} 为 -1
+ */
+public final class BinPacker
+{
+    private final double[] classLoad, classVolume;
+    private final int maxMoves;
+
+    /**
+     * @param classLoad 各车型载重，须与体积同时递增
+     * @param classVolume 各车型体积
+     * @param maxMoves 改进阶段的移动尝试上限
+     */
+    public BinPacker(double[] classLoad, double[] classVolume, int maxMoves)
+    {
+        this.classLoad = classLoad;
+        this.classVolume = classVolume;
+        this.maxMoves = maxMoves;
+    }
+
+    /** 能装下给定载重与体积的最小车型，没有时为 -1 */
+    public int smallestClass(double weight, double volume)
+    {
+        for (int c = 0; c < classLoad.length; c++)
+        {
+            if (weight <= classLoad[c] && volume <= classVolume[c]) return c;
+        }
+        return -1;
+    }
+
+    public Result pack(double[] weight, double[] volume)
+    {
+        int n = weight.length;
+        int top = classLoad.length - 1;
+        double maxLoad = classLoad[top], maxVol = classVolume[top];
+
+        int[] binOf = new int[n];
+        double[] binLoad = new double[n], binVol = new double[n];
+        int bins = 0;
+
+        // FFD，物品按较大占比降序
+        int[] order = IntStream.range(0, n)
+            .boxed()
+            .sorted((a, b) -> Double.compare(size(weight[b], volume[b], maxLoad, maxVol), size(weight[a], volume[a], maxLoad, maxVol)))
+            .mapToInt(Integer::intValue)
+            .toArray();
+        for (int i : order)
+        {
+            binOf[i] = -1;
+            if (weight[i] > maxLoad || volume[i] > maxVol) continue;
+
+            int b = 0;
+            while (b < bins && (binLoad[b] + weight[i] > maxLoad || binVol[b] + volume[i] > maxVol)) b++;
+            if (b == bins) bins++;
+            binLoad[b] += weight[i];
+            binVol[b] += volume[i];
+            binOf[i] = b;
+        }
+
+        int moves = maxMoves;
+        moves = eliminate(weight, volume, binOf, binLoad, binVol, bins, moves);
+        downsize(weight, volume, binOf, binLoad, binVol, bins, moves);
+        return compact(binOf, binLoad, binVol, bins);
+    }
+
+    private static double size(double w, double v, double maxLoad, double maxVol) { return Math.max(w / maxLoad, v / maxVol); }
+
+    /** 从装得最少的箱子开始，尝试把整箱物品分散到其他箱子 */
+    private int eliminate(double[] weight, double[] volume, int[] binOf, double[] binLoad, double[] binVol, int bins, int moves)
+    {
+        int top = classLoad.length - 1;
+        Integer[] byFill = new Integer[bins];
+        for (int b = 0; b < bins; b++) byFill[b] = b;
+        Arrays.sort(byFill, (a, b) -> Double.compare(binLoad[a] / classLoad[top] + binVol[a] / classVolume[top],
+            binLoad[b] / classLoad[top] + binVol[b] / classVolume[top]));
+
+        for (int source : byFill)
+        {
+            if (moves <= 0) break;
+            if (binLoad[source] == 0 && binVol[source] == 0) continue;
+
+            // 试装，失败时回滚
+            int[] items = itemsOf(binOf, source);
+            int[] target = new int[items.length];
+            double[] addLoad = new double[bins], addVol = new double[bins];
+            boolean ok = true;
+            for (int k = 0; k < items.length && ok; k++)
+            {
+                int i = items[k];
+                moves--;
+                target[k] = -1;
+                for (int b = 0; b < bins; b++)
+                {
+                    if (b == source || (binLoad[b] == 0 && binVol[b] == 0)) continue;
+                    if (binLoad[b] + addLoad[b] + weight[i] <= classLoad[top] && binVol[b] + addVol[b] + volume[i] <= classVolume[top])
+                    {
+                        target[k] = b;
+                        addLoad[b] += weight[i];
+                        addVol[b] += volume[i];
+                        break;
+                    }
+                }
+                ok = target[k] >= 0;
+            }
+            if (!ok) continue;
+            // 试装后的总容量不含被清空的箱子
+            double after = classCost(binLoad, binVol, addLoad, addVol, bins) - capacity(classOf(binLoad[source], binVol[source]));
+            if (after >= classCost(binLoad, binVol, null, null, bins) - 1e-9) continue;
+
+            for (int k = 0; k < items.length; k++)
+            {
+                int i = items[k], b = target[k];
+                binOf[i] = b;
+                binLoad[b] += weight[i];
+                binVol[b] += volume[i];
+            }
+            binLoad[source] = binVol[source] = 0;
+        }
+        return moves;
+    }
+
+    /** 尝试把单个物品移到另一个箱子，使两箱车型载重之和下降 */
+    private void downsize(double[] weight, double[] volume, int[] binOf, double[] binLoad, double[] binVol, int bins, int moves)
+    {
+        boolean improved = true;
+        while (improved && moves > 0)
+        {
+            improved = false;
+            for (int i = 0; i < binOf.length && moves > 0; i++)
+            {
+                int a = binOf[i];
+                if (a < 0) continue;
+                int before = classOf(binLoad[a], binVol[a]);
+                int after = classOf(binLoad[a] - weight[i], binVol[a] - volume[i]);
+                if (after == before) continue;
+
+                for (int b = 0; b < bins && moves > 0; b++)
+                {
+                    if (b == a || (binLoad[b] == 0 && binVol[b] == 0)) continue;
+                    moves--;
+                    int grown = classOf(binLoad[b] + weight[i], binVol[b] + volume[i]);
+                    if (grown < 0) continue;
+                    double gain = capacity(before) + capacity(classOf(binLoad[b], binVol[b])) - capacity(after) - capacity(grown);
+                    if (gain <= 1e-9) continue;
+
+                    binLoad[a] -= weight[i];
+                    binVol[a] -= volume[i];
+                    binLoad[b] += weight[i];
+                    binVol[b] += volume[i];
+                    binOf[i] = b;
+                    improved = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    /** 空箱为 -1 */
+    private int classOf(double load, double vol)
+    {
+        if (load <= 1e-9 && vol <= 1e-9) return -1;
+        return smallestClass(load - 1e-9, vol - 1e-9);
+    }
+
+    private double capacity(int c) { return c < 0 ? 0 : classLoad[c]; }
+
+    private double classCost(double[] binLoad, double[] binVol, double[] addLoad, double[] addVol, int bins)
+    {
+        double sum = 0;
+        for (int b = 0; b < bins; b++)
+        {
+            double load = binLoad[b] + (addLoad == null ? 0 : addLoad[b]);
+            double vol = binVol[b] + (addVol == null ? 0 : addVol[b]);
+            sum += capacity(classOf(load, vol));
+        }
+        return sum;
+    }
+
+    private static int[] itemsOf(int[] binOf, int bin)
+    {
+        return IntStream.range(0, binOf.length).filter(i -> binOf[i] == bin).toArray();
+    }
+
+    /** 去掉空箱，重新编号并确定车型 */
+    private Result compact(int[] binOf, double[] binLoad, double[] binVol, int bins)
+    {
+        int[] remap = new int[bins];
+        int count = 0;
+        for (int b = 0; b < bins; b++)
+        {
+            remap[b] = binLoad[b] == 0 && binVol[b] == 0 ? -1 : count++;
+        }
+
+        int[] cls = new int[count];
+        double[] load = new double[count], vol = new double[count];
+        for (int b = 0; b < bins; b++)
+        {
+            if (remap[b] < 0) continue;
+            cls[remap[b]] = classOf(binLoad[b], binVol[b]);
+            load[remap[b]] = binLoad[b];
+            vol[remap[b]] = binVol[b];
+        }
+        for (int i = 0; i < binOf.length; i++)
+        {
+            if (binOf[i] >= 0) binOf[i] = remap[binOf[i]];
+        }
+        return new Result(binOf, cls, load, vol);
+    }
+
+    /** 装箱结果 */
+    public final class Result
+    {
+        private final int[] binOf, binClass;
+        private final double[] load, volume;
+
+        private Result(int[] binOf, int[] binClass, double[] load, double[] volume)
+        {
+            this.binOf = binOf;
+            this.binClass = binClass;
+            this.load = load;
+            this.volume = volume;
+        }
+
+        public int getBinCount() { return binClass.length; }
+        /** @return 物品所在箱子，未装箱时为 -1 */
+        public int binOf(int item) { return binOf[item]; }
+        public int getVehicleClass(int bin) { return binClass[bin]; }
+        public int[] getItems(int bin) { return itemsOf(binOf, bin); }
+        public double getLoad(int bin) { return load[bin]; }
+        public double getVolume(int bin) { return volume[bin]; }
+        /** 箱子车型未使用的载重 */
+        public double getWastedLoad(int bin) { return classLoad[binClass[bin]] - load[bin]; }
+        /** 箱子车型未使用的体积 */
+        public double getWastedVolume(int bin) { return classVolume[binClass[bin]] - volume[bin]; }
+    }
+}
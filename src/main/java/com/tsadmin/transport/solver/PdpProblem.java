@@ -0,0 +1,146 @@
+package com.tsadmin.transport.solver;
+
+import java.util.Arrays;
+
+/**
+ * 取送货路径问题的输入，全部以基本类型数组描述
+ * <p>地点以通行矩阵中的兴趣点下标表示，车辆从各自的起点出发，路线不需返回
+ * <p>路径点编码为 {@code 请求 * 2}（取货）与 {@code 请求 * 2 + 1}（送货）
+ * <p>已在车上或正在前往取货的请求只有送货点，固定属于原车辆，求解时不会换车
+ * <p>未分配的请求可限定候选车辆并给出已知的插入代价增量，构造阶段只在候选车辆上评估插入
+ */
+public final class PdpProblem
+{
+    final int poiCount;
+    final float[] cost;
+
+    int vehicleCount = 0;
+    float[][] startCost = new float[8][];
+    int[] startOffset = new int[8];
+    double[] maxLoad = new double[8], maxVolume = new double[8];
+    int[][] initialStops = new int[8][];
+
+    int requestCount = 0;
+    int[] pickup = new int[16], delivery = new int[16];
+    double[] quantity = new double[16], volume = new double[16];
+    /** 固定所属车辆，可自由分配的请求为 -1 */
+    int[] fixedVehicle = new int[16];
+    /** 候选车辆，为 {@code null} 时可插入任意车辆 */
+    int[][] candidates = new int[16][];
+    /** 候选车辆上已知的插入代价增量，{@code NaN} 表示未知 */
+    float[][] knownDelta = new float[16][];
+
+    /**
+     * @param poiCount 兴趣点数
+     * @param cost 兴趣点间的行驶代价，行主序 {@code poiCount × poiCount}
+     */
+    public PdpProblem(int poiCount, float[] cost)
+    {
+        this.poiCount = poiCount;
+        this.cost = cost;
+    }
+
+    /**
+     * 添加车辆
+     * @param startCost 车辆起点到各兴趣点的代价，长度为兴趣点数
+     * @return 车辆下标
+     */
+    public int addVehicle(float[] startCost, double maxLoad, double maxVolume)
+    {
+        return addVehicle(startCost, 0, maxLoad, maxVolume);
+    }
+
+    /**
+     * 添加车辆，起点代价直接引用矩阵中的一行，求解期间该行不得修改
+     * @param offset 该行在 {@code table} 中的起始下标
+     * @return 车辆下标
+     */
+    public int addVehicle(float[] table, int offset, double maxLoad, double maxVolume)
+    {
+        if (vehicleCount == this.maxLoad.length)
+        {
+            int capacity = vehicleCount * 2;
+            this.startCost = Arrays.copyOf(this.startCost, capacity);
+            this.startOffset = Arrays.copyOf(this.startOffset, capacity);
+            this.maxLoad = Arrays.copyOf(this.maxLoad, capacity);
+            this.maxVolume = Arrays.copyOf(this.maxVolume, capacity);
+            this.initialStops = Arrays.copyOf(this.initialStops, capacity);
+        }
+        this.startCost[vehicleCount] = table;
+        this.startOffset[vehicleCount] = offset;
+        this.maxLoad[vehicleCount] = maxLoad;
+        this.maxVolume[vehicleCount] = maxVolume;
+        this.initialStops[vehicleCount] = new int[0];
+        return vehicleCount++;
+    }
+
+    /**
+     * 添加请求
+     * @param pickupPoi 取货点，固定请求忽略该值
+     * @param fixedVehicle 固定所属车辆，可自由分配时为 -1
+     * @return 请求下标
+     */
+    public int addRequest(int pickupPoi, int deliveryPoi, double quantity, double volume, int fixedVehicle)
+    {
+        if (requestCount == pickup.length)
+        {
+            int capacity = requestCount * 2;
+            pickup = Arrays.copyOf(pickup, capacity);
+            delivery = Arrays.copyOf(delivery, capacity);
+            this.quantity = Arrays.copyOf(this.quantity, capacity);
+            this.volume = Arrays.copyOf(this.volume, capacity);
+            this.fixedVehicle = Arrays.copyOf(this.fixedVehicle, capacity);
+            candidates = Arrays.copyOf(candidates, capacity);
+            knownDelta = Arrays.copyOf(knownDelta, capacity);
+        }
+        pickup[requestCount] = pickupPoi;
+        delivery[requestCount] = deliveryPoi;
+        this.quantity[requestCount] = quantity;
+        this.volume[requestCount] = volume;
+        this.fixedVehicle[requestCount] = fixedVehicle;
+        return requestCount++;
+    }
+
+    /**
+     * 限定未分配请求的候选车辆
+     * @param vehicles 候选车辆下标，<b>不得重复</b>
+     * @param known 与候选车辆一一对应的已知插入代价增量，未知为 {@code NaN}；为 {@code null} 时全部未知
+     */
+    public void setCandidates(int request, int[] vehicles, float[] known)
+    {
+        candidates[request] = vehicles.clone();
+        knownDelta[request] = known == null ? null : known.clone();
+    }
+
+    /** 设置车辆的现有路线，路径点须满足取货先于送货 */
+    public void setInitialStops(int vehicle, int[] stops) { initialStops[vehicle] = stops.clone(); }
+
+    public int getVehicleCount() { return vehicleCount; }
+    public int getRequestCount() { return requestCount; }
+
+    public static int pickupStop(int request) { return request << 1; }
+    public static int deliveryStop(int request) { return (request << 1) | 1; }
+    public static int requestOf(int stop) { return stop >>> 1; }
+    public static boolean isPickup(int stop) { return (stop & 1) == 0; }
+
+    int poiOf(int stop) { return isPickup(stop) ? pickup[requestOf(stop)] : delivery[requestOf(stop)]; }
+    boolean isFree(int request) { return fixedVehicle[request] < 0; }
+
+    /** 两兴趣点间代价，{@code from} 为 -1 时表示车辆起点 */
+    double cost(int vehicle, int from, int to)
+    {
+        return from < 0 ? startCost[vehicle][startOffset[vehicle] + to] : cost[from * poiCount + to];
+    }
+
+    /** 车辆开始执行路线前已占用的载重：固定请求在车上或即将装车 */
+    double initialLoad(int vehicle, boolean weight)
+    {
+        double sum = 0;
+        for (int stop : initialStops[vehicle])
+        {
+            int r = requestOf(stop);
+            if (!isPickup(stop) && !isFree(r)) sum += weight ? quantity[r] : volume[r];
+        }
+        return sum;
+    }
+}
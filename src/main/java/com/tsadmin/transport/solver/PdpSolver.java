@@ -0,0 +1,459 @@
+package com.tsadmin.transport.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.tsadmin.transport.solver.Tour.Insertion;
+
+/**
+ * 取送货路径问题求解器
+ * <p>先按全局最小插入代价插入未分配请求，再并行局部搜索：每轮对活跃车辆与其近邻评估
+ * 跨车迁移（relocate）、跨车交换（exchange）与尾段交换（2-opt*），
+ * 选取互不冲突的改进移动一并应用，直到没有改进或超出时间预算
+ * <p>{@link #solve()} 对所有车辆搜索；{@link #insert()} 只修复被插入请求的车辆，用于增量调度
+ * <p>请求设有候选车辆时只在候选车辆上评估插入，已知的代价增量直接使用，求解后可由
+ * {@link #getCandidateDelta(int, int)} 取回供下次求解复用；路线被修改的车辆见 {@link #isModified(int)}
+ * <p>求解只读 {@link PdpProblem}，不同求解器实例可并发使用
+ */
+public final class PdpSolver
+{
+    private static final double EPSILON = 1e-6;
+    /** 每辆车只与代表点最近的若干辆车评估移动 */
+    private static final int NEIGHBOURS = 16;
+
+    private final PdpProblem problem;
+    private final long timeLimitNanos;
+    private final Tour[] tours;
+    private final int[] assignment;
+    /** 空路线车辆起点最近的兴趣点，未计算时为 -1 */
+    private final int[] nearestPoi;
+    /** 插入或局部搜索修改过路线的车辆 */
+    private final boolean[] modified;
+    /** 构造阶段结束时各请求在候选车辆上的代价增量，未设置候选或已分配的请求为 {@code null} */
+    private final float[][] candidateDelta;
+    private boolean inserted = false;
+
+    /** @param timeLimitMillis 局部搜索时间预算 */
+    public PdpSolver(PdpProblem problem, long timeLimitMillis)
+    {
+        this.problem = problem;
+        this.timeLimitNanos = timeLimitMillis * 1_000_000L;
+        this.tours = new Tour[problem.vehicleCount];
+        this.assignment = new int[problem.requestCount];
+        Arrays.fill(assignment, -1);
+        this.nearestPoi = new int[problem.vehicleCount];
+        Arrays.fill(nearestPoi, -1);
+        this.modified = new boolean[problem.vehicleCount];
+        this.candidateDelta = new float[problem.requestCount][];
+
+        for (int v = 0; v < tours.length; v++)
+        {
+            tours[v] = new Tour(problem, v, problem.initialStops[v]);
+            for (int k = 0; k < tours[v].size; k++)
+            {
+                assignment[PdpProblem.requestOf(tours[v].stops[k])] = v;
+            }
+        }
+    }
+
+    /** 完整求解：插入未分配请求后对所有车辆局部搜索，返回是否有请求被新分配或路线被改进 */
+    public boolean solve()
+    {
+        long deadline = System.nanoTime() + timeLimitNanos;
+        boolean[] active = construct();
+        Arrays.fill(active, true);
+        return search(active, deadline) || inserted;
+    }
+
+    /**
+     * 增量求解：只插入未分配请求，再只在被插入的车辆与其近邻之间修复路线
+     * @return 是否有请求被新分配或路线被改进
+     */
+    public boolean insert()
+    {
+        long deadline = System.nanoTime() + timeLimitNanos;
+        boolean[] active = construct();
+        return search(active, deadline) || inserted;
+    }
+
+    /** @return 车辆的路线，路径点编码见 {@link PdpProblem} */
+    public int[] getStops(int vehicle) { return tours[vehicle].toArray(); }
+
+    /** @return 请求所在车辆，未能分配时为 -1 */
+    public int getAssignment(int request) { return assignment[request]; }
+
+    /** @return 车辆的路线是否被本次求解修改过 */
+    public boolean isModified(int vehicle) { return modified[vehicle]; }
+
+    /**
+     * 构造阶段结束时请求在第 k 个候选车辆上的插入代价增量，不可行为正无穷
+     * <p>只对设有候选车辆的请求有意义；之后被局部搜索修改的车辆（{@link #isModified(int)}）上的值已过时
+     * @return 代价增量，请求未设置候选车辆或已被分配时为 {@code NaN}
+     */
+    public float getCandidateDelta(int request, int k)
+    {
+        float[] delta = candidateDelta[request];
+        return delta == null ? Float.NaN : delta[k];
+    }
+
+    public double getTotalCost()
+    {
+        double sum = 0;
+        for (Tour tour : tours) sum += tour.cost;
+        return sum;
+    }
+
+    /**
+     * 全局最小插入代价构造：每步在所有 (请求, 候选车辆) 组合中选代价增量最小者插入
+     * <p>增量按请求的候选车辆缓存，已知的增量直接使用；插入后只有被插入车辆所在列失效并重算，
+     * 每个请求另记录行最小值，只有最小值所在车辆被插入时才重扫该行。
+     * 已知增量可能已过时，插入前总会重新评估，不可行时改选其他组合
+     * @return 被插入请求的车辆
+     */
+    private boolean[] construct()
+    {
+        int n = tours.length;
+        boolean[] touched = new boolean[n];
+        int[] pending = IntStream.range(0, problem.requestCount).filter(r -> assignment[r] < 0).toArray();
+        int m = pending.length;
+        if (m == 0 || n == 0) return touched;
+
+        // 每行的候选车辆与代价增量，未限定候选的请求以全部车辆为候选
+        int[] all = null;
+        int[][] cand = new int[m][];
+        float[][] delta = new float[m][];
+        for (int i = 0; i < m; i++)
+        {
+            int r = pending[i];
+            if (problem.candidates[r] != null)
+            {
+                cand[i] = problem.candidates[r];
+            }
+            else
+            {
+                if (all == null) all = IntStream.range(0, n).toArray();
+                cand[i] = all;
+            }
+            float[] known = problem.knownDelta[r];
+            delta[i] = known != null ? known.clone() : new float[cand[i].length];
+            if (known == null) Arrays.fill(delta[i], Float.NaN);
+        }
+        IntStream.range(0, m).parallel().forEach(i -> {
+            for (int c = 0; c < cand[i].length; c++)
+            {
+                if (Float.isNaN(delta[i][c])) delta[i][c] = deltaOf(tours[cand[i][c]].bestInsertion(pending[i]));
+            }
+        });
+        int[] rowBest = new int[m];
+        for (int i = 0; i < m; i++) rowBest[i] = rowMinimum(delta[i]);
+
+        // 各车辆所在列：列中的行与该车在行内的候选位置
+        int[] colStart = new int[n + 1];
+        for (int i = 0; i < m; i++)
+        {
+            for (int v : cand[i]) colStart[v + 1]++;
+        }
+        for (int v = 0; v < n; v++) colStart[v + 1] += colStart[v];
+        int[] colRow = new int[colStart[n]], colPos = new int[colStart[n]], fill = colStart.clone();
+        for (int i = 0; i < m; i++)
+        {
+            for (int c = 0; c < cand[i].length; c++)
+            {
+                int k = fill[cand[i][c]]++;
+                colRow[k] = i;
+                colPos[k] = c;
+            }
+        }
+
+        boolean[] done = new boolean[m];
+        for (;;)
+        {
+            int pick = -1;
+            for (int i = 0; i < m; i++)
+            {
+                if (done[i] || rowBest[i] < 0) continue;
+                if (pick < 0 || delta[i][rowBest[i]] < delta[pick][rowBest[pick]]) pick = i;
+            }
+            if (pick < 0) break;
+
+            int v = cand[pick][rowBest[pick]], r = pending[pick];
+            Tour tour = tours[v];
+            Insertion ins = tour.bestInsertion(r);
+            if (ins == null)
+            {
+                // 已知增量已过时，该车实际不可行
+                delta[pick][rowBest[pick]] = Float.POSITIVE_INFINITY;
+                rowBest[pick] = rowMinimum(delta[pick]);
+                continue;
+            }
+            tour.insert(ins);
+            assignment[r] = v;
+            touched[v] = modified[v] = true;
+            inserted = true;
+            done[pick] = true;
+
+            // 只重算被插入车辆所在列，同一列中各行互不相同
+            IntStream.range(colStart[v], colStart[v + 1]).parallel().forEach(k -> {
+                int i = colRow[k], c = colPos[k];
+                if (done[i]) return;
+                float d = deltaOf(tour.bestInsertion(pending[i]));
+                delta[i][c] = d;
+                if (rowBest[i] == c) rowBest[i] = rowMinimum(delta[i]);
+                else if (d != Float.POSITIVE_INFINITY && (rowBest[i] < 0 || d < delta[i][rowBest[i]])) rowBest[i] = c;
+            });
+        }
+
+        for (int i = 0; i < m; i++)
+        {
+            if (!done[i] && problem.candidates[pending[i]] != null) candidateDelta[pending[i]] = delta[i];
+        }
+        return touched;
+    }
+
+    private static float deltaOf(Insertion ins) { return ins == null ? Float.POSITIVE_INFINITY : (float)ins.delta(); }
+
+    private static int rowMinimum(float[] delta)
+    {
+        int best = -1;
+        for (int c = 0; c < delta.length; c++)
+        {
+            if (delta[c] == Float.POSITIVE_INFINITY) continue;
+            if (best < 0 || delta[c] < delta[best]) best = c;
+        }
+        return best;
+    }
+
+    /**
+     * 局部搜索直到没有改进或超时
+     * <p>只评估 {@code active} 中的车辆与其近邻，每轮结束后只有被移动涉及的车辆保持活跃
+     * @return 是否有改进
+     */
+    private boolean search(boolean[] active, long deadline)
+    {
+        boolean improved = false;
+        while (System.nanoTime() < deadline)
+        {
+            if (!improve(active)) break;
+            improved = true;
+        }
+        return improved;
+    }
+
+    /** 一轮局部搜索，返回是否有改进；{@code active} 更新为本轮被修改的车辆 */
+    private boolean improve(boolean[] active)
+    {
+        int n = tours.length;
+        if (n < 2) return false;
+
+        int[] from = IntStream.range(0, n).filter(v -> active[v]).toArray();
+        if (from.length == 0) return false;
+
+        int width = Math.min(NEIGHBOURS, n - 1);
+        int[] rep = representatives();
+        int[][] near = new int[from.length][];
+        IntStream.range(0, from.length).parallel().forEach(i -> near[i] = nearest(from[i], rep, width));
+
+        Move[] best = new Move[from.length * width];
+        IntStream.range(0, from.length * width).parallel().forEach(pair -> {
+            int i = pair / width, k = pair % width;
+            if (k >= near[i].length) return;
+            Move move = bestMove(tours[from[i]], tours[near[i][k]]);
+            if (move != null && move.gain > EPSILON) best[pair] = move;
+        });
+
+        List<Move> moves = new ArrayList<>();
+        for (Move move : best)
+        {
+            if (move != null) moves.add(move);
+        }
+        Arrays.fill(active, false);
+        if (moves.isEmpty()) return false;
+
+        // 按收益从大到小应用互不涉及同一车辆的移动
+        moves.sort(Comparator.comparingDouble((Move m) -> -m.gain));
+        for (Move move : moves)
+        {
+            if (active[move.a] || active[move.b]) continue;
+            active[move.a] = active[move.b] = true;
+            apply(move);
+        }
+        return true;
+    }
+
+    /** 各车辆的代表点：路线首个路径点，空路线取起点最近的兴趣点 */
+    private int[] representatives()
+    {
+        int[] rep = new int[tours.length];
+        for (int v = 0; v < tours.length; v++)
+        {
+            if (tours[v].size > 0)
+            {
+                rep[v] = tours[v].poi(0);
+                continue;
+            }
+            if (nearestPoi[v] < 0)
+            {
+                float[] start = problem.startCost[v];
+                int offset = problem.startOffset[v], nearest = 0;
+                for (int p = 1; p < problem.poiCount; p++)
+                {
+                    if (start[offset + p] < start[offset + nearest]) nearest = p;
+                }
+                nearestPoi[v] = nearest;
+            }
+            rep[v] = nearestPoi[v];
+        }
+        return rep;
+    }
+
+    /** 代表点距离最近的 {@code width} 辆车，有界插入排序 */
+    private int[] nearest(int a, int[] rep, int width)
+    {
+        int[] index = new int[width];
+        float[] dist = new float[width];
+        int count = 0;
+        int base = rep[a] * problem.poiCount;
+        for (int b = 0; b < tours.length; b++)
+        {
+            if (b == a) continue;
+            float d = problem.cost[base + rep[b]];
+            if (count == width && d >= dist[width - 1]) continue;
+
+            int k = count < width ? count++ : width - 1;
+            while (k > 0 && dist[k - 1] > d)
+            {
+                index[k] = index[k - 1];
+                dist[k] = dist[k - 1];
+                k--;
+            }
+            index[k] = b;
+            dist[k] = d;
+        }
+        return count == width ? index : Arrays.copyOf(index, count);
+    }
+
+    /** 评估一对车辆间的最优移动，只读 */
+    private Move bestMove(Tour a, Tour b)
+    {
+        Move best = null;
+
+        // relocate：a 中的自由请求迁入 b
+        for (int k = 0; k < a.size; k++)
+        {
+            int stop = a.stops[k];
+            int r = PdpProblem.requestOf(stop);
+            if (!PdpProblem.isPickup(stop) || !problem.isFree(r)) continue;
+
+            Insertion ins = b.bestInsertion(r);
+            if (ins == null) continue;
+            double gain = a.removalGain(r) - ins.delta();
+            if (best == null || gain > best.gain) best = Move.relocate(a.vehicle, b.vehicle, r, gain);
+        }
+
+        // exchange 与 2-opt* 对称，近邻关系不一定对称，因此两个方向都会评估
+        {
+            Tour[] bWithouts = new Tour[b.size];
+            for (int m = 0; m < b.size; m++)
+            {
+                int s = PdpProblem.requestOf(b.stops[m]);
+                if (!PdpProblem.isPickup(b.stops[m]) || !problem.isFree(s)) continue;
+                bWithouts[m] = b.copy();
+                bWithouts[m].remove(s);
+            }
+
+            for (int k = 0; k < a.size; k++)
+            {
+                int r = PdpProblem.requestOf(a.stops[k]);
+                if (!PdpProblem.isPickup(a.stops[k]) || !problem.isFree(r)) continue;
+                Tour aWithout = a.copy();
+                aWithout.remove(r);
+
+                for (int m = 0; m < b.size; m++)
+                {
+                    Tour bWithout = bWithouts[m];
+                    if (bWithout == null) continue;
+                    int s = PdpProblem.requestOf(b.stops[m]);
+
+                    Insertion intoA = aWithout.bestInsertion(s);
+                    Insertion intoB = intoA == null ? null : bWithout.bestInsertion(r);
+                    if (intoB == null) continue;
+                    double gain = a.cost + b.cost - (aWithout.cost + intoA.delta()) - (bWithout.cost + intoB.delta());
+                    if (best == null || gain > best.gain) best = Move.exchange(a.vehicle, b.vehicle, r, s, gain);
+                }
+            }
+
+            // 2-opt*：在两条路线的干净切分处交换尾段
+            for (int k = 0; k <= a.size; k++)
+            {
+                if (!a.isCleanCut(k)) continue;
+                for (int m = 0; m <= b.size; m++)
+                {
+                    if ((k == a.size && m == b.size) || !b.isCleanCut(m)) continue;
+                    if (b.maxLoad[m] > a.capLoad || b.maxVol[m] > a.capVol
+                        || a.maxLoad[k] > b.capLoad || a.maxVol[k] > b.capVol) continue;
+
+                    double newA = headCost(a, k) + joinCost(a, k, b, m) + tailCost(b, m);
+                    double newB = headCost(b, m) + joinCost(b, m, a, k) + tailCost(a, k);
+                    double gain = a.cost + b.cost - newA - newB;
+                    if (best == null || gain > best.gain) best = Move.tails(a.vehicle, b.vehicle, k, m, gain);
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double headCost(Tour t, int k) { return k == 0 ? 0 : t.costTo[k - 1]; }
+    private static double tailCost(Tour t, int k) { return k >= t.size ? 0 : t.cost - t.costTo[k]; }
+
+    /** 路线 {@code head} 的第 k 个路径点前接上 {@code tail} 的第 m 个路径点 */
+    private double joinCost(Tour head, int k, Tour tail, int m)
+    {
+        return m >= tail.size ? 0 : problem.cost(head.vehicle, head.poi(k - 1), tail.poi(m));
+    }
+
+    private void apply(Move move)
+    {
+        Tour a = tours[move.a], b = tours[move.b];
+        modified[move.a] = modified[move.b] = true;
+        switch (move.type)
+        {
+            case RELOCATE ->
+            {
+                a.remove(move.r);
+                b.insert(b.bestInsertion(move.r));
+                assignment[move.r] = move.b;
+            }
+            case EXCHANGE ->
+            {
+                a.remove(move.r);
+                b.remove(move.s);
+                a.insert(a.bestInsertion(move.s));
+                b.insert(b.bestInsertion(move.r));
+                assignment[move.r] = move.b;
+                assignment[move.s] = move.a;
+            }
+            case TAILS ->
+            {
+                Tour newA = a.splice(move.r, b, move.s);
+                Tour newB = b.splice(move.s, a, move.r);
+                tours[move.a] = newA;
+                tours[move.b] = newB;
+                for (int k = 0; k < newA.size; k++) assignment[PdpProblem.requestOf(newA.stops[k])] = move.a;
+                for (int k = 0; k < newB.size; k++) assignment[PdpProblem.requestOf(newB.stops[k])] = move.b;
+            }
+        }
+    }
+
+    /** 局部搜索移动；尾段交换时 r、s 为两条路线的切分位置 */
+    private record Move(Type type, int a, int b, int r, int s, double gain)
+    {
+        enum Type { RELOCATE, EXCHANGE, TAILS }
+
+        static Move relocate(int a, int b, int r, double gain) { return new Move(Type.RELOCATE, a, b, r, -1, gain); }
+        static Move exchange(int a, int b, int r, int s, double gain) { return new Move(Type.EXCHANGE, a, b, r, s, gain); }
+        static Move tails(int a, int b, int k, int m, double gain) { return new Move(Type.TAILS, a, b, k, m, gain); }
+    }
+}
@@ -0,0 +1,222 @@
+package com.tsadmin.transport.solver;
+
+import java.util.Arrays;
+
+/**
+ * 单辆车的路线及其前缀数组
+ * <p>{@code load[k]}/{@code vol[k]} 为驶离第 k 个路径点后的载重与体积，{@code costTo[k]} 为到达第 k 个路径点的累计代价；
+ * {@code maxLoad[k]}/{@code maxVol[k]} 为第 k 个路径点起的后缀最大载重，用于 O(1) 判断尾段交换的可行性
+ * <p>插入评估时随送货位置右移维护区间最大载重，每个 (取货位置, 送货位置) 组合的可行性判断为 O(1)
+ */
+final class Tour
+{
+    final PdpProblem problem;
+    final int vehicle;
+    final double capLoad, capVol;
+    final double startLoad, startVol;
+
+    int[] stops;
+    int size;
+    double[] load, vol, costTo, maxLoad, maxVol;
+    double cost;
+
+    Tour(PdpProblem problem, int vehicle, int[] stops)
+    {
+        this.problem = problem;
+        this.vehicle = vehicle;
+        this.capLoad = problem.maxLoad[vehicle];
+        this.capVol = problem.maxVolume[vehicle];
+        this.startLoad = problem.initialLoad(vehicle, true);
+        this.startVol = problem.initialLoad(vehicle, false);
+        this.stops = Arrays.copyOf(stops, Math.max(stops.length, 4));
+        this.size = stops.length;
+        recompute();
+    }
+
+    private Tour(Tour other)
+    {
+        this.problem = other.problem;
+        this.vehicle = other.vehicle;
+        this.capLoad = other.capLoad;
+        this.capVol = other.capVol;
+        this.startLoad = other.startLoad;
+        this.startVol = other.startVol;
+        this.stops = other.stops.clone();
+        this.size = other.size;
+        recompute();
+    }
+
+    Tour copy() { return new Tour(this); }
+
+    int[] toArray() { return Arrays.copyOf(stops, size); }
+
+    /** 第 k 个路径点的兴趣点，k 为 -1 表示起点 */
+    int poi(int k) { return k < 0 ? -1 : problem.poiOf(stops[k]); }
+
+    double loadBefore(int k) { return k == 0 ? startLoad : load[k - 1]; }
+    double volBefore(int k) { return k == 0 ? startVol : vol[k - 1]; }
+
+    double arc(int from, int to) { return problem.cost(vehicle, poi(from), poi(to)); }
+
+    void recompute()
+    {
+        if (load == null || load.length < stops.length)
+        {
+            int n = stops.length;
+            load = new double[n];
+            vol = new double[n];
+            costTo = new double[n];
+            maxLoad = new double[n + 1];
+            maxVol = new double[n + 1];
+        }
+
+        double l = startLoad, v = startVol, c = 0;
+        for (int k = 0; k < size; k++)
+        {
+            int r = PdpProblem.requestOf(stops[k]);
+            double sign = PdpProblem.isPickup(stops[k]) ? 1 : -1;
+            l += sign * problem.quantity[r];
+            v += sign * problem.volume[r];
+            c += arc(k - 1, k);
+            load[k] = l;
+            vol[k] = v;
+            costTo[k] = c;
+        }
+        cost = c;
+
+        maxLoad[size] = maxVol[size] = Double.NEGATIVE_INFINITY;
+        for (int k = size - 1; k >= 0; k--)
+        {
+            maxLoad[k] = Math.max(maxLoad[k + 1], load[k]);
+            maxVol[k] = Math.max(maxVol[k + 1], vol[k]);
+        }
+    }
+
+    int indexOf(int stop)
+    {
+        for (int k = 0; k < size; k++)
+        {
+            if (stops[k] == stop) return k;
+        }
+        return -1;
+    }
+
+    /**
+     * 评估插入请求的最优位置
+     * @return 代价增量与位置，无可行位置时为 {@code null}
+     */
+    Insertion bestInsertion(int request)
+    {
+        double q = problem.quantity[request], w = problem.volume[request];
+        int p = problem.pickup[request], d = problem.delivery[request];
+        double best = Double.POSITIVE_INFINITY;
+        int bestI = -1, bestJ = -1;
+
+        for (int i = 0; i <= size; i++)
+        {
+            if (loadBefore(i) + q > capLoad || volBefore(i) + w > capVol) continue;
+
+            int prev = poi(i - 1);
+            double old = i < size ? arc(i - 1, i) : 0;
+            double viaP = problem.cost(vehicle, prev, p);
+
+            // 取送相邻
+            double adjacent = viaP + problem.cost(vehicle, p, d) + (i < size ? problem.cost(vehicle, d, poi(i)) : 0) - old;
+            if (adjacent < best)
+            {
+                best = adjacent;
+                bestI = bestJ = i;
+            }
+            if (i == size) break;
+
+            double pickupDelta = viaP + problem.cost(vehicle, p, poi(i)) - old;
+            double runLoad = Double.NEGATIVE_INFINITY, runVol = Double.NEGATIVE_INFINITY;
+            for (int j = i + 1; j <= size; j++)
+            {
+                // 取送之间的路径点载重都要加上 q
+                runLoad = Math.max(runLoad, load[j - 1]);
+                runVol = Math.max(runVol, vol[j - 1]);
+                if (runLoad + q > capLoad || runVol + w > capVol) break;
+
+                double deliveryDelta = problem.cost(vehicle, poi(j - 1), d)
+                    + (j < size ? problem.cost(vehicle, d, poi(j)) - arc(j - 1, j) : 0);
+                double delta = pickupDelta + deliveryDelta;
+                if (delta < best)
+                {
+                    best = delta;
+                    bestI = i;
+                    bestJ = j;
+                }
+            }
+        }
+        return bestI < 0 ? null : new Insertion(request, best, bestI, bestJ);
+    }
+
+    /** 移除请求可节省的代价，请求须为自由请求且在本路线中 */
+    double removalGain(int request)
+    {
+        int i = indexOf(PdpProblem.pickupStop(request)), j = indexOf(PdpProblem.deliveryStop(request));
+        if (j == i + 1)
+        {
+            double after = j + 1 < size ? arc(j, j + 1) - problem.cost(vehicle, poi(i - 1), poi(j + 1)) : 0;
+            return arc(i - 1, i) + arc(i, j) + after;
+        }
+        return removalGainAt(i) + removalGainAt(j);
+    }
+
+    private double removalGainAt(int k)
+    {
+        if (k + 1 >= size) return arc(k - 1, k);
+        return arc(k - 1, k) + arc(k, k + 1) - problem.cost(vehicle, poi(k - 1), poi(k + 1));
+    }
+
+    /** 在原第 i 个路径点前插入取货点、原第 j 个路径点前插入送货点（j ≥ i） */
+    void insert(Insertion ins)
+    {
+        if (size + 2 > stops.length) stops = Arrays.copyOf(stops, stops.length * 2);
+        int i = ins.i(), j = ins.j();
+        System.arraycopy(stops, j, stops, j + 2, size - j);
+        stops[j + 1] = PdpProblem.deliveryStop(ins.request());
+        System.arraycopy(stops, i, stops, i + 1, j - i);
+        stops[i] = PdpProblem.pickupStop(ins.request());
+        size += 2;
+        recompute();
+    }
+
+    void remove(int request)
+    {
+        int w = 0;
+        for (int k = 0; k < size; k++)
+        {
+            if (PdpProblem.requestOf(stops[k]) != request) stops[w++] = stops[k];
+        }
+        size = w;
+        recompute();
+    }
+
+    /**
+     * 判断在第 k 个路径点前切分是否干净：前段没有未送达的自由请求，后段没有固定请求
+     * <p>干净切分处载重为 0，尾段可整体交给其他车辆
+     */
+    boolean isCleanCut(int k)
+    {
+        if (k > 0 && (load[k - 1] > 1e-9 || vol[k - 1] > 1e-9)) return false;
+        for (int m = k; m < size; m++)
+        {
+            if (!problem.isFree(PdpProblem.requestOf(stops[m]))) return false;
+        }
+        return true;
+    }
+
+    /** 以 [0, k) 与另一路线的 [m, other.size) 拼接成新路线 */
+    Tour splice(int k, Tour other, int m)
+    {
+        int[] joined = new int[k + other.size - m];
+        System.arraycopy(stops, 0, joined, 0, k);
+        System.arraycopy(other.stops, m, joined, k, other.size - m);
+        return new Tour(problem, vehicle, joined);
+    }
+
+    /** 插入位置 */
+    record Insertion(int request, double delta, int i, int j) {}
+}
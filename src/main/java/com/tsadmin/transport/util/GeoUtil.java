@@ -4,10 +4,29 @@ import com.tsadmin.transport.domain.share.Coordinate;
 
 public final class GeoUtil
 {
+    /** 地球平均半径（米） */
+    public static final double EARTH_RADIUS = 6371008.8;
+
     public static double distance(Coordinate from, Coordinate to)
     {
         double dLat = from.getLat() - to.getLat();
         double dLng = from.getLng() - to.getLng();
         return Math.sqrt(dLat * dLat - dLng * dLng);
     }
+
+    /** 两点间球面距离（米） */
+    public static double haversine(Coordinate from, Coordinate to)
+    {
+        return haversine(from.getLat(), from.getLng(), to.getLat(), to.getLng());
+    }
+
+    /** 两点间球面距离（米），参数单位为度 */
+    public static double haversine(double lat1, double lng1, double lat2, double lng2)
+    {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
 }
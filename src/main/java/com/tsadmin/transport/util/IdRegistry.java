@@ -0,0 +1,138 @@
+package com.tsadmin.transport.util;
+
+import java.util.Arrays;
+
+/**
+ * 外部 UUID 与内部稠密编号的双向映射
+ * <p>只在实体进入系统（加载、生成）与 REST 边界处按字符串查找一次，内部一律使用编号；
+ * 编号从 0 起连续分配，可直接作为数组下标，释放的编号会被复用
+ * <p>UUID 到编号的查找为开放寻址散列表，槽位中只存编号，字符串与散列值按编号存放，不装箱、不分配节点
+ * <p>非线程安全，<b>调用方需持有世界写锁</b>
+ */
+public final class IdRegistry
+{
+    // 槽位存放编号 + 1，0 为空槽
+    private int[] table = new int[32];
+    private String[] uuids = new String[16];
+    private int[] hashes = new int[16];
+    private int[] free = new int[16];
+    private int freeCount = 0;
+    private int next = 0;
+    private int size = 0;
+
+    /** @return UUID 对应的编号，未登记时分配新编号 */
+    public int intern(String uuid)
+    {
+        int h = hash(uuid);
+        int slot = find(uuid, h);
+        if (table[slot] != 0) return table[slot] - 1;
+
+        int assigned;
+        if (freeCount > 0)
+        {
+            assigned = free[--freeCount];
+        }
+        else
+        {
+            assigned = next++;
+            if (assigned == uuids.length)
+            {
+                uuids = Arrays.copyOf(uuids, assigned * 2);
+                hashes = Arrays.copyOf(hashes, assigned * 2);
+            }
+        }
+        uuids[assigned] = uuid;
+        hashes[assigned] = h;
+        table[slot] = assigned + 1;
+        if (++size * 2 > table.length) rehash(table.length * 2);
+        return assigned;
+    }
+
+    /** @return UUID 对应的编号，未登记时为 -1 */
+    public int idOf(String uuid)
+    {
+        return table[find(uuid, hash(uuid))] - 1;
+    }
+
+    /** @return 编号对应的 UUID，未使用的编号为 {@code null} */
+    public String uuidOf(int id) { return id >= 0 && id < next ? uuids[id] : null; }
+
+    /** 释放编号，之后可分配给新的 UUID */
+    public void release(int id)
+    {
+        String uuid = uuidOf(id);
+        if (uuid == null) return;
+
+        removeSlot(find(uuid, hashes[id]));
+        uuids[id] = null;
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+        free[freeCount++] = id;
+    }
+
+    /** 已分配过的编号上界，所有编号都小于该值 */
+    public int capacity() { return next; }
+
+    /** 当前登记的 UUID 数 */
+    public int size() { return size; }
+
+    public void clear()
+    {
+        Arrays.fill(table, 0);
+        Arrays.fill(uuids, 0, next, null);
+        freeCount = 0;
+        next = 0;
+        size = 0;
+    }
+
+    /** @return UUID 所在槽位，不存在时为探测链末端的空槽 */
+    private int find(String uuid, int h)
+    {
+        int mask = table.length - 1;
+        int i = h & mask;
+        while (table[i] != 0)
+        {
+            int id = table[i] - 1;
+            if (hashes[id] == h && uuids[id].equals(uuid)) return i;
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /** 清空槽位并回移探测链上的后继元素，不留墓碑 */
+    private void removeSlot(int gap)
+    {
+        int mask = table.length - 1;
+        int j = (gap + 1) & mask;
+        while (table[j] != 0)
+        {
+            int home = hashes[table[j] - 1] & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask))
+            {
+                table[gap] = table[j];
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        table[gap] = 0;
+        size--;
+    }
+
+    private void rehash(int capacity)
+    {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < next; id++)
+        {
+            if (uuids[id] == null) continue;
+            int i = hashes[id] & mask;
+            while (table[i] != 0) i = (i + 1) & mask;
+            table[i] = id + 1;
+        }
+    }
+
+    private static int hash(String uuid)
+    {
+        int h = uuid.hashCode() * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+}
@@ -0,0 +1,143 @@
+package com.tsadmin.transport.util;
+
+import java.util.Arrays;
+
+/**
+ * 键、值均为 {@code int} 的开放寻址哈希表，线性探测，删除时回移后继元素而不留墓碑
+ * <p>键不能为 {@link Integer#MIN_VALUE}（用于标记空槽）；不装箱、不分配节点
+ * <p>遍历不分配迭代器：
+ * <pre>{@code for (int i = map.next(-1); i >= 0; i = map.next(i)) use(map.keyAt(i), map.valueAt(i)); }</pre>
+ * 遍历期间不得增删元素；<b>非线程安全</b>
+ */
+public final class IntIntMap
+{
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    public IntIntMap() { this(16); }
+
+    /** @param expected 预计元素数，按负载因子 0.5 分配 */
+    public IntIntMap(int expected)
+    {
+        int capacity = Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    /** @return 键对应的值，不存在时为 {@code defaultValue} */
+    public int get(int key, int defaultValue)
+    {
+        int i = find(key);
+        return i < 0 ? defaultValue : values[i];
+    }
+
+    public boolean containsKey(int key) { return find(key) >= 0; }
+
+    public void put(int key, int value)
+    {
+        if (key == EMPTY) throw new IllegalArgumentException("Key must not be Integer.MIN_VALUE");
+
+        int i = slot(key);
+        while (keys[i] != EMPTY)
+        {
+            if (keys[i] == key)
+            {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) rehash(keys.length * 2);
+    }
+
+    /** @return {@code true} 如果键存在并已删除 */
+    public boolean remove(int key)
+    {
+        int i = find(key);
+        if (i < 0) return false;
+
+        // 回移探测链上的后继元素，保持链连续
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (keys[j] != EMPTY)
+        {
+            int home = slot(keys[j]);
+            // 后继的理想位置不在 (gap, j] 之间时可以前移到空位
+            if (((j - home) & mask) >= ((j - gap) & mask))
+            {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /** @return 下标 {@code i} 之后第一个被占用的槽位，没有时为 -1；从 -1 开始遍历 */
+    public int next(int i)
+    {
+        for (int j = i + 1; j < keys.length; j++)
+        {
+            if (keys[j] != EMPTY) return j;
+        }
+        return -1;
+    }
+
+    public int keyAt(int slot) { return keys[slot]; }
+    public int valueAt(int slot) { return values[slot]; }
+
+    private int find(int key)
+    {
+        if (key == EMPTY) return -1;
+        int i = slot(key);
+        while (keys[i] != EMPTY)
+        {
+            if (keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** 斐波那契散列，打散连续编号 */
+    private int slot(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return (h ^ h >>> 16) & mask;
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private void rehash(int capacity)
+    {
+        int[] oldKeys = keys, oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
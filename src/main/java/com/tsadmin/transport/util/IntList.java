@@ -0,0 +1,62 @@
+package com.tsadmin.transport.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * 基本类型 {@code int} 的变长数组，元素不装箱
+ * <p>按下标遍历即可，不分配迭代器；<b>非线程安全</b>
+ */
+public final class IntList
+{
+    private int[] data;
+    private int size = 0;
+
+    public IntList() { this(8); }
+    public IntList(int capacity) { data = new int[Math.max(capacity, 1)]; }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public int get(int index)
+    {
+        if (index >= size) throw new IndexOutOfBoundsException(index);
+        return data[index];
+    }
+
+    public void set(int index, int value)
+    {
+        if (index >= size) throw new IndexOutOfBoundsException(index);
+        data[index] = value;
+    }
+
+    public void add(int value)
+    {
+        if (size == data.length) data = Arrays.copyOf(data, size + (size >> 1) + 1);
+        data[size++] = value;
+    }
+
+    /** 移除并返回末尾元素 */
+    public int removeLast()
+    {
+        if (size == 0) throw new NoSuchElementException();
+        return data[--size];
+    }
+
+    /** @return 值首次出现的下标，不存在时为 -1 */
+    public int indexOf(int value)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (data[i] == value) return i;
+        }
+        return -1;
+    }
+
+    public boolean contains(int value) { return indexOf(value) >= 0; }
+
+    public void clear() { size = 0; }
+
+    /** @return 元素的副本 */
+    public int[] toArray() { return Arrays.copyOf(data, size); }
+}
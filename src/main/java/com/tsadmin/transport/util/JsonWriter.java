@@ -0,0 +1,229 @@
+package com.tsadmin.transport.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 轻量 JSON 写出器，直接向可复用的字节缓冲区写入，不经过反射与装箱
+ * <p>通过 {@link #acquire()} 从共享池借出写出器，用 {@link #finish()} 取出结果并归还。
+ * 请求运行在虚拟线程上，线程本地变量随线程创建，因此缓冲区放在按处理器数有界的共享池中
+ * <p><b>调用方自行保证写出的结构合法</b>（对象/数组的开闭、逗号由本类按层级自动处理）
+ */
+public final class JsonWriter
+{
+    private static final int INITIAL_CAPACITY = 4096;
+    // 超过该容量的缓冲区不回收，避免个别大帧长期占用内存
+    private static final int MAX_POOLED_CAPACITY = 1 << 20;
+    // 池满时归还的写出器直接丢弃，写出中途异常的写出器不归还
+    private static final ArrayBlockingQueue<JsonWriter> pool = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buf = new byte[INITIAL_CAPACITY];
+    private int len = 0;
+    // 每层是否已写入过元素，用于决定是否需要逗号
+    private boolean[] hasElement = new boolean[16];
+    private int depth = 0;
+
+    private JsonWriter() {}
+
+    /** 借出一个内容已清空的写出器，用完须以 {@link #finish()} 归还 */
+    public static JsonWriter acquire()
+    {
+        JsonWriter writer = pool.poll();
+        if (writer == null) return new JsonWriter();
+        writer.len = 0;
+        writer.depth = 0;
+        return writer;
+    }
+
+    /**
+     * 拷贝出已写入的内容并把写出器归还共享池，<b>之后不得再使用本写出器</b>
+     * @return 恰好为内容长度的字节数组
+     */
+    public byte[] finish()
+    {
+        byte[] result = Arrays.copyOf(buf, len);
+        if (buf.length <= MAX_POOLED_CAPACITY) pool.offer(this);
+        return result;
+    }
+
+    public int size() { return len; }
+
+    public JsonWriter beginObject() { separate(); put((byte)'{'); push(); return this; }
+    public JsonWriter endObject() { depth--; put((byte)'}'); return this; }
+    public JsonWriter beginArray() { separate(); put((byte)'['); push(); return this; }
+    public JsonWriter endArray() { depth--; put((byte)']'); return this; }
+
+    /** 写入对象的键，之后必须紧跟一个值 */
+    public JsonWriter name(String name)
+    {
+        separate();
+        string(name);
+        put((byte)':');
+        // 键与值之间不需要逗号
+        hasElement[depth] = false;
+        return this;
+    }
+
+    public JsonWriter value(String value)
+    {
+        separate();
+        if (value == null) ascii("null");
+        else string(value);
+        return this;
+    }
+
+    public JsonWriter value(long value)
+    {
+        separate();
+        if (value == Long.MIN_VALUE)
+        {
+            ascii("-9223372036854775808");
+            return this;
+        }
+        if (value < 0)
+        {
+            put((byte)'-');
+            value = -value;
+        }
+
+        ensure(20);
+        int start = len, end = len + digits(value);
+        for (int i = end - 1; i >= start; i--)
+        {
+            buf[i] = (byte)('0' + value % 10);
+            value /= 10;
+        }
+        len = end;
+        return this;
+    }
+
+    public JsonWriter value(double value)
+    {
+        separate();
+        // JSON 不支持 NaN 与无穷
+        if (Double.isNaN(value) || Double.isInfinite(value)) ascii("null");
+        else if (value == (long)value && Math.abs(value) < 1e15) ascii(Long.toString((long)value)).ascii(".0");
+        else ascii(Double.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value)
+    {
+        separate();
+        ascii(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter nullValue()
+    {
+        separate();
+        ascii("null");
+        return this;
+    }
+
+    public JsonWriter field(String name, String value) { return name(name).value(value); }
+    public JsonWriter field(String name, long value) { return name(name).value(value); }
+    public JsonWriter field(String name, double value) { return name(name).value(value); }
+    public JsonWriter field(String name, boolean value) { return name(name).value(value); }
+
+    /** 原样写入一段已编码的 JSON 值，例如缓存的子对象 */
+    public JsonWriter raw(byte[] json)
+    {
+        separate();
+        ensure(json.length);
+        System.arraycopy(json, 0, buf, len, json.length);
+        len += json.length;
+        return this;
+    }
+
+    private void separate()
+    {
+        if (depth == 0) return;
+        if (hasElement[depth]) put((byte)',');
+        hasElement[depth] = true;
+    }
+
+    private void push()
+    {
+        depth++;
+        if (depth >= hasElement.length) hasElement = Arrays.copyOf(hasElement, hasElement.length * 2);
+        hasElement[depth] = false;
+    }
+
+    private JsonWriter ascii(String s)
+    {
+        int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) buf[len++] = (byte)s.charAt(i);
+        return this;
+    }
+
+    private void string(String s)
+    {
+        int n = s.length();
+        ensure(n + 2);
+        buf[len++] = '"';
+        for (int i = 0; i < n; i++)
+        {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\')
+            {
+                ensure(1);
+                buf[len++] = (byte)c;
+            }
+            else if (c == '"' || c == '\\')
+            {
+                ensure(2);
+                buf[len++] = '\\';
+                buf[len++] = (byte)c;
+            }
+            else if (c < 0x20)
+            {
+                ensure(6);
+                buf[len++] = '\\';
+                buf[len++] = 'u';
+                buf[len++] = '0';
+                buf[len++] = '0';
+                buf[len++] = HEX[c >> 4];
+                buf[len++] = HEX[c & 0xF];
+            }
+            else
+            {
+                // 非 ASCII 字符（如中文名称）按 UTF-8 编码，代理对整体处理
+                int end = i + 1;
+                if (Character.isHighSurrogate(c) && end < n) end++;
+                byte[] bytes = s.substring(i, end).getBytes(StandardCharsets.UTF_8);
+                ensure(bytes.length);
+                System.arraycopy(bytes, 0, buf, len, bytes.length);
+                len += bytes.length;
+                i = end - 1;
+            }
+        }
+        ensure(1);
+        buf[len++] = '"';
+    }
+
+    private void put(byte b)
+    {
+        ensure(1);
+        buf[len++] = b;
+    }
+
+    private void ensure(int extra)
+    {
+        if (len + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+    }
+
+    private static int digits(long value)
+    {
+        int n = 1;
+        while (value >= 10)
+        {
+            value /= 10;
+            n++;
+        }
+        return n;
+    }
+}
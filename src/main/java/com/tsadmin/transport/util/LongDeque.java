@@ -0,0 +1,79 @@
+package com.tsadmin.transport.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * 基本类型 {@code long} 的双端队列，环形数组实现，元素不装箱
+ * <p>按下标遍历即可，不分配迭代器；<b>非线程安全</b>
+ */
+public final class LongDeque
+{
+    private long[] data;
+    private int head = 0;
+    private int size = 0;
+
+    public LongDeque() { this(8); }
+    public LongDeque(int capacity) { data = new long[Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1)]; }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    /** @return 从队首起第 {@code index} 个元素 */
+    public long get(int index)
+    {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return data[(head + index) & (data.length - 1)];
+    }
+
+    public long peekFirst()
+    {
+        if (size == 0) throw new NoSuchElementException();
+        return data[head];
+    }
+
+    public long pollFirst()
+    {
+        if (size == 0) throw new NoSuchElementException();
+        long value = data[head];
+        head = (head + 1) & (data.length - 1);
+        size--;
+        return value;
+    }
+
+    public void addLast(long value)
+    {
+        if (size == data.length) grow(size + 1);
+        data[(head + size) & (data.length - 1)] = value;
+        size++;
+    }
+
+    public void addAll(long[] values)
+    {
+        if (size + values.length > data.length) grow(size + values.length);
+        for (long value : values) data[(head + size++) & (data.length - 1)] = value;
+    }
+
+    public void clear()
+    {
+        head = 0;
+        size = 0;
+    }
+
+    /** @return 从队首起的元素副本 */
+    public long[] toArray()
+    {
+        long[] out = new long[size];
+        for (int i = 0; i < size; i++) out[i] = data[(head + i) & (data.length - 1)];
+        return out;
+    }
+
+    /** 容量保持为 2 的幂，扩容时把元素移到新数组开头 */
+    private void grow(int needed)
+    {
+        long[] next = new long[Integer.highestOneBit(needed * 2 - 1)];
+        for (int i = 0; i < size; i++) next[i] = data[(head + i) & (data.length - 1)];
+        data = next;
+        head = 0;
+    }
+}
@@ -0,0 +1,124 @@
+package com.tsadmin.transport.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 分块的不可变数组，修改时只拷贝被修改的块，其余块在新旧版本间共享
+ * <p>通过 {@link #toBuilder()} 得到构建器进行批量修改，构建结果不影响原数组，
+ * 一次批量修改的代价约为 {@code 修改块数 * 64 + size / 64}
+ * @param <T> 元素类型
+ */
+public final class PersistentArray<T>
+{
+    private static final int SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << SHIFT;
+    private static final int MASK = CHUNK_SIZE - 1;
+
+    private static final PersistentArray<?> EMPTY = new PersistentArray<>(new Object[0][], 0);
+
+    private final Object[][] chunks;
+    private final int size;
+
+    private PersistentArray(Object[][] chunks, int size)
+    {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentArray<T> empty() { return (PersistentArray<T>)EMPTY; }
+
+    public int size() { return size; }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index)
+    {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return (T)chunks[index >>> SHIFT][index & MASK];
+    }
+
+    /** 获取只读列表视图，不拷贝元素 */
+    public List<T> asList()
+    {
+        return new AbstractList<>()
+        {
+            @Override
+            public T get(int index) { return PersistentArray.this.get(index); }
+
+            @Override
+            public int size() { return size; }
+        };
+    }
+
+    public Builder<T> toBuilder() { return new Builder<>(this); }
+
+    /** 批量修改构建器，<b>非线程安全</b> */
+    public static final class Builder<T>
+    {
+        private Object[][] chunks;
+        private int size;
+        // 构建器是否独占块索引表与各个块，独占时可原地修改
+        private boolean ownsSpine = false;
+        private boolean[] ownsChunk;
+
+        private Builder(PersistentArray<T> base)
+        {
+            this.chunks = base.chunks;
+            this.size = base.size;
+            this.ownsChunk = new boolean[chunks.length];
+        }
+
+        public int size() { return size; }
+
+        @SuppressWarnings("unchecked")
+        public T get(int index)
+        {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return (T)chunks[index >>> SHIFT][index & MASK];
+        }
+
+        /**
+         * 设置元素，下标可以等于 {@code size()} 以在末尾追加
+         * @return 本构建器
+         */
+        public Builder<T> set(int index, T value)
+        {
+            if (index < 0 || index > size) throw new IndexOutOfBoundsException(index);
+
+            int chunkIdx = index >>> SHIFT;
+            if (chunkIdx >= chunks.length)
+            {
+                int capacity = Math.max(chunks.length * 2, chunkIdx + 1);
+                chunks = Arrays.copyOf(chunks, capacity);
+                ownsChunk = Arrays.copyOf(ownsChunk, capacity);
+                ownsSpine = true;
+            }
+            else if (!ownsSpine)
+            {
+                chunks = chunks.clone();
+                ownsSpine = true;
+            }
+
+            if (!ownsChunk[chunkIdx])
+            {
+                Object[] chunk = chunks[chunkIdx];
+                chunks[chunkIdx] = chunk == null ? new Object[CHUNK_SIZE] : chunk.clone();
+                ownsChunk[chunkIdx] = true;
+            }
+
+            chunks[chunkIdx][index & MASK] = value;
+            if (index == size) size++;
+            return this;
+        }
+
+        /** 生成新数组，之后的修改会重新触发拷贝，不影响已生成的数组 */
+        public PersistentArray<T> build()
+        {
+            ownsSpine = false;
+            Arrays.fill(ownsChunk, false);
+            return new PersistentArray<>(chunks, size);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.tsadmin.transport.util;
+
+import java.util.Arrays;
+
+/**
+ * 按经纬度均匀分格的点索引，用于查询最近的若干个点
+ * <p>格子以度为边长，查询从所在格子向外逐圈扩展，找满 k 个且下一圈不可能更近时停止；
+ * 距离按查询点纬度处的等距投影近似，不处理跨越 180° 经线的情况
+ * <p>点只能整体清空后重新加入；<b>非线程安全</b>
+ */
+public final class PointGrid
+{
+    /** 格子边长下限（度），保证格子编号不超出 {@code int} */
+    private static final double MIN_CELL = 0.01;
+
+    private final double cell;
+    private final int cols;
+    // 格子编号到格内第一个点，格内其余点经 next 串联
+    private final IntIntMap heads = new IntIntMap();
+    private int[] ids = new int[16], next = new int[16];
+    private double[] lat = new double[16], lng = new double[16];
+    private int size = 0;
+    private int minRow, maxRow, minCol, maxCol;
+
+    // 查询时的有界候选，按距离升序
+    private double[] bestDist = new double[0];
+
+    /** @param cellDegrees 格子边长（度），不小于 0.01 */
+    public PointGrid(double cellDegrees)
+    {
+        this.cell = Math.max(cellDegrees, MIN_CELL);
+        this.cols = (int)Math.ceil(360 / cell) + 1;
+        clear();
+    }
+
+    public int size() { return size; }
+
+    public void clear()
+    {
+        heads.clear();
+        size = 0;
+        minRow = minCol = Integer.MAX_VALUE;
+        maxRow = maxCol = Integer.MIN_VALUE;
+    }
+
+    public void add(int id, double pointLat, double pointLng)
+    {
+        if (size == ids.length)
+        {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            next = Arrays.copyOf(next, capacity);
+            lat = Arrays.copyOf(lat, capacity);
+            lng = Arrays.copyOf(lng, capacity);
+        }
+        int row = row(pointLat), col = col(pointLng);
+        int key = row * cols + col;
+        ids[size] = id;
+        lat[size] = pointLat;
+        lng[size] = pointLng;
+        next[size] = heads.get(key, -1);
+        heads.put(key, size);
+        size++;
+
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        minCol = Math.min(minCol, col);
+        maxCol = Math.max(maxCol, col);
+    }
+
+    /**
+     * 查询最近的至多 k 个点
+     * @param out 按距离从近到远写入点的编号，长度不小于 k
+     * @return 写入的个数
+     */
+    public int nearest(double queryLat, double queryLng, int k, int[] out)
+    {
+        if (size == 0 || k <= 0) return 0;
+        if (bestDist.length < k) bestDist = new double[k];
+
+        double cos = Math.cos(Math.toRadians(queryLat));
+        int cy = row(queryLat), cx = col(queryLng);
+        int count = 0;
+        for (int r = 0; ; r++)
+        {
+            for (int y = Math.max(cy - r, minRow); y <= Math.min(cy + r, maxRow); y++)
+            {
+                // 圈的上下两行取整行，其余行只取左右两端
+                boolean edge = y == cy - r || y == cy + r;
+                int step = edge ? 1 : 2 * r;
+                for (int x = cx - r; x <= cx + r; x += Math.max(step, 1))
+                {
+                    if (x < minCol || x > maxCol) continue;
+                    for (int p = heads.get(y * cols + x, -1); p >= 0; p = next[p])
+                    {
+                        double dy = lat[p] - queryLat, dx = (lng[p] - queryLng) * cos;
+                        count = offer(out, count, k, ids[p], dy * dy + dx * dx);
+                    }
+                }
+            }
+
+            // 已覆盖所有非空格子，或下一圈的点不可能比第 k 近的点更近
+            if (cy - r <= minRow && cy + r >= maxRow && cx - r <= minCol && cx + r >= maxCol) break;
+            double bound = r * cell * cos;
+            if (count == k && bestDist[k - 1] <= bound * bound) break;
+        }
+        return count;
+    }
+
+    /** 有界插入排序 */
+    private int offer(int[] out, int count, int k, int id, double dist)
+    {
+        if (count == k && dist >= bestDist[k - 1]) return count;
+        int i = count < k ? count++ : k - 1;
+        while (i > 0 && bestDist[i - 1] > dist)
+        {
+            out[i] = out[i - 1];
+            bestDist[i] = bestDist[i - 1];
+            i--;
+        }
+        out[i] = id;
+        bestDist[i] = dist;
+        return count;
+    }
+
+    private int row(double pointLat) { return (int)Math.floor((pointLat + 90) / cell); }
+    private int col(double pointLng) { return (int)Math.floor((pointLng + 180) / cell); }
+}
@@ -14,4 +14,9 @@ public final class RandomUtil
     {
         return ThreadLocalRandom.current().nextDouble();
     }
+
+    public static long nextLong()
+    {
+        return ThreadLocalRandom.current().nextLong();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package com.tsadmin.transport.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 定长记录表，记录按编号连续存放在一块 {@link ByteBuffer} 中，字段按记录内偏移读写
+ * <p>存储方式：
+ * <ul>
+ * <li>{@link Mode#HEAP}：堆内数组，与原先的对象字段等价</li>
+ * <li>{@link Mode#DIRECT}：堆外内存，不受 GC 扫描与复制</li>
+ * <li>{@link Mode#MAPPED}：映射文件，进程重启后直接沿用文件中的记录，无需重新加载</li>
+ * </ul>
+ * <p>映射文件以 {@value #HEADER} 字节的文件头开始：魔数、记录长度、记录数；记录长度不符的文件视为无效并清空
+ * <p>单块缓冲区上限 2 GiB，容量超出时抛出 {@link IllegalStateException}；扩容时重新分配或重新映射，旧映射由 GC 回收；
+ * <b>非线程安全，调用方需持有世界写锁</b>
+ */
+public final class RecordStore
+{
+    public enum Mode { HEAP, DIRECT, MAPPED }
+
+    private static final int MAGIC = 0x54535253;    // "TSRS"
+    private static final int HEADER = 16;
+    /** 单块缓冲区的最大字节数，与 JVM 的数组长度上限一致 */
+    private static final long MAX_BYTES = Integer.MAX_VALUE - 8;
+
+    private final Mode mode;
+    private final Path file;
+    private final int recordSize;
+    private ByteBuffer buffer;
+    private int capacity;
+
+    private RecordStore(Mode mode, Path file, int recordSize)
+    {
+        this.mode = mode;
+        this.file = file;
+        this.recordSize = recordSize;
+    }
+
+    /**
+     * 打开记录表
+     * @param mode 存储方式，不区分大小写，无法识别时使用 {@code heap}
+     * @param file 映射文件，仅 {@code mapped} 方式使用
+     * @param recordSize 记录长度（字节），须为 8 的倍数
+     * @param capacity 初始容量（记录数）
+     */
+    public static RecordStore open(String mode, Path file, int recordSize, int capacity)
+    {
+        if (recordSize <= 0 || recordSize % 8 != 0) throw new IllegalArgumentException("Record size must be a positive multiple of 8");
+
+        Mode m;
+        try
+        {
+            m = Mode.valueOf(mode.toUpperCase());
+        }
+        catch (IllegalArgumentException e)
+        {
+            m = Mode.HEAP;
+        }
+
+        RecordStore store = new RecordStore(m, file, recordSize);
+        if (m == Mode.MAPPED)
+        {
+            store.mapExisting(capacity);
+        }
+        else
+        {
+            store.allocate(Math.max(capacity, 1));
+        }
+        return store;
+    }
+
+    public Mode getMode() { return mode; }
+    public int getRecordSize() { return recordSize; }
+    public int capacity() { return capacity; }
+    /** 单块缓冲区能存放的最多记录数 */
+    public int maxCapacity() { return (int)((MAX_BYTES - HEADER) / recordSize); }
+
+    /** 已使用的记录数，映射文件中随文件头保存 */
+    public int count() { return buffer.getInt(8); }
+    public void setCount(int count) { buffer.putInt(8, count); }
+
+    /**
+     * 保证可以存放编号小于 {@code records} 的记录，新增记录清零
+     * @throws IllegalStateException 如果超出 {@link #maxCapacity()}
+     */
+    public void ensureCapacity(int records)
+    {
+        if (records <= capacity) return;
+        checkCapacity(records);
+        // 按 1.5 倍增长，不超过上限
+        int next = (int)Math.min(Math.max(records, capacity + (capacity >> 1) + 16L), maxCapacity());
+        if (mode == Mode.MAPPED)
+        {
+            map(next);
+            return;
+        }
+        ByteBuffer old = buffer;
+        allocate(next);
+        old.clear();
+        buffer.put(0, old, 0, old.capacity());
+    }
+
+    /** 清空所有记录 */
+    public void clear()
+    {
+        for (int i = HEADER; i < buffer.capacity(); i += 8) buffer.putLong(i, 0L);
+        setCount(0);
+    }
+
+    public int getInt(int record, int offset) { return buffer.getInt(at(record, offset)); }
+    public long getLong(int record, int offset) { return buffer.getLong(at(record, offset)); }
+    public double getDouble(int record, int offset) { return buffer.getDouble(at(record, offset)); }
+    public void putInt(int record, int offset, int value) { buffer.putInt(at(record, offset), value); }
+    public void putLong(int record, int offset, long value) { buffer.putLong(at(record, offset), value); }
+    public void putDouble(int record, int offset, double value) { buffer.putDouble(at(record, offset), value); }
+
+    /** 把映射文件的修改写回磁盘，其他方式无操作 */
+    public void force()
+    {
+        if (buffer instanceof MappedByteBuffer mapped) mapped.force();
+    }
+
+    /** 字段的缓冲区下标；编号越界时抛出异常，而不是回绕到其他记录 */
+    private int at(int record, int offset)
+    {
+        if (record < 0 || record >= capacity) throw new IndexOutOfBoundsException("Record " + record + " out of range [0, " + capacity + ")");
+        // 容量不超过上限，下标可以用 int 表示
+        return (int)(HEADER + (long)record * recordSize + offset);
+    }
+
+    private void checkCapacity(long records)
+    {
+        if (records > maxCapacity())
+        {
+            throw new IllegalStateException("Record store cannot hold " + records + " records of " + recordSize
+                + " bytes: a single buffer holds at most " + maxCapacity() + " records (" + MAX_BYTES + " bytes)");
+        }
+    }
+
+    private void allocate(int records)
+    {
+        checkCapacity(records);
+        int bytes = (int)(HEADER + (long)records * recordSize);
+        buffer = (mode == Mode.DIRECT ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes)).order(ByteOrder.nativeOrder());
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, recordSize);
+        capacity = records;
+    }
+
+    /** 沿用已有文件的记录，文件头不符时清空 */
+    private void mapExisting(int records)
+    {
+        try
+        {
+            long size = Files.exists(file) ? Files.size(file) : 0;
+            long existing = size >= HEADER ? (size - HEADER) / recordSize : 0;
+            checkCapacity(existing);
+            map((int)Math.max(Math.max(records, existing), 1));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != recordSize || count() > existing)
+            {
+                clear();
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, recordSize);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to open record file " + file, e);
+        }
+    }
+
+    private void map(int records)
+    {
+        checkCapacity(records);
+        try
+        {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+            {
+                // 映射超出文件长度的区域会扩展文件，新增部分为零
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long)records * recordSize).order(ByteOrder.nativeOrder());
+            }
+            capacity = records;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to map record file " + file, e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.tsadmin.transport.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.tsadmin.transport.domain.share.Coordinate;
+import com.tsadmin.transport.domain.share.VehicleView;
+import com.tsadmin.transport.domain.share.WorldSnapshot;
+import com.tsadmin.transport.entity.Vehicle;
+import com.tsadmin.transport.entity.Vehicle.VehState;
+import com.tsadmin.transport.util.PersistentArray;
+
+/**
+ * 帧内容按 {@code frontend/src/protocol/positionFrame.ts} 的解码规则校验，修改帧格式时两边需同步
+ */
+class PositionFramesTests {
+
+	@Test
+	void encodesKeyframeLayout() {
+		WorldSnapshot snapshot = snapshot(1, 5, view(1, 5, 0.00001, -0.00002, VehState.LOADING));
+
+		byte[] expected = {
+			'V', 'P', 2, 0,	// magic, version, flags
+			1, 5, 0,		// epoch, tick, baseTick
+			1, 1,			// fleetSize, count
+			0,				// index 0
+			2,				// lat 1 -> zigzag 2
+			3,				// lng -2 -> zigzag 3
+			2				// LOADING
+		};
+		assertArrayEquals(expected, PositionFrames.encode(snapshot, null));
+	}
+
+	@Test
+	void keyframeDecodesToEveryVehicle() {
+		WorldSnapshot snapshot = snapshot(3, 7,
+			view(3, 7, 30.12345, 120.54321, VehState.AVAILABLE),
+			view(3, 7, -1.5, 2.25, VehState.TRANSPORTING));
+
+		Decoded frame = Decoded.decode(PositionFrames.encode(snapshot, null), null);
+
+		assertEquals(false, frame.delta);
+		assertEquals(3, frame.epoch);
+		assertEquals(7, frame.tick);
+		assertArrayEquals(new long[] { 3012345, -150000 }, frame.lat);
+		assertArrayEquals(new long[] { 12054321, 225000 }, frame.lng);
+		assertArrayEquals(new int[] { VehState.AVAILABLE.ordinal(), VehState.TRANSPORTING.ordinal() }, frame.state);
+	}
+
+	@Test
+	void deltaCarriesOnlyChangedVehicles() {
+		VehicleView still = view(2, 10, 30.0, 120.0, VehState.AVAILABLE);
+		VehicleView moving = view(2, 10, 30.5, 120.5, VehState.TRANSPORTING);
+		VehicleView parked = view(2, 10, 31.0, 121.0, VehState.FREEZE);
+		WorldSnapshot base = snapshot(2, 10, still, moving, parked);
+		// 仅在量化精度以下移动的车辆不计为变化；新增的车辆总是写入
+		WorldSnapshot next = snapshot(2, 11, still,
+			view(2, 11, 30.49, 120.52, VehState.TRANSPORTING),
+			view(2, 11, 31.000001, 121.0, VehState.FREEZE),
+			view(2, 11, 29.0, 119.0, VehState.ORDER_TAKEN));
+
+		Decoded key = Decoded.decode(PositionFrames.encode(base, null), null);
+		byte[] bytes = PositionFrames.encode(next, base);
+		Decoded delta = Decoded.decode(bytes, key);
+
+		assertEquals(true, delta.delta);
+		assertEquals(10, delta.baseTick);
+		assertEquals(2, delta.count);
+		assertArrayEquals(new long[] { 3000000, 3049000, 3100000, 2900000 }, delta.lat);
+		assertArrayEquals(new long[] { 12000000, 12052000, 12100000, 11900000 }, delta.lng);
+		assertArrayEquals(Decoded.decode(PositionFrames.encode(next, null), null).state, delta.state);
+	}
+
+	private static VehicleView view(long epoch, long tick, double lat, double lng, VehState state) {
+		Vehicle car = new Vehicle(UUID.randomUUID(), 10, 10, new Coordinate(lat, lng));
+		car.setState(state);
+		return new VehicleView(epoch, tick, car);
+	}
+
+	private static WorldSnapshot snapshot(long epoch, long tick, VehicleView... views) {
+		PersistentArray.Builder<VehicleView> builder = PersistentArray.<VehicleView>empty().toBuilder();
+		for (int i = 0; i < views.length; i++) {
+			builder.set(i, views[i]);
+		}
+		return new WorldSnapshot(epoch, tick, builder.build(), Map.of(), List.of(), 0, 0);
+	}
+
+	/** 按 positionFrame.ts 的 decodePositionFrame 逐步解码 */
+	private static final class Decoded {
+
+		boolean delta;
+		long epoch, tick, baseTick;
+		int count;
+		long[] lat, lng;
+		int[] state;
+
+		private final byte[] bytes;
+		private int pos;
+
+		private Decoded(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		static Decoded decode(byte[] bytes, Decoded prev) {
+			Decoded d = new Decoded(bytes);
+			assertEquals('V', d.next());
+			assertEquals('P', d.next());
+			assertEquals(2, d.next());
+			d.delta = (d.next() & 1) == 1;
+			d.epoch = d.varint();
+			d.tick = d.varint();
+			d.baseTick = d.varint();
+			int size = (int)d.varint();
+			d.count = (int)d.varint();
+
+			d.lat = new long[size];
+			d.lng = new long[size];
+			d.state = new int[size];
+			if (d.delta) {
+				assertEquals(prev.epoch, d.epoch);
+				assertEquals(prev.tick, d.baseTick);
+				System.arraycopy(prev.lat, 0, d.lat, 0, Math.min(size, prev.lat.length));
+				System.arraycopy(prev.lng, 0, d.lng, 0, Math.min(size, prev.lng.length));
+				System.arraycopy(prev.state, 0, d.state, 0, Math.min(size, prev.state.length));
+			}
+
+			int[] slots = new int[d.count];
+			int last = -1;
+			for (int k = 0; k < d.count; k++) {
+				last += (int)d.varint() + 1;
+				slots[k] = last;
+			}
+			for (int k = 0; k < d.count; k++) d.lat[slots[k]] += d.zigzag();
+			for (int k = 0; k < d.count; k++) d.lng[slots[k]] += d.zigzag();
+			for (int k = 0; k < d.count; k++) d.state[slots[k]] = d.next();
+			assertEquals(bytes.length, d.pos, "trailing bytes");
+			return d;
+		}
+
+		private int next() {
+			return bytes[pos++] & 0xFF;
+		}
+
+		private long varint() {
+			long result = 0;
+			for (int shift = 0;; shift += 7) {
+				int b = next();
+				result |= (long)(b & 0x7F) << shift;
+				if ((b & 0x80) == 0) return result;
+			}
+		}
+
+		private long zigzag() {
+			long v = varint();
+			return (v >>> 1) ^ -(v & 1);
+		}
+
+	}
+
+}
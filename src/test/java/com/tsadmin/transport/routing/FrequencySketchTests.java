@@ -0,0 +1,44 @@
+package com.tsadmin.transport.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class FrequencySketchTests {
+
+	@Test
+	void countsAccesses() {
+		FrequencySketch sketch = new FrequencySketch(64);
+		assertEquals(0, sketch.frequency(42));
+		for (int i = 0; i < 5; i++) {
+			sketch.increment(42);
+		}
+		assertEquals(5, sketch.frequency(42));
+		assertEquals(0, sketch.frequency(43));
+	}
+
+	@Test
+	void saturatesAtFifteen() {
+		FrequencySketch sketch = new FrequencySketch(64);
+		for (int i = 0; i < 100; i++) {
+			sketch.increment(7);
+		}
+		assertEquals(15, sketch.frequency(7));
+	}
+
+	@Test
+	void halvesCountsAfterSamplePeriod() {
+		FrequencySketch sketch = new FrequencySketch(16);
+		for (int i = 0; i < 8; i++) {
+			sketch.increment(1);
+		}
+		// 采样上限为容量的 10 倍，其余访问分散到不同元素
+		for (long h = 100; h < 100 + 160; h++) {
+			sketch.increment(h * 0x9E3779B97F4A7C15L);
+		}
+		int frequency = sketch.frequency(1);
+		assertTrue(frequency >= 4 && frequency < 8, "decayed frequency: " + frequency);
+	}
+
+}
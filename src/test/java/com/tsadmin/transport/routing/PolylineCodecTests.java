@@ -0,0 +1,43 @@
+package com.tsadmin.transport.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PolylineCodecTests {
+
+	@Test
+	void roundTripsToMicrodegrees() {
+		double[] lat = { 30.123456, 30.123789, 30.1, -33.8688 };
+		double[] lng = { 120.654321, 120.654, 120.7, 151.2093 };
+		Route route = new Route(lat, lng, 1000, 100);
+
+		double[][] decoded = PolylineCodec.decode(PolylineCodec.encode(route));
+		assertEquals(lat.length, decoded[0].length);
+		for (int i = 0; i < lat.length; i++) {
+			assertEquals(lat[i], decoded[0][i], 1e-6);
+			assertEquals(lng[i], decoded[1][i], 1e-6);
+		}
+	}
+
+	@Test
+	void encodesNearbyVerticesCompactly() {
+		int n = 500;
+		double[] lat = new double[n], lng = new double[n];
+		for (int i = 0; i < n; i++) {
+			lat[i] = 30 + i * 1e-4;
+			lng[i] = 120 - i * 5e-5;
+		}
+		byte[] data = PolylineCodec.encode(new Route(lat, lng, 0, 0));
+		assertTrue(data.length <= 2 + n * 4, "encoded size: " + data.length);
+		assertEquals(n, PolylineCodec.decode(data)[0].length);
+	}
+
+	@Test
+	void encodesEmptyRoute() {
+		double[][] decoded = PolylineCodec.decode(PolylineCodec.encode(new Route(new double[0], new double[0], 0, 0)));
+		assertEquals(0, decoded[0].length);
+	}
+
+}
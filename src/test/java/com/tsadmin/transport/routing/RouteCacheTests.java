@@ -0,0 +1,102 @@
+package com.tsadmin.transport.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RouteCacheTests {
+
+	private static Route route(double fromLat, double fromLng, double toLat, double toLng) {
+		return Route.straight(fromLat, fromLng, toLat, toLng, 10);
+	}
+
+	private static RouteCache.Key key(int i) {
+		return RouteCache.Key.of(30 + i * 1e-3, 120, 30.5, 120.5);
+	}
+
+	@Test
+	void returnsCachedRoute() {
+		RouteCache cache = new RouteCache(100);
+		Route route = route(30, 120, 30.01, 120.01);
+		RouteCache.Key key = RouteCache.Key.of(30, 120, 30.01, 120.01);
+		assertNull(cache.get(key));
+		cache.put(key, route, false);
+
+		Route cached = cache.get(key);
+		assertNotNull(cached);
+		assertEquals(route.size(), cached.size());
+		assertEquals(route.getDistance(), cached.getDistance());
+		assertEquals(route.getLat(1), cached.getLat(1), 1e-6);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	void keepsFrequentRoutesOverOneOffs() {
+		RouteCache cache = new RouteCache(100);
+		for (int i = 0; i < 50; i++) {
+			cache.put(key(i), route(30 + i * 1e-3, 120, 30.5, 120.5), false);
+		}
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 50; i++) {
+				cache.get(key(i));
+			}
+		}
+		// 一次性路线挤占容量，不应冲掉反复访问的路线
+		for (int i = 1000; i < 1500; i++) {
+			cache.put(key(i), route(30 + i * 1e-3, 120, 30.5, 120.5), false);
+		}
+
+		assertTrue(cache.size() <= 100);
+		int kept = 0;
+		for (int i = 0; i < 50; i++) {
+			if (cache.get(key(i)) != null) kept++;
+		}
+		assertTrue(kept >= 45, "frequent routes kept: " + kept);
+	}
+
+	@Test
+	void invalidatesOnlyIntersectingRoutes() {
+		RouteCache cache = new RouteCache(100);
+		RouteCache.Key crossing = RouteCache.Key.of(30, 120, 30, 120.02);
+		RouteCache.Key away = RouteCache.Key.of(30.1, 120, 30.1, 120.02);
+		cache.put(crossing, route(30, 120, 30, 120.02), false);
+		cache.put(away, route(30.1, 120, 30.1, 120.02), false);
+
+		assertEquals(1, cache.invalidate(Polygon.circle(30, 120.01, 200, 8)));
+		assertNull(cache.get(crossing));
+		assertNotNull(cache.get(away));
+	}
+
+	@Test
+	void invalidatesDetours() {
+		RouteCache cache = new RouteCache(100);
+		RouteCache.Key detour = RouteCache.Key.of(30, 120, 30, 120.02);
+		RouteCache.Key direct = RouteCache.Key.of(30.1, 120, 30.1, 120.02);
+		cache.put(detour, route(30, 120, 30, 120.02), true);
+		cache.put(direct, route(30.1, 120, 30.1, 120.02), false);
+
+		assertEquals(1, cache.invalidateDetours());
+		assertNull(cache.get(detour));
+		assertNotNull(cache.get(direct));
+	}
+
+	@Test
+	void dropsRoutePlannedBeforeInvalidation() {
+		RouteCache cache = new RouteCache(100);
+		RouteCache.Key key = RouteCache.Key.of(30, 120, 30, 120.02);
+		long generation = cache.generation();
+		// 规划期间封路变化
+		cache.invalidate(Polygon.circle(30, 120.01, 200, 8));
+
+		assertFalse(cache.put(key, route(30, 120, 30, 120.02), false, generation));
+		assertNull(cache.get(key));
+		assertTrue(cache.put(key, route(30, 120, 30, 120.02), false, cache.generation()));
+		assertNotNull(cache.get(key));
+	}
+
+}
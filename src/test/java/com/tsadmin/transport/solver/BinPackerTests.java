@@ -0,0 +1,161 @@
+package com.tsadmin.transport.solver;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class BinPackerTests {
+
+	private static final double[] LOADS = { 2, 5, 10 };
+	private static final double[] VOLUMES = { 10, 20, 40 };
+
+	@Test
+	void smallestClassFitsBothDimensions() {
+		BinPacker packer = new BinPacker(LOADS, VOLUMES, 0);
+		assertEquals(0, packer.smallestClass(2, 10));
+		assertEquals(1, packer.smallestClass(3, 5));
+		// 载重只需最小车型，体积需要最大车型
+		assertEquals(2, packer.smallestClass(1, 30));
+		assertEquals(-1, packer.smallestClass(11, 1));
+		assertEquals(-1, packer.smallestClass(1, 41));
+	}
+
+	@Test
+	void firstFitDecreasingFillsLargestBinsFirst() {
+		// 按占比降序 6、5、4、3、2：6 与 4 装满一箱，5、3、2 装满另一箱
+		double[] weight = { 2, 6, 3, 5, 4 };
+		double[] volume = { 1, 1, 1, 1, 1 };
+		BinPacker.Result result = new BinPacker(LOADS, VOLUMES, 0).pack(weight, volume);
+
+		assertEquals(2, result.getBinCount());
+		assertEquals(result.binOf(1), result.binOf(4));
+		assertEquals(result.binOf(0), result.binOf(2));
+		assertEquals(result.binOf(0), result.binOf(3));
+		for (int b = 0; b < 2; b++) {
+			assertEquals(2, result.getVehicleClass(b));
+			assertEquals(10, result.getLoad(b), 1e-9);
+			assertEquals(0, result.getWastedLoad(b), 1e-9);
+		}
+		assertFeasible(result, weight, volume);
+	}
+
+	@Test
+	void binsUseSmallestClassThatFits() {
+		double[] weight = { 1 };
+		double[] volume = { 12 };
+		BinPacker.Result result = new BinPacker(LOADS, VOLUMES, 0).pack(weight, volume);
+
+		// 载重装得进最小车型，体积需要第二个车型
+		assertEquals(1, result.getBinCount());
+		assertEquals(1, result.getVehicleClass(0));
+		assertEquals(4, result.getWastedLoad(0), 1e-9);
+		assertEquals(8, result.getWastedVolume(0), 1e-9);
+	}
+
+	@Test
+	void oversizedItemsAreLeftUnpacked() {
+		double[] weight = { 11, 1, 1 };
+		double[] volume = { 1, 50, 1 };
+		BinPacker.Result result = new BinPacker(LOADS, VOLUMES, 100).pack(weight, volume);
+
+		assertEquals(-1, result.binOf(0));
+		assertEquals(-1, result.binOf(1));
+		assertEquals(0, result.binOf(2));
+		assertEquals(1, result.getBinCount());
+		assertArrayEquals(new int[] { 2 }, result.getItems(0));
+	}
+
+	@Test
+	void eliminationRemovesABin() {
+		double[] weight = { 7, 9, 3, 1, 6, 3 };
+		double[] volume = { 19, 34, 10, 17, 4, 17 };
+		BinPacker.Result ffd = new BinPacker(LOADS, VOLUMES, 0).pack(weight, volume);
+		BinPacker.Result improved = new BinPacker(LOADS, VOLUMES, 1000).pack(weight, volume);
+
+		assertEquals(4, ffd.getBinCount());
+		assertEquals(3, improved.getBinCount());
+		assertEquals(35, classCapacity(ffd), 1e-9);
+		assertEquals(30, classCapacity(improved), 1e-9);
+		assertFeasible(improved, weight, volume);
+	}
+
+	@Test
+	void downsizingMovesItemsToShrinkClasses() {
+		double[] weight = { 3, 5, 1, 5 };
+		double[] volume = { 10, 9, 13, 17 };
+		BinPacker.Result ffd = new BinPacker(LOADS, VOLUMES, 0).pack(weight, volume);
+		BinPacker.Result improved = new BinPacker(LOADS, VOLUMES, 1000).pack(weight, volume);
+
+		// 箱数不变，车型容量之和下降
+		assertEquals(ffd.getBinCount(), improved.getBinCount());
+		assertEquals(20, classCapacity(ffd), 1e-9);
+		assertEquals(15, classCapacity(improved), 1e-9);
+		assertFeasible(improved, weight, volume);
+	}
+
+	@Test
+	void compactRenumbersBinsWithoutGaps() {
+		double[] weight = { 7, 9, 3, 1, 6, 3 };
+		double[] volume = { 19, 34, 10, 17, 4, 17 };
+		BinPacker.Result result = new BinPacker(LOADS, VOLUMES, 1000).pack(weight, volume);
+
+		int items = 0;
+		for (int b = 0; b < result.getBinCount(); b++) {
+			int[] bin = result.getItems(b);
+			assertTrue(bin.length > 0, "bin " + b + " is empty");
+			items += bin.length;
+		}
+		assertEquals(weight.length, items);
+	}
+
+	@Test
+	void improvementNeverIncreasesCapacity() {
+		Random random = new Random(11);
+		for (int round = 0; round < 200; round++) {
+			int n = 1 + random.nextInt(12);
+			double[] weight = new double[n], volume = new double[n];
+			for (int i = 0; i < n; i++) {
+				weight[i] = 0.5 + random.nextInt(19) * 0.5;
+				volume[i] = 1 + random.nextInt(39);
+			}
+			BinPacker.Result ffd = new BinPacker(LOADS, VOLUMES, 0).pack(weight, volume);
+			BinPacker.Result improved = new BinPacker(LOADS, VOLUMES, 1000).pack(weight, volume);
+
+			assertTrue(classCapacity(improved) <= classCapacity(ffd) + 1e-9);
+			assertTrue(improved.getBinCount() <= ffd.getBinCount());
+			assertFeasible(improved, weight, volume);
+		}
+	}
+
+	/** 各箱内容不超过其车型，且载重、体积与所装物品一致 */
+	private static void assertFeasible(BinPacker.Result result, double[] weight, double[] volume) {
+		double[] load = new double[result.getBinCount()], vol = new double[result.getBinCount()];
+		for (int i = 0; i < weight.length; i++) {
+			int b = result.binOf(i);
+			if (b < 0) continue;
+			load[b] += weight[i];
+			vol[b] += volume[i];
+		}
+		for (int b = 0; b < load.length; b++) {
+			int c = result.getVehicleClass(b);
+			assertTrue(c >= 0, "bin " + b + " has no class");
+			assertEquals(load[b], result.getLoad(b), 1e-9);
+			assertEquals(vol[b], result.getVolume(b), 1e-9);
+			assertTrue(load[b] <= LOADS[c] + 1e-9, "bin " + b + " load " + load[b] + " over class " + c);
+			assertTrue(vol[b] <= VOLUMES[c] + 1e-9, "bin " + b + " volume " + vol[b] + " over class " + c);
+			// 车型为放得下内容的最小车型
+			assertTrue(c == 0 || load[b] > LOADS[c - 1] + 1e-9 || vol[b] > VOLUMES[c - 1] + 1e-9, "bin " + b + " could use class " + (c - 1));
+		}
+	}
+
+	private static double classCapacity(BinPacker.Result result) {
+		double sum = 0;
+		for (int b = 0; b < result.getBinCount(); b++) sum += LOADS[result.getVehicleClass(b)];
+		return sum;
+	}
+
+}
@@ -0,0 +1,202 @@
+package com.tsadmin.transport.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.tsadmin.transport.solver.Tour.Insertion;
+
+class PdpSolverTests {
+
+	@Test
+	void insertionDoesNotOverlapWhenCapacityIsShort() {
+		// 兴趣点在数轴上，车辆从 0 出发；请求 0 载重 6 从 1 送到 3，请求 1 载重 5 从 2 送到 4
+		double[] xs = { 1, 2, 3, 4 };
+		PdpProblem problem = line(xs);
+		int v = problem.addVehicle(startCost(xs, 0), 10, 100);
+		int first = problem.addRequest(0, 2, 6, 1, -1);
+		int second = problem.addRequest(1, 3, 5, 1, -1);
+
+		Tour tour = new Tour(problem, v, new int[] { PdpProblem.pickupStop(first), PdpProblem.deliveryStop(first) });
+		Insertion ins = tour.bestInsertion(second);
+
+		// 顺路插入会在 2 到 3 之间载重 11，只能在请求 0 送达后再取货
+		assertNotNull(ins);
+		assertEquals(2, ins.i());
+		tour.insert(ins);
+		assertFeasible(problem, v, tour.toArray());
+	}
+
+	@Test
+	void insertionRejectsRequestLargerThanVehicle() {
+		double[] xs = { 1, 2 };
+		PdpProblem problem = line(xs);
+		int v = problem.addVehicle(startCost(xs, 0), 10, 10);
+		int heavy = problem.addRequest(0, 1, 11, 1, -1);
+		int bulky = problem.addRequest(0, 1, 1, 11, -1);
+
+		Tour tour = new Tour(problem, v, new int[0]);
+		assertNull(tour.bestInsertion(heavy));
+		assertNull(tour.bestInsertion(bulky));
+
+		PdpSolver solver = new PdpSolver(problem, 50);
+		solver.solve();
+		assertEquals(-1, solver.getAssignment(heavy));
+		assertEquals(-1, solver.getAssignment(bulky));
+	}
+
+	@Test
+	void onboardLoadCountsAgainstCapacity() {
+		// 车上已有固定请求载重 8，新请求载重 5 只能在其送达后装车
+		double[] xs = { 1, 2, 3 };
+		PdpProblem problem = line(xs);
+		int v = problem.addVehicle(startCost(xs, 0), 10, 100);
+		int onboard = problem.addRequest(-1, 2, 8, 1, v);
+		problem.setInitialStops(v, new int[] { PdpProblem.deliveryStop(onboard) });
+		int request = problem.addRequest(0, 1, 5, 1, -1);
+
+		PdpSolver solver = new PdpSolver(problem, 50);
+		solver.solve();
+
+		int[] stops = solver.getStops(v);
+		assertEquals(v, solver.getAssignment(request));
+		assertEquals(PdpProblem.deliveryStop(onboard), stops[0]);
+		assertFeasible(problem, v, stops);
+	}
+
+	@Test
+	void solvedToursStayWithinCapacity() {
+		Random random = new Random(7);
+		for (int round = 0; round < 20; round++) {
+			int pois = 30;
+			double[] xs = new double[pois];
+			for (int i = 0; i < pois; i++) xs[i] = random.nextDouble() * 100;
+			PdpProblem problem = line(xs);
+
+			int vehicles = 2 + random.nextInt(4);
+			for (int v = 0; v < vehicles; v++) {
+				problem.addVehicle(startCost(xs, random.nextDouble() * 100), 5 + random.nextInt(10), 5 + random.nextInt(10));
+			}
+			// 部分车辆带有车上的固定请求
+			for (int v = 0; v < vehicles; v += 2) {
+				int fixed = problem.addRequest(-1, random.nextInt(pois), 1 + random.nextInt(4), 1 + random.nextInt(4), v);
+				problem.setInitialStops(v, new int[] { PdpProblem.deliveryStop(fixed) });
+			}
+			int requests = 10 + random.nextInt(20);
+			for (int r = 0; r < requests; r++) {
+				problem.addRequest(random.nextInt(pois), random.nextInt(pois), 1 + random.nextInt(6), 1 + random.nextInt(6), -1);
+			}
+
+			PdpSolver solver = new PdpSolver(problem, 20);
+			if (round % 2 == 0) solver.solve();
+			else solver.insert();
+
+			int[] seen = new int[problem.getRequestCount()];
+			for (int v = 0; v < vehicles; v++) {
+				int[] stops = solver.getStops(v);
+				assertFeasible(problem, v, stops);
+				for (int stop : stops) {
+					int r = PdpProblem.requestOf(stop);
+					seen[r]++;
+					assertEquals(v, solver.getAssignment(r));
+					if (!problem.isFree(r)) assertEquals(problem.fixedVehicle[r], v);
+				}
+			}
+			for (int r = 0; r < problem.getRequestCount(); r++) {
+				int expected = solver.getAssignment(r) < 0 ? 0 : problem.isFree(r) ? 2 : 1;
+				assertEquals(expected, seen[r], "request " + r);
+			}
+		}
+	}
+
+	@Test
+	void insertionUsesOnlyCandidateVehicles() {
+		// 车辆 0 就在取货点，但请求只允许插入车辆 1；不给局部搜索预算，只看构造结果
+		double[] xs = { 1, 2 };
+		PdpProblem problem = line(xs);
+		int near = problem.addVehicle(startCost(xs, 1), 10, 10);
+		int far = problem.addVehicle(startCost(xs, 9), 10, 10);
+		int request = problem.addRequest(0, 1, 1, 1, -1);
+		problem.setCandidates(request, new int[] { far }, new float[] { Float.NaN });
+
+		PdpSolver solver = new PdpSolver(problem, 0);
+		assertTrue(solver.insert());
+		assertEquals(far, solver.getAssignment(request));
+		assertTrue(solver.isModified(far));
+		assertTrue(!solver.isModified(near));
+	}
+
+	@Test
+	void staleKnownDeltaIsReevaluatedBeforeInsert() {
+		// 缓存代价声称车辆 0 更便宜，但车辆 0 的容量已放不下该请求
+		double[] xs = { 1, 2 };
+		PdpProblem problem = line(xs);
+		int small = problem.addVehicle(startCost(xs, 1), 1, 10);
+		int large = problem.addVehicle(startCost(xs, 5), 10, 10);
+		int request = problem.addRequest(0, 1, 5, 1, -1);
+		problem.setCandidates(request, new int[] { small, large }, new float[] { 0, Float.NaN });
+
+		PdpSolver solver = new PdpSolver(problem, 0);
+		solver.insert();
+		assertEquals(large, solver.getAssignment(request));
+		assertFeasible(problem, large, solver.getStops(large));
+	}
+
+	@Test
+	void unassignedRequestKeepsCandidateDeltas() {
+		double[] xs = { 1, 2 };
+		PdpProblem problem = line(xs);
+		int v = problem.addVehicle(startCost(xs, 0), 1, 1);
+		int request = problem.addRequest(0, 1, 5, 1, -1);
+		problem.setCandidates(request, new int[] { v }, new float[] { Float.NaN });
+
+		PdpSolver solver = new PdpSolver(problem, 50);
+		solver.insert();
+		assertEquals(-1, solver.getAssignment(request));
+		assertEquals(Float.POSITIVE_INFINITY, solver.getCandidateDelta(request, 0));
+	}
+
+	/** 取货先于送货，且任意时刻载重与体积都不超过车辆容量 */
+	private static void assertFeasible(PdpProblem problem, int vehicle, int[] stops) {
+		double load = problem.initialLoad(vehicle, true), volume = problem.initialLoad(vehicle, false);
+		boolean[] picked = new boolean[problem.getRequestCount()];
+		for (int stop : stops) {
+			int r = PdpProblem.requestOf(stop);
+			if (PdpProblem.isPickup(stop)) {
+				picked[r] = true;
+				load += problem.quantity[r];
+				volume += problem.volume[r];
+			} else {
+				assertTrue(picked[r] || !problem.isFree(r), "delivery before pickup of request " + r);
+				load -= problem.quantity[r];
+				volume -= problem.volume[r];
+			}
+			assertTrue(load <= problem.maxLoad[vehicle] + 1e-9, "load " + load + " over " + problem.maxLoad[vehicle]);
+			assertTrue(volume <= problem.maxVolume[vehicle] + 1e-9, "volume " + volume + " over " + problem.maxVolume[vehicle]);
+		}
+	}
+
+	/** 数轴上的兴趣点，代价为距离 */
+	private static PdpProblem line(double[] xs) {
+		int n = xs.length;
+		float[] cost = new float[n * n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) cost[i * n + j] = (float)Math.abs(xs[i] - xs[j]);
+		}
+		PdpProblem problem = new PdpProblem(n, cost);
+		return problem;
+	}
+
+	/** 从 x 出发到各兴趣点的代价 */
+	private static float[] startCost(double[] xs, double x) {
+		float[] row = new float[xs.length];
+		for (int i = 0; i < row.length; i++) row[i] = (float)Math.abs(xs[i] - x);
+		return row;
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.tsadmin.transport.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IntIntMapTests {
+
+	@Test
+	void putsOverwritesAndRemoves() {
+		IntIntMap map = new IntIntMap();
+		map.put(1, 10);
+		map.put(-5, 50);
+		map.put(1, 11);
+
+		assertEquals(2, map.size());
+		assertEquals(11, map.get(1, -1));
+		assertEquals(50, map.get(-5, -1));
+		assertEquals(-1, map.get(2, -1));
+		assertTrue(map.remove(1));
+		assertFalse(map.remove(1));
+		assertFalse(map.containsKey(1));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	void rejectsReservedKey() {
+		IntIntMap map = new IntIntMap();
+		assertThrows(IllegalArgumentException.class, () -> map.put(Integer.MIN_VALUE, 0));
+		assertFalse(map.containsKey(Integer.MIN_VALUE));
+	}
+
+	@Test
+	void matchesHashMapUnderRandomOperations() {
+		// 小键域制造大量冲突与删除回移
+		Random random = new Random(42);
+		IntIntMap map = new IntIntMap(4);
+		Map<Integer, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 20000; i++) {
+			int key = random.nextInt(256) - 128;
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key) != null, map.remove(key));
+			} else {
+				map.put(key, i);
+				expected.put(key, i);
+			}
+		}
+
+		assertEquals(expected.size(), map.size());
+		for (int key = -128; key < 128; key++) {
+			assertEquals(expected.getOrDefault(key, -1), map.get(key, -1), "key " + key);
+		}
+	}
+
+	@Test
+	void iteratesEveryEntryOnce() {
+		IntIntMap map = new IntIntMap();
+		for (int i = 0; i < 100; i++) {
+			map.put(i * 31, i);
+		}
+
+		Map<Integer, Integer> seen = new HashMap<>();
+		for (int i = map.next(-1); i >= 0; i = map.next(i)) {
+			assertEquals(null, seen.put(map.keyAt(i), map.valueAt(i)));
+		}
+		assertEquals(100, seen.size());
+		assertEquals(7, seen.get(7 * 31));
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertEquals(-1, map.next(-1));
+	}
+
+}
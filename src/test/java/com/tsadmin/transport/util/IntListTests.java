@@ -0,0 +1,52 @@
+package com.tsadmin.transport.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+class IntListTests {
+
+	@Test
+	void growsAndKeepsOrder() {
+		IntList list = new IntList(1);
+		for (int i = 0; i < 100; i++) {
+			list.add(i * 2);
+		}
+
+		assertEquals(100, list.size());
+		assertEquals(198, list.get(99));
+		assertEquals(21, list.indexOf(42));
+		assertFalse(list.contains(43));
+		list.set(0, -1);
+		assertEquals(-1, list.get(0));
+		assertEquals(198, list.removeLast());
+		assertEquals(99, list.toArray().length);
+	}
+
+	@Test
+	void rejectsIndexBeyondSize() {
+		IntList list = new IntList(16);
+		list.add(1);
+		assertThrows(IndexOutOfBoundsException.class, () -> list.get(1));
+		assertThrows(IndexOutOfBoundsException.class, () -> list.set(1, 0));
+	}
+
+	@Test
+	void clearsWithoutShrinking() {
+		IntList list = new IntList();
+		list.add(3);
+		list.add(4);
+		list.clear();
+
+		assertTrue(list.isEmpty());
+		assertArrayEquals(new int[0], list.toArray());
+		assertThrows(NoSuchElementException.class, list::removeLast);
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.tsadmin.transport.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class JsonWriterTests {
+
+	@Test
+	void writesNestedStructure() {
+		byte[] json = JsonWriter.acquire()
+			.beginObject()
+			.field("id", 7)
+			.field("name", "a\"b")
+			.name("list").beginArray().value(1).value(true).nullValue().endArray()
+			.endObject()
+			.finish();
+
+		assertEquals("{\"id\":7,\"name\":\"a\\\"b\",\"list\":[1,true,null]}", new String(json, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void pooledWriterStartsEmpty() {
+		for (int i = 0; i < 4; i++) {
+			JsonWriter writer = JsonWriter.acquire();
+			assertEquals(0, writer.size());
+			assertEquals("[" + i + "]", new String(writer.beginArray().value(i).endArray().finish(), StandardCharsets.UTF_8));
+		}
+	}
+
+}
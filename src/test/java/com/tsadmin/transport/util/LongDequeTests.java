@@ -0,0 +1,63 @@
+package com.tsadmin.transport.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+class LongDequeTests {
+
+	@Test
+	void keepsFifoOrderAcrossWrapAndGrowth() {
+		LongDeque deque = new LongDeque(4);
+		ArrayDeque<Long> expected = new ArrayDeque<>();
+		long next = 0;
+		// 交替入队出队使队首绕过数组末尾，再在绕回状态下扩容
+		for (int round = 0; round < 50; round++) {
+			for (int i = 0; i < 3 + round % 5; i++) {
+				deque.addLast(next);
+				expected.addLast(next++);
+			}
+			for (int i = 0; i < 2; i++) {
+				assertEquals(expected.pollFirst(), deque.pollFirst());
+			}
+		}
+
+		assertEquals(expected.size(), deque.size());
+		int index = 0;
+		for (long value : expected) {
+			assertEquals(value, deque.get(index++));
+		}
+		assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), deque.toArray());
+	}
+
+	@Test
+	void addsAllAfterExistingElements() {
+		LongDeque deque = new LongDeque();
+		deque.addLast(1);
+		deque.pollFirst();
+		deque.addLast(2);
+		deque.addAll(new long[] { 3, 4, 5, 6, 7, 8, 9, 10, 11 });
+
+		assertArrayEquals(new long[] { 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 }, deque.toArray());
+		assertEquals(2, deque.peekFirst());
+	}
+
+	@Test
+	void rejectsAccessWhenEmpty() {
+		LongDeque deque = new LongDeque();
+		assertThrows(NoSuchElementException.class, deque::peekFirst);
+		assertThrows(NoSuchElementException.class, deque::pollFirst);
+		assertThrows(IndexOutOfBoundsException.class, () -> deque.get(0));
+
+		deque.addLast(1);
+		deque.clear();
+		assertTrue(deque.isEmpty());
+	}
+
+}
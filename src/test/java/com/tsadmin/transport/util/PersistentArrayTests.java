@@ -0,0 +1,81 @@
+package com.tsadmin.transport.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PersistentArrayTests {
+
+	@Test
+	void appendsAcrossChunks() {
+		PersistentArray.Builder<Integer> builder = PersistentArray.<Integer>empty().toBuilder();
+		for (int i = 0; i < 200; i++) {
+			builder.set(i, i);
+		}
+		PersistentArray<Integer> array = builder.build();
+
+		assertEquals(200, array.size());
+		for (int i = 0; i < 200; i++) {
+			assertEquals(i, array.get(i));
+		}
+		assertEquals(0, PersistentArray.empty().size());
+	}
+
+	@Test
+	void buildLeavesEarlierVersionsUnchanged() {
+		PersistentArray.Builder<String> builder = PersistentArray.<String>empty().toBuilder();
+		for (int i = 0; i < 130; i++) {
+			builder.set(i, "v0-" + i);
+		}
+		PersistentArray<String> v0 = builder.build();
+
+		// 同一构建器在 build 之后继续修改，不能影响已生成的版本
+		builder.set(1, "v1-1").set(130, "v1-130");
+		PersistentArray<String> v1 = builder.build();
+		builder.set(1, "v2-1").set(100, "v2-100");
+		PersistentArray<String> v2 = builder.build();
+		PersistentArray<String> v3 = v0.toBuilder().set(129, "v3-129").build();
+
+		assertEquals(130, v0.size());
+		assertEquals("v0-1", v0.get(1));
+		assertEquals("v0-129", v0.get(129));
+		assertEquals(131, v1.size());
+		assertEquals("v1-1", v1.get(1));
+		assertEquals("v0-100", v1.get(100));
+		assertEquals("v2-1", v2.get(1));
+		assertEquals("v2-100", v2.get(100));
+		assertEquals("v1-130", v2.get(130));
+		assertEquals(130, v3.size());
+		assertEquals("v3-129", v3.get(129));
+		assertEquals("v0-129", v1.get(129));
+	}
+
+	@Test
+	void listViewReflectsElements() {
+		PersistentArray<String> array = PersistentArray.<String>empty().toBuilder()
+			.set(0, "a").set(1, null).set(2, "c").build();
+
+		List<String> list = array.asList();
+		assertEquals(3, list.size());
+		assertNull(list.get(1));
+		assertEquals(Arrays.asList("a", null, "c"), new ArrayList<>(list));
+		assertThrows(UnsupportedOperationException.class, () -> list.set(0, "x"));
+	}
+
+	@Test
+	void rejectsIndexOutsideRange() {
+		PersistentArray<Integer> array = PersistentArray.<Integer>empty().toBuilder().set(0, 1).build();
+
+		assertThrows(IndexOutOfBoundsException.class, () -> array.get(1));
+		assertThrows(IndexOutOfBoundsException.class, () -> array.get(-1));
+		// 只能在末尾追加，不能跳过下标
+		assertThrows(IndexOutOfBoundsException.class, () -> array.toBuilder().set(2, 3));
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.tsadmin.transport.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class PointGridTests {
+
+	@Test
+	void matchesBruteForceNearest() {
+		Random random = new Random(3);
+		int n = 2000;
+		double[] lat = new double[n], lng = new double[n];
+		PointGrid grid = new PointGrid(0.02);
+		for (int i = 0; i < n; i++) {
+			// 成都附近约 50 km 见方，外加少量远点
+			lat[i] = 30.5 + random.nextDouble() * (i % 100 == 0 ? 5 : 0.5);
+			lng[i] = 103.8 + random.nextDouble() * (i % 100 == 0 ? 5 : 0.5);
+			grid.add(i, lat[i], lng[i]);
+		}
+
+		int[] out = new int[16];
+		for (int q = 0; q < 200; q++) {
+			double qLat = 30 + random.nextDouble() * 2, qLng = 103.5 + random.nextDouble() * 2;
+			double cos = Math.cos(Math.toRadians(qLat));
+			int[] expected = IntStream.range(0, n).boxed()
+				.sorted(Comparator.comparingDouble(i -> {
+					double dy = lat[i] - qLat, dx = (lng[i] - qLng) * cos;
+					return dy * dy + dx * dx;
+				}))
+				.limit(16).mapToInt(Integer::intValue).toArray();
+
+			assertEquals(16, grid.nearest(qLat, qLng, 16, out));
+			assertArrayEquals(expected, out, "query " + q);
+		}
+	}
+
+	@Test
+	void returnsFewerThanKWhenSparse() {
+		PointGrid grid = new PointGrid(0.02);
+		grid.add(7, 30, 104);
+		grid.add(8, 31, 105);
+
+		int[] out = new int[4];
+		assertEquals(2, grid.nearest(30.9, 104.9, 4, out));
+		assertArrayEquals(new int[] { 8, 7 }, Arrays.copyOf(out, 2));
+
+		grid.clear();
+		assertEquals(0, grid.nearest(30, 104, 4, out));
+	}
+
+}
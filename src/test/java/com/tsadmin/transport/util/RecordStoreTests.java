@@ -0,0 +1,64 @@
+package com.tsadmin.transport.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RecordStoreTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void growsAndKeepsRecords() {
+		RecordStore store = RecordStore.open("heap", null, 16, 2);
+		store.putLong(1, 0, 42L);
+		store.putDouble(1, 8, 1.5);
+		store.ensureCapacity(100);
+
+		assertTrue(store.capacity() >= 100);
+		assertEquals(42L, store.getLong(1, 0));
+		assertEquals(1.5, store.getDouble(1, 8));
+		assertEquals(0L, store.getLong(99, 0));
+	}
+
+	@Test
+	void rejectsRecordsOutOfRange() {
+		RecordStore store = RecordStore.open("direct", null, 8, 4);
+		assertThrows(IndexOutOfBoundsException.class, () -> store.getLong(4, 0));
+		assertThrows(IndexOutOfBoundsException.class, () -> store.putLong(-1, 0, 1L));
+	}
+
+	@Test
+	void rejectsCapacityBeyondBufferLimit() {
+		RecordStore store = RecordStore.open("heap", null, 1024, 1);
+		int max = store.maxCapacity();
+		assertTrue(max > 0 && (long)max * 1024 < Integer.MAX_VALUE);
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> store.ensureCapacity(max + 1));
+		assertTrue(e.getMessage().contains(String.valueOf(max)));
+		assertThrows(IllegalStateException.class, () -> RecordStore.open("heap", null, 1024, Integer.MAX_VALUE));
+		assertEquals(1, store.capacity());
+	}
+
+	@Test
+	void reopensMappedFile() throws Exception {
+		Path file = dir.resolve("records.bin");
+		RecordStore store = RecordStore.open("mapped", file, 8, 4);
+		store.putLong(3, 0, 7L);
+		store.setCount(4);
+		store.force();
+
+		RecordStore reopened = RecordStore.open("mapped", file, 8, 1);
+		assertEquals(4, reopened.count());
+		assertEquals(7L, reopened.getLong(3, 0));
+		assertTrue(Files.size(file) >= 16 + 4 * 8);
+	}
+
+}